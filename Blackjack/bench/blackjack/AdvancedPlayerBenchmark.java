@@ -0,0 +1,63 @@
+package blackjack;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Class: AdvancedPlayerBenchmark.java
+ * Description: Benchmark of the card counting update made by an 
+ *  advanced player at the end of every round.
+ * Author: Paulo Jorge.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AdvancedPlayerBenchmark {
+    // Number of cards played in a round
+    @Param({"6", "20", "40"})
+    public int cardsPlayed;
+    
+    // Player counting cards
+    private AdvancedPlayer player;
+    // Cards played
+    private final List<Card> cards = new ArrayList<>();
+
+    /**
+     * Method to initialise the player and cards played.
+     */
+    @Setup
+    public void setup() {
+        this.player = new AdvancedPlayer();
+        
+        Deck deck = new Deck();
+        deck.shuffle();
+        for (int i = 0; i < this.cardsPlayed; i++)
+            this.cards.add(deck.deal());
+    }
+
+    /**
+     * Benchmark of viewing every card played in a round.
+     * @return Integer bet made with the updated count.
+     */
+    @Benchmark
+    public int viewCards() {
+        this.player.viewCards(this.cards);
+        this.player.newDeck();
+        return this.player.makeBet();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,118 @@
+package blackjack;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Class: CardBenchmark.java
+ * Description: Benchmark of the natural card order and both card 
+ *  comparators, on single comparisons and full deck sorts.
+ * Author: Paulo Jorge.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CardBenchmark {
+    // Cards to compare
+    private Card a;
+    private Card b;
+    // Comparators
+    private final Card.CompareAscending ascending 
+            = new Card.CompareAscending();
+    private final Card.CompareSuit suit = new Card.CompareSuit();
+    // Shuffled cards and list to sort
+    private final List<Card> shuffled = new ArrayList<>();
+    private final List<Card> cards = new ArrayList<>();
+
+    /**
+     * Method to initialise the cards compared and sorted.
+     */
+    @Setup
+    public void setup() {
+        this.a = new Card(Card.Rank.KING, Card.Suit.hearts);
+        this.b = new Card(Card.Rank.KING, Card.Suit.clubs);
+        
+        Deck deck = new Deck();
+        deck.shuffle();
+        while (deck.size() > 0)
+            this.shuffled.add(deck.deal());
+    }
+
+    /**
+     * Benchmark of the natural descending rank order.
+     * @return Integer compare result.
+     */
+    @Benchmark
+    public int compareTo() {
+        return this.a.compareTo(this.b);
+    }
+
+    /**
+     * Benchmark of the ascending rank comparator.
+     * @return Integer compare result.
+     */
+    @Benchmark
+    public int compareAscending() {
+        return this.ascending.compare(this.a, this.b);
+    }
+
+    /**
+     * Benchmark of the suit comparator.
+     * @return Integer compare result.
+     */
+    @Benchmark
+    public int compareSuit() {
+        return this.suit.compare(this.a, this.b);
+    }
+
+    /**
+     * Benchmark of sorting a shuffled deck by natural order.
+     * @return Sorted list of cards.
+     */
+    @Benchmark
+    public List<Card> sortDescending() {
+        this.cards.clear();
+        this.cards.addAll(this.shuffled);
+        Collections.sort(this.cards);
+        return this.cards;
+    }
+
+    /**
+     * Benchmark of sorting a shuffled deck by ascending rank.
+     * @return Sorted list of cards.
+     */
+    @Benchmark
+    public List<Card> sortAscending() {
+        this.cards.clear();
+        this.cards.addAll(this.shuffled);
+        Collections.sort(this.cards, this.ascending);
+        return this.cards;
+    }
+
+    /**
+     * Benchmark of sorting a shuffled deck by suit.
+     * @return Sorted list of cards.
+     */
+    @Benchmark
+    public List<Card> sortSuit() {
+        this.cards.clear();
+        this.cards.addAll(this.shuffled);
+        Collections.sort(this.cards, this.suit);
+        return this.cards;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,81 @@
+package blackjack;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Class: DealerRoundBenchmark.java
+ * Description: Benchmark of a full headless round of blackjack, from
+ *  taking bets through to settling bets, with 1 to 8 seats.
+ * Author: Paulo Jorge.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DealerRoundBenchmark {
+    // Number of seats at the table
+    @Param({"1", "2", "4", "8"})
+    public int seats;
+    
+    // Table being played
+    private BlackjackTable table;
+
+    /**
+     * Method to initialise a new headless table each iteration.
+     */
+    @Setup(Level.Iteration)
+    public void setup() {
+        this.table = new BlackjackTable(false, false);
+        seatPlayers();
+        this.table.assignPlayers();
+    }
+
+    /**
+     * Method to fill every empty seat with a basic, intermediate or
+     *  advanced player in turn.
+     */
+    private void seatPlayers() {
+        for (int i = this.table.getPlayers().size(); i < this.seats; 
+                i++) {
+            switch (i % 3) {
+                case 0:
+                    this.table.addPlayer(new BasicPlayer());
+                    break;
+                case 1:
+                    this.table.addPlayer(new IntermediatePlayer());
+                    break;
+                default:
+                    this.table.addPlayer(new AdvancedPlayer());
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Benchmark of a full round. Players that run out of funds are 
+     *  replaced before the next round, so every round is played with 
+     *  the same number of seats.
+     * @return Table object so the result is not optimised away.
+     */
+    @Benchmark
+    public BlackjackTable round() {
+        if (this.table.getPlayers().size() < this.seats)
+            seatPlayers();
+        this.table.playRound();
+        return this.table;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,70 @@
+package blackjack;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Class: DeckBenchmark.java
+ * Description: Benchmark of shuffling, dealing and creating a new 
+ *  deck.
+ * Author: Paulo Jorge.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeckBenchmark {
+    // Deck to benchmark
+    private Deck deck;
+
+    /**
+     * Method to initialise a new full deck.
+     */
+    @Setup
+    public void setup() {
+        this.deck = new Deck();
+    }
+
+    /**
+     * Benchmark of shuffling a full deck.
+     * @return Deck object so the result is not optimised away.
+     */
+    @Benchmark
+    public Deck shuffle() {
+        this.deck.shuffle();
+        return this.deck;
+    }
+
+    /**
+     * Benchmark of dealing a single card. The deck is refilled once 
+     *  a quarter is remaining, as done by the dealer.
+     * @return Card object dealt.
+     */
+    @Benchmark
+    public Card deal() {
+        if (this.deck.size() < (this.deck.totalSize() / 4))
+            this.deck.newDeck();
+        return this.deck.deal();
+    }
+
+    /**
+     * Benchmark of creating a new deck containing all 52 cards.
+     * @return Deck object so the result is not optimised away.
+     */
+    @Benchmark
+    public Deck newDeck() {
+        this.deck.newDeck();
+        return this.deck;
+    }
+}
\ No newline at end of file
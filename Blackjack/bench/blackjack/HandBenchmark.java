@@ -0,0 +1,84 @@
+package blackjack;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Class: HandBenchmark.java
+ * Description: Benchmark of adding cards to a hand and scoring the 
+ *  hand, as done by the dealer and every player each round.
+ * Author: Paulo Jorge.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HandBenchmark {
+    // Number of cards in hand
+    @Param({"2", "3", "5"})
+    public int cards;
+    
+    // Cards added to hand, including aces to give multiple totals
+    private Card[] source;
+    // Hand containing source cards
+    private Hand hand;
+
+    /**
+     * Method to initialise the cards and hand used by benchmarks.
+     */
+    @Setup
+    public void setup() {
+        Card[] all = {
+            new Card(Card.Rank.ACE, Card.Suit.spades),
+            new Card(Card.Rank.SIX, Card.Suit.hearts),
+            new Card(Card.Rank.ACE, Card.Suit.clubs),
+            new Card(Card.Rank.FOUR, Card.Suit.diamonds),
+            new Card(Card.Rank.NINE, Card.Suit.spades)
+        };
+        this.source = new Card[this.cards];
+        System.arraycopy(all, 0, this.source, 0, this.cards);
+        this.hand = new Hand(this.source);
+    }
+
+    /**
+     * Benchmark of adding every source card to a new hand.
+     * @return Hand object so the result is not optimised away.
+     */
+    @Benchmark
+    public Hand add() {
+        Hand newHand = new Hand();
+        for (Card card : this.source)
+            newHand.add(card);
+        return newHand;
+    }
+
+    /**
+     * Benchmark of the bust and stand checks used by every player.
+     * @return Boolean result of check.
+     */
+    @Benchmark
+    public boolean isOver() {
+        return this.hand.isOver(16);
+    }
+
+    /**
+     * Benchmark of scoring a hand as done by the dealer.
+     * @return Integer score of hand.
+     */
+    @Benchmark
+    public int getHighestBelowOrEqual() {
+        return this.hand.getHighestBelowOrEqual(21);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,109 @@
+package blackjack;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Class: SerializationBenchmark.java
+ * Description: Benchmark of saving and loading a blackjack table 
+ *  part way through a game, with Java serialization and the binary
+ *  codec.
+ * Author: Paulo Jorge.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+    // Number of seats at the table
+    @Param({"1", "8"})
+    public int seats;
+    
+    // Table to save and files to save to
+    private BlackjackTable table;
+    private String fileName;
+    private String codecFileName;
+
+    /**
+     * Method to initialise a table that has played a few rounds and 
+     *  save it once, so there is always a file to load.
+     * @throws IOException If the temporary file can not be created.
+     */
+    @Setup
+    public void setup() throws IOException {
+        this.table = new BlackjackTable(false, false);
+        for (int i = 0; i < this.seats; i++)
+            this.table.addPlayer(new AdvancedPlayer());
+        this.table.assignPlayers();
+        for (int i = 0; i < 5; i++)
+            this.table.playRound();
+        
+        File file = File.createTempFile("blackjackTable", ".ser");
+        this.fileName = file.getPath();
+        Serialization.writeToFile(this.table, this.fileName, false);
+        
+        file = File.createTempFile("blackjackTable", ".dat");
+        this.codecFileName = file.getPath();
+        BinaryCodec.writeToFile(this.table, this.codecFileName);
+    }
+
+    /**
+     * Method to remove the temporary files.
+     */
+    @TearDown
+    public void tearDown() {
+        new File(this.fileName).delete();
+        new File(this.codecFileName).delete();
+    }
+
+    /**
+     * Benchmark of saving the table.
+     */
+    @Benchmark
+    public void save() {
+        Serialization.writeToFile(this.table, this.fileName, false);
+    }
+
+    /**
+     * Benchmark of loading the table.
+     * @return Table object loaded.
+     */
+    @Benchmark
+    public Object load() {
+        return Serialization.readFromFile(this.fileName, false);
+    }
+
+    /**
+     * Benchmark of saving the table with the binary codec.
+     * @throws IOException If the file can not be written.
+     */
+    @Benchmark
+    public void codecSave() throws IOException {
+        BinaryCodec.writeToFile(this.table, this.codecFileName);
+    }
+
+    /**
+     * Benchmark of loading the table with the binary codec.
+     * @return Table object loaded.
+     * @throws IOException If the file can not be read.
+     */
+    @Benchmark
+    public BlackjackTable codecLoad() throws IOException {
+        return BinaryCodec.readFromFile(this.codecFileName, null);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,141 @@
+package blackjack;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/**
+ * Class: AllocationCheck.java
+ * Description: Regression check that a round of headless play, with
+ *  no round listeners and no recording, does not allocate any memory
+ *  once warmed up. Rounds are measured in chunks using the bytes the
+ *  thread has allocated. Chunks where a player ran out of funds and
+ *  was replaced are skipped, as seating a new player allocates. The
+ *  storage of a hand or the cards played only grows the first time a
+ *  round uses more cards than any before it, which the warm up 
+ *  covers, so a chunk fails if it allocates any bytes at all. Kept 
+ *  out of the jar with the other build checks. Exits with a non zero 
+ *  status if any measured chunk failed.
+ * Author: Paulo Jorge.
+ */
+public final class AllocationCheck {
+    // Rounds played before measuring, so every method is compiled
+    private static final int WARMUP_ROUNDS = 200000;
+    // Rounds played in each measured chunk
+    private static final int CHUNK_ROUNDS = 10000;
+    // Number of measured chunks
+    private static final int CHUNKS = 20;
+
+    // Table played and players seated at it
+    private final BlackjackTable table;
+    private final Player[] seated;
+    // Used to read the bytes allocated by the current thread
+    private final com.sun.management.ThreadMXBean threads;
+
+    /**
+     * Constructor method used to initialise a new allocation check
+     *  with a table of every computer player type.
+     * @param seed Long seed of random number generator.
+     */
+    private AllocationCheck(long seed) {
+        this.table = new BlackjackTable(false, false, new Random(seed));
+        this.seated = new Player[] {new BasicPlayer(),
+                new IntermediatePlayer(), new AdvancedPlayer(),
+                new AdvancedPlayer()};
+        for (Player player : this.seated)
+            this.table.addPlayer(player);
+        this.table.assignPlayers();
+        // Side bets are settled without allocating too
+        this.table.getDealer().setSideBets(new SideBets(1, 1, 1));
+
+        this.threads = (com.sun.management.ThreadMXBean)
+                ManagementFactory.getThreadMXBean();
+        this.threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    /**
+     * Method to play a number of rounds, replacing any player that
+     *  runs out of funds.
+     * @param rounds Integer number of rounds to play.
+     * @return Boolean true if any player was replaced, false otherwise.
+     */
+    private boolean playRounds(int rounds) {
+        boolean replaced = false;
+        for (int round = 0; round < rounds; round++) {
+            this.table.playRound();
+
+            // Replace players out of funds
+            for (int i = 0; i < this.seated.length; i++) {
+                if (!this.table.getPlayers().contains(this.seated[i])) {
+                    this.seated[i] = newPlayer(this.seated[i]);
+                    this.table.addPlayer(this.seated[i]);
+                    replaced = true;
+                }
+            }
+        }
+        return replaced;
+    }
+
+    /**
+     * Method to create a new player of the same type as a player.
+     * @param player Player object to copy the type of.
+     * @return Player object created.
+     */
+    private static Player newPlayer(Player player) {
+        if (player instanceof AdvancedPlayer)
+            return new AdvancedPlayer();
+        else if (player instanceof IntermediatePlayer)
+            return new IntermediatePlayer();
+        return new BasicPlayer();
+    }
+
+    /**
+     * Method to run the check, printing the bytes allocated per round
+     *  of each measured chunk.
+     * @return Boolean true if no measured chunk allocated, false
+     *  otherwise.
+     */
+    private boolean run() {
+        long thread = Thread.currentThread().getId();
+        playRounds(WARMUP_ROUNDS);
+
+        int measured = 0;
+        boolean passed = true;
+        for (int chunk = 0; chunk < CHUNKS; chunk++) {
+            long before = this.threads.getThreadAllocatedBytes(thread);
+            boolean replaced = playRounds(CHUNK_ROUNDS);
+            long allocated = this.threads.getThreadAllocatedBytes(thread)
+                    - before;
+
+            if (replaced)
+                System.out.println("Chunk " + chunk + ": skipped, a "
+                        + "player was replaced.");
+            else {
+                measured++;
+                System.out.println("Chunk " + chunk + ": "
+                        + ((double) allocated / CHUNK_ROUNDS)
+                        + " bytes per round.");
+                if (allocated > 0)
+                    passed = false;
+            }
+        }
+
+        // A check that measured nothing has not passed
+        if (measured == 0) {
+            System.out.println("Every chunk was skipped.");
+            return false;
+        }
+        return passed;
+    }
+
+    /**
+     * Method to run the allocation check from the command line.
+     * @param args Optional seed of random number generator.
+     */
+    public static void main(String[] args) {
+        long seed = (args.length > 0 ? Long.parseLong(args[0]) : 1);
+        boolean passed = new AllocationCheck(seed).run();
+        System.out.println(passed ? "Allocation check passed."
+                : "Allocation check failed.");
+        System.exit(passed ? 0 : 1);
+    }
+}
\ No newline at end of file
@@ -1,5 +1,6 @@
 package blackjack;
 
+import java.nio.ByteBuffer;
 import java.util.List;
 
 /**
@@ -11,7 +12,7 @@ import java.util.List;
  */
 public class AdvancedPlayer extends IntermediatePlayer {
     // Used to card count
-    private int cardCount = 0;
+    protected int cardCount = 0;
     
     /**
      * Constructor method used to initialise a new intermediate 
@@ -48,9 +49,9 @@ public class AdvancedPlayer extends IntermediatePlayer {
     @Override
     public void viewCards(List<Card> cards) {
         // Iterate every card
-        for (Card card : cards) {
+        for (int i = 0, x = cards.size(); i < x; i++) {
             // Card value
-            int value = card.getRank().getValue();
+            int value = cards.get(i).getRank().getValue();
             
             if (value <= 6)
                 this.cardCount++;
@@ -68,4 +69,25 @@ public class AdvancedPlayer extends IntermediatePlayer {
         // Reset card count
         this.cardCount = 0;
     }
+    
+    /**
+     * Method to write the state of this player to a buffer.
+     * @param buffer ByteBuffer object to write to.
+     */
+    @Override
+    void encode(ByteBuffer buffer) {
+        super.encode(buffer);
+        buffer.putInt(this.cardCount);
+    }
+    
+    /**
+     * Method to replace the state of this player with state written 
+     *  to a buffer by encode().
+     * @param buffer ByteBuffer object to read from.
+     */
+    @Override
+    void decode(ByteBuffer buffer) {
+        super.decode(buffer);
+        this.cardCount = buffer.getInt();
+    }
 }
\ No newline at end of file
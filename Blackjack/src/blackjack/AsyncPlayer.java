@@ -0,0 +1,40 @@
+package blackjack;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Class: AsyncPlayer.java
+ * Description: Interface class for a player that decides without
+ *  blocking the dealer, such as a remote player. The dealer requests
+ *  each decision and waits for it until a deadline, using a default
+ *  decision if the player is too slow. Decisions of other seats are
+ *  made while the player decides.
+ * Author: Paulo Jorge.
+ */
+public interface AsyncPlayer extends Player {
+
+    /**
+     * Method used to request a bet. The dealer cancels the request if
+     *  the player does not decide before the deadline.
+     * @return CompletableFuture object completed with the bet to
+     *  place, or with null to use the default bet.
+     */
+    CompletableFuture<Integer> requestBet();
+
+    /**
+     * Method used to tell the player their bet was outside the bet 
+     *  limits, before it is requested again.
+     * @param minimum Integer minimum bet.
+     * @param maximum Integer maximum bet.
+     */
+    void rejectBet(int minimum, int maximum);
+
+    /**
+     * Method used to request whether the player wants to take a card
+     *  or not. The dealer cancels the request if the player does not
+     *  decide before the deadline.
+     * @return CompletableFuture object completed with true if a card
+     *  is required, false otherwise, or with null to use the default.
+     */
+    CompletableFuture<Boolean> requestHit();
+}
\ No newline at end of file
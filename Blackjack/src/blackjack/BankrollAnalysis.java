@@ -0,0 +1,545 @@
+package blackjack;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Class: BankrollAnalysis.java
+ * Description: Analysis of the bankroll of a betting strategy over
+ *  many independent paths. Each path is a player at its own single
+ *  seat table, shuffled with the stream of its index, starting with a
+ *  bankroll and playing a number of rounds or until ruined, when the
+ *  bankroll falls below the minimum bet as it does for a dealer.
+ *  Bankrolls are longs, kept apart from the int balance of the player,
+ *  which is only used to read what each round settled. Paths are
+ *  never stored: the bankroll of every path is sampled at a fixed
+ *  number of rounds into a QuantileSketch for each, so memory is the
+ *  same for any number of paths. The risk of ruin, time to ruin,
+ *  drawdown and quantile bands of the bankroll over time are reported,
+ *  and are identical for a seed with any number of threads.
+ * Author: Paulo Jorge.
+ */
+public class BankrollAnalysis {
+    // Balance of each player, put back after every round
+    private static final int BALANCE = 1000000000;
+    // Quantiles of each band of bankroll
+    private static final double[] BANDS = {0.05, 0.25, 0.5, 0.75, 0.95};
+
+    // Strategy played
+    private String strategy = "advanced";
+    // Paths played
+    private int paths = 10000;
+    // Most rounds played on each path
+    private int rounds = 1000;
+    // Bankroll each path starts with
+    private long bankroll = 1000;
+    // Rounds the bankroll of each path is sampled at
+    private int samples = 20;
+    // Seed used to shuffle
+    private long seed = 0;
+    // Number of threads used to play paths
+    private int threads = Runtime.getRuntime().availableProcessors();
+    // House rules of every table
+    private RuleSet rules = RuleSet.standard();
+
+    /**
+     * Result of a number of paths, recorded as they are played.
+     */
+    public static final class Result {
+        // Round of each sample
+        private final int[] sampleRounds;
+        // Bankroll of every path, and paths ruined, at each sample
+        private final QuantileSketch[] bankrolls;
+        private final long[] ruined;
+        // Round each ruined path was ruined on
+        private final QuantileSketch ruinRounds = new QuantileSketch();
+        // Largest fall of each path from its highest bankroll
+        private final QuantileSketch drawdowns = new QuantileSketch();
+
+        /**
+         * Constructor method used to initialise a new empty result.
+         * @param sampleRounds Integer array of round of each sample.
+         */
+        private Result(int[] sampleRounds) {
+            this.sampleRounds = sampleRounds;
+            this.bankrolls = new QuantileSketch[sampleRounds.length];
+            for (int i = 0; i < sampleRounds.length; i++)
+                this.bankrolls[i] = new QuantileSketch();
+            this.ruined = new long[sampleRounds.length];
+        }
+
+        /**
+         * Method to add the paths of another result to this.
+         * @param other Result object to add.
+         */
+        private void add(Result other) {
+            for (int i = 0; i < this.bankrolls.length; i++) {
+                this.bankrolls[i].add(other.bankrolls[i]);
+                this.ruined[i] += other.ruined[i];
+            }
+            this.ruinRounds.add(other.ruinRounds);
+            this.drawdowns.add(other.drawdowns);
+        }
+
+        /**
+         * Method to get and return the number of paths played.
+         * @return Long number of paths played.
+         */
+        public long getPaths() {
+            return this.drawdowns.getCount();
+        }
+
+        /**
+         * Method to get and return the number of paths ruined.
+         * @return Long number of paths ruined.
+         */
+        public long getRuined() {
+            return this.ruinRounds.getCount();
+        }
+
+        /**
+         * Method to get and return the round of each sample.
+         * @return Integer array of round of each sample.
+         */
+        public int[] getSampleRounds() {
+            return this.sampleRounds.clone();
+        }
+
+        /**
+         * Method to get and return the bankroll of every path at a
+         *  sample. A ruined path keeps the bankroll it was ruined with.
+         * @param sample Integer index of sample.
+         * @return QuantileSketch object of bankrolls.
+         */
+        public QuantileSketch getBankrolls(int sample) {
+            return this.bankrolls[sample];
+        }
+
+        /**
+         * Method to get and return the paths ruined by a sample.
+         * @param sample Integer index of sample.
+         * @return Long number of paths ruined.
+         */
+        public long getRuined(int sample) {
+            return this.ruined[sample];
+        }
+
+        /**
+         * Method to get and return the sketch of the round of each
+         *  ruin.
+         * @return QuantileSketch object of round of each ruin.
+         */
+        public QuantileSketch getRuinRounds() {
+            return this.ruinRounds;
+        }
+
+        /**
+         * Method to get and return the sketch of the drawdown of each
+         *  path.
+         * @return QuantileSketch object of drawdown of each path.
+         */
+        public QuantileSketch getDrawdowns() {
+            return this.drawdowns;
+        }
+    }
+
+    /**
+     * Method to set the strategy played.
+     * @param strategy String strategy, from basic, intermediate,
+     *  advanced, or basic-N for a basic player that sticks on N or
+     *  higher.
+     */
+    public void setStrategy(String strategy) {
+        String checked = strategy.trim().toLowerCase();
+        // Check strategy is known
+        Tournament.newPlayer(checked);
+        this.strategy = checked;
+    }
+
+    /**
+     * Method to set the number of paths played.
+     * @param paths Integer number of paths.
+     */
+    public void setPaths(int paths) {
+        if (paths < 1)
+            throw new IllegalArgumentException("Paths must be at "
+                    + "least 1.");
+        this.paths = paths;
+    }
+
+    /**
+     * Method to set the most rounds played on each path.
+     * @param rounds Integer number of rounds.
+     */
+    public void setRounds(int rounds) {
+        if (rounds < 1)
+            throw new IllegalArgumentException("Rounds must be at "
+                    + "least 1.");
+        this.rounds = rounds;
+    }
+
+    /**
+     * Method to set the bankroll each path starts with.
+     * @param bankroll Long bankroll, at least the minimum bet.
+     */
+    public void setBankroll(long bankroll) {
+        if (bankroll < this.rules.getMinimumBet())
+            throw new IllegalArgumentException("Bankroll must be at "
+                    + "least the minimum bet.");
+        this.bankroll = bankroll;
+    }
+
+    /**
+     * Method to set the number of rounds the bankroll of each path is
+     *  sampled at, spread evenly up to the last round.
+     * @param samples Integer number of samples.
+     */
+    public void setSamples(int samples) {
+        if (samples < 1)
+            throw new IllegalArgumentException("Samples must be at "
+                    + "least 1.");
+        this.samples = samples;
+    }
+
+    /**
+     * Method to set the seed used to shuffle.
+     * @param seed Long seed.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Method to set the number of threads used to play paths.
+     * @param threads Integer number of threads.
+     */
+    public void setThreads(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("Threads must be at "
+                    + "least 1.");
+        this.threads = threads;
+    }
+
+    /**
+     * Method to set the house rules of every table.
+     * @param rules RuleSet object of house rules.
+     */
+    public void setRules(RuleSet rules) {
+        if (rules == null)
+            throw new IllegalArgumentException("Rules must be set.");
+        this.rules = rules;
+    }
+
+    /**
+     * Method to play every path. Each thread plays a range of paths
+     *  into its own result, and the results are added together.
+     * @return Result object of every path.
+     * @throws InterruptedException If interrupted while waiting.
+     * @throws ExecutionException If a path failed to play.
+     */
+    public Result run() throws InterruptedException, ExecutionException {
+        if (this.bankroll < this.rules.getMinimumBet())
+            throw new IllegalStateException("Bankroll must be at least "
+                    + "the minimum bet.");
+        // Spread samples evenly, always sampling the last round
+        int count = Math.min(this.samples, this.rounds);
+        final int[] sampleRounds = new int[count];
+        for (int i = 0; i < count; i++)
+            sampleRounds[i] = (int) ((long) this.rounds * (i + 1)
+                    / count);
+
+        int ranges = Math.min(this.threads, this.paths);
+        ExecutorService executor = Executors.newFixedThreadPool(ranges);
+        try {
+            List<Future<Result>> results = new ArrayList();
+            for (int i = 0; i < ranges; i++) {
+                // Spread any remaining paths over the first ranges
+                final int first = (int) ((long) this.paths * i / ranges);
+                final int last = (int) ((long) this.paths * (i + 1)
+                        / ranges);
+                results.add(executor.submit(new Callable<Result>() {
+                    @Override
+                    public Result call() {
+                        Result result = new Result(sampleRounds);
+                        for (int path = first; path < last; path++)
+                            play(path, result);
+                        return result;
+                    }
+                }));
+            }
+
+            Result total = new Result(sampleRounds);
+            for (Future<Result> result : results)
+                total.add(result.get());
+            return total;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Method to play a path and record it to a result.
+     * @param path Integer index of path.
+     * @param result Result object to record to.
+     */
+    private void play(int path, Result result) {
+        BlackjackTable table = new BlackjackTable(false, false,
+                RandomStreams.newRandom(this.seed, path), this.rules);
+        BasicPlayer player = (BasicPlayer) Tournament.newPlayer(
+                this.strategy);
+        player.balance = BALANCE;
+        table.addPlayer(player);
+        table.assignPlayers();
+
+        int[] sampleRounds = result.sampleRounds;
+        int minimumBet = this.rules.getMinimumBet();
+        long bankroll = this.bankroll;
+        long peak = bankroll;
+        long drawdown = 0;
+        int sample = 0;
+        for (int round = 1; round <= this.rounds; round++) {
+            table.playRound();
+            // Move what was settled to the bankroll, so the balance of
+            // the player never runs out or overflows
+            bankroll += player.balance - BALANCE;
+            player.balance = BALANCE;
+            peak = Math.max(peak, bankroll);
+            drawdown = Math.max(drawdown, peak - bankroll);
+
+            if (bankroll < minimumBet) {
+                result.ruinRounds.record(round);
+                // Bankroll stays ruined for every later sample
+                for (; sample < sampleRounds.length; sample++) {
+                    result.bankrolls[sample].record(bankroll);
+                    result.ruined[sample]++;
+                }
+                break;
+            }
+            if (round == sampleRounds[sample])
+                result.bankrolls[sample++].record(bankroll);
+        }
+        result.drawdowns.record(drawdown);
+    }
+
+    /**
+     * Method to format a result as JSON. Risk of ruin is given with its
+     *  standard error, and times and amounts as quantiles.
+     * @param name String name of strategy.
+     * @param bankroll Long bankroll each path started with.
+     * @param rules RuleSet object of house rules.
+     * @param result Result object of every path.
+     * @param elapsedNanos Long time taken to run in nanoseconds.
+     * @return String containing JSON summary.
+     */
+    public static String toJson(String name, long bankroll,
+            RuleSet rules, Result result, long elapsedNanos) {
+        long paths = result.getPaths();
+        double risk = (double) result.getRuined() / paths;
+        int[] sampleRounds = result.sampleRounds;
+        StringBuilder str = new StringBuilder();
+
+        str.append("{\n");
+        str.append("  \"strategy\": \"").append(name).append('"');
+        str.append(",\n  \"paths\": ").append(paths);
+        str.append(",\n  \"rounds\": ").append(
+                sampleRounds[sampleRounds.length - 1]);
+        str.append(",\n  \"bankroll\": ").append(bankroll);
+        str.append(",\n  \"rules\": \"").append(rules).append('"');
+        str.append(",\n  \"elapsedSeconds\": ").append(
+                String.format("%.3f", elapsedNanos / 1e9));
+        str.append(",\n  \"riskOfRuin\": ").append(
+                String.format("%.6f", risk));
+        str.append(",\n  \"riskOfRuinStdError\": ").append(
+                String.format("%.6f", Math.sqrt(risk * (1 - risk)
+                / paths)));
+
+        // Round of ruin, of the paths ruined
+        QuantileSketch ruin = result.getRuinRounds();
+        str.append(",\n  \"timeToRuin\": ");
+        if (ruin.getCount() == 0)
+            str.append("null");
+        else {
+            str.append("{\"mean\": ").append(String.format("%.1f",
+                    ruin.getMean()));
+            str.append(", \"p10\": ").append(ruin.getQuantile(0.1));
+            str.append(", \"p50\": ").append(ruin.getQuantile(0.5));
+            str.append(", \"p90\": ").append(ruin.getQuantile(0.9));
+            str.append("}");
+        }
+
+        QuantileSketch drawdowns = result.getDrawdowns();
+        str.append(",\n  \"maxDrawdown\": {\"mean\": ").append(
+                String.format("%.1f", drawdowns.getMean()));
+        str.append(", \"p50\": ").append(drawdowns.getQuantile(0.5));
+        str.append(", \"p90\": ").append(drawdowns.getQuantile(0.9));
+        str.append(", \"p99\": ").append(drawdowns.getQuantile(0.99));
+        str.append(", \"max\": ").append(drawdowns.getMax());
+        str.append("}");
+
+        // Bands of bankroll at each sample
+        str.append(",\n  \"bands\": [");
+        for (int i = 0; i < sampleRounds.length; i++) {
+            QuantileSketch bankrolls = result.getBankrolls(i);
+            str.append(i > 0 ? ",\n" : "\n");
+            str.append("    {\"round\": ").append(sampleRounds[i]);
+            str.append(", \"ruined\": ").append(String.format("%.6f",
+                    (double) result.getRuined(i) / paths));
+            str.append(", \"mean\": ").append(String.format("%.1f",
+                    bankrolls.getMean()));
+            for (double band : BANDS)
+                str.append(", \"p").append(Math.round(band * 100))
+                        .append("\": ").append(bankrolls.getQuantile(
+                        band));
+            str.append("}");
+        }
+        str.append("\n  ]\n}\n");
+
+        return str.toString();
+    }
+
+    /**
+     * Method to print how to run an analysis.
+     */
+    private static void printUsage() {
+        System.err.println("Usage: java -cp Blackjack.jar "
+                + "blackjack.BankrollAnalysis [--strategy S]"
+                + " [--paths N] [--rounds N] [--bankroll N]"
+                + " [--samples N] [--seed N] [--threads N]"
+                + " [--output FILE] [--decks N] [--soft17 stand|hit]"
+                + " [--penetration P] [--blackjack-pays N/D]");
+        System.err.println(SimulationConfig.PAYOUT_USAGE);
+    }
+
+    /**
+     * Method to run an analysis from command line arguments and print
+     *  a JSON summary. Options are:
+     *   --strategy S      Strategy played, from basic, intermediate,
+     *                      advanced or basic-N (default advanced).
+     *   --paths N         Paths played (default 10000).
+     *   --rounds N        Most rounds played on each path (default
+     *                      1000).
+     *   --bankroll N      Bankroll each path starts with (default
+     *                      1000).
+     *   --samples N       Rounds the bankroll is sampled at for its
+     *                      bands (default 20).
+     *   --seed N          Seed used to shuffle (default 0).
+     *   --threads N       Threads used to play paths (default number
+     *                      of processors).
+     *   --output FILE     File summary is written to.
+     *  House rules are set with the same options as a simulation.
+     *  Exits with status 0 on success, 1 if the analysis failed or 2
+     *  if the arguments were invalid.
+     * @param args String array of command line arguments.
+     */
+    public static void main(String[] args) {
+        BankrollAnalysis analysis = new BankrollAnalysis();
+        String output = null;
+        long bankroll = analysis.bankroll;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String option = args[i];
+                // Every option is followed by a value
+                if ((i + 1) >= args.length)
+                    throw new IllegalArgumentException("Missing value "
+                            + "for " + option + ".");
+                String value = args[++i];
+
+                switch (option) {
+                    case "--strategy":
+                        analysis.setStrategy(value);
+                        break;
+                    case "--paths":
+                        analysis.setPaths(parseInt(option, value));
+                        break;
+                    case "--rounds":
+                        analysis.setRounds(parseInt(option, value));
+                        break;
+                    case "--bankroll":
+                        bankroll = parseLong(option, value);
+                        break;
+                    case "--samples":
+                        analysis.setSamples(parseInt(option, value));
+                        break;
+                    case "--seed":
+                        analysis.setSeed(parseLong(option, value));
+                        break;
+                    case "--threads":
+                        analysis.setThreads(parseInt(option, value));
+                        break;
+                    case "--output":
+                        output = value;
+                        break;
+                    default:
+                        RuleSet rules = SimulationConfig.parseRule(
+                                analysis.rules, option, value);
+                        if (rules == null)
+                            throw new IllegalArgumentException("Unknown "
+                                    + "option " + option + ".");
+                        analysis.setRules(rules);
+                }
+            }
+            // Checked once every rule is known
+            analysis.setBankroll(bankroll);
+        } catch (IllegalArgumentException exception) {
+            System.err.println("Error: " + exception.getMessage());
+            printUsage();
+            System.exit(2);
+            return;
+        }
+
+        try {
+            // Run and time analysis
+            long start = System.nanoTime();
+            Result result = analysis.run();
+            String summary = toJson(Tournament.newPlayer(
+                    analysis.strategy).getPlayerType(), analysis.bankroll,
+                    analysis.rules, result, System.nanoTime() - start);
+
+            // Write summary to file if required
+            if (output != null)
+                try (PrintWriter file = new PrintWriter(output, "UTF-8")) {
+                    file.print(summary);
+                }
+            System.out.print(summary);
+        } catch (InterruptedException | ExecutionException
+                | IOException exception) {
+            exception.printStackTrace();
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Method to read an integer option value.
+     * @param option String option name.
+     * @param value String value.
+     * @return Integer value.
+     * @throws IllegalArgumentException If value is not an integer.
+     */
+    private static int parseInt(String option, String value) {
+        return (int) parseLong(option, value);
+    }
+
+    /**
+     * Method to read a long option value.
+     * @param option String option name.
+     * @param value String value.
+     * @return Long value.
+     * @throws IllegalArgumentException If value is not an integer.
+     */
+    private static long parseLong(String option, String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException exception) {
+            throw new IllegalArgumentException("Invalid value '"
+                    + value + "' for " + option + ".");
+        }
+    }
+}
\ No newline at end of file
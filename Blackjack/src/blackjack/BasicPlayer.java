@@ -1,6 +1,7 @@
 package blackjack;
 
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 /**
@@ -12,6 +13,8 @@ import java.util.List;
 public class BasicPlayer implements Serializable, Player {
     // Players hand
     protected Hand hand;
+    // Hand returned by the last call to newHand, reused for next hand
+    private transient Hand spareHand;
     // Players balance
     protected int balance = 200;
     // Bet placed
@@ -33,6 +36,8 @@ public class BasicPlayer implements Serializable, Player {
     
      /**
      * Method to clear the previous hand and get ready for new cards.
+     *  The two hands are swapped in turn, so the old hand returned is 
+     *  only valid until the next call to this method.
      * @return Old hand object cleared.
      **/    
     @Override
@@ -40,9 +45,14 @@ public class BasicPlayer implements Serializable, Player {
         // Reset bet placed
         this.betPlaced = 0;        
         
-        // Store previous hand to return and initialise new hand
+        // Store previous hand to return and reuse the spare hand
         Hand temp = this.hand;
-        this.hand = new Hand();
+        if (this.spareHand == null)
+            this.spareHand = new Hand();
+        else
+            this.spareHand.clear();
+        this.hand = this.spareHand;
+        this.spareHand = temp;
         return temp;
     }
 
@@ -189,6 +199,27 @@ public class BasicPlayer implements Serializable, Player {
     @Override
     public void newDeck() {}
     
+    /**
+     * Method to write the state of this player to a buffer.
+     * @param buffer ByteBuffer object to write to.
+     */
+    void encode(ByteBuffer buffer) {
+        buffer.putInt(this.balance);
+        buffer.putInt(this.betPlaced);
+        this.hand.encode(buffer);
+    }
+    
+    /**
+     * Method to replace the state of this player with state written 
+     *  to a buffer by encode().
+     * @param buffer ByteBuffer object to read from.
+     */
+    void decode(ByteBuffer buffer) {
+        this.balance = buffer.getInt();
+        this.betPlaced = buffer.getInt();
+        this.hand = Hand.decode(buffer);
+    }
+    
     /**
      * Method to get and return player string containing player
      *  information.
@@ -0,0 +1,610 @@
+package blackjack;
+
+import java.util.List;
+
+/**
+ * Class: BatchKernel.java
+ * Description: Simulation kernel that plays many independent tables
+ *  of computer players together, one round phase at a time across
+ *  every table. Instead of a dealer, deck, hands and players for each
+ *  table, the shoes, hand totals, bets and balances of every table
+ *  are held in parallel primitive arrays. The rules and player
+ *  decisions mirror BlackjackDealer, BasicPlayer, IntermediatePlayer
+ *  and AdvancedPlayer exactly, including when the deck is reshuffled,
+ *  and look up dealer actions and payouts from the same compiled
+ *  RuleSet tables. Each table shuffles with the same sequence as a
+ *  java.util.Random seeded with the same seed. A table played by this
+ *  kernel therefore gives the same results as the object model table
+ *  played by Simulation, only faster.
+ * Author: Paulo Jorge.
+ */
+public final class BatchKernel {
+    // Cards in a deck
+    private static final int DECK_SIZE = Card.CODES;
+    // Player types
+    private static final byte BASIC = 0;
+    private static final byte INTERMEDIATE = 1;
+    private static final byte ADVANCED = 2;
+    // Constants of the random number generator used by java.util.Random
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    // Value of each card code, counting an ace as 11
+    private static final int[] VALUES = new int[DECK_SIZE];
+    // Change to card count of each card code
+    private static final int[] COUNTS = new int[DECK_SIZE];
+    static {
+        for (int code = 0; code < DECK_SIZE; code++) {
+            VALUES[code] = Card.fromCode(code).getRank().getValue();
+            COUNTS[code] = (VALUES[code] <= 6 ? 1
+                    : (VALUES[code] >= 10 ? -1 : 0));
+        }
+    }
+
+    // House rules of every table
+    private final RuleSet rules;
+    // Cards in a full shoe and number the shoe is reshuffled below
+    private final int shoeCards;
+    private final int reshuffleSize;
+    // Number of tables and seats at each table
+    private final int tables;
+    private final int seats;
+    // Player type, name, starting balance and bet of each seat
+    private final byte[] types;
+    private final String[] typeNames;
+    private final int startBalance;
+    private final int baseBet;
+
+    // Random number generator seed and shoe of each table
+    private final long[] randomSeed;
+    private final byte[] shoe;
+    private final int[] shoeSize;
+    // Seats playing at each table in play order, and number playing
+    private final byte[] order;
+    private final int[] playing;
+    // Change to card count of cards dealt this round at each table
+    private final int[] roundCount;
+    // Card count of cards dealt since the shoe of each table was
+    // shuffled, and true count when the round was dealt
+    private final int[] runningCount;
+    private final int[] trueCount;
+    // Dealers hand at each table. Hard totals count every ace as 1,
+    // sums count every ace as 11.
+    private final int[] dealerHard;
+    private final int[] dealerAces;
+    private final int[] dealerCards;
+    private final int[] dealerSum;
+    private final int[] dealerShows;
+
+    // Hand, bet, balance and card count of every seat, indexed by
+    // table * seats + seat
+    private final int[] hard;
+    private final int[] aces;
+    private final int[] cards;
+    private final int[] sum;
+    private final int[] bet;
+    private final int[] balance;
+    private final int[] count;
+    private final boolean[] seated;
+
+    // Statistics of every table and totals of each seat
+    private final SimulationStats stats = new SimulationStats();
+    private final SimulationStats.Totals[] totals;
+    // Cube every decision is recorded to, or null for none, and the
+    // cells of the decisions made this round by every seat
+    private OutcomeCube cube;
+    private int[] decisions;
+    private int[] decided;
+    // Side bets placed by every seat, or null for none, and the 
+    // payouts of the Perfect Pairs and 21+3 bets of every seat
+    private SideBets sideBets;
+    private int[] sidePayouts;
+
+    /**
+     * Constructor method used to initialise a new kernel for a range
+     *  of tables. Table i of the range shuffles with the stream of
+     *  index firstTable + i of RandomStreams, as Simulation does.
+     * @param seatTypes List of player type of every seat, from basic,
+     *  intermediate or advanced.
+     * @param firstTable Integer index of first table.
+     * @param tables Integer number of tables.
+     * @param seed Long seed used to shuffle.
+     * @param rules RuleSet object of house rules.
+     * @throws IllegalArgumentException If a player type is unknown.
+     */
+    public BatchKernel(List<String> seatTypes, int firstTable,
+            int tables, long seed, RuleSet rules) {
+        this.rules = rules;
+        this.shoeCards = DECK_SIZE * rules.getDecks();
+        this.reshuffleSize = rules.getReshuffleSize();
+        this.tables = tables;
+        this.seats = seatTypes.size();
+        this.types = new byte[this.seats];
+        this.typeNames = new String[this.seats];
+        this.totals = new SimulationStats.Totals[this.seats];
+
+        // Read each seat type from a new player of the type
+        Player player = null;
+        for (int i = 0; i < this.seats; i++) {
+            player = SimulationConfig.newPlayer(seatTypes.get(i));
+            this.types[i] = (player instanceof AdvancedPlayer ? ADVANCED
+                    : (player instanceof IntermediatePlayer
+                    ? INTERMEDIATE : BASIC));
+            this.typeNames[i] = player.getPlayerType();
+            this.totals[i] = this.stats.getTotals(this.typeNames[i]);
+        }
+        this.startBalance = player.getBalance();
+        this.baseBet = player.makeBet();
+
+        this.randomSeed = new long[tables];
+        this.shoe = new byte[tables * this.shoeCards];
+        this.shoeSize = new int[tables];
+        this.order = new byte[tables * this.seats];
+        this.playing = new int[tables];
+        this.roundCount = new int[tables];
+        this.runningCount = new int[tables];
+        this.trueCount = new int[tables];
+        this.dealerHard = new int[tables];
+        this.dealerAces = new int[tables];
+        this.dealerCards = new int[tables];
+        this.dealerSum = new int[tables];
+        this.dealerShows = new int[tables];
+
+        int size = tables * this.seats;
+        this.hard = new int[size];
+        this.aces = new int[size];
+        this.cards = new int[size];
+        this.sum = new int[size];
+        this.bet = new int[size];
+        this.balance = new int[size];
+        this.count = new int[size];
+        this.seated = new boolean[size];
+
+        for (int t = 0; t < tables; t++) {
+            // Seed as new Random(seed) does, then shuffle first deck
+            this.randomSeed[t] = (RandomStreams.seed(seed, 
+                    firstTable + t) ^ MULTIPLIER) & MASK;
+            newShoe(t);
+
+            // Seat every player
+            for (int s = 0; s < this.seats; s++)
+                seat(t, s);
+        }
+    }
+
+    /**
+     * Method to record the outcome of every decision made by every
+     *  seat to a cube, as it does for a dealer.
+     * @param cube OutcomeCube object, or null for none.
+     */
+    public void setCube(OutcomeCube cube) {
+        this.cube = cube;
+        if ((cube != null) && (this.decisions == null)) {
+            this.decisions = new int[this.hard.length 
+                    * OutcomeCube.MAX_DECISIONS];
+            this.decided = new int[this.hard.length];
+        }
+    }
+
+    /**
+     * Method to place side bets at every seat, as it does for a 
+     *  dealer.
+     * @param sideBets SideBets object, or null for none.
+     */
+    public void setSideBets(SideBets sideBets) {
+        this.sideBets = sideBets;
+        if ((sideBets != null) && (this.sidePayouts == null))
+            this.sidePayouts = new int[this.hard.length * 2];
+    }
+    
+    /**
+     * Method to play a number of rounds at every table.
+     * @param rounds Long number of rounds played at each table.
+     * @return SimulationStats object of every round played so far.
+     */
+    public SimulationStats play(long rounds) {
+        for (long round = 0; round < rounds; round++) {
+            takeBets();
+            dealFirstCards();
+            playSeats();
+            playDealers();
+            settleBets();
+            replaceRuined();
+        }
+        this.stats.addRounds(rounds * this.tables);
+        return this.stats;
+    }
+
+    /**
+     * Method to take the bet of every seat. An advanced player bets 10
+     *  times their card count when the count is 1 or higher.
+     */
+    private void takeBets() {
+        for (int t = 0; t < this.tables; t++) {
+            int first = t * this.seats;
+            for (int i = 0; i < this.playing[t]; i++) {
+                int s = this.order[first + i];
+                int p = first + s;
+                this.bet[p] = (((this.types[s] == ADVANCED)
+                        && (this.count[p] > 0))
+                        ? (this.baseBet * this.count[p]) : this.baseBet);
+            }
+        }
+    }
+
+    /**
+     * Method to deal a card to the dealer and two cards to each seat
+     *  at every table, reshuffling first if the shoe is low.
+     */
+    private void dealFirstCards() {
+        for (int t = 0; t < this.tables; t++) {
+            checkShoe(t);
+            this.trueCount[t] = Math.floorDiv(this.runningCount[t] 
+                    * DECK_SIZE, Math.max(this.shoeSize[t], 1));
+
+            // Deal single card to dealer
+            int code = deal(t);
+            this.dealerShows[t] = VALUES[code];
+            this.dealerHard[t] = 0;
+            this.dealerAces[t] = 0;
+            this.dealerCards[t] = 0;
+            this.dealerSum[t] = 0;
+            addDealerCard(t, code);
+
+            // Deal 2 cards to each seat
+            int first = t * this.seats;
+            for (int i = 0; i < this.playing[t]; i++) {
+                int p = first + this.order[first + i];
+                this.hard[p] = 0;
+                this.aces[p] = 0;
+                this.cards[p] = 0;
+                this.sum[p] = 0;
+                int a = deal(t);
+                int b = deal(t);
+                addCard(p, a);
+                addCard(p, b);
+                if (this.sideBets != null) {
+                    this.sidePayouts[p * 2] = SideBets.getPairsPayout(a, 
+                            b);
+                    this.sidePayouts[(p * 2) + 1] 
+                            = SideBets.getThreeCardPayout(code, a, b);
+                }
+            }
+        }
+    }
+
+    /**
+     * Method to play the hand of every seat, one seat position at a
+     *  time across every table. Each seat hits until they stick or
+     *  their hand is over 20.
+     */
+    private void playSeats() {
+        for (int i = 0; i < this.seats; i++) {
+            for (int t = 0; t < this.tables; t++) {
+                if (i >= this.playing[t])
+                    continue;
+                checkShoe(t);
+
+                int first = t * this.seats;
+                int s = this.order[first + i];
+                int p = first + s;
+                if (this.cube != null) {
+                    playRecorded(t, s, p);
+                    continue;
+                }
+                while ((this.hard[p] <= 20) && hit(t, s, p))
+                    addCard(p, deal(t));
+            }
+        }
+    }
+
+    /**
+     * Method to play the hand of a seat as playSeats() does, storing
+     *  the cube cell of every decision to record once it is settled.
+     * @param t Integer table index.
+     * @param s Integer seat index.
+     * @param p Integer index of seat in seat arrays.
+     */
+    private void playRecorded(int t, int s, int p) {
+        int first = p * OutcomeCube.MAX_DECISIONS;
+        this.decided[p] = 0;
+        while (this.hard[p] <= 20) {
+            boolean hit = hit(t, s, p);
+            this.decisions[first + this.decided[p]++] = OutcomeCube.cell(
+                    score(this.hard[p], this.aces[p]), 
+                    isSoft(this.hard[p], this.aces[p]), 
+                    this.dealerShows[t], this.trueCount[t], hit);
+            if (!hit)
+                break;
+            addCard(p, deal(t));
+        }
+    }
+
+    /**
+     * Method to decide if a seat hits, as their player type would.
+     * @param t Integer table index.
+     * @param s Integer seat index.
+     * @param p Integer index of seat in seat arrays.
+     * @return Boolean true if seat hits, false otherwise.
+     */
+    private boolean hit(int t, int s, int p) {
+        // Basic player hits until 17 or higher
+        if (this.types[s] == BASIC)
+            return (this.hard[p] <= 16);
+        // With an ace, stick on soft total of 9 or higher
+        else if (this.aces[p] > 0)
+            return (this.hard[p] <= 8);
+        // If dealers card is 7 or over hit until 17 or higher
+        else if (this.dealerShows[t] >= 7)
+            return (this.hard[p] <= 16);
+        // Else hit until 12 or higher
+        return (this.hard[p] <= 11);
+    }
+
+    /**
+     * Method to play the dealers hand at every table. The dealer hits
+     *  until the house rules say to stick.
+     */
+    private void playDealers() {
+        for (int t = 0; t < this.tables; t++) {
+            checkShoe(t);
+            while (this.rules.dealerHits(score(this.dealerHard[t], 
+                    this.dealerAces[t]), isSoft(this.dealerHard[t], 
+                    this.dealerAces[t])))
+                addDealerCard(t, deal(t));
+        }
+    }
+
+    /**
+     * Method to settle the bet of every seat at every table, as
+     *  BlackjackDealer does. A seat out of funds stops playing, and
+     *  every seat still playing counts the cards dealt this round.
+     */
+    private void settleBets() {
+        for (int t = 0; t < this.tables; t++) {
+            // Dealer hand info
+            int dealerState = RuleSet.state(score(this.dealerHard[t],
+                    this.dealerAces[t]), ((this.dealerCards[t] == 2)
+                    && (this.dealerSum[t] == 21)));
+
+            int first = t * this.seats;
+            for (int i = 0; i < this.playing[t];) {
+                int s = this.order[first + i];
+                int p = first + s;
+                int bet = this.bet[p];
+                boolean bust = (this.hard[p] > 21);
+                boolean blackjack = ((this.cards[p] == 2)
+                        && (this.sum[p] == 21));
+
+                // Determine bet amount to settle
+                int settled = this.rules.settle(bet, RuleSet.state(
+                        score(this.hard[p], this.aces[p]), blackjack),
+                        dealerState);
+
+                this.balance[p] += settled;
+                if (this.sideBets != null)
+                    this.balance[p] += settleSideBets(t, p);
+                this.totals[s].record(bet, settled, blackjack, bust);
+                if (this.cube != null)
+                    this.cube.record(this.decisions, 
+                            p * OutcomeCube.MAX_DECISIONS, 
+                            this.decided[p], bet, settled);
+
+                // Stop seat playing if out of funds
+                if (this.balance[p] < this.rules.getMinimumBet()) {
+                    System.arraycopy(this.order, first + i + 1,
+                            this.order, first + i,
+                            this.playing[t] - i - 1);
+                    this.playing[t]--;
+                    this.seated[p] = false;
+                } else
+                    i++;
+            }
+
+            // Each seat still playing counts every card played
+            for (int i = 0; i < this.playing[t]; i++)
+                this.count[first + this.order[first + i]]
+                        += this.roundCount[t];
+            this.roundCount[t] = 0;
+        }
+    }
+
+    /**
+     * Method to settle the side bets of a seat.
+     * @param t Integer table index.
+     * @param p Integer index of seat in seat arrays.
+     * @return Integer amount settled on every side bet.
+     */
+    private int settleSideBets(int t, int p) {
+        int pairs = this.sideBets.settle(SideBets.PERFECT_PAIRS, 
+                this.sidePayouts[p * 2]);
+        int threeCard = this.sideBets.settle(
+                SideBets.TWENTY_ONE_PLUS_THREE, 
+                this.sidePayouts[(p * 2) + 1]);
+        int bust = this.sideBets.settle(SideBets.DEALER_BUST, 
+                SideBets.getBustPayout(this.dealerCards[t], 
+                this.dealerHard[t] > 21));
+        this.stats.recordSide(SideBets.PERFECT_PAIRS, 
+                this.sideBets.getStake(SideBets.PERFECT_PAIRS), pairs);
+        this.stats.recordSide(SideBets.TWENTY_ONE_PLUS_THREE, 
+                this.sideBets.getStake(SideBets.TWENTY_ONE_PLUS_THREE), 
+                threeCard);
+        this.stats.recordSide(SideBets.DEALER_BUST, 
+                this.sideBets.getStake(SideBets.DEALER_BUST), bust);
+        return pairs + threeCard + bust;
+    }
+    
+    /**
+     * Method to replace every seat out of funds with a new player of
+     *  the same type, as Simulation does.
+     */
+    private void replaceRuined() {
+        for (int t = 0; t < this.tables; t++) {
+            if (this.playing[t] == this.seats)
+                continue;
+            for (int s = 0; s < this.seats; s++) {
+                if (!this.seated[t * this.seats + s]) {
+                    this.stats.playerRuined(this.typeNames[s]);
+                    seat(t, s);
+                }
+            }
+        }
+    }
+
+    /**
+     * Method to seat a new player at the end of the play order.
+     * @param t Integer table index.
+     * @param s Integer seat index.
+     */
+    private void seat(int t, int s) {
+        int p = t * this.seats + s;
+        this.balance[p] = this.startBalance;
+        this.count[p] = 0;
+        this.seated[p] = true;
+        this.order[t * this.seats + this.playing[t]++] = (byte) s;
+    }
+
+    /**
+     * Method to reshuffle a new deck if the shoe of a table is below
+     *  the reshuffle size of the house rules.
+     * @param t Integer table index.
+     */
+    private void checkShoe(int t) {
+        if (this.shoeSize[t] < this.reshuffleSize)
+            reshuffle(t);
+    }
+
+    /**
+     * Method to deal the top card of the shoe of a table, reshuffling
+     *  a new deck first if every card has already been dealt.
+     * @param t Integer table index.
+     * @return Integer code of card dealt.
+     */
+    private int deal(int t) {
+        if (this.shoeSize[t] == 0)
+            reshuffle(t);
+        int code = this.shoe[(t * this.shoeCards) + --this.shoeSize[t]];
+        this.roundCount[t] += COUNTS[code];
+        this.runningCount[t] += COUNTS[code];
+        return code;
+    }
+
+    /**
+     * Method to reshuffle a new deck into the shoe of a table, and
+     *  reset the card count of every seat playing.
+     * @param t Integer table index.
+     */
+    private void reshuffle(int t) {
+        newShoe(t);
+        int first = t * this.seats;
+        for (int i = 0; i < this.playing[t]; i++)
+            this.count[first + this.order[first + i]] = 0;
+    }
+
+    /**
+     * Method to fill the shoe of a table with new decks in card code
+     *  order and shuffle it, as Deck does.
+     * @param t Integer table index.
+     */
+    private void newShoe(int t) {
+        int first = t * this.shoeCards;
+        for (int i = 0; i < this.shoeCards; i++)
+            this.shoe[first + i] = (byte) (i % DECK_SIZE);
+
+        // Swap position of each card with a random card before it
+        for (int i = this.shoeCards - 1; i > 0; i--) {
+            int j = first + nextInt(t, i);
+            byte card = this.shoe[first + i];
+            this.shoe[first + i] = this.shoe[j];
+            this.shoe[j] = card;
+        }
+        this.shoeSize[t] = this.shoeCards;
+        this.runningCount[t] = 0;
+    }
+
+    /**
+     * Method to get the next random integer of a table from 0 up to
+     *  but excluding a bound, giving the same sequence as
+     *  java.util.Random.nextInt(bound).
+     * @param t Integer table index.
+     * @param bound Integer upper bound, at least 1.
+     * @return Integer random value.
+     */
+    private int nextInt(int t, int bound) {
+        long seed = this.randomSeed[t];
+        int r;
+        seed = (seed * MULTIPLIER + ADDEND) & MASK;
+        int bits = (int) (seed >>> 17);
+
+        // Power of 2 bound uses the high bits
+        if ((bound & -bound) == bound)
+            r = (int) ((bound * (long) bits) >> 31);
+        else {
+            // Reject values that would make the result uneven
+            r = bits % bound;
+            while ((bits - r + (bound - 1)) < 0) {
+                seed = (seed * MULTIPLIER + ADDEND) & MASK;
+                bits = (int) (seed >>> 17);
+                r = bits % bound;
+            }
+        }
+        this.randomSeed[t] = seed;
+        return r;
+    }
+
+    /**
+     * Method to add a card to the hand of a seat.
+     * @param p Integer index of seat in seat arrays.
+     * @param code Integer code of card.
+     */
+    private void addCard(int p, int code) {
+        int value = VALUES[code];
+        this.cards[p]++;
+        this.sum[p] += value;
+        if (value == 11) {
+            this.aces[p]++;
+            this.hard[p]++;
+        } else
+            this.hard[p] += value;
+    }
+
+    /**
+     * Method to add a card to the hand of the dealer of a table.
+     * @param t Integer table index.
+     * @param code Integer code of card.
+     */
+    private void addDealerCard(int t, int code) {
+        int value = VALUES[code];
+        this.dealerCards[t]++;
+        this.dealerSum[t] += value;
+        if (value == 11) {
+            this.dealerAces[t]++;
+            this.dealerHard[t]++;
+        } else
+            this.dealerHard[t] += value;
+    }
+
+    /**
+     * Method to score a hand, as Hand.getHighestBelowOrEqual(21) does.
+     * @param hard Integer total counting every ace as 1.
+     * @param aces Integer number of aces.
+     * @return Integer highest total below or equal to 21, or the hard
+     *  total if every total is over 21.
+     */
+    private static int score(int hard, int aces) {
+        if (hard > 21)
+            return hard;
+        return hard + (10 * Math.min(aces, (21 - hard) / 10));
+    }
+
+    /**
+     * Method to check if a hand is soft, as Hand.isSoft() does.
+     * @param hard Integer total counting every ace as 1.
+     * @param aces Integer number of aces.
+     * @return Boolean true if an ace is counted as 11 in the score.
+     */
+    private static boolean isSoft(int hard, int aces) {
+        return ((aces > 0) && ((hard + 10) <= 21));
+    }
+}
\ No newline at end of file
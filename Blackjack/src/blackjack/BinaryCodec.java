@@ -0,0 +1,206 @@
+package blackjack;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Scanner;
+
+/**
+ * Class: BinaryCodec.java
+ * Description: Class used to write and read a blackjack table to and
+ *  from a compact versioned binary file. Cards are written as single
+ *  byte card codes, hands and decks as length prefixed card codes and
+ *  players as their primitive fields. Files start with a magic number
+ *  and format version, so older files can still be read if the 
+ *  format changes.
+ * Author: Paulo Jorge.
+ */
+public class BinaryCodec {
+    // Magic number at start of every file, "BJAK"
+    private static final int MAGIC = 0x424A414B;
+    // Current format version
+    public static final byte VERSION = 2;
+    // Player type tags
+    private static final byte BASIC = 0;
+    private static final byte INTERMEDIATE = 1;
+    private static final byte ADVANCED = 2;
+    private static final byte HUMAN = 3;
+    // Initial buffer size, enough for a full table
+    private static final int INITIAL_SIZE = 1024;
+    
+    /**
+     * Private constructor as class only contains static methods.
+     */
+    private BinaryCodec() {}
+    
+    /**
+     * Method to encode a table into a new buffer ready to be read.
+     * @param table BlackjackTable object to encode.
+     * @return ByteBuffer object containing encoded table.
+     */
+    public static ByteBuffer encode(BlackjackTable table) {
+        int size = INITIAL_SIZE;
+        // Grow buffer until table fits
+        while (true) {
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            try {
+                buffer.putInt(MAGIC);
+                buffer.put(VERSION);
+                table.encode(buffer);
+                buffer.flip();
+                return buffer;
+            } catch (BufferOverflowException exception) {
+                size *= 2;
+            }
+        }
+    }
+    
+    /**
+     * Method to decode a table from a buffer created by encode().
+     * @param buffer ByteBuffer object to read from.
+     * @param scanner Scanner object given to any human players, or 
+     *  null if the table has no human players.
+     * @return BlackjackTable object decoded.
+     * @throws IOException If buffer does not contain a table of a 
+     *  supported version, or is truncated or corrupt.
+     */
+    public static BlackjackTable decode(ByteBuffer buffer, 
+            Scanner scanner) throws IOException {
+        if ((buffer.remaining() < 5) || (buffer.getInt() != MAGIC))
+            throw new IOException("Not a blackjack table file.");
+        byte version = buffer.get();
+        if ((version < 1) || (version > VERSION))
+            throw new IOException("Unsupported file version " 
+                    + version + ".");
+        try {
+            return BlackjackTable.decode(buffer, version, scanner);
+        } catch (BufferUnderflowException | IllegalArgumentException 
+                | IndexOutOfBoundsException 
+                | NegativeArraySizeException exception) {
+            throw new IOException("Blackjack table file is corrupt.", 
+                    exception);
+        }
+    }
+    
+    /**
+     * Method to write and save a table to a file.
+     * @param table BlackjackTable object to write to file.
+     * @param fileName String file name of file to write to.
+     * @throws IOException If file could not be written.
+     */
+    public static void writeToFile(BlackjackTable table, 
+            String fileName) throws IOException {
+        writeToFile(encode(table), fileName);
+    }
+    
+    /**
+     * Method to write an encoded table to a file. The table is written
+     *  to a temporary file first and then moved over the file, so a 
+     *  failed write never leaves a partly written table.
+     * @param buffer ByteBuffer object containing encoded table.
+     * @param fileName String file name of file to write to.
+     * @throws IOException If file could not be written.
+     */
+    public static void writeToFile(ByteBuffer buffer, String fileName) 
+            throws IOException {
+        Path path = Paths.get(fileName).toAbsolutePath();
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, 
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    /**
+     * Method to read and return a table from a file.
+     * @param fileName String file name of file to read.
+     * @param scanner Scanner object given to any human players, or 
+     *  null if the table has no human players.
+     * @return BlackjackTable object read from file.
+     * @throws IOException If file could not be read or is not a 
+     *  valid table file.
+     */
+    public static BlackjackTable readFromFile(String fileName, 
+            Scanner scanner) throws IOException {
+        try (FileChannel channel = FileChannel.open(
+                Paths.get(fileName), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(
+                    (int) channel.size());
+            while (buffer.hasRemaining() 
+                    && (channel.read(buffer) >= 0)) {}
+            buffer.flip();
+            return decode(buffer, scanner);
+        }
+    }
+    
+    /**
+     * Method to write a player to a buffer as a type tag followed by 
+     *  the players state.
+     * @param player Player object to write.
+     * @param buffer ByteBuffer object to write to.
+     * @throws IllegalArgumentException If player type can not be 
+     *  encoded.
+     */
+    static void encodePlayer(Player player, ByteBuffer buffer) {
+        // Subclasses checked first
+        if (player instanceof HumanPlayer)
+            buffer.put(HUMAN);
+        else if (player instanceof AdvancedPlayer)
+            buffer.put(ADVANCED);
+        else if (player instanceof IntermediatePlayer)
+            buffer.put(INTERMEDIATE);
+        else if (player.getClass() == BasicPlayer.class)
+            buffer.put(BASIC);
+        else
+            throw new IllegalArgumentException("Player type " 
+                    + player.getPlayerType() + " can not be encoded.");
+        ((BasicPlayer) player).encode(buffer);
+    }
+    
+    /**
+     * Method to read and return a player written by encodePlayer().
+     * @param buffer ByteBuffer object to read from.
+     * @param scanner Scanner object given to a human player.
+     * @return Player object read.
+     * @throws IOException If player type is unknown or a human 
+     *  player is read without a scanner.
+     */
+    static Player decodePlayer(ByteBuffer buffer, Scanner scanner) 
+            throws IOException {
+        BasicPlayer player;
+        byte type = buffer.get();
+        switch (type) {
+            case BASIC:
+                player = new BasicPlayer();
+                break;
+            case INTERMEDIATE:
+                player = new IntermediatePlayer();
+                break;
+            case ADVANCED:
+                player = new AdvancedPlayer();
+                break;
+            case HUMAN:
+                if (scanner == null)
+                    throw new IOException("Human player requires a "
+                            + "scanner to load.");
+                player = new HumanPlayer(scanner);
+                break;
+            default:
+                throw new IOException("Unknown player type " + type 
+                        + ".");
+        }
+        player.decode(buffer);
+        return player;
+    }
+}
\ No newline at end of file
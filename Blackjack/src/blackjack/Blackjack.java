@@ -9,6 +9,12 @@ import java.util.Scanner;
  */
 public class Blackjack {
       public static void main(String[] args) {
+        // Run a headless batch simulation if any arguments are passed
+        if (args.length > 0) {
+            Simulation.main(args);
+            return;
+        }
+        
         try (Scanner scanner = new Scanner(System.in)) {    
             //testing(scanner);
 
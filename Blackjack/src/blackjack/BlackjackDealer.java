@@ -3,9 +3,17 @@ package blackjack;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -16,16 +24,31 @@ import java.util.logging.Logger;
  * Author: Paulo Jorge.
  */
 public class BlackjackDealer implements Serializable, Dealer {
+    // Used to give every dealer a unique table ID
+    private static final AtomicInteger NEXT_TABLE_ID 
+            = new AtomicInteger(1);
+    
+    // Table ID used to identify this dealer in recorded events
+    private final int tableId = NEXT_TABLE_ID.getAndIncrement();
     // Store deck
-    private final Deck deck = new Deck();
+    private final Deck deck;
     // List of active players
     private List<Player> players;
-    // Dealers hand
+    // Dealers hand and first card shown to players
     private Hand hand = new Hand();
-    // Each players bet
-    private final List<Integer> betsPlaced = new ArrayList();
-    // Total amount of cards when deck is full
-    private final int TOTAL_CARDS;
+    private Card dealerCard;
+    // Dealers final score of the round being settled
+    private int dealerScore;
+    // Each players bet, the first betCount bets are in use
+    private int[] betsPlaced = new int[8];
+    private int betCount;
+    // Cards played in the round being settled, shown to every player,
+    // sized for a whole deck so it does not grow in a long round
+    private final List<Card> cardsPlayed = new ArrayList(Card.CODES);
+    // Hand settled last round, reused as the dealers next hand
+    private transient Hand spareHand;
+    // House rules, compiled into the tables used to play and settle
+    private final RuleSet rules;
     // Bet size limits
     private final int MINIMUM_BET_SIZE;
     private final int MAXIMUM_BET_SIZE;
@@ -33,8 +56,45 @@ public class BlackjackDealer implements Serializable, Dealer {
     private int round = 1;
     // Used to determine if average will be recorded
     private final boolean recordAverage;
+    // Used to determine if round information is printed to console
+    private final boolean printOutput;
     private int sum = 0;
     private int average = 0;
+    // Listeners told the outcome of every round, not saved with game
+    private transient List<RoundListener> listeners;
+    // Nanoseconds an asynchronous player has to decide, or 0 to wait 
+    // forever, and the decisions used if they do not, not saved with 
+    // game
+    private transient long decisionTimeout;
+    private transient int defaultBet;
+    private transient boolean defaultHit;
+    // Bets requested from asynchronous players and their deadlines, 
+    // by seat
+    private transient CompletableFuture<Integer>[] pendingBets;
+    private transient long[] betDeadlines;
+    // Deadline of the bet being taken, kept while it is requested 
+    // again after an invalid bet
+    private transient long betDeadline;
+    // Hi-Lo count of cards dealt since the shoe was shuffled, and the 
+    // true count of the shoe when the round was dealt, not saved with 
+    // game but worked out again from the shoe when it is loaded
+    private transient int runningCount;
+    private transient int trueCount;
+    // Cards of each value left in the deck, left when the round was 
+    // dealt and left when the dealer played, with the chance of the 
+    // dealer going bust from them, not saved with game
+    private transient int[] shoe;
+    private transient int[] dealShoe;
+    private transient int dealSize;
+    private transient int[] dealerShoe;
+    private transient double bustChance;
+    private transient ControlVariates.BustChance bustMemo;
+    // Side bets offered, and the payout and amount settled of each 
+    // side bet of each seat this round by seat * SideBets.COUNT + 
+    // side, not saved with game
+    private transient SideBets sideBets;
+    private transient int[] sidePayouts;
+    private transient int[] sideSettled;
     
     
     /**
@@ -48,14 +108,68 @@ public class BlackjackDealer implements Serializable, Dealer {
      */
     public BlackjackDealer(int minimumBetSize, int maximumBetSize, 
             boolean recordAverage) {
-        // Set bet size upper and lower limits
-        this.MINIMUM_BET_SIZE = minimumBetSize;
-        this.MAXIMUM_BET_SIZE = maximumBetSize;
+        this(minimumBetSize, maximumBetSize, recordAverage, 
+                !recordAverage);
+    }
+    
+    /**
+     * Constructor method used to initialise a new blackjack dealer
+     *  object, with control over console output. Used to run a 
+     *  headless game, such as when benchmarking or simulating.
+     * @param minimumBetSize Integer minimum bet size value.
+     * @param maximumBetSize Integer maximum bet size value.
+     * @param recordAverage Boolean true if dealer will save average
+     *  profit/loss per deck or false otherwise.
+     * @param printOutput Boolean true if round information will be 
+     *  printed to console or false otherwise.
+     */
+    public BlackjackDealer(int minimumBetSize, int maximumBetSize, 
+            boolean recordAverage, boolean printOutput) {
+        this(minimumBetSize, maximumBetSize, recordAverage, 
+                printOutput, RandomStreams.newRandom());
+    }
+    
+    /**
+     * Constructor method used to initialise a new blackjack dealer
+     *  object, with control over console output and the random
+     *  number generator used to shuffle.
+     * @param minimumBetSize Integer minimum bet size value.
+     * @param maximumBetSize Integer maximum bet size value.
+     * @param recordAverage Boolean true if dealer will save average
+     *  profit/loss per deck or false otherwise.
+     * @param printOutput Boolean true if round information will be 
+     *  printed to console or false otherwise.
+     * @param random Random object used to shuffle the deck.
+     */
+    public BlackjackDealer(int minimumBetSize, int maximumBetSize, 
+            boolean recordAverage, boolean printOutput, 
+            Random random) {
+        this(RuleSet.standard().withBetLimits(minimumBetSize, 
+                maximumBetSize), recordAverage, printOutput, random);
+    }
+    
+    /**
+     * Constructor method used to initialise a new blackjack dealer
+     *  object playing by a set of house rules.
+     * @param rules RuleSet object of house rules.
+     * @param recordAverage Boolean true if dealer will save average
+     *  profit/loss per deck or false otherwise.
+     * @param printOutput Boolean true if round information will be 
+     *  printed to console or false otherwise.
+     * @param random Random object used to shuffle the deck.
+     */
+    public BlackjackDealer(RuleSet rules, boolean recordAverage, 
+            boolean printOutput, Random random) {
+        // Set house rules and bet size upper and lower limits
+        this.rules = rules;
+        this.MINIMUM_BET_SIZE = rules.getMinimumBet();
+        this.MAXIMUM_BET_SIZE = rules.getMaximumBet();
         // Shuffle deck
+        this.deck = new Deck(random, rules.getDecks());
         this.deck.shuffle();
         // Initialise variables
-        this.TOTAL_CARDS = this.deck.totalSize();
         this.recordAverage = recordAverage;
+        this.printOutput = printOutput;
     }
     
     /**
@@ -73,93 +187,178 @@ public class BlackjackDealer implements Serializable, Dealer {
      */
     @Override
     public void takeBets() {
+        TableEvents.TakeBets event = TableEvents.beginTakeBets();
+        long started = TableMetrics.start();
+        
         // Print round number
-        print("Round " + this.round + ":\n");
+        if (this.printOutput)
+            print("Round " + this.round + ":\n");
 
         // Clear previously recorded bets
-        this.betsPlaced.clear();
-        for (Iterator<Player> i = this.players.iterator(); 
-                i.hasNext();) {
+        this.betCount = 0;
+        // Request bets of asynchronous players first, so they decide
+        // while the other seats bet
+        requestBets();
+        for (int i = 0, seat = 0; i < this.players.size(); seat++) {
             // Get player        
-            Player player = i.next();
+            Player player = this.players.get(i);
             
             // Take bets if player is not out of balance
             if (!outOfBalance(player)) {
                 // Prompt player to place a bet
-                print("Player " + indexOfPlayer(player) 
-                        + ": \nYou currently have £" 
-                        + player.getBalance() 
-                        + " balance. What bet would you like to "
-                        + "place?");
-                int bet = player.makeBet();                
+                if (this.printOutput)
+                    print("Player " + (i + 1) 
+                            + ": \nYou currently have £" 
+                            + player.getBalance() 
+                            + " balance. What bet would you like to "
+                            + "place?");
+                int bet = nextBet(player, seat, false);
                 
                 // If bet exeeds lower/upper bounds, error correct bet
                 while ((bet < this.MINIMUM_BET_SIZE) 
                         || (bet > this.MAXIMUM_BET_SIZE)) {
-
-                    String type = (bet < this.MINIMUM_BET_SIZE 
-                            ? ("minimum (£" 
-                            + this.MINIMUM_BET_SIZE + ")") 
-                            : ("maximum (£" 
-                            + this.MAXIMUM_BET_SIZE + ")"));
+                    
                     // Prompt player
-                    print("Error: Bet placed exeeds " 
-                            + type + " bet size limits. Please bet a "
-                            + "different amount.");
-                    bet = player.makeBet();
+                    if (this.printOutput) {
+                        String type = (bet < this.MINIMUM_BET_SIZE 
+                                ? ("minimum (£" 
+                                + this.MINIMUM_BET_SIZE + ")") 
+                                : ("maximum (£" 
+                                + this.MAXIMUM_BET_SIZE + ")"));
+                        print("Error: Bet placed exeeds " + type 
+                                + " bet size limits. Please bet a "
+                                + "different amount.");
+                    }
+                    if (player instanceof AsyncPlayer)
+                        ((AsyncPlayer) player).rejectBet(
+                                this.MINIMUM_BET_SIZE, 
+                                this.MAXIMUM_BET_SIZE);
+                    bet = nextBet(player, seat, true);
                 }
                 
-                print(bet + ".\n");
+                if (this.printOutput)
+                    print(bet + ".\n");
                 
                 // Store bet placed
-                this.betsPlaced.add(bet);
+                addBet(bet);
+                i++;
             }
             // Else, remove player if out of balance
             else {
-                print("Player " + indexOfPlayer(player) + " cannot "
-                        + "play round! The player is out of funds.\n");
-                i.remove();
+                if (this.printOutput)
+                    print("Player " + (i + 1) + " cannot play round! "
+                            + "The player is out of funds.\n");
+                this.players.remove(i);
             }
         }
+        
+        commit(event);
+        TableMetrics.record(TableMetrics.Phase.TAKE_BETS, started);
+    }
+    
+    /**
+     * Method to store a bet placed this round, growing the bets array
+     *  if every seat is already in use.
+     * @param bet Integer value of bet placed.
+     */
+    private void addBet(int bet) {
+        if (this.betCount == this.betsPlaced.length)
+            this.betsPlaced = Arrays.copyOf(this.betsPlaced, 
+                    this.betCount * 2);
+        this.betsPlaced[this.betCount++] = bet;
     }
 
     /**
      * Method to check and initialise a new deck if the current deck is
-     *  less than 1/4 of the total size of deck.
+     *  below the reshuffle size of the house rules.
      */
     private void newDeck() {
-        if (this.deck.size() < (this.TOTAL_CARDS / 4)) {
-            // Generate new shuffled deck
-            this.deck.newDeck();
-            this.deck.shuffle();
+        if (this.deck.size() < this.rules.getReshuffleSize())
+            shuffleNewDeck();
+    }
+    
+    /**
+     * Method to initialise a new shuffled deck, record the average 
+     *  if required and tell each player that a new deck is in play.
+     */
+    private void shuffleNewDeck() {
+        TableEvents.Reshuffle event 
+                = TableEvents.beginReshuffle(this.deck.size());
+        TableMetrics.reshuffled();
+        
+        // Generate new shuffled deck
+        this.deck.newDeck();
+        this.deck.shuffle();
+        this.runningCount = 0;
+        countShoe();
+        
+        // Save averages to file
+        if (this.recordAverage) {
+            String fileName = "average.txt";
             
-            // Save averages to file
-            if (this.recordAverage) {
-                String fileName = "average.txt";
-                
-                // Default average to total if first average
-                if (this.average == 0)
-                    this.average = this.sum;
-                
-                // Calculate average
-                this.average = (this.average + this.sum) / 2;
-                // Reset sum
-                sum = 0;
-                System.out.println("Round " + this.round + ": £" 
-                        + this.average + ".");
+            // Default average to total if first average
+            if (this.average == 0)
+                this.average = this.sum;
+            
+            // Calculate average
+            this.average = (this.average + this.sum) / 2;
+            // Reset sum
+            sum = 0;
+            System.out.println("Round " + this.round + ": £" 
+                    + this.average + ".");
 
-                // Write new average to file
-                try {
-                    writeToFile(fileName, this.average);
-                } catch (IOException exception) {
-                    exception.printStackTrace();
-                }
+            // Write new average to file
+            try {
+                writeToFile(fileName, this.average);
+            } catch (IOException exception) {
+                exception.printStackTrace();
             }
-            
-            // Tell each plyer than a new deck is in play
-            for (Player player : this.players)
-                player.newDeck();
         }
+        
+        // Tell each plyer than a new deck is in play
+        for (int i = 0, x = this.players.size(); i < x; i++)
+            this.players.get(i).newDeck();
+        
+        commit(event);
+    }
+
+    /**
+     * Method to start a new shuffled deck with a number of cards 
+     *  already dealt face up and shown to every player, as if earlier
+     *  rounds had dealt them. Used to start each round of a paired 
+     *  comparison from the same point of the same deck.
+     * @param burn Integer number of cards to deal face up, leaving at
+     *  least the reshuffle size of the house rules.
+     */
+    void newShoe(int burn) {
+        shuffleNewDeck();
+        this.cardsPlayed.clear();
+        for (int i = 0; i < burn; i++)
+            this.cardsPlayed.add(dealCard());
+        for (int i = 0, x = this.players.size(); i < x; i++)
+            this.players.get(i).viewCards(this.cardsPlayed);
+    }
+
+    /**
+     * Method to deal the top card of the deck, initialising a new 
+     *  shuffled deck first if every card has already been dealt.
+     * @return Card object dealt.
+     */
+    private Card dealCard() {
+        if (this.deck.size() == 0)
+            shuffleNewDeck();
+        if (this.shoe == null)
+            countShoe();
+        Card card = this.deck.deal();
+        
+        // Count card, +1 for 2 to 6 and -1 for 10 and ace
+        int value = card.getRank().getValue();
+        this.shoe[value - 2]--;
+        if (value <= 6)
+            this.runningCount++;
+        else if (value >= 10)
+            this.runningCount--;
+        return card;
     }
 
     /**
@@ -181,24 +380,43 @@ public class BlackjackDealer implements Serializable, Dealer {
      */
     @Override
     public void dealFirstCards() {
+        TableEvents.DealFirstCards event 
+                = TableEvents.beginDealFirstCards();
+        long started = TableMetrics.start();
+        
         // Check if a new deck is needed
         newDeck();
+        // Running count for each full deck left in the shoe
+        this.trueCount = Math.floorDiv(this.runningCount * Card.CODES, 
+                Math.max(this.deck.size(), 1));
+        if (this.shoe == null)
+            countShoe();
+        if (this.dealShoe == null)
+            this.dealShoe = new int[ControlVariates.VALUES];
+        System.arraycopy(this.shoe, 0, this.dealShoe, 0, 
+                ControlVariates.VALUES);
+        this.dealSize = this.deck.size();
         
         // Deal single card to dealer
-        Card card = this.deck.deal();
+        Card card = dealCard();
         this.hand.add(card);
+        this.dealerCard = card;
         
-        for (Iterator<Player> i = this.players.iterator(); 
-                i.hasNext();) {
-            Player player = i.next();
+        for (int i = 0; i < this.players.size(); i++) {
+            Player player = this.players.get(i);
             
             // Show player dealers first card
             player.viewDealerCard(card);
             
             // Deal 2 cards to each player
             for (int x = 0; x < 2; x++)
-                player.takeCard(this.deck.deal());
+                player.takeCard(dealCard());
+            if (this.sideBets != null)
+                dealSideBets(i, card, player.getHand());
         }
+        
+        commit(event);
+        TableMetrics.record(TableMetrics.Phase.DEAL_FIRST_CARDS, started);
     }
 
     /**
@@ -209,51 +427,74 @@ public class BlackjackDealer implements Serializable, Dealer {
      **/    
     @Override
     public int play(Player player) {
+        // Position of player
+        int seat = indexOfPlayer(player);
+        TableEvents.Play event = TableEvents.beginPlay(seat);
+        long started = TableMetrics.start();
+        
         // Check if a new deck is needed
         newDeck();            
 
-        // Position of player
-        print("Player " + indexOfPlayer(player) + ": ");
+        if (this.printOutput)
+            print("Player " + seat + ": ");
 
         // Loop until player sticks
         boolean playing = true;
         // Loop unless player has 21 or more in hand value
         while(playing && !player.getHand().isOver(20)) {
             print("Do you want to hit or stick?");
-            playing = player.hit();
+            playing = nextHit(player);
             
-            print((playing ? "Player Hits" : "Player Sticks") + "!");
+            print(playing ? "Player Hits!" : "Player Sticks!");
 
             // If player hit deal card
             if (playing)
-               player.takeCard(this.deck.deal());
+               player.takeCard(dealCard());
         }
         
         // Print new line for aesthetic purposes
         print("");
         
+        commit(event);
+        TableMetrics.record(TableMetrics.Phase.PLAY, started);
         return scoreHand(player.getHand());
     }
     
     /** 
      * Method to play the dealers hand. The dealer take cards 
-     *  until their total is 17 or higher. 
+     *  until their total is 17 or higher, also taking a card on soft
+     *  17 if the house rules say so. 
      * @return Integer value of the dealers score.
      */       
     @Override
     public int playDealer() {
+        TableEvents.PlayDealer event = TableEvents.beginPlayDealer();
+        long started = TableMetrics.start();
+        
         // Check if a new deck is needed
         newDeck();
+        // Keep cards left for the chance of going bust
+        if (this.shoe == null)
+            countShoe();
+        if (this.dealerShoe == null)
+            this.dealerShoe = new int[ControlVariates.VALUES];
+        System.arraycopy(this.shoe, 0, this.dealerShoe, 0, 
+                ControlVariates.VALUES);
+        this.bustChance = Double.NaN;
         
         print("Dealer:");
-        // Deal cards to dealer until at 17 or higher
-        while (!this.hand.isOver(16)) {
-            this.hand.add(this.deck.deal());
+        // Deal cards to dealer until the house rules say to stick
+        while (this.rules.dealerHits(scoreHand(this.hand), 
+                this.hand.isSoft())) {
+            this.hand.add(dealCard());
             
             print("Dealer Hits!");
         }
         
         print("Dealer Sticks!\n");
+        
+        commit(event);
+        TableMetrics.record(TableMetrics.Phase.PLAY_DEALER, started);
         return scoreHand(this.hand);
     }
 
@@ -287,107 +528,450 @@ public class BlackjackDealer implements Serializable, Dealer {
      *   5. Players score less than dealer score - Player loses bet
      *   6. Player score greater than or equal to dealer score 
      *       - Player retains bets
+     *  The amount won for each rule is looked up from the house rules.
      */    
     @Override
     public void settleBets() {
+        TableEvents.SettleBets event = TableEvents.beginSettleBets();
+        long started = TableMetrics.start();
+        
         // Print dealer information
-        print("Dealer: \n" + toString());
+        if (this.printOutput)
+            print("Dealer: \n" + toString());
 
         // Dealer hand info
-        boolean dealerOver21 = this.hand.isOver(21);
         int dealerScore = scoreHand(this.hand);
-        boolean dealerBlackjack = this.hand.isBlackjack();            
+        this.dealerScore = dealerScore;
+        int dealerState = RuleSet.state(dealerScore, 
+                this.hand.isBlackjack());
         
         // Track cards played
-        List<Card> cardsPlayed = new ArrayList();
-        cardsPlayed = getCardsPlayed(cardsPlayed, this.hand);
+        this.cardsPlayed.clear();
+        addCardsPlayed(this.hand);
 
-        // Reset dealers hand
-        this.hand = new Hand(); 
+        // Reset dealers hand, reusing the hand settled last round
+        Hand dealerHand = this.hand;
+        if (this.spareHand == null)
+            this.spareHand = new Hand();
+        else
+            this.spareHand.clear();
+        this.hand = this.spareHand;
+        this.spareHand = dealerHand;
         
-        // Number of players that have lost this round
-        int lost = 0;
+        // Seat of each player, counting players that have lost this 
+        // round, which is also the position of their bet
+        int seat = 0;
         
-        for (Iterator<Player> i = this.players.iterator(); 
-                i.hasNext();) {
+        for (int i = 0; i < this.players.size(); seat++) {
             // Get player
-            Player player = i.next();
-            String playerInfo = player.toString();
+            Player player = this.players.get(i);
+            String playerInfo = (this.printOutput ? player.toString() 
+                    : null);
             Hand playerHand = player.newHand();         
             
-            int bet = this.betsPlaced.get(this.players.indexOf(
-                    player));
-            // Store bet to settle
-            int betToSettle = bet;
-                        
-            // Player Blackjack state
-            boolean playerBlackjack = playerHand.isBlackjack();
-                    
+            int bet = this.betsPlaced[seat];
+            
             // Determine bet amount to settle
-            if (playerHand.isOver(21))
-                betToSettle = -betToSettle;
-            else if (dealerOver21 
-                    || (playerBlackjack && !dealerBlackjack))
-                betToSettle = (betToSettle * 2);
-            else if ((dealerBlackjack && !playerBlackjack)
-                    || (scoreHand(playerHand) < dealerScore))
-                betToSettle = -betToSettle;
+            int betToSettle = this.rules.settle(bet, RuleSet.state(
+                    scoreHand(playerHand), playerHand.isBlackjack()), 
+                    dealerState);
             
-            // Settle bet
+            // Settle bet, and any side bets with it
+            int sideToSettle = (this.sideBets != null 
+                    ? settleSideBets(seat, dealerHand) : 0);
             this.sum += betToSettle;
-            player.settleBet(betToSettle);
-            
-            // Player information
-            StringBuilder str = new StringBuilder();
-            str.append("Player ").append((indexOfPlayer(player) 
-                    + lost));
-            str.append(":").append(playerInfo);
-            // Round outcome
-            String outcome = (betToSettle < 0 ? "Lost" 
-                    : (betToSettle == bet ? "Retained" : "Won"));
-            str.append(String.format("\n%15s", "Bet " + outcome));
-            str.append(": £").append(betToSettle);
-            str.append(String.format(".\n%18s", "New Balance: £"));
-            str.append(player.getBalance()).append(".\n");
+            player.settleBet(betToSettle + sideToSettle);
+            TableMetrics.settled(player.getPlayerType(), bet, 
+                    betToSettle);
+            if (this.listeners != null)
+                for (int x = 0; x < this.listeners.size(); x++)
+                    this.listeners.get(x).seatSettled(this, (seat + 1), 
+                            player, playerHand, bet, betToSettle);
             
             // Print player end of round information
-            print(str.toString());
+            if (this.printOutput) {
+                // Player information
+                StringBuilder str = new StringBuilder();
+                str.append("Player ").append((seat + 1));
+                str.append(":").append(playerInfo);
+                // Round outcome
+                String outcome = (betToSettle < 0 ? "Lost" 
+                        : (betToSettle == bet ? "Retained" : "Won"));
+                str.append(String.format("\n%15s", "Bet " + outcome));
+                str.append(": £").append(betToSettle);
+                if (this.sideBets != null)
+                    str.append(String.format(".\n%18s", "Side Bets: £"))
+                            .append(sideToSettle);
+                str.append(String.format(".\n%18s", "New Balance: £"));
+                str.append(player.getBalance()).append(".\n");
+                print(str.toString());
+            }
 
             // Add players cards played to list
-            cardsPlayed = getCardsPlayed(cardsPlayed, playerHand);
+            addCardsPlayed(playerHand);
             
             // Check if player is out of balance
             if (outOfBalance(player)) {
-                print("Player " + (indexOfPlayer(player) + lost)
-                        + " has lost! The player is out of funds.\n");
-                i.remove();
-                lost++;
-            }
+                if (this.printOutput)
+                    print("Player " + (seat + 1) + " has lost! The "
+                            + "player is out of funds.\n");
+                this.players.remove(i);
+            } else
+                i++;
         }
 
         // Allow each player to view every card played
-        for (Iterator<Player> i = this.players.iterator(); 
-                i.hasNext();)
-            i.next().viewCards(cardsPlayed);
+        for (int i = 0, x = this.players.size(); i < x; i++)
+            this.players.get(i).viewCards(this.cardsPlayed);
+        
+        if (this.listeners != null)
+            for (int i = 0; i < this.listeners.size(); i++)
+                this.listeners.get(i).roundSettled(this, dealerHand);
 
+        commit(event);
+        TableMetrics.record(TableMetrics.Phase.SETTLE_BETS, started);
+        
         // Increment round count
         this.round++;
     }
     
     /**
-     * Method to get and store cards played.
-     * @param cardsPlayed List of type card containing cards list to 
-     *  add to.
-     * @param hand Object containing cards to add to list.
-     * @return List object of type card containing parameter cards
-     *  and new cards from hand object.
+     * Method to write the state of this dealer to a buffer. Players 
+     *  are written by the table they are assigned from.
+     * @param buffer ByteBuffer object to write to.
+     */
+    void encode(ByteBuffer buffer) {
+        this.rules.encode(buffer);
+        buffer.put((byte) ((this.recordAverage ? 1 : 0) 
+                | (this.printOutput ? 2 : 0)));
+        buffer.putInt(this.round);
+        buffer.putInt(this.sum);
+        buffer.putInt(this.average);
+        buffer.put((byte) (this.dealerCard == null ? -1 
+                : this.dealerCard.getCode()));
+        this.deck.encode(buffer);
+        this.hand.encode(buffer);
+        
+        // Bets placed this round
+        buffer.put((byte) this.betCount);
+        for (int i = 0; i < this.betCount; i++)
+            buffer.putInt(this.betsPlaced[i]);
+    }
+    
+    /**
+     * Method to read and return a dealer written to a buffer by 
+     *  encode().
+     * @param buffer ByteBuffer object to read from.
+     * @param version Integer format version of buffer. Version 1 only
+     *  has the bet limits of the standard rules.
+     * @return BlackjackDealer object read.
+     */
+    static BlackjackDealer decode(ByteBuffer buffer, int version) {
+        RuleSet rules = (version == 1 ? RuleSet.standard().withBetLimits(
+                buffer.getInt(), buffer.getInt()) 
+                : RuleSet.decode(buffer));
+        byte flags = buffer.get();
+        BlackjackDealer dealer = new BlackjackDealer(rules, 
+                (flags & 1) != 0, (flags & 2) != 0, 
+                RandomStreams.newRandom());
+        
+        dealer.round = buffer.getInt();
+        dealer.sum = buffer.getInt();
+        dealer.average = buffer.getInt();
+        byte code = buffer.get();
+        dealer.dealerCard = (code < 0 ? null : Card.fromCode(code));
+        dealer.deck.decode(buffer);
+        dealer.hand = Hand.decode(buffer);
+        dealer.recount();
+        
+        // Bets placed this round
+        for (int i = (buffer.get() & 0xFF); i > 0; i--)
+            dealer.addBet(buffer.getInt());
+        return dealer;
+    }
+    
+    /**
+     * Method to commit a recorded event with this tables ID, round 
+     *  number and seat count.
+     * @param event Event object to commit, or null if the event was 
+     *  not enabled.
+     */
+    private void commit(TableEvents.TableEvent event) {
+        if (event != null)
+            event.commit(this.tableId, this.round, this.players.size());
+    }
+    
+    /**
+     * Method to add a listener told the outcome of every round.
+     * @param listener RoundListener object to add.
+     */
+    public void addRoundListener(RoundListener listener) {
+        if (this.listeners == null)
+            this.listeners = new ArrayList();
+        this.listeners.add(listener);
+    }
+    
+    /**
+     * Method to remove a listener added to this dealer.
+     * @param listener RoundListener object to remove.
+     * @return Boolean true if listener was removed, false otherwise.
+     */
+    public boolean removeRoundListener(RoundListener listener) {
+        return (this.listeners != null 
+                && this.listeners.remove(listener));
+    }
+    
+    /**
+     * Method to get and return the first card dealt to the dealer 
+     *  this round, which is the card shown to every player.
+     * @return Card object of the dealers first card, or null if no 
+     *  card has been dealt yet.
+     */
+    public Card getDealerCard() {
+        return this.dealerCard;
+    }
+    
+    /**
+     * Method to get and return the dealers final score of the round
+     *  last settled.
+     * @return Integer score of dealers hand.
+     */
+    public int getDealerScore() {
+        return this.dealerScore;
+    }
+    
+    /**
+     * Method to get and return the house rules of this table.
+     * @return RuleSet object of house rules.
      */
-    private List<Card> getCardsPlayed(List<Card> cardsPlayed, 
-            Hand hand) {
-        for (Iterator<Card> i = hand.iterator(); 
-            i.hasNext();)
-            cardsPlayed.add(i.next());
-        return cardsPlayed;
+    public RuleSet getRules() {
+        return this.rules;
+    }
+    
+    /**
+     * Method to set how long an asynchronous player has to make each
+     *  decision before the default decision is used.
+     * @param timeout Long time allowed, or 0 to wait forever.
+     * @param unit TimeUnit object of timeout.
+     */
+    public void setDecisionTimeout(long timeout, TimeUnit unit) {
+        if (timeout < 0)
+            throw new IllegalArgumentException("Timeout must not be "
+                    + "negative.");
+        this.decisionTimeout = unit.toNanos(timeout);
+    }
+    
+    /**
+     * Method to set the bet placed by an asynchronous player that does
+     *  not decide in time.
+     * @param bet Integer bet within the bet limits of the rules.
+     */
+    public void setDefaultBet(int bet) {
+        if ((bet < this.MINIMUM_BET_SIZE) || (bet > this.MAXIMUM_BET_SIZE))
+            throw new IllegalArgumentException("Default bet must be "
+                    + "within the bet limits.");
+        this.defaultBet = bet;
+    }
+    
+    /**
+     * Method to set whether an asynchronous player that does not 
+     *  decide in time takes a card or sticks.
+     * @param hit Boolean true to take a card, false to stick.
+     */
+    public void setDefaultHit(boolean hit) {
+        this.defaultHit = hit;
+    }
+    
+    /**
+     * Method to get and return the bet placed by an asynchronous 
+     *  player that does not decide in time, the minimum bet unless 
+     *  set.
+     * @return Integer default bet.
+     */
+    public int getDefaultBet() {
+        return (this.defaultBet > 0 ? this.defaultBet 
+                : this.MINIMUM_BET_SIZE);
+    }
+    
+    /**
+     * Method to get and return the ID of this table.
+     * @return Integer table ID.
+     */
+    public int getTableId() {
+        return this.tableId;
+    }
+    
+    /**
+     * Method to get and return the current round number.
+     * @return Integer round number.
+     */
+    public int getRound() {
+        return this.round;
+    }
+    
+    /**
+     * Method to get and return the Hi-Lo true count of the shoe when 
+     *  the current round was dealt, the running count of the cards
+     *  dealt since the shoe was shuffled for each full deck left. 
+     * @return Integer true count, rounded down.
+     */
+    public int getTrueCount() {
+        return this.trueCount;
+    }
+    
+    /**
+     * Method to get and return the chance that a player was dealt a 
+     *  blackjack, from the cards left in the shoe when the current 
+     *  round was dealt.
+     * @return Double chance of a blackjack.
+     */
+    double getBlackjackChance() {
+        return ControlVariates.blackjackChance(this.dealShoe, 
+                this.dealSize);
+    }
+    
+    /**
+     * Method to get and return the chance that the dealer went bust,
+     *  from the dealers card and the cards left in the shoe when the 
+     *  dealer played the current round. Worked out the first time it
+     *  is asked for each round.
+     * @return Double chance of the dealer going bust.
+     */
+    double getBustChance() {
+        if (Double.isNaN(this.bustChance)) {
+            if (this.bustMemo == null)
+                this.bustMemo = new ControlVariates.BustChance();
+            this.bustChance = this.bustMemo.get(this.rules, 
+                    this.dealerCard.getRank().getValue(), 
+                    this.dealerShoe);
+        }
+        return this.bustChance;
+    }
+    
+    /**
+     * Method to offer side bets at this table. Every seat places the 
+     *  stake of each side bet offered every round, alongside their 
+     *  bet, and it is settled with their bet.
+     * @param sideBets SideBets object, or null for none.
+     */
+    public void setSideBets(SideBets sideBets) {
+        this.sideBets = sideBets;
+    }
+    
+    /**
+     * Method to get and return the side bets offered at this table.
+     * @return SideBets object, or null for none.
+     */
+    public SideBets getSideBets() {
+        return this.sideBets;
+    }
+    
+    /**
+     * Method to get and return the amount a seat settled on a side bet
+     *  in the round being settled.
+     * @param seat Integer seat position of player starting at 1.
+     * @param side Integer index of side bet.
+     * @return Integer amount settled, negative if lost or 0 if not 
+     *  offered.
+     */
+    int getSideSettled(int seat, int side) {
+        return this.sideSettled[((seat - 1) * SideBets.COUNT) + side];
+    }
+    
+    /**
+     * Method to work out the house edge of a side bet for the cards 
+     *  left in the deck.
+     * @param side Integer index of side bet.
+     * @return Double house edge, as a fraction of the stake.
+     */
+    public double getSideBetEdge(int side) {
+        int[] codes = new int[Card.CODES];
+        this.deck.countCodes(codes);
+        return SideBets.getHouseEdge(side, codes, this.rules);
+    }
+    
+    /**
+     * Method to look up the payouts of the side bets settled from the
+     *  first cards dealt to a seat.
+     * @param seat Integer seat index starting at 0.
+     * @param dealerCard Card object of dealers card.
+     * @param hand Hand object of the cards dealt to the seat.
+     */
+    private void dealSideBets(int seat, Card dealerCard, Hand hand) {
+        int first = seat * SideBets.COUNT;
+        // Grow payouts if every seat is already in use
+        if ((this.sidePayouts == null) 
+                || (this.sidePayouts.length < (first + SideBets.COUNT))) {
+            int size = Math.max(this.players.size(), seat + 1) 
+                    * SideBets.COUNT;
+            this.sidePayouts = new int[size];
+            this.sideSettled = new int[size];
+        }
+        int a = hand.get(0).getCode();
+        int b = hand.get(1).getCode();
+        this.sidePayouts[first + SideBets.PERFECT_PAIRS] 
+                = SideBets.getPairsPayout(a, b);
+        this.sidePayouts[first + SideBets.TWENTY_ONE_PLUS_THREE] 
+                = SideBets.getThreeCardPayout(dealerCard.getCode(), a, b);
+    }
+    
+    /**
+     * Method to settle the side bets of a seat.
+     * @param seat Integer seat index starting at 0.
+     * @param dealerHand Hand object the dealer finished with.
+     * @return Integer amount settled on every side bet.
+     */
+    private int settleSideBets(int seat, Hand dealerHand) {
+        int first = seat * SideBets.COUNT;
+        this.sidePayouts[first + SideBets.DEALER_BUST] 
+                = SideBets.getBustPayout(dealerHand.size(), 
+                this.dealerScore > 21);
+        int total = 0;
+        for (int side = 0; side < SideBets.COUNT; side++) {
+            int settled = this.sideBets.settle(side, 
+                    this.sidePayouts[first + side]);
+            this.sideSettled[first + side] = settled;
+            total += settled;
+        }
+        return total;
+    }
+    
+    /**
+     * Method to work out the Hi-Lo count of a restored shoe from the 
+     *  cards left in it. The count of every card of a full shoe is 0,
+     *  so the running count of the cards dealt is minus the count of
+     *  the cards left. The true count is taken of the shoe as it is.
+     */
+    private void recount() {
+        countShoe();
+        this.runningCount = 0;
+        for (int value = 2; value <= 11; value++) {
+            if (value <= 6)
+                this.runningCount -= this.shoe[value - 2];
+            else if (value >= 10)
+                this.runningCount += this.shoe[value - 2];
+        }
+        this.trueCount = Math.floorDiv(this.runningCount * Card.CODES, 
+                Math.max(this.deck.size(), 1));
+    }
+    
+    /**
+     * Method to count the cards of each value left in the deck.
+     */
+    private void countShoe() {
+        if (this.shoe == null)
+            this.shoe = new int[ControlVariates.VALUES];
+        this.deck.count(this.shoe);
+    }
+    
+    /**
+     * Method to store the cards of a hand in the cards played this 
+     *  round.
+     * @param hand Object containing cards to add to cards played.
+     */
+    private void addCardsPlayed(Hand hand) {
+        for (int i = 0, x = hand.size(); i < x; i++)
+            this.cardsPlayed.add(hand.get(i));
     }
     
     /**
@@ -400,6 +984,116 @@ public class BlackjackDealer implements Serializable, Dealer {
         return ((player.getBalance() - this.MINIMUM_BET_SIZE) < 0);
     }
     
+    /**
+     * Method to request the bet of every asynchronous player that is
+     *  not out of funds, starting the deadline of each.
+     */
+    private void requestBets() {
+        for (int i = 0, x = this.players.size(); i < x; i++) {
+            Player player = this.players.get(i);
+            if (!(player instanceof AsyncPlayer) || outOfBalance(player))
+                continue;
+            
+            // Grow pending bets if every seat is already in use
+            if ((this.pendingBets == null) 
+                    || (this.pendingBets.length < x)) {
+                this.pendingBets = new CompletableFuture[Math.max(x, 8)];
+                this.betDeadlines = new long[this.pendingBets.length];
+            }
+            this.pendingBets[i] = ((AsyncPlayer) player).requestBet();
+            this.betDeadlines[i] = deadline();
+        }
+    }
+    
+    /**
+     * Method to get the next bet of a player. The bet of an 
+     *  asynchronous player is the one requested by requestBets(), or 
+     *  if already used a new request. A bet requested again after an
+     *  invalid bet keeps the deadline of the first request, so a 
+     *  player can not hold up the table by replying with invalid bets.
+     * @param player Player object placing bet.
+     * @param seat Integer index of players seat this round.
+     * @param retry Boolean true if the last bet was invalid.
+     * @return Integer bet placed, the default bet once the deadline 
+     *  has passed.
+     */
+    private int nextBet(Player player, int seat, boolean retry) {
+        if (!(player instanceof AsyncPlayer))
+            return player.makeBet();
+        
+        CompletableFuture<Integer> bet = null;
+        if (retry) {
+            if ((this.decisionTimeout > 0) 
+                    && ((this.betDeadline - System.nanoTime()) <= 0)) {
+                print("Player took too long to decide!");
+                return getDefaultBet();
+            }
+        } else if ((this.pendingBets != null) 
+                && (seat < this.pendingBets.length)) {
+            bet = this.pendingBets[seat];
+            this.betDeadline = this.betDeadlines[seat];
+            this.pendingBets[seat] = null;
+        }
+        if (bet == null) {
+            bet = ((AsyncPlayer) player).requestBet();
+            if (!retry)
+                this.betDeadline = deadline();
+        }
+        return await(bet, this.betDeadline, getDefaultBet());
+    }
+    
+    /**
+     * Method to get whether a player wants to take a card or not.
+     * @param player Player object to ask.
+     * @return Boolean true if a card is required, false otherwise.
+     */
+    private boolean nextHit(Player player) {
+        if (!(player instanceof AsyncPlayer))
+            return player.hit();
+        return await(((AsyncPlayer) player).requestHit(), deadline(), 
+                this.defaultHit);
+    }
+    
+    /**
+     * Method to get and return the deadline of a decision requested 
+     *  now.
+     * @return Long deadline in System.nanoTime() time.
+     */
+    private long deadline() {
+        return (System.nanoTime() + this.decisionTimeout);
+    }
+    
+    /**
+     * Method to wait for the decision of an asynchronous player until
+     *  its deadline. The request is cancelled if the player is too 
+     *  slow.
+     * @param decision CompletableFuture object of decision requested.
+     * @param deadline Long deadline in System.nanoTime() time.
+     * @param defaultDecision Decision used if the player does not 
+     *  decide in time, fails or decides null.
+     * @return Decision of player, or default decision.
+     */
+    private <T> T await(CompletableFuture<T> decision, long deadline, 
+            T defaultDecision) {
+        try {
+            T value = (this.decisionTimeout > 0 
+                    ? decision.get(Math.max(0, deadline 
+                    - System.nanoTime()), TimeUnit.NANOSECONDS) 
+                    : decision.get());
+            if (value != null)
+                return value;
+        } catch (TimeoutException exception) {
+            decision.cancel(false);
+            print("Player took too long to decide!");
+        } catch (ExecutionException | CancellationException exception) {
+            // Player failed to decide, use default
+        } catch (InterruptedException exception) {
+            decision.cancel(false);
+            Thread.currentThread().interrupt();
+        }
+        return defaultDecision;
+    }
+    
     /**
      * Method to get and return the index of a players position
      *  defaulting to 1 instead of 0.
@@ -416,7 +1110,7 @@ public class BlackjackDealer implements Serializable, Dealer {
      * @param message String containing message to print.
      */
     private void print(String message) {
-        if (!this.recordAverage)
+        if (this.printOutput)
             System.out.println(message);
     }
     
@@ -1,9 +1,12 @@
 package blackjack;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
 import java.util.Scanner;
 
 /**
@@ -13,14 +16,16 @@ import java.util.Scanner;
  * Author: Paulo Jorge.
  */
 public class BlackjackTable implements Serializable {
+    // File tables are saved to and loaded from
+    private static final String FILE_NAME = "blackjackTable.dat";
+    
     // Game objects used to run game
     private final BlackjackDealer dealer;
-    private final List<Player> players = new ArrayList();
     // Max number of players
     private final int MAX_PLAYERS = 8;
-    // Bet size limits
-    private final int MINIMUM_BET_SIZE = 1;
-    private final int MAXIMUM_BET_SIZE = 500;
+    // Seats of players, and the seated players shared with the dealer
+    private final SeatRegistry seats;
+    private final List<Player> players;
 
     /**
      * Constructor method used to initialise a new black jack game.
@@ -29,9 +34,63 @@ public class BlackjackTable implements Serializable {
      *  all console output apart from current deck average message.
      */
     public BlackjackTable(Boolean recordAverage) {        
+        this(recordAverage, !recordAverage);
+    }
+    
+    /**
+     * Constructor method used to initialise a new black jack game,
+     *  with control over console output.
+     * @param recordAverage Boolean true if dealer will save average
+     *  profit/loss per deck or false otherwise.
+     * @param printOutput Boolean true if round information will be
+     *  printed to console or false otherwise.
+     */
+    public BlackjackTable(boolean recordAverage, boolean printOutput) {
+        this(recordAverage, printOutput, RandomStreams.newRandom());
+    }
+    
+    /**
+     * Constructor method used to initialise a new black jack game,
+     *  with control over console output and the random number 
+     *  generator used to shuffle.
+     * @param recordAverage Boolean true if dealer will save average
+     *  profit/loss per deck or false otherwise.
+     * @param printOutput Boolean true if round information will be
+     *  printed to console or false otherwise.
+     * @param random Random object used to shuffle the deck.
+     */
+    public BlackjackTable(boolean recordAverage, boolean printOutput,
+            Random random) {
+        this(recordAverage, printOutput, random, RuleSet.standard());
+    }
+    
+    /**
+     * Constructor method used to initialise a new black jack game,
+     *  played by a set of house rules.
+     * @param recordAverage Boolean true if dealer will save average
+     *  profit/loss per deck or false otherwise.
+     * @param printOutput Boolean true if round information will be
+     *  printed to console or false otherwise.
+     * @param random Random object used to shuffle the deck.
+     * @param rules RuleSet object of house rules.
+     */
+    public BlackjackTable(boolean recordAverage, boolean printOutput,
+            Random random, RuleSet rules) {
         // Initialise dealer
-        this.dealer = new BlackjackDealer(MINIMUM_BET_SIZE, 
-                MAXIMUM_BET_SIZE, recordAverage);
+        this(new BlackjackDealer(rules, recordAverage, printOutput, 
+                random));
+    }
+    
+    /**
+     * Constructor method used to initialise a table with an existing
+     *  dealer, such as a dealer loaded from file.
+     * @param dealer BlackjackDealer object of table.
+     */
+    private BlackjackTable(BlackjackDealer dealer) {
+        this.dealer = dealer;
+        this.seats = new SeatRegistry(this.MAX_PLAYERS, 
+                dealer.getRules().getMinimumBet());
+        this.players = this.seats.getSeats();
     }
     
     /**
@@ -178,7 +237,10 @@ public class BlackjackTable implements Serializable {
                     break;
                 case 3:
                     // Load game
-                    table = BlackjackTable.load();
+                    BlackjackTable loaded = BlackjackTable.load(scanner);
+                    // Keep current table if load failed
+                    if (loaded != null)
+                        table = loaded;
                     break;
                 default:
                     // End game
@@ -195,20 +257,8 @@ public class BlackjackTable implements Serializable {
                     System.out.println("_____________________"
                             + "_____________________");
 
-                // Allow players to place bets
-                table.getDealer().takeBets();
-
-                // Deal first cards
-                table.getDealer().dealFirstCards();
-
-                // Play hands
-                for (Iterator<Player> i = table.getPlayers()
-                        .iterator(); i.hasNext();)
-                    table.getDealer().play(i.next());
-                table.getDealer().playDealer();
-
-                // Settle bets placed
-                table.getDealer().settleBets();
+                // Play a single round
+                table.playRound();
 
                 // Print round end seperater
                 if (iterations > 1)
@@ -237,6 +287,41 @@ public class BlackjackTable implements Serializable {
                 iterations--;
             }
         }
+        
+        // Wait for any save still being written before the game ends
+        SnapshotWriter.getDefault().flush();
+    }
+    
+    /**
+     * Method to play a single round with every player currently 
+     *  assigned to the table. Bets are taken, the first cards dealt,
+     *  each hand played in turn followed by the dealer and then all 
+     *  bets are settled. Players requested to join or leave are 
+     *  seated or removed before the round starts.
+     */
+    public void playRound() {
+        long started = TableMetrics.start();
+        // Apply joins and leaves requested during the last round
+        this.seats.applyRequests();
+        
+        // Allow players to place bets
+        this.dealer.takeBets();
+        int hands = this.players.size();
+
+        // Deal first cards
+        this.dealer.dealFirstCards();
+
+        // Play hands
+        for (int i = 0, x = this.players.size(); i < x; i++)
+            this.dealer.play(this.players.get(i));
+        this.dealer.playDealer();
+
+        // Settle bets placed
+        this.dealer.settleBets();
+        
+        // Publish seats, as players out of funds have been removed
+        this.seats.publish();
+        TableMetrics.roundPlayed(hands, started);
     }
     
     /**
@@ -271,10 +356,9 @@ public class BlackjackTable implements Serializable {
      *  round.
      */
     public boolean addPlayer(Player player) {
-        if((this.players.size() < this.MAX_PLAYERS)
-                && (player.getBalance() - MINIMUM_BET_SIZE) > 0)
-            return this.players.add(player);
-        return false;
+        boolean added = this.seats.join(player);
+        this.seats.publish();
+        return added;
     }
     
     /**
@@ -283,20 +367,34 @@ public class BlackjackTable implements Serializable {
      * @return Boolean true if player was removed, false otherwise.
      */
     public boolean removePlayer(Player player) {
-        return this.players.remove(player);
+        boolean removed = this.seats.leave(player);
+        this.seats.publish();
+        return removed;
+    }
+    
+    /**
+     * Method to get and return the seats of this table, used to 
+     *  request players join or leave from other threads while the 
+     *  table is played.
+     * @return SeatRegistry object of table.
+     */
+    public SeatRegistry getSeats() {
+        return this.seats;
     }
     
     /**
      * Method to get and return this tables dealer.
      * @return Dealer object of table.
      */
-    public Dealer getDealer() {
+    public BlackjackDealer getDealer() {
         return this.dealer;
     }
     
     /**
      * Method to get and return all players currently assigned to 
-     *  this table.
+     *  this table. The list is shared with the dealer, so must only be
+     *  used on the thread playing the table, see 
+     *  SeatRegistry.getPublished() for other threads.
      * @return List object of type Player containing all the players
      *  currently assigned.
      */
@@ -329,19 +427,89 @@ public class BlackjackTable implements Serializable {
     }
     
     /**
-     * Method to serialise blackjack table object to file.
+     * Method to write the state of this table, its dealer and every
+     *  player to a buffer.
+     * @param buffer ByteBuffer object to write to.
+     */
+    void encode(ByteBuffer buffer) {
+        this.dealer.encode(buffer);
+        buffer.put((byte) this.players.size());
+        for (Player player : this.players)
+            BinaryCodec.encodePlayer(player, buffer);
+    }
+    
+    /**
+     * Method to read and return a table written to a buffer by 
+     *  encode(). Players are assigned to the dealer of the table.
+     * @param buffer ByteBuffer object to read from.
+     * @param version Integer format version of buffer.
+     * @param scanner Scanner object given to any human players.
+     * @return BlackjackTable object read.
+     * @throws IOException If a player could not be read.
+     */
+    static BlackjackTable decode(ByteBuffer buffer, int version, 
+            Scanner scanner) throws IOException {
+        BlackjackTable table = new BlackjackTable(
+                BlackjackDealer.decode(buffer, version));
+        for (int i = (buffer.get() & 0xFF); i > 0; i--)
+            table.players.add(BinaryCodec.decodePlayer(buffer, 
+                    scanner));
+        table.assignPlayers();
+        return table;
+    }
+    
+    /**
+     * Method to save blackjack table object to file. A snapshot of 
+     *  the table is taken and written in the background, so the game 
+     *  can continue straight away.
      */
     public void save() {
-        Serialization.writeToFile(this, "blackjackTable.ser");
+        SnapshotWriter.getDefault().write(TableSnapshot.of(this), 
+                FILE_NAME);
+        System.out.println("Saving game to /" + FILE_NAME + ".");
     }
     
     /**
      * Method to load and return blackjack table object from file.
-     * @return Hand object loaded.
+     *  Tables with human players can not be loaded without a scanner.
+     * @return BlackjackTable object loaded or null if table was 
+     *  unable to be loaded.
      */    
     public static BlackjackTable load() {
-        return (BlackjackTable)Serialization.readFromFile
-                ("blackjackTable.ser");
+        return load(null);
+    }
+    
+    /**
+     * Method to load and return blackjack table object from file.
+     * @param scanner Scanner object given to any human players.
+     * @return BlackjackTable object loaded or null if table was 
+     *  unable to be loaded.
+     */    
+    public static BlackjackTable load(Scanner scanner) {
+        // Wait for any save still being written
+        SnapshotWriter.getDefault().flush();
+        
+        TableEvents.Load event = new TableEvents.Load();
+        event.begin();
+        long started = TableMetrics.start();
+        event.fileName = FILE_NAME;
+        
+        try {
+            BlackjackTable table = BinaryCodec.readFromFile(
+                    event.fileName, scanner);
+            System.out.println("Load successful. Data loaded from /" 
+                    + event.fileName + ".");
+            
+            event.commit(table.dealer.getTableId(), 
+                    table.dealer.getRound(), table.players.size());
+            TableMetrics.record(TableMetrics.Phase.LOAD, started);
+            return table;
+        } catch (IOException exception) {
+            exception.printStackTrace();
+        }
+        
+        // Return null if exception occured
+        return null;
     }
     
     /**
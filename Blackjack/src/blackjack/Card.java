@@ -60,6 +60,17 @@ public class Card implements Serializable, Comparable<Card> {
      */
     public enum Suit { clubs, diamonds, hearts, spades; }
 
+    // Number of different cards, one of each rank in every suit
+    public static final int CODES = 52;
+    // Single instance of every card, in card code order
+    private static final Card[] CARDS = new Card[CODES];
+    static {
+        for (Suit suit : Suit.values())
+            for (Rank rank : Rank.values())
+                CARDS[(suit.ordinal() * 13) + rank.ordinal()] 
+                        = new Card(rank, suit);
+    }
+
     // Used to store card type information
     private final Rank rank;
     private final Suit suit;
@@ -86,6 +97,29 @@ public class Card implements Serializable, Comparable<Card> {
      */
     public Suit getSuit() { return this.suit; }    
 
+    /**
+     * Get method to get and return the code of card. Codes run from 0
+     *  to 51 in the order a new deck is created, suit then rank.
+     * @return Integer code of card.
+     */
+    public int getCode() { 
+        return (this.suit.ordinal() * 13) + this.rank.ordinal(); 
+    }
+    
+    /**
+     * Static method to get and return the card of a code. The same
+     *  card object is returned every time for each code.
+     * @param code Integer code of card from 0 to 51.
+     * @return Card object of code.
+     * @throws IllegalArgumentException If code is not a card code.
+     */
+    public static Card fromCode(int code) {
+        if ((code < 0) || (code >= CODES))
+            throw new IllegalArgumentException("Invalid card code " 
+                    + code + ".");
+        return CARDS[code];
+    }
+
     /**
      * Static method to get 2 cards and output the sum value of both
      *  combined.
@@ -0,0 +1,355 @@
+package blackjack;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Class: ControlVariates.java
+ * Description: Control variate estimate of the EV per hand of a player
+ *  type. Each hand records the value settled alongside two controls
+ *  whose expectation is known exactly: whether the player was dealt a
+ *  blackjack, and whether the dealer went bust. Each control is the
+ *  outcome less its chance, worked out from the cards left in the
+ *  shoe when the cards were dealt, times the bet. As nothing else is
+ *  known when the chance is worked out, every control has an
+ *  expectation of exactly 0 however deep the shoe is dealt. The
+ *  estimate is the mean value settled less the mean of each control
+ *  times its regression coefficient, which has a lower variance than
+ *  the mean alone.
+ * Author: Paulo Jorge.
+ */
+public final class ControlVariates {
+    // Card values from 2 to 11 for an ace
+    static final int VALUES = 10;
+
+    // Hands recorded
+    private long hands;
+    // Sums of value settled, controls, and their squares and products
+    private double sumY;
+    private double sumYY;
+    private double sumA;
+    private double sumB;
+    private double sumAA;
+    private double sumAB;
+    private double sumBB;
+    private double sumYA;
+    private double sumYB;
+
+    /**
+     * Method to record the outcome of a single hand.
+     * @param settled Double value settled.
+     * @param blackjack Double blackjack control, the bet if the player
+     *  was dealt a blackjack less the bet times its chance.
+     * @param bust Double bust control, the bet if the dealer went bust
+     *  less the bet times its chance.
+     */
+    void record(double settled, double blackjack, double bust) {
+        this.hands++;
+        this.sumY += settled;
+        this.sumYY += settled * settled;
+        this.sumA += blackjack;
+        this.sumB += bust;
+        this.sumAA += blackjack * blackjack;
+        this.sumAB += blackjack * bust;
+        this.sumBB += bust * bust;
+        this.sumYA += settled * blackjack;
+        this.sumYB += settled * bust;
+    }
+
+    /**
+     * Method to add the hands recorded by another estimate to this.
+     * @param other ControlVariates object to add.
+     */
+    void add(ControlVariates other) {
+        this.hands += other.hands;
+        this.sumY += other.sumY;
+        this.sumYY += other.sumYY;
+        this.sumA += other.sumA;
+        this.sumB += other.sumB;
+        this.sumAA += other.sumAA;
+        this.sumAB += other.sumAB;
+        this.sumBB += other.sumBB;
+        this.sumYA += other.sumYA;
+        this.sumYB += other.sumYB;
+    }
+
+    /**
+     * Method to write the sums of this estimate to a buffer.
+     * @param buffer ByteBuffer object to write to.
+     */
+    void encode(ByteBuffer buffer) {
+        buffer.putLong(this.hands);
+        buffer.putDouble(this.sumY);
+        buffer.putDouble(this.sumYY);
+        buffer.putDouble(this.sumA);
+        buffer.putDouble(this.sumB);
+        buffer.putDouble(this.sumAA);
+        buffer.putDouble(this.sumAB);
+        buffer.putDouble(this.sumBB);
+        buffer.putDouble(this.sumYA);
+        buffer.putDouble(this.sumYB);
+    }
+
+    /**
+     * Method to read an estimate from a buffer written by encode().
+     * @param buffer ByteBuffer object to read from.
+     * @return ControlVariates object read.
+     */
+    static ControlVariates decode(ByteBuffer buffer) {
+        ControlVariates controls = new ControlVariates();
+        controls.hands = buffer.getLong();
+        controls.sumY = buffer.getDouble();
+        controls.sumYY = buffer.getDouble();
+        controls.sumA = buffer.getDouble();
+        controls.sumB = buffer.getDouble();
+        controls.sumAA = buffer.getDouble();
+        controls.sumAB = buffer.getDouble();
+        controls.sumBB = buffer.getDouble();
+        controls.sumYA = buffer.getDouble();
+        controls.sumYB = buffer.getDouble();
+        return controls;
+    }
+
+    /**
+     * Method to get and return the regression coefficient of each
+     *  control. A control that did not vary, or that varied only with
+     *  the other, is given a coefficient of 0.
+     * @return Double array of blackjack and bust coefficients.
+     */
+    public double[] getCoefficients() {
+        if (this.hands < 2)
+            return new double[] {0, 0};
+        // Centred sums of squares and products
+        double aa = this.sumAA - (this.sumA * this.sumA / this.hands);
+        double ab = this.sumAB - (this.sumA * this.sumB / this.hands);
+        double bb = this.sumBB - (this.sumB * this.sumB / this.hands);
+        double ya = this.sumYA - (this.sumY * this.sumA / this.hands);
+        double yb = this.sumYB - (this.sumY * this.sumB / this.hands);
+
+        double det = (aa * bb) - (ab * ab);
+        if ((aa > 0) && (bb > 0) && (det > (1e-9 * aa * bb)))
+            return new double[] {((ya * bb) - (yb * ab)) / det,
+                    ((yb * aa) - (ya * ab)) / det};
+        if (aa > 0)
+            return new double[] {ya / aa, 0};
+        if (bb > 0)
+            return new double[] {0, yb / bb};
+        return new double[] {0, 0};
+    }
+
+    /**
+     * Method to get and return the mean value settled per hand,
+     *  without controls.
+     * @return Double raw EV per hand.
+     */
+    public double getRawEstimate() {
+        return (this.hands > 0 ? this.sumY / this.hands : 0);
+    }
+
+    /**
+     * Method to get and return the control variate estimate of EV per
+     *  hand.
+     * @return Double EV per hand.
+     */
+    public double getEstimate() {
+        if (this.hands == 0)
+            return 0;
+        double[] beta = getCoefficients();
+        return (this.sumY - (beta[0] * this.sumA)
+                - (beta[1] * this.sumB)) / this.hands;
+    }
+
+    /**
+     * Method to get and return the variance of the value settled per
+     *  hand.
+     * @return Double variance, or 0 if fewer than 2 hands recorded.
+     */
+    private double getRawVariance() {
+        if (this.hands < 2)
+            return 0;
+        double yy = this.sumYY - (this.sumY * this.sumY / this.hands);
+        return Math.max(yy, 0) / (this.hands - 1);
+    }
+
+    /**
+     * Method to get and return the variance of the value settled per
+     *  hand left after the controls are taken away.
+     * @return Double variance, or 0 if 3 or fewer hands recorded.
+     */
+    private double getVariance() {
+        if (this.hands < 4)
+            return 0;
+        double[] beta = getCoefficients();
+        double yy = this.sumYY - (this.sumY * this.sumY / this.hands);
+        double ya = this.sumYA - (this.sumY * this.sumA / this.hands);
+        double yb = this.sumYB - (this.sumY * this.sumB / this.hands);
+        double residual = yy - (beta[0] * ya) - (beta[1] * yb);
+        return Math.max(residual, 0) / (this.hands - 3);
+    }
+
+    /**
+     * Method to get and return the standard error of the control
+     *  variate estimate.
+     * @return Double standard error, or infinity if 3 or fewer hands
+     *  recorded.
+     */
+    public double getStandardError() {
+        return (this.hands < 4 ? Double.POSITIVE_INFINITY
+                : Math.sqrt(getVariance() / this.hands));
+    }
+
+    /**
+     * Method to get and return how many times lower the variance of
+     *  the control variate estimate is than the raw estimate, which is
+     *  also how many times fewer hands it needs for the same precision.
+     * @return Double variance reduction, or 1 if unknown.
+     */
+    public double getVarianceReduction() {
+        double variance = getVariance();
+        return (variance > 0 ? getRawVariance() / variance : 1);
+    }
+
+    /**
+     * Method to get and return the chance that two cards dealt from a
+     *  shoe are a blackjack.
+     * @param shoe Integer array of cards of each value from 2 to 11
+     *  left in the shoe.
+     * @param size Integer number of cards left in the shoe.
+     * @return Double chance of a blackjack.
+     */
+    static double blackjackChance(int[] shoe, int size) {
+        return (size > 1 ? (2.0 * shoe[VALUES - 1] * shoe[VALUES - 2])
+                / ((double) size * (size - 1)) : 0);
+    }
+
+    /**
+     * Chance of the dealer going bust, worked out exactly from the 
+     *  cards left in a shoe. Every card the dealer could draw is 
+     *  followed, and the chance from each set of cards drawn is kept 
+     *  for the rest of the search, as the order they were drawn in 
+     *  makes no difference. A table keeps its memo for every round.
+     */
+    static final class BustChance {
+        // Slots of memo, a power of 2 far above the sets a dealer draws
+        private static final int SLOTS = 4096;
+        // Bits of each card value in a set of cards drawn
+        private static final int BITS = 4;
+        
+        // Set of cards drawn, chance of going bust from them and the 
+        // search they were stored by, for each slot
+        private final long[] keys = new long[SLOTS];
+        private final double[] chances = new double[SLOTS];
+        private final int[] stamps = new int[SLOTS];
+        // Current search, and number of slots it has filled
+        private int stamp;
+        private int filled;
+        
+        /**
+         * Method to get and return the chance that the dealer goes 
+         *  bust, drawing from a shoe until the house rules say to 
+         *  stick.
+         * @param rules RuleSet object of house rules.
+         * @param dealerValue Integer value of dealers card from 2 to 
+         *  11.
+         * @param shoe Integer array of cards of each value from 2 to 
+         *  11 left in the shoe, restored before returning.
+         * @return Double chance of the dealer going bust.
+         */
+        double get(RuleSet rules, int dealerValue, int[] shoe) {
+            // Start a new search, forgetting every slot
+            if (++this.stamp == 0) {
+                Arrays.fill(this.stamps, 0);
+                this.stamp = 1;
+            }
+            this.filled = 0;
+            
+            int size = 0;
+            for (int i = 0; i < VALUES; i++)
+                size += shoe[i];
+            // Dealer always draws to a single card
+            return bust(rules, (dealerValue == 11 ? 1 : dealerValue),
+                    (dealerValue == 11), shoe, size, 0, true);
+        }
+        
+        /**
+         * Method to get and return the chance that the dealer goes 
+         *  bust from a hand the house rules say to draw to. Cards that
+         *  end the hand are settled without searching further.
+         * @param rules RuleSet object of house rules.
+         * @param hard Integer total of hand counting aces as 1.
+         * @param ace Boolean true if the hand holds an ace.
+         * @param shoe Integer array of cards of each value left in 
+         *  shoe.
+         * @param size Integer number of cards left in shoe.
+         * @param drawn Long set of cards drawn, counting each value in 
+         *  its own bits.
+         * @param memo Boolean true if chances are kept by the cards 
+         *  drawn, false once the shoe has been replaced.
+         * @return Double chance of going bust.
+         */
+        private double bust(RuleSet rules, int hard, boolean ace,
+                int[] shoe, int size, long drawn, boolean memo) {
+            // Dealer draws from a new shoe once every card is dealt
+            if (size == 0) {
+                int[] full = new int[VALUES];
+                for (int i = 0; i < VALUES; i++)
+                    full[i] = rules.getDecks() 
+                            * (i == (VALUES - 2) ? 16 : 4);
+                return bust(rules, hard, ace, full, 
+                        Card.CODES * rules.getDecks(), 0, false);
+            }
+            if (memo) {
+                int slot = find(drawn);
+                if (this.stamps[slot] == this.stamp)
+                    return this.chances[slot];
+            }
+            
+            double chance = 0;
+            for (int i = 0; i < VALUES; i++) {
+                int count = shoe[i];
+                if (count == 0)
+                    continue;
+                int value = i + 2;
+                int next = hard + (value == 11 ? 1 : value);
+                boolean nextAce = (ace || (value == 11));
+                if (next > 21) {
+                    chance += count;
+                    continue;
+                }
+                boolean soft = (nextAce && ((next + 10) <= 21));
+                if (!rules.dealerHits((soft ? next + 10 : next), soft))
+                    continue;
+                shoe[i]--;
+                chance += count * bust(rules, next, nextAce, shoe, 
+                        size - 1, drawn + (1L << (i * BITS)), memo);
+                shoe[i]++;
+            }
+            chance /= size;
+            
+            // Keep chance while the memo is sparse
+            if (memo && (this.filled < (SLOTS / 2))) {
+                int slot = find(drawn);
+                this.keys[slot] = drawn;
+                this.chances[slot] = chance;
+                this.stamps[slot] = this.stamp;
+                this.filled++;
+            }
+            return chance;
+        }
+        
+        /**
+         * Method to find the slot of a set of cards drawn in the memo,
+         *  probing on from its hash until the set or a slot not used by
+         *  this search is found.
+         * @param drawn Long set of cards drawn.
+         * @return Integer slot.
+         */
+        private int find(long drawn) {
+            int slot = (int) ((drawn * 0x9E3779B97F4A7C15L) >>> 52);
+            while ((this.stamps[slot] == this.stamp) 
+                    && (this.keys[slot] != drawn))
+                slot = (slot + 1) & (SLOTS - 1);
+            return slot;
+        }
+    }
+}
\ No newline at end of file
@@ -1,7 +1,9 @@
 package blackjack;
 
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -10,39 +12,77 @@ import java.util.Random;
 /**
  * Class: Deck.java
  * Description: Deck class used to generate and handle a deck 
- *  of 52 cards.
+ *  of 52 cards, or a shoe of several decks.
  * Author: Paulo Jorge.
  */
 public class Deck implements Serializable, Iterable<Card> {
     // Version control
-    private static final long serialVersionUID = 112;
+    private static final long serialVersionUID = 113;
     
     // Deck list containing cards
-    private List<Card> deck = new ArrayList();;
-    // Total amount of cards when deck is full
-    private final int TOTAL_SIZE = 52;
+    private final List<Card> deck = new ArrayList();
+    // Number of decks and total amount of cards when deck is full
+    private final int decks;
+    private final int TOTAL_SIZE;
+    // Random number generator used to shuffle
+    private final Random random;
     
     /**
      * Deck constructor method used to initialise a new array list
      *  containing all 52 different card types.
      */
     public Deck() { 
+        this(RandomStreams.newRandom());
+    }
+    
+    /**
+     * Deck constructor method used to initialise a new array list
+     *  containing all 52 different card types, shuffled using the
+     *  passed in random number generator. A seeded generator gives
+     *  the same order of shuffles every game.
+     * @param random Random object used to shuffle.
+     */
+    public Deck(Random random) { 
+        this(random, 1);
+    }
+    
+    /**
+     * Deck constructor method used to initialise a new array list
+     *  containing a number of decks of all 52 different card types, 
+     *  shuffled using the passed in random number generator.
+     * @param random Random object used to shuffle.
+     * @param decks Integer number of decks, at least 1.
+     */
+    public Deck(Random random, int decks) { 
+        this.random = random;
+        this.decks = decks;
+        this.TOTAL_SIZE = Card.CODES * decks;
+        
         // Create new deck
         newDeck();
     }
     
+    /**
+     * Deck constructor method used to initialise a deck containing a
+     *  copy of a list of cards.
+     * @param cards List object of type card to copy.
+     */
+    private Deck(List<Card> cards) {
+        this.random = RandomStreams.newRandom();
+        this.decks = 1;
+        this.TOTAL_SIZE = Card.CODES;
+        this.deck.addAll(cards);
+    }
+    
     /**
      * Method to shuffle the deck into a random order.
      */
     public void shuffle() {
-        // New instance of random
-        Random random = new Random();
-        
         // Only shuffle if deck contains more than 1 card
         if (size() > 1) {
             for (int i = (size() - 1); i > 0; i--) {
                 // Swap position of index card with random card in deck
-                this.deck.set(i, this.deck.set(random.nextInt(i), 
+                this.deck.set(i, this.deck.set(this.random.nextInt(i), 
                         this.deck.get(i)));
             }
         }
@@ -57,7 +97,7 @@ public class Deck implements Serializable, Iterable<Card> {
         // Position to deal
         int position = this.deck.size() - 1;
         // Deal card if available, else null if deck is empty.
-        return (position > 0 ? this.deck.remove(position) : null);
+        return (position >= 0 ? this.deck.remove(position) : null);
     }
     
     /**
@@ -68,6 +108,28 @@ public class Deck implements Serializable, Iterable<Card> {
         return this.deck.size();
     }
     
+    /**
+     * Method to count the cards of each value left in this deck.
+     * @param counts Integer array filled with the number of cards of 
+     *  each value from 2 to 11 for an ace.
+     */
+    void count(int[] counts) {
+        Arrays.fill(counts, 0);
+        for (int i = 0, x = this.deck.size(); i < x; i++)
+            counts[this.deck.get(i).getRank().getValue() - 2]++;
+    }
+    
+    /**
+     * Method to count the cards of each code left in this deck.
+     * @param counts Integer array filled with the number of cards of 
+     *  each code.
+     */
+    void countCodes(int[] counts) {
+        Arrays.fill(counts, 0);
+        for (int i = 0, x = this.deck.size(); i < x; i++)
+            counts[this.deck.get(i).getCode()]++;
+    }
+    
     /**
      * Method to get and return the size of this deck when completely
      *  full.
@@ -85,10 +147,11 @@ public class Deck implements Serializable, Iterable<Card> {
         // Clear deck
         this.deck.clear();
         
-        // Create new deck containing all 52 different cards
-        for(Card.Suit suit : Card.Suit.values())
-            for(Card.Rank rank : Card.Rank.values())
-                this.deck.add(new Card(rank, suit));
+        // Create new deck containing all 52 different cards for each 
+        // deck, reusing the shared card objects
+        for (int i = 0; i < this.decks; i++)
+            for (int code = 0; code < Card.CODES; code++)
+                this.deck.add(Card.fromCode(code));
     }
     
     /**
@@ -156,9 +219,32 @@ public class Deck implements Serializable, Iterable<Card> {
         }
     }
     
+    /**
+     * Method to write deck to a buffer as the number of cards 
+     *  followed by the code of each card, from bottom to top.
+     * @param buffer ByteBuffer object to write to.
+     */
+    void encode(ByteBuffer buffer) {
+        buffer.putShort((short) size());
+        for (Card card : this.deck)
+            buffer.put((byte) card.getCode());
+    }
+    
+    /**
+     * Method to replace the cards in this deck with cards written to 
+     *  a buffer by encode().
+     * @param buffer ByteBuffer object to read from.
+     */
+    void decode(ByteBuffer buffer) {
+        this.deck.clear();
+        for (int i = (buffer.getShort() & 0xFFFF); i > 0; i--)
+            this.deck.add(Card.fromCode(buffer.get()));
+    }
+    
     /**
      * Method to serialise deck object to file in second card iterator
-     *  order.
+     *  order. A copy of the deck is saved, so this deck is never 
+     *  changed while saving.
      */
     public void save() {
         // Create temp list in second card order
@@ -167,15 +253,8 @@ public class Deck implements Serializable, Iterable<Card> {
         while (iterator.hasNext())
             secondCardOrder.add(iterator.next());
         
-        // Replace deck with second card order deck
-        List<Card> temp = this.deck;
-        this.deck = secondCardOrder;
-        
-        // Save
-        Serialization.writeToFile(this, "deck.ser");
-        
-        // Restore deck after save
-        this.deck = temp; 
+        // Save copy of deck in second card order
+        Serialization.writeToFile(new Deck(secondCardOrder), "deck.ser");
     }
     
     /**
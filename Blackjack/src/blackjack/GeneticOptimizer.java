@@ -0,0 +1,567 @@
+package blackjack;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Class: GeneticOptimizer.java
+ * Description: Genetic algorithm that evolves the Genome of a computer
+ *  player for a set of house rules. Every generation, each genome
+ *  plays the same shoes at a number of tables, each table on its own
+ *  task, and is scored by the value it settled for each unit bet. The
+ *  best genomes are kept and the rest of the next generation are bred
+ *  from genomes picked by tournament selection, by crossover and
+ *  mutation. Progress is checkpointed to file after every generation,
+ *  so an optimisation that is stopped resumes where it left off.
+ * Author: Paulo Jorge.
+ */
+public class GeneticOptimizer {
+    // Balance genomes start with, so none run out of funds
+    private static final int BALANCE = 1000000000;
+    // Genomes compared to pick each parent
+    private static final int SELECTION_SIZE = 3;
+
+    // Genomes in each generation
+    private int population = 32;
+    // Best genomes kept unchanged in the next generation
+    private int elites = 2;
+    // Chance of each gene mutating
+    private double mutationRate = 0.1;
+    // Tables and rounds at each table every genome plays a generation
+    private int tables = 16;
+    private int rounds = 2000;
+    // Seed used to shuffle and breed
+    private long seed = 0;
+    // Number of threads used to play tables
+    private int threads = Runtime.getRuntime().availableProcessors();
+    // House rules of every table
+    private RuleSet rules = RuleSet.standard();
+    // File progress is saved to after each generation, or null for none
+    private File checkpoint;
+
+    /**
+     * Progress of an optimisation, saved after each generation.
+     */
+    private static final class Checkpoint implements Serializable {
+        // Version control
+        private static final long serialVersionUID = 101;
+        // Settings genomes were scored with
+        private final String settings;
+        // Next generation to play and its genomes
+        private final int generation;
+        private final Genome[] genomes;
+        // Best genome of the last generation played and its score
+        private final Genome best;
+        private final double bestScore;
+
+        /**
+         * Constructor method used to initialise a new checkpoint.
+         * @param settings String settings genomes were scored with.
+         * @param generation Integer next generation to play.
+         * @param genomes Genome array of next generation.
+         * @param best Genome object best last generation, or null.
+         * @param bestScore Double score of best genome.
+         */
+        private Checkpoint(String settings, int generation, 
+                Genome[] genomes, Genome best, double bestScore) {
+            this.settings = settings;
+            this.generation = generation;
+            this.genomes = genomes;
+            this.best = best;
+            this.bestScore = bestScore;
+        }
+    }
+
+    /**
+     * Method to set the number of genomes in each generation.
+     * @param population Integer number of genomes, at least 2.
+     */
+    public void setPopulation(int population) {
+        if (population < 2)
+            throw new IllegalArgumentException("Population must be at "
+                    + "least 2.");
+        this.population = population;
+        this.elites = Math.min(this.elites, population - 1);
+    }
+
+    /**
+     * Method to set the number of best genomes kept unchanged.
+     * @param elites Integer number of genomes, below the population.
+     */
+    public void setElites(int elites) {
+        if ((elites < 0) || (elites >= this.population))
+            throw new IllegalArgumentException("Elites must be at least "
+                    + "0 and below the population.");
+        this.elites = elites;
+    }
+
+    /**
+     * Method to set the chance of each gene of a child mutating.
+     * @param mutationRate Double chance from 0 to 1.
+     */
+    public void setMutationRate(double mutationRate) {
+        if ((mutationRate < 0) || (mutationRate > 1))
+            throw new IllegalArgumentException("Mutation rate must be "
+                    + "between 0 and 1.");
+        this.mutationRate = mutationRate;
+    }
+
+    /**
+     * Method to set the tables every genome plays each generation.
+     * @param tables Integer number of tables.
+     */
+    public void setTables(int tables) {
+        if (tables < 1)
+            throw new IllegalArgumentException("Tables must be at "
+                    + "least 1.");
+        this.tables = tables;
+    }
+
+    /**
+     * Method to set the rounds played at each table.
+     * @param rounds Integer number of rounds.
+     */
+    public void setRounds(int rounds) {
+        if (rounds < 1)
+            throw new IllegalArgumentException("Rounds must be at "
+                    + "least 1.");
+        this.rounds = rounds;
+    }
+
+    /**
+     * Method to set the seed used to shuffle and breed.
+     * @param seed Long seed.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Method to set the number of threads used to play tables.
+     * @param threads Integer number of threads.
+     */
+    public void setThreads(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("Threads must be at "
+                    + "least 1.");
+        this.threads = threads;
+    }
+
+    /**
+     * Method to set the house rules of every table.
+     * @param rules RuleSet object of house rules.
+     */
+    public void setRules(RuleSet rules) {
+        if (rules == null)
+            throw new IllegalArgumentException("Rules must be set.");
+        this.rules = rules;
+    }
+
+    /**
+     * Method to set the file progress is saved to after every
+     *  generation, and resumed from if it already exists.
+     * @param checkpoint File object, or null for none.
+     */
+    public void setCheckpoint(File checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
+    /**
+     * Method to evolve genomes up to a generation, resuming from the
+     *  checkpoint if there is one. The first generation starts from
+     *  the basic and advanced genomes and random genomes.
+     * @param generations Integer number of generations to play in
+     *  total, including any already checkpointed.
+     * @return Genome object best in the last generation played.
+     * @throws InterruptedException If interrupted while waiting.
+     * @throws ExecutionException If a table failed to play.
+     * @throws IOException If the checkpoint could not be read or
+     *  written.
+     */
+    public Genome run(int generations) throws InterruptedException,
+            ExecutionException, IOException {
+        Checkpoint state = readCheckpoint();
+        if (state == null) {
+            Random random = new Random(this.seed);
+            Genome[] genomes = new Genome[this.population];
+            genomes[0] = Genome.basic();
+            genomes[1] = Genome.advanced();
+            for (int i = 2; i < genomes.length; i++)
+                genomes[i] = Genome.random(random);
+            state = new Checkpoint(describe(), 0, genomes, null, 0);
+        } else
+            System.out.println("Resuming from generation "
+                    + state.generation + ".");
+
+        ExecutorService executor
+                = Executors.newFixedThreadPool(this.threads);
+        try {
+            while (state.generation < generations) {
+                double[] scores = score(executor, state.genomes,
+                        state.generation);
+
+                // Order genomes best first
+                Integer[] order = new Integer[scores.length];
+                for (int i = 0; i < order.length; i++)
+                    order[i] = i;
+                final double[] sorted = scores;
+                Arrays.sort(order, new Comparator<Integer>() {
+                    @Override
+                    public int compare(Integer a, Integer b) {
+                        return Double.compare(sorted[b], sorted[a]);
+                    }
+                });
+
+                double mean = 0;
+                for (double score : scores)
+                    mean += score / scores.length;
+                Genome best = state.genomes[order[0]];
+                System.out.println(String.format("Generation %d: best "
+                        + "%.5f, mean %.5f, %s", state.generation,
+                        scores[order[0]], mean, best));
+
+                state = new Checkpoint(state.settings, 
+                        state.generation + 1, breed(state.genomes, 
+                        scores, order, state.generation), best, 
+                        scores[order[0]]);
+                writeCheckpoint(state);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return state.best;
+    }
+
+    /**
+     * Method to score every genome of a generation, playing each at
+     *  every table on its own task. Every genome plays the shoes of
+     *  the same seeds, so they are compared on the same cards.
+     * @param executor ExecutorService object to play tables on.
+     * @param genomes Genome array of generation.
+     * @param generation Integer generation number.
+     * @return Double array of the value each genome settled for each
+     *  unit bet.
+     * @throws InterruptedException If interrupted while waiting.
+     * @throws ExecutionException If a table failed to play.
+     */
+    private double[] score(ExecutorService executor, Genome[] genomes,
+            int generation) throws InterruptedException,
+            ExecutionException {
+        List<Future<SimulationStats>> results = new ArrayList();
+        for (final Genome genome : genomes)
+            for (int t = 0; t < this.tables; t++) {
+                final long tableSeed = RandomStreams.seed(this.seed,
+                        ((long) generation * this.tables) + t);
+                results.add(executor.submit(
+                        new Callable<SimulationStats>() {
+                    @Override
+                    public SimulationStats call() {
+                        return play(genome, tableSeed);
+                    }
+                }));
+            }
+
+        double[] scores = new double[genomes.length];
+        for (int i = 0; i < genomes.length; i++) {
+            long wagered = 0;
+            long net = 0;
+            for (int t = 0; t < this.tables; t++) {
+                SimulationStats.Totals total = results.get(
+                        (i * this.tables) + t).get().getTotals("Genome");
+                wagered += total.getWagered();
+                net += total.getNet();
+            }
+            scores[i] = (wagered > 0 ? (double) net / wagered : 0);
+        }
+        return scores;
+    }
+
+    /**
+     * Method to play a genome at a single table.
+     * @param genome Genome object played.
+     * @param tableSeed Long seed used to shuffle.
+     * @return SimulationStats object of table.
+     */
+    private SimulationStats play(Genome genome, long tableSeed) {
+        SimulationStats stats = new SimulationStats();
+        BlackjackTable table = new BlackjackTable(false, false,
+                new Random(tableSeed), this.rules);
+        table.getDealer().addRoundListener(stats);
+        table.addPlayer(genome.newPlayer(BALANCE));
+        table.assignPlayers();
+        for (int i = 0; i < this.rounds; i++)
+            table.playRound();
+        return stats;
+    }
+
+    /**
+     * Method to breed the next generation, keeping the elites and
+     *  breeding the rest from parents picked by tournament selection.
+     * @param genomes Genome array of generation.
+     * @param scores Double array of score of each genome.
+     * @param order Integer array of genome indexes, best first.
+     * @param generation Integer generation number.
+     * @return Genome array of next generation.
+     */
+    private Genome[] breed(Genome[] genomes, double[] scores,
+            Integer[] order, int generation) {
+        // Seeded by generation, so a resumed run breeds the same
+        Random random = new Random(this.seed + generation + 1);
+        Genome[] next = new Genome[this.population];
+        int size = 0;
+        for (int i = 0; (i < this.elites) && (i < order.length); i++)
+            next[size++] = genomes[order[i]];
+
+        while (size < next.length) {
+            Genome mother = select(genomes, scores, random);
+            Genome father = select(genomes, scores, random);
+            next[size++] = mother.crossover(father, random).mutate(
+                    this.mutationRate, random);
+        }
+        return next;
+    }
+
+    /**
+     * Method to pick the best of a few genomes picked at random.
+     * @param genomes Genome array of generation.
+     * @param scores Double array of score of each genome.
+     * @param random Random object used to pick.
+     * @return Genome object picked.
+     */
+    private static Genome select(Genome[] genomes, double[] scores,
+            Random random) {
+        int best = random.nextInt(genomes.length);
+        for (int i = 1; i < SELECTION_SIZE; i++) {
+            int other = random.nextInt(genomes.length);
+            if (scores[other] > scores[best])
+                best = other;
+        }
+        return genomes[best];
+    }
+
+    /**
+     * Method to describe the settings genomes are scored with, every
+     *  setting that changes their scores and the shoes they play.
+     * @return String settings.
+     */
+    private String describe() {
+        return "seed=" + this.seed + " tables=" + this.tables 
+                + " rounds=" + this.rounds + " rules=" 
+                + this.rules.describe();
+    }
+
+    /**
+     * Method to read the checkpoint file, if there is one with the
+     *  same population. A checkpoint scored with other settings is 
+     *  not resumed, as its scores could not be compared.
+     * @return Checkpoint object read, or null for none.
+     * @throws IOException If checkpoint could not be read, or was 
+     *  written with other settings.
+     */
+    private Checkpoint readCheckpoint() throws IOException {
+        if ((this.checkpoint == null) || !this.checkpoint.exists())
+            return null;
+        try (ObjectInputStream in = new ObjectInputStream(
+                new BufferedInputStream(new FileInputStream(
+                this.checkpoint)))) {
+            Checkpoint state = (Checkpoint) in.readObject();
+            if (state.genomes.length != this.population)
+                throw new IOException("Checkpoint has a population of "
+                        + state.genomes.length + ".");
+            if (!describe().equals(state.settings))
+                throw new IOException("Checkpoint was played with "
+                        + "other settings (" + state.settings + ").");
+            return state;
+        } catch (ClassNotFoundException exception) {
+            throw new IOException(exception);
+        }
+    }
+
+    /**
+     * Method to write the checkpoint file, replacing it only once the
+     *  new checkpoint has been written in full.
+     * @param state Checkpoint object to write.
+     * @throws IOException If checkpoint could not be written.
+     */
+    private void writeCheckpoint(Checkpoint state) throws IOException {
+        if (this.checkpoint == null)
+            return;
+        File temp = new File(this.checkpoint.getPath() + ".tmp");
+        try (ObjectOutputStream out = new ObjectOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeObject(state);
+        }
+        Files.move(temp.toPath(), this.checkpoint.toPath(),
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Method to print how to run an optimisation.
+     */
+    private static void printUsage() {
+        System.err.println("Usage: java -cp Blackjack.jar "
+                + "blackjack.GeneticOptimizer [--generations N]"
+                + " [--population N] [--elites N] [--mutation P]"
+                + " [--tables N] [--rounds N] [--seed N] [--threads N]"
+                + " [--checkpoint FILE] [--decks N]"
+                + " [--soft17 stand|hit] [--penetration P]"
+                + " [--blackjack-pays N/D]");
+        System.err.println(SimulationConfig.PAYOUT_USAGE);
+    }
+
+    /**
+     * Method to run an optimisation from command line arguments and
+     *  print the best genome found. Options are:
+     *   --generations N   Generations to play (default 20).
+     *   --population N    Genomes in each generation (default 32).
+     *   --elites N        Best genomes kept each generation (default
+     *                      2).
+     *   --mutation P      Chance of each gene mutating (default 0.1).
+     *   --tables N        Tables every genome plays each generation
+     *                      (default 16).
+     *   --rounds N        Rounds played at each table (default 2000).
+     *   --seed N          Seed used to shuffle and breed (default 0).
+     *   --threads N       Threads used to play tables (default number
+     *                      of processors).
+     *   --checkpoint FILE File progress is saved to and resumed from.
+     *  House rules are set with the same options as a simulation.
+     *  Exits with status 0 on success, 1 if the optimisation failed or
+     *  2 if the arguments were invalid.
+     * @param args String array of command line arguments.
+     */
+    public static void main(String[] args) {
+        GeneticOptimizer optimizer = new GeneticOptimizer();
+        int generations = 20;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String option = args[i];
+                // Every option is followed by a value
+                if ((i + 1) >= args.length)
+                    throw new IllegalArgumentException("Missing value "
+                            + "for " + option + ".");
+                String value = args[++i];
+
+                switch (option) {
+                    case "--generations":
+                        generations = parseInt(option, value);
+                        break;
+                    case "--population":
+                        optimizer.setPopulation(
+                                parseInt(option, value));
+                        break;
+                    case "--elites":
+                        optimizer.setElites(
+                                parseInt(option, value));
+                        break;
+                    case "--mutation":
+                        optimizer.setMutationRate(
+                                parseDouble(option, value));
+                        break;
+                    case "--tables":
+                        optimizer.setTables(
+                                parseInt(option, value));
+                        break;
+                    case "--rounds":
+                        optimizer.setRounds(
+                                parseInt(option, value));
+                        break;
+                    case "--seed":
+                        optimizer.setSeed(parseLong(option, value));
+                        break;
+                    case "--threads":
+                        optimizer.setThreads(
+                                parseInt(option, value));
+                        break;
+                    case "--checkpoint":
+                        optimizer.setCheckpoint(new File(value));
+                        break;
+                    default:
+                        RuleSet rules = SimulationConfig.parseRule(
+                                optimizer.rules, option, value);
+                        if (rules == null)
+                            throw new IllegalArgumentException("Unknown "
+                                    + "option " + option + ".");
+                        optimizer.setRules(rules);
+                }
+            }
+        } catch (IllegalArgumentException exception) {
+            System.err.println("Error: " + exception.getMessage());
+            printUsage();
+            System.exit(2);
+            return;
+        }
+
+        try {
+            Genome best = optimizer.run(generations);
+            System.out.println("Best genome: " + best);
+        } catch (InterruptedException | ExecutionException
+                | IOException exception) {
+            exception.printStackTrace();
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Method to read an integer option value.
+     * @param option String option name.
+     * @param value String value.
+     * @return Integer value.
+     * @throws IllegalArgumentException If value is not an integer.
+     */
+    private static int parseInt(String option, String value) {
+        return (int) parseLong(option, value);
+    }
+
+    /**
+     * Method to read a long option value.
+     * @param option String option name.
+     * @param value String value.
+     * @return Long value.
+     * @throws IllegalArgumentException If value is not an integer.
+     */
+    private static long parseLong(String option, String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException exception) {
+            throw new IllegalArgumentException("Invalid value '"
+                    + value + "' for " + option + ".");
+        }
+    }
+
+    /**
+     * Method to read a decimal option value.
+     * @param option String option name.
+     * @param value String value.
+     * @return Double value.
+     * @throws IllegalArgumentException If value is not a number.
+     */
+    private static double parseDouble(String option, String value) {
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException exception) {
+            throw new IllegalArgumentException("Invalid value '"
+                    + value + "' for " + option + ".");
+        }
+    }
+}
\ No newline at end of file
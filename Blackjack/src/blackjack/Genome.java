@@ -0,0 +1,266 @@
+package blackjack;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Class: Genome.java
+ * Description: Decision thresholds and bet ramp of a computer player,
+ *  evolved by a GeneticOptimizer. For each dealer card from 2 to ace,
+ *  the genome holds the hard and soft totals the player sticks on, as
+ *  BasicPlayer and IntermediatePlayer hard-code in hit(). It also holds
+ *  the bet, in units of the base bet, for each card count from 0 or
+ *  lower up to 5 or higher, as AdvancedPlayer hard-codes in makeBet().
+ * Author: Paulo Jorge.
+ */
+public final class Genome implements Serializable {
+    // Version control
+    private static final long serialVersionUID = 100;
+    // Dealer cards, from 2 to 11 for an ace
+    private static final int DEALER_CARDS = 10;
+    // Card counts of bet ramp, from 0 or lower to 5 or higher
+    public static final int COUNTS = 6;
+    // Range of each gene
+    public static final int MIN_HARD = 12;
+    public static final int MAX_HARD = 21;
+    public static final int MIN_SOFT = 17;
+    // Sticking on soft 22 hits every soft total
+    public static final int MAX_SOFT = 22;
+    public static final int MAX_UNITS = 20;
+    // Bet of a single unit
+    public static final int BASE_BET = 10;
+
+    // Genes, hard totals then soft totals by dealer card, then units by
+    // card count
+    private final int[] genes;
+
+    /**
+     * Constructor method used to initialise a genome from genes.
+     * @param genes Integer array of genes, not copied.
+     */
+    private Genome(int[] genes) {
+        this.genes = genes;
+    }
+
+    /**
+     * Method to create and return the genome of a basic player, which
+     *  sticks on hard 17, hits every soft total and always bets 1 unit.
+     * @return Genome object.
+     */
+    public static Genome basic() {
+        int[] genes = new int[(DEALER_CARDS * 2) + COUNTS];
+        Arrays.fill(genes, 0, DEALER_CARDS, 17);
+        Arrays.fill(genes, DEALER_CARDS, DEALER_CARDS * 2, MAX_SOFT);
+        Arrays.fill(genes, DEALER_CARDS * 2, genes.length, 1);
+        return new Genome(genes);
+    }
+
+    /**
+     * Method to create and return the genome closest to an advanced
+     *  player. Sticks on soft 19, and on hard 17 against a 7 or higher
+     *  or hard 12 otherwise, and bets 1 unit for each count from 1.
+     * @return Genome object.
+     */
+    public static Genome advanced() {
+        int[] genes = new int[(DEALER_CARDS * 2) + COUNTS];
+        for (int i = 0; i < DEALER_CARDS; i++) {
+            genes[i] = ((i + 2) >= 7 ? 17 : 12);
+            genes[DEALER_CARDS + i] = 19;
+        }
+        for (int i = 0; i < COUNTS; i++)
+            genes[(DEALER_CARDS * 2) + i] = Math.max(i, 1);
+        return new Genome(genes);
+    }
+
+    /**
+     * Method to create and return a genome with every gene random.
+     * @param random Random object used to pick genes.
+     * @return Genome object.
+     */
+    public static Genome random(Random random) {
+        int[] genes = new int[(DEALER_CARDS * 2) + COUNTS];
+        for (int i = 0; i < genes.length; i++)
+            genes[i] = min(i) + random.nextInt(max(i) - min(i) + 1);
+        return new Genome(genes);
+    }
+
+    /**
+     * Method to create and return a child of this genome and another,
+     *  taking each gene from either parent at random.
+     * @param other Genome object of other parent.
+     * @param random Random object used to pick parents.
+     * @return Genome object of child.
+     */
+    public Genome crossover(Genome other, Random random) {
+        int[] genes = new int[this.genes.length];
+        for (int i = 0; i < genes.length; i++)
+            genes[i] = (random.nextBoolean() ? this.genes[i]
+                    : other.genes[i]);
+        return new Genome(genes);
+    }
+
+    /**
+     * Method to create and return a copy of this genome where each gene
+     *  has a chance of moving 1 or 2 up or down, within its range.
+     * @param rate Double chance of each gene changing.
+     * @param random Random object used to mutate.
+     * @return Genome object of mutated copy.
+     */
+    public Genome mutate(double rate, Random random) {
+        int[] genes = this.genes.clone();
+        for (int i = 0; i < genes.length; i++) {
+            if (random.nextDouble() >= rate)
+                continue;
+            int step = 1 + random.nextInt(2);
+            genes[i] += (random.nextBoolean() ? step : -step);
+            genes[i] = Math.max(min(i), Math.min(max(i), genes[i]));
+        }
+        return new Genome(genes);
+    }
+
+    /**
+     * Method to get and return the lowest value of a gene.
+     * @param gene Integer gene index.
+     * @return Integer lowest value.
+     */
+    private static int min(int gene) {
+        return (gene < DEALER_CARDS ? MIN_HARD
+                : (gene < (DEALER_CARDS * 2) ? MIN_SOFT : 1));
+    }
+
+    /**
+     * Method to get and return the highest value of a gene.
+     * @param gene Integer gene index.
+     * @return Integer highest value.
+     */
+    private static int max(int gene) {
+        return (gene < DEALER_CARDS ? MAX_HARD
+                : (gene < (DEALER_CARDS * 2) ? MAX_SOFT : MAX_UNITS));
+    }
+
+    /**
+     * Method to get the hard total a player sticks on.
+     * @param dealerValue Integer value of dealers card from 2 to 11.
+     * @return Integer total to stick on or higher.
+     */
+    public int getHard(int dealerValue) {
+        return this.genes[dealerValue - 2];
+    }
+
+    /**
+     * Method to get the soft total a player sticks on.
+     * @param dealerValue Integer value of dealers card from 2 to 11.
+     * @return Integer total to stick on or higher, 22 to hit every
+     *  soft total.
+     */
+    public int getSoft(int dealerValue) {
+        return this.genes[DEALER_CARDS + dealerValue - 2];
+    }
+
+    /**
+     * Method to get the bet of a player at a card count.
+     * @param count Integer card count.
+     * @return Integer number of base bet units.
+     */
+    public int getUnits(int count) {
+        return this.genes[(DEALER_CARDS * 2)
+                + Math.max(0, Math.min(COUNTS - 1, count))];
+    }
+
+    /**
+     * Method to create and return a new player playing this genome.
+     * @param balance Integer starting balance of player.
+     * @return Player object.
+     */
+    public Player newPlayer(int balance) {
+        return new GenomePlayer(this, balance);
+    }
+
+    /**
+     * Method to check if another object is a genome with the same genes.
+     * @param object Object to compare.
+     * @return Boolean true if genes are equal, false otherwise.
+     */
+    @Override
+    public boolean equals(Object object) {
+        return ((object instanceof Genome)
+                && Arrays.equals(this.genes, ((Genome) object).genes));
+    }
+
+    /**
+     * Method to get and return the hash code of the genes.
+     * @return Integer hash code.
+     */
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(this.genes);
+    }
+
+    /**
+     * Method to format this genome as JSON.
+     * @return String containing JSON object.
+     */
+    public String toJson() {
+        return "{\"hard\": " + Arrays.toString(Arrays.copyOfRange(
+                this.genes, 0, DEALER_CARDS)) + ", \"soft\": "
+                + Arrays.toString(Arrays.copyOfRange(this.genes,
+                DEALER_CARDS, DEALER_CARDS * 2)) + ", \"units\": "
+                + Arrays.toString(Arrays.copyOfRange(this.genes,
+                DEALER_CARDS * 2, this.genes.length)) + "}";
+    }
+
+    /**
+     * Method to get and return genome string.
+     * @return String containing genome as JSON.
+     */
+    @Override
+    public String toString() {
+        return toJson();
+    }
+
+    /**
+     * Player that hits and bets as a genome says, counting cards as an
+     *  advanced player does.
+     */
+    private static final class GenomePlayer extends AdvancedPlayer {
+        // Genome played
+        private final Genome genome;
+
+        /**
+         * Constructor method used to initialise a new player.
+         * @param genome Genome object played.
+         * @param balance Integer starting balance.
+         */
+        private GenomePlayer(Genome genome, int balance) {
+            this.genome = genome;
+            this.balance = balance;
+            this.playerType = "Genome";
+        }
+
+        /**
+         * Method used to place a bet, the units the genome bets at the
+         *  current card count times the base bet.
+         * @return Integer value placed.
+         */
+        @Override
+        public int makeBet() {
+            return (this.betPlaced = BASE_BET
+                    * this.genome.getUnits(this.cardCount));
+        }
+
+        /**
+         * Method used to determine whether the player wants to take a 
+         *  card or not, taking cards below the total the genome sticks
+         *  on against the dealers card.
+         * @return Boolean true if a card is required, false otherwise.
+         */
+        @Override
+        public boolean hit() {
+            int dealerValue = this.dealerCard.getRank().getValue();
+            return (getHandTotal() < (this.hand.isSoft()
+                    ? this.genome.getSoft(dealerValue)
+                    : this.genome.getHard(dealerValue)));
+        }
+    }
+}
\ No newline at end of file
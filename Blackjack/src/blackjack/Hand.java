@@ -1,11 +1,11 @@
 package blackjack;
 
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Iterator;
-import java.util.List;
 import java.util.NoSuchElementException;
 
 /**
@@ -15,14 +15,20 @@ import java.util.NoSuchElementException;
  */
 public class Hand implements Serializable, Iterable<Card> {
     // Version control
-    private static final long serialVersionUID = 102;
+    private static final long serialVersionUID = 103;
+    // Number of cards a new hand can hold before growing
+    private static final int INITIAL_CAPACITY = 12;
     
-    // Used to store collection of cards in hand    
-    private ArrayList<Card> cards;
+    // Used to store cards in hand, the first size cards are in use
+    private Card[] cards;
+    private int size;
     // Card rank counts
     private int[] rankCount;
-    // Total value(s) in hand
-    private List<Integer> totalValue;
+    // Total value of hand counting every ace as 1, and number of aces.
+    // Every possible total is the hard total plus 10 for each ace 
+    // counted as 11.
+    private int hardTotal;
+    private int aces;
     
     /**
      * Constructor to initialise a new empty hand.
@@ -55,17 +61,30 @@ public class Hand implements Serializable, Iterable<Card> {
         newHand();
 
         // Add cards to hand
-        for (Card card : this.cards)
-            add(card);
+        add(hand);
     }
     
     /**
      * Method to initialise a new hand.
      */
     private void newHand() {
-        this.cards = new ArrayList();
+        this.cards = new Card[INITIAL_CAPACITY];
+        this.size = 0;
         this.rankCount = new int[Card.Rank.values().length];
-        this.totalValue = new ArrayList();
+        this.hardTotal = 0;
+        this.aces = 0;
+    }
+    
+    /**
+     * Method to remove every card from this hand, keeping the storage
+     *  so the hand can be reused without creating new objects.
+     */
+    public void clear() {
+        Arrays.fill(this.cards, 0, this.size, null);
+        this.size = 0;
+        Arrays.fill(this.rankCount, 0);
+        this.hardTotal = 0;
+        this.aces = 0;
     }
     
     /**
@@ -73,83 +92,91 @@ public class Hand implements Serializable, Iterable<Card> {
      * @return Integer size value of this hand.
      */
     public int size() {
-        return this.cards.size();
+        return this.size;
+    }
+    
+    /**
+     * Method to get and return the card at a position in this hand.
+     * @param position Integer position of card, from 0 for the first
+     *  card dealt.
+     * @return Card object at position.
+     * @throws IndexOutOfBoundsException If position is out of bounds.
+     */
+    public Card get(int position) {
+        if ((position < 0) || (position >= this.size))
+            throw new IndexOutOfBoundsException("Position " + position
+                    + " is out of bounds.");
+        return this.cards[position];
     }
 
     /**
      * Method to add card to hand. Then increase the rank count of 
-     *  cards in hand and update the total value(s) of the current hand 
+     *  cards in hand and update the total value of the current hand 
      *  based on new added card.
      * @param card Card object to add to hand. 
      */
     private void addCard(Card card) {
+        // Grow storage if hand is full
+        if (this.size == this.cards.length)
+            this.cards = Arrays.copyOf(this.cards, this.size * 2);
+        
         // Add card to hand
-        this.cards.add(card);
+        this.cards[this.size++] = card;
         
         // Increase rank count based on rank enumerator position
         this.rankCount[card.getRank().ordinal()]++;
 
-        // Get value of card
+        // Increase hard total, counting an ace as 1
         int value = card.getRank().getValue();
-        // Card type
-        boolean isAce = (value == 11);
-        
-        // If list is empty add value to list
-        if (this.totalValue.isEmpty()) {
-            this.totalValue.add(isAce ? 1 : value);
-            // If this is an ace, also add 11 to end of list
-            if (isAce)
-                this.totalValue.add(11);
-        }
-        else {
-            // Store size of collection, to prevent loop from adding 1 
-            // ontop of 11 if ace is added to total value
-            int size = this.totalValue.size();
-            
-            // Add 11 to end of list
-            if (isAce)
-                this.totalValue.add((this.totalValue.get(size - 1) 
-                        + 11));
-            
-            // Increase value(s) by this cards value
-            for (int i = 0; i < size; i++)
-                this.totalValue.set(i, this.totalValue.get(i) 
-                        + (isAce ? 1 : value));
-        }
+        if (value == 11) {
+            this.aces++;
+            this.hardTotal += 1;
+        } else
+            this.hardTotal += value;
     }
     
     /**
      * Method to remove a card. Then decrease the rank count of cards 
-     *  in hand and update the total value(s) of the current hand based 
+     *  in hand and update the total value of the current hand based 
      *  on the newly removed card.
      * @param card Card object to remove from hand. 
      * @return Boolean true if card was removed or false if not. 
      */
     private boolean removeCard(Card card) {
-        // Remove card
-        boolean removed = this.cards.remove(card);
+        // Find first occurrence of card
+        int position = indexOf(card);
         
-        // If card was removed update counts
-        if (removed) {
-            // Increase rank count based on rank enumerator position
+        // If card was found remove and update counts
+        if (position >= 0) {
+            // Shift later cards down
+            System.arraycopy(this.cards, position + 1, this.cards, 
+                    position, this.size - position - 1);
+            this.cards[--this.size] = null;
+            
+            // Decrease rank count based on rank enumerator position
             this.rankCount[card.getRank().ordinal()]--;
 
-            // Get value of card
+            // Decrease hard total, counting an ace as 1
             int value = card.getRank().getValue();
-            // Card type
-            boolean isAce = (value == 11);
-
-            // Remove last element from collection if this is an ace
-            if (isAce)
-                this.totalValue.remove(this.totalValue.get(
-                        this.totalValue.size() - 1));
-
-            // Decrease value(s) by this cards value
-            for (int i = 0; i < this.totalValue.size(); i++)
-                this.totalValue.set(i, (this.totalValue.get(i) 
-                        - (isAce ? 1 : value)));
+            if (value == 11) {
+                this.aces--;
+                this.hardTotal -= 1;
+            } else
+                this.hardTotal -= value;
         }
-        return removed;
+        return (position >= 0);
+    }
+    
+    /**
+     * Method to get the position of the first occurrence of a card.
+     * @param card Card object to find.
+     * @return Integer position of card, or -1 if not in hand.
+     */
+    private int indexOf(Card card) {
+        for (int i = 0; i < this.size; i++)
+            if (this.cards[i].equals(card))
+                return i;
+        return -1;
     }
  
     /**
@@ -174,8 +201,8 @@ public class Hand implements Serializable, Iterable<Card> {
      * @param hand Hand object containing cards to add to hand.
      */
     public final void add(Hand hand) {
-        for (Card card : hand.cards)
-            addCard(card);
+        for (int i = 0, x = hand.size; i < x; i++)
+            addCard(hand.cards[i]);
     }    
     
     /**
@@ -195,9 +222,9 @@ public class Hand implements Serializable, Iterable<Card> {
     public final boolean remove(Hand hand) {
         boolean removed = false;
         // Remove all occurrences of each card from collection
-        for (Card card : hand.cards) {
-            while (this.cards.contains(card)) {
-                removed = removeCard(card);
+        for (int i = 0, x = hand.size; i < x; i++) {
+            while (indexOf(hand.cards[i]) >= 0) {
+                removed = removeCard(hand.cards[i]);
             }
         }
         return removed;
@@ -213,7 +240,7 @@ public class Hand implements Serializable, Iterable<Card> {
     public final Card remove(int position) {
         // Error check position bounds
         if ((position >= 0) && (position < size())) {
-            Card card = this.cards.get(position);
+            Card card = this.cards[position];
             
             // Remove card and return card removed
             return (removeCard(card) ? card : null);
@@ -230,9 +257,9 @@ public class Hand implements Serializable, Iterable<Card> {
      */
     public int countSuit(Card.Suit suit) {
         int count = 0;
-        for (Card card : this.cards)
+        for (int i = 0; i < this.size; i++)
             // Increment count if card suit is same as passed in suit
-            if (card.getSuit().equals(suit))
+            if (this.cards[i].getSuit().equals(suit))
                 count++;
         return count;
     }
@@ -257,10 +284,17 @@ public class Hand implements Serializable, Iterable<Card> {
      *  value passed in, else false.
      */
     public boolean isOver(int value) {
-        // Check if total value(s) contains atleast 1 value
-        if (this.totalValue.size() > 0)
-            return (Collections.min(this.totalValue) > value);
-        return false;
+        // Lowest value is the hard total, if hand has atleast 1 card
+        return ((this.size > 0) && (this.hardTotal > value));
+    }
+    
+    /**
+     * Method to determine if the highest value of this hand below or 
+     *  equal to 21 counts an ace as 11.
+     * @return Boolean true if hand is soft, false otherwise.
+     */
+    public boolean isSoft() {
+        return ((this.aces > 0) && ((this.hardTotal + 10) <= 21));
     }
     
     /**
@@ -272,27 +306,17 @@ public class Hand implements Serializable, Iterable<Card> {
      *  hand is empty -1.
      */
     public int getHighestBelowOrEqual(int threshold) {
-        // Check if total value(s) contains atleast 1 value
-        if (this.totalValue.size() > 0) {
-            // Size order sort
-            Collections.sort(this.totalValue);
-            
-            int value = this.totalValue.get(0);
-            int previous = value;
-            // Begin iterator at position 1, as value starts at 0
-            int i = 1;
-            // Loop until i greater than list size or value is greater
-            // than threshold value
-            while ((i < this.totalValue.size()) 
-                    && (value <= threshold)) {
-                previous = value;
-                value = this.totalValue.get(i);
-                i++;
-            }
+        // Check if hand contains atleast 1 card
+        if (this.size > 0) {
+            // If even the lowest value is greater than threshold 
+            // return lowest value
+            if (this.hardTotal > threshold)
+                return this.hardTotal;
             
-            // If value is greater than threshold return previous value
-            // that was less than threshold
-            return ((value > threshold) ? previous : value);
+            // Count as many aces as 11 as fit below threshold
+            int elevens = Math.min(this.aces, 
+                    (threshold - this.hardTotal) / 10);
+            return (this.hardTotal + (elevens * 10));
         }
         
         // If hand is empty
@@ -306,8 +330,7 @@ public class Hand implements Serializable, Iterable<Card> {
      */ 
     public boolean isBlackjack() {
         if (size() == 2)
-            return Card.isBlackjack(this.cards.get(0), 
-                    this.cards.get(1));
+            return Card.isBlackjack(this.cards[0], this.cards[1]);
         return false;
     }
     
@@ -318,7 +341,7 @@ public class Hand implements Serializable, Iterable<Card> {
      */
     public static Hand sortDescending(Hand hand) {
         // Sort and return hand
-        Collections.sort(hand.cards);
+        Arrays.sort(hand.cards, 0, hand.size);
         return hand;
     }
 
@@ -329,7 +352,7 @@ public class Hand implements Serializable, Iterable<Card> {
      */
     public static Hand sortAscending(Hand hand) {
         // Sort and return hand
-        Collections.sort(hand.cards, new Card.CompareAscending());
+        Arrays.sort(hand.cards, 0, hand.size, new Card.CompareAscending());
         return hand;
     }    
 
@@ -340,7 +363,7 @@ public class Hand implements Serializable, Iterable<Card> {
      */
     public static Hand sortSuit(Hand hand) {
         // Sort and return hand
-        Collections.sort(hand.cards, new Card.CompareSuit());
+        Arrays.sort(hand.cards, 0, hand.size, new Card.CompareSuit());
         return hand;
     }    
     
@@ -352,7 +375,7 @@ public class Hand implements Serializable, Iterable<Card> {
         Card[] temp = new Card[size()];
         // Loop hand and add each card to array in reverse order
         for (int i = 0, x = size(); i < x; i++)
-            temp[i] = this.cards.get((x - 1) - i);
+            temp[i] = this.cards[(x - 1) - i];
 
         // Return new hand object containing reversed array
         return (new Hand(temp));
@@ -402,7 +425,7 @@ public class Hand implements Serializable, Iterable<Card> {
         @Override
         public Card next() {
             if (hasNext())
-                return Hand.this.cards.get(this.nextCard++);
+                return Hand.this.cards[this.nextCard++];
             else
                 throw new NoSuchElementException();
         }
@@ -416,6 +439,30 @@ public class Hand implements Serializable, Iterable<Card> {
         }    
     }
     
+    /**
+     * Method to write hand to a buffer as the number of cards 
+     *  followed by the code of each card.
+     * @param buffer ByteBuffer object to write to.
+     */
+    void encode(ByteBuffer buffer) {
+        buffer.put((byte) size());
+        for (int i = 0; i < this.size; i++)
+            buffer.put((byte) this.cards[i].getCode());
+    }
+    
+    /**
+     * Method to read and return a hand written to a buffer by 
+     *  encode().
+     * @param buffer ByteBuffer object to read from.
+     * @return Hand object read.
+     */
+    static Hand decode(ByteBuffer buffer) {
+        Hand hand = new Hand();
+        for (int i = (buffer.get() & 0xFF); i > 0; i--)
+            hand.add(Card.fromCode(buffer.get()));
+        return hand;
+    }
+    
     /**
      * Method to serialise hand object to file.
      */
@@ -446,10 +493,8 @@ public class Hand implements Serializable, Iterable<Card> {
         // Only display hand if hand contains at least 1 card
         if (size() > 0) {
             str.append("Card(s) in hand: \n");
-            for (Iterator<Card> i = this.cards.iterator(); 
-                    i.hasNext();) {
-                str.append(" - ").append(i.next().toString());
-            }
+            for (int i = 0; i < this.size; i++)
+                str.append(" - ").append(this.cards[i].toString());
         } else
             str.append("Hand is currently empty.\n");
         
@@ -0,0 +1,645 @@
+package blackjack;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Class: HandHistoryStore.java
+ * Description: Store of every hand settled by a dealer, appended as 
+ *  fixed layout records to memory mapped segment files. Each record 
+ *  holds the run, table, round, seat, dealers first card and score, 
+ *  the players cards as card codes, number of hits, bet and outcome.
+ *  Every store opened is given the next run ID, so hands appended by
+ *  later runs to the same store are told apart from earlier ones.
+ *  
+ *  Hands are appended by a writer for each table, which reserves a 
+ *  block of records at a time for its table alone. Only reserving a
+ *  block is synchronized, so tables played by different threads 
+ *  append without contending for a lock.
+ *  
+ *  Every block of records in a segment is summarised by a sparse 
+ *  index of its run, table, round and dealer card range, so queries
+ *  skip blocks that can not match. Queries scan the remaining blocks
+ *  in parallel, reading records directly from the mapped segments.
+ * Author: Paulo Jorge.
+ */
+public class HandHistoryStore implements Closeable {
+    // Magic number at start of every segment, "BJHH", and version
+    private static final int MAGIC = 0x424A4848;
+    private static final int VERSION = 2;
+    // Segment header layout
+    private static final int HEADER_SIZE = 64;
+    private static final int HEADER_CAPACITY = 8;
+    private static final int HEADER_BLOCKS = 12;
+    // Record layout, a record with seat 0 has not been written
+    static final int RECORD_SIZE = 48;
+    private static final int TABLE = 0;
+    private static final int ROUND = 4;
+    private static final int SEAT = 8;
+    private static final int DEALER_CARD = 9;
+    private static final int DEALER_SCORE = 10;
+    private static final int CARD_COUNT = 11;
+    private static final int HITS = 12;
+    private static final int FLAGS = 13;
+    private static final int CARDS = 16;
+    private static final int BET = 32;
+    private static final int SETTLED = 36;
+    private static final int RUN = 40;
+    // Most card codes stored per record
+    static final int MAX_CARDS = 16;
+    // Record flags
+    private static final int BLACKJACK = 1;
+    private static final int BUST = 2;
+    // Records summarised by each index block
+    static final int BLOCK_SIZE = 4096;
+    // Default records in each segment file, 48MB segments
+    public static final int DEFAULT_CAPACITY = 1 << 20;
+    
+    // Directory containing segment files
+    private final File directory;
+    // Records in each segment
+    private final int capacity;
+    // Segments in order written, last segment is appended to
+    private final List<Segment> segments = new ArrayList();
+    // Run ID of hands appended, one more than the last run stored
+    private final int run;
+    
+    /**
+     * Single memory mapped segment file and its sparse index.
+     */
+    private static final class Segment {
+        // Mapped file
+        private final MappedByteBuffer buffer;
+        // Index blocks, created as blocks are reserved
+        private final Block[] blocks;
+        // Blocks reserved, guarded by the store
+        private int reserved;
+        
+        /**
+         * Constructor to map a segment file, creating a new empty 
+         *  segment if the file does not exist.
+         * @param file File object of segment.
+         * @param capacity Integer records in a new segment.
+         * @throws IOException If file can not be mapped or is not a 
+         *  segment file.
+         */
+        private Segment(File file, int capacity) throws IOException {
+            boolean exists = file.exists();
+            try (RandomAccessFile raf = new RandomAccessFile(file, 
+                    "rw")) {
+                if (!exists)
+                    raf.setLength(HEADER_SIZE 
+                            + ((long) capacity * RECORD_SIZE));
+                this.buffer = raf.getChannel().map(
+                        FileChannel.MapMode.READ_WRITE, 0, raf.length());
+            }
+            
+            if (!exists) {
+                this.buffer.putInt(0, MAGIC);
+                this.buffer.putInt(4, VERSION);
+                this.buffer.putInt(HEADER_CAPACITY, capacity);
+                this.buffer.putInt(HEADER_BLOCKS, 0);
+            } else if ((this.buffer.getInt(0) != MAGIC) 
+                    || (this.buffer.getInt(4) != VERSION))
+                throw new IOException(file + " is not a hand history "
+                        + "segment.");
+            
+            int records = this.buffer.getInt(HEADER_CAPACITY);
+            this.blocks = new Block[(records + BLOCK_SIZE - 1) 
+                    / BLOCK_SIZE];
+            
+            // Rebuild index of existing records, every reserved block
+            //  holds records up to its first unwritten record
+            this.reserved = this.buffer.getInt(HEADER_BLOCKS);
+            for (int b = 0; b < this.reserved; b++) {
+                Block block = newBlock(b);
+                int offset = HEADER_SIZE + (block.from * RECORD_SIZE);
+                while ((block.count < block.size()) 
+                        && (seat(this.buffer, offset) != 0)) {
+                    block.add(run(this.buffer, offset), 
+                            table(this.buffer, offset), 
+                            round(this.buffer, offset), 
+                            dealerValue(this.buffer, offset));
+                    block.count++;
+                    offset += RECORD_SIZE;
+                }
+            }
+        }
+        
+        /**
+         * Method to get and return the number of records this segment
+         *  can hold.
+         * @return Integer capacity of segment.
+         */
+        private int capacity() {
+            return this.buffer.getInt(HEADER_CAPACITY);
+        }
+        
+        /**
+         * Method to create, index and return an empty block.
+         * @param index Integer position of block in segment.
+         * @return Block object created.
+         */
+        private Block newBlock(int index) {
+            int from = index * BLOCK_SIZE;
+            Block block = new Block(this.buffer, from, 
+                    Math.min(capacity(), from + BLOCK_SIZE));
+            this.blocks[index] = block;
+            return block;
+        }
+    }
+    
+    /**
+     * Block of records written by a single writer, and the summary of
+     *  its records used to skip blocks when querying.
+     */
+    private static final class Block {
+        // Mapped file of segment containing block
+        private final ByteBuffer buffer;
+        // First record and record after the last record of block
+        private final int from;
+        private final int to;
+        // Records written, published after each record
+        private volatile int count;
+        private int minRun = Integer.MAX_VALUE;
+        private int maxRun = Integer.MIN_VALUE;
+        private int minTable = Integer.MAX_VALUE;
+        private int maxTable = Integer.MIN_VALUE;
+        private int minRound = Integer.MAX_VALUE;
+        private int maxRound = Integer.MIN_VALUE;
+        // Bit mask of dealer card values
+        private int dealerValues;
+        
+        /**
+         * Constructor to initialise a new empty block.
+         * @param buffer ByteBuffer object of segment.
+         * @param from Integer first record of block.
+         * @param to Integer record after the last record of block.
+         */
+        private Block(ByteBuffer buffer, int from, int to) {
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+        }
+        
+        /**
+         * Method to get and return the number of records this block 
+         *  can hold.
+         * @return Integer size of block.
+         */
+        private int size() {
+            return this.to - this.from;
+        }
+        
+        /**
+         * Method to add a record to the block summary. The summary is 
+         *  updated before the count of records is published, so a query
+         *  that reads the count sees a summary of at least as many.
+         * @param run Integer run ID of record.
+         * @param table Integer table index of record.
+         * @param round Integer round of record.
+         * @param dealerValue Integer value of dealers first card.
+         */
+        private void add(int run, int table, int round, 
+                int dealerValue) {
+            this.minRun = Math.min(this.minRun, run);
+            this.maxRun = Math.max(this.maxRun, run);
+            this.minTable = Math.min(this.minTable, table);
+            this.maxTable = Math.max(this.maxTable, table);
+            this.minRound = Math.min(this.minRound, round);
+            this.maxRound = Math.max(this.maxRound, round);
+            this.dealerValues |= (1 << dealerValue);
+        }
+    }
+    
+    /**
+     * Constructor method used to open a store with the default segment
+     *  capacity.
+     * @param directory File object of directory containing segments.
+     * @throws IOException If the store could not be opened.
+     */
+    public HandHistoryStore(File directory) throws IOException {
+        this(directory, DEFAULT_CAPACITY);
+    }
+    
+    /**
+     * Constructor method used to open a store, mapping every existing 
+     *  segment and rebuilding its index. The directory is created if
+     *  it does not exist. Hands appended are given the run ID after 
+     *  the last run stored.
+     * @param directory File object of directory containing segments.
+     * @param capacity Integer number of records in each new segment.
+     * @throws IOException If the store could not be opened.
+     */
+    public HandHistoryStore(File directory, int capacity) 
+            throws IOException {
+        if ((capacity < 1) || (capacity 
+                > ((Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE)))
+            throw new IllegalArgumentException("Capacity must be at "
+                    + "least 1 and fit in a single mapped file.");
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("Unable to create " + directory + ".");
+        this.directory = directory;
+        this.capacity = capacity;
+        
+        // Map existing segments in order
+        String[] names = directory.list();
+        Arrays.sort(names);
+        for (String name : names)
+            if (name.startsWith("history-") && name.endsWith(".seg"))
+                this.segments.add(new Segment(new File(directory, name),
+                        capacity));
+        
+        int last = 0;
+        for (Segment segment : this.segments)
+            for (int b = 0; b < segment.reserved; b++)
+                if (segment.blocks[b].count > 0)
+                    last = Math.max(last, segment.blocks[b].maxRun);
+        this.run = last + 1;
+    }
+    
+    /**
+     * Method to get and return the run ID of hands appended to this 
+     *  store.
+     * @return Integer run ID starting at 1.
+     */
+    public int getRun() {
+        return this.run;
+    }
+    
+    /**
+     * Method to create and return a writer of the hands settled at a
+     *  table. Add it as a round listener of the tables dealer.
+     * @param table Integer index of table in its simulation.
+     * @return Writer object of table.
+     */
+    public Writer newWriter(int table) {
+        if (table < 0)
+            throw new IllegalArgumentException("Table index must be at "
+                    + "least 0.");
+        return new Writer(table);
+    }
+    
+    /**
+     * Writer of the hands settled at a single table, appending records
+     *  to blocks reserved for its table alone. A writer must only be 
+     *  used by one thread at a time.
+     */
+    public final class Writer implements RoundListener {
+        // Table index recorded with every hand
+        private final int table;
+        // Block appended to, or null before the first hand
+        private Block block;
+        
+        /**
+         * Constructor to initialise a new writer of a table.
+         * @param table Integer index of table.
+         */
+        private Writer(int table) {
+            this.table = table;
+        }
+        
+        /**
+         * Method to append a record of a settled hand.
+         * @param dealer Dealer object settling the bet.
+         * @param seat Integer seat position of player starting at 1.
+         * @param player Player object whose bet was settled.
+         * @param hand Hand object the player finished the round with.
+         * @param bet Integer value of the bet placed.
+         * @param settled Integer value settled.
+         */
+        @Override
+        public void seatSettled(BlackjackDealer dealer, int seat, 
+                Player player, Hand hand, int bet, int settled) {
+            try {
+                append(dealer.getRound(), seat, dealer.getDealerCard(), 
+                        dealer.getDealerScore(), hand, bet, settled);
+            } catch (IOException exception) {
+                exception.printStackTrace();
+            }
+        }
+        
+        /**
+         * Method called once every bet of the round has been settled.
+         * @param dealer Dealer object that settled the round.
+         * @param hand Hand object the dealer finished the round with.
+         */
+        @Override
+        public void roundSettled(BlackjackDealer dealer, Hand hand) {}
+        
+        /**
+         * Method to append a record of a settled hand, reserving a new
+         *  block if the block of this table is full.
+         * @param round Integer round number.
+         * @param seat Integer seat position starting at 1.
+         * @param dealerCard Card object of dealers first card.
+         * @param dealerScore Integer dealers final score.
+         * @param hand Hand object the player finished the round with.
+         * @param bet Integer value of the bet placed.
+         * @param settled Integer value settled.
+         * @throws IOException If a new segment could not be created.
+         */
+        public void append(int round, int seat, Card dealerCard, 
+                int dealerScore, Hand hand, int bet, int settled) 
+                throws IOException {
+            if (seat < 1)
+                throw new IllegalArgumentException("Seat must be at "
+                        + "least 1.");
+            if ((this.block == null) 
+                    || (this.block.count >= this.block.size()))
+                this.block = reserve();
+            
+            // Write record, seat last as it marks the record written
+            ByteBuffer buffer = this.block.buffer;
+            int record = this.block.count;
+            int offset = HEADER_SIZE 
+                    + ((this.block.from + record) * RECORD_SIZE);
+            buffer.putInt(offset + RUN, run);
+            buffer.putInt(offset + TABLE, this.table);
+            buffer.putInt(offset + ROUND, round);
+            buffer.put(offset + DEALER_CARD, 
+                    (byte) dealerCard.getCode());
+            buffer.put(offset + DEALER_SCORE, (byte) dealerScore);
+            buffer.put(offset + CARD_COUNT, (byte) hand.size());
+            buffer.put(offset + HITS, 
+                    (byte) Math.max(0, hand.size() - 2));
+            buffer.put(offset + FLAGS, (byte) ((hand.isBlackjack() 
+                    ? BLACKJACK : 0) | (hand.isOver(21) ? BUST : 0)));
+            int position = 0;
+            for (Iterator<Card> i = hand.iterator(); 
+                    i.hasNext() && (position < MAX_CARDS); position++)
+                buffer.put(offset + CARDS + position, 
+                        (byte) i.next().getCode());
+            buffer.putInt(offset + BET, bet);
+            buffer.putInt(offset + SETTLED, settled);
+            buffer.put(offset + SEAT, (byte) seat);
+            
+            // Index and publish record
+            this.block.add(run, this.table, round, 
+                    dealerCard.getRank().getValue());
+            this.block.count = record + 1;
+        }
+    }
+    
+    /**
+     * Method to reserve the next free block of records for a writer, 
+     *  starting a new segment if every block of the last segment is 
+     *  reserved.
+     * @return Block object reserved.
+     * @throws IOException If a new segment could not be created.
+     */
+    private synchronized Block reserve() throws IOException {
+        Segment segment = (this.segments.isEmpty() ? null 
+                : this.segments.get(this.segments.size() - 1));
+        if ((segment == null) 
+                || (segment.reserved >= segment.blocks.length)) {
+            segment = new Segment(new File(this.directory, String.format(
+                    "history-%06d.seg", this.segments.size())), 
+                    this.capacity);
+            this.segments.add(segment);
+        }
+        
+        Block block = segment.newBlock(segment.reserved++);
+        segment.buffer.putInt(HEADER_BLOCKS, segment.reserved);
+        return block;
+    }
+    
+    /**
+     * Method to get and return the total number of records stored.
+     * @return Long number of records.
+     */
+    public synchronized long size() {
+        long size = 0;
+        for (Segment segment : this.segments)
+            for (int b = 0; b < segment.reserved; b++)
+                size += segment.blocks[b].count;
+        return size;
+    }
+    
+    /**
+     * Method to total every hand matching a query. Blocks that the 
+     *  index shows can not match are skipped, and the remaining blocks
+     *  are scanned in parallel.
+     * @param query HistoryQuery object of hands to match.
+     * @return HistoryStats object containing totals of matched hands.
+     */
+    public HistoryStats query(HistoryQuery query) {
+        // Blocks to scan, as segment buffer, first and last record
+        List<ByteBuffer> buffers = new ArrayList();
+        List<int[]> ranges = new ArrayList();
+        
+        synchronized (this) {
+            for (Segment segment : this.segments)
+                for (int b = 0; b < segment.reserved; b++) {
+                    Block block = segment.blocks[b];
+                    // Count read first, summary covers at least these
+                    int count = block.count;
+                    
+                    // Skip blocks that can not match
+                    if ((count == 0) || !query.mayMatch(block.minRun, 
+                            block.maxRun, block.minTable, 
+                            block.maxTable, block.minRound, 
+                            block.maxRound, block.dealerValues))
+                        continue;
+                    buffers.add(segment.buffer);
+                    ranges.add(new int[] {block.from, 
+                            block.from + count});
+                }
+        }
+        
+        return ForkJoinPool.commonPool().invoke(new ScanTask(query, 
+                buffers, ranges, 0, ranges.size()));
+    }
+    
+    /**
+     * Task used to scan a range of blocks, splitting the range in half
+     *  until few enough blocks remain to scan directly.
+     */
+    private static final class ScanTask 
+            extends RecursiveTask<HistoryStats> {
+        // Blocks scanned directly without splitting
+        private static final int THRESHOLD = 4;
+        
+        private final HistoryQuery query;
+        private final List<ByteBuffer> buffers;
+        private final List<int[]> ranges;
+        private final int from;
+        private final int to;
+        
+        /**
+         * Constructor to initialise a new scan of blocks.
+         * @param query HistoryQuery object of hands to match.
+         * @param buffers List of segment buffer of each block.
+         * @param ranges List of first and last record of each block.
+         * @param from Integer first block to scan.
+         * @param to Integer block after last block to scan.
+         */
+        private ScanTask(HistoryQuery query, List<ByteBuffer> buffers,
+                List<int[]> ranges, int from, int to) {
+            this.query = query;
+            this.buffers = buffers;
+            this.ranges = ranges;
+            this.from = from;
+            this.to = to;
+        }
+        
+        /**
+         * Method to scan blocks and return the totals of matched hands.
+         * @return HistoryStats object of matched hands.
+         */
+        @Override
+        protected HistoryStats compute() {
+            if ((this.to - this.from) > THRESHOLD) {
+                int middle = (this.from + this.to) >>> 1;
+                ScanTask left = new ScanTask(this.query, this.buffers, 
+                        this.ranges, this.from, middle);
+                left.fork();
+                HistoryStats right = new ScanTask(this.query, 
+                        this.buffers, this.ranges, middle, this.to)
+                        .compute();
+                return right.merge(left.join());
+            }
+            
+            HistoryStats stats = new HistoryStats();
+            for (int b = this.from; b < this.to; b++) {
+                ByteBuffer buffer = this.buffers.get(b);
+                int[] range = this.ranges.get(b);
+                for (int r = range[0]; r < range[1]; r++) {
+                    int offset = HEADER_SIZE + (r * RECORD_SIZE);
+                    if (this.query.matches(buffer, offset)) {
+                        int flags = buffer.get(offset + FLAGS);
+                        stats.add(buffer.getInt(offset + BET), 
+                                buffer.getInt(offset + SETTLED), 
+                                (flags & BLACKJACK) != 0, 
+                                (flags & BUST) != 0);
+                    }
+                }
+            }
+            return stats;
+        }
+    }
+    
+    /**
+     * Method to get the run ID of a record.
+     * @param buffer ByteBuffer object containing record.
+     * @param offset Integer position of record.
+     * @return Integer run ID.
+     */
+    static int run(ByteBuffer buffer, int offset) {
+        return buffer.getInt(offset + RUN);
+    }
+    
+    /**
+     * Method to get the table index of a record.
+     * @param buffer ByteBuffer object containing record.
+     * @param offset Integer position of record.
+     * @return Integer index of table in its simulation.
+     */
+    static int table(ByteBuffer buffer, int offset) {
+        return buffer.getInt(offset + TABLE);
+    }
+    
+    /**
+     * Method to get the round of a record.
+     * @param buffer ByteBuffer object containing record.
+     * @param offset Integer position of record.
+     * @return Integer round number.
+     */
+    static int round(ByteBuffer buffer, int offset) {
+        return buffer.getInt(offset + ROUND);
+    }
+    
+    /**
+     * Method to get the seat of a record.
+     * @param buffer ByteBuffer object containing record.
+     * @param offset Integer position of record.
+     * @return Integer seat starting at 1.
+     */
+    static int seat(ByteBuffer buffer, int offset) {
+        return buffer.get(offset + SEAT);
+    }
+    
+    /**
+     * Method to get the value of the dealers first card of a record.
+     * @param buffer ByteBuffer object containing record.
+     * @param offset Integer position of record.
+     * @return Integer value of card from 2 to 11.
+     */
+    static int dealerValue(ByteBuffer buffer, int offset) {
+        return Card.fromCode(buffer.get(offset + DEALER_CARD))
+                .getRank().getValue();
+    }
+    
+    /**
+     * Method to write every segment to disk. Segments stay mapped 
+     *  until they are garbage collected.
+     */
+    @Override
+    public synchronized void close() {
+        for (Segment segment : this.segments)
+            segment.buffer.force();
+    }
+    
+    /**
+     * Method to query a store from the command line and print the 
+     *  totals of matched hands. Arguments are the store directory 
+     *  followed by any of --run N, --table N, --rounds FROM-TO, 
+     *  --dealer-shows VALUE and --seat N.
+     * @param args String array of command line arguments.
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: HandHistoryStore DIRECTORY "
+                    + "[--run N] [--table N] [--rounds FROM-TO] "
+                    + "[--dealer-shows VALUE] [--seat N]");
+            System.exit(2);
+        }
+        
+        try {
+            HistoryQuery query = new HistoryQuery();
+            for (int i = 1; (i + 1) < args.length; i += 2) {
+                String value = args[i + 1];
+                switch (args[i]) {
+                    case "--run":
+                        query.setRun(Integer.parseInt(value));
+                        break;
+                    case "--table":
+                        query.setTable(Integer.parseInt(value));
+                        break;
+                    case "--rounds":
+                        String[] range = value.split("-");
+                        query.setRounds(Integer.parseInt(range[0]), 
+                                Integer.parseInt(range[1]));
+                        break;
+                    case "--dealer-shows":
+                        query.setDealerShows(Integer.parseInt(value));
+                        break;
+                    case "--seat":
+                        query.setSeat(Integer.parseInt(value));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown "
+                                + "option " + args[i] + ".");
+                }
+            }
+            
+            HandHistoryStore store 
+                    = new HandHistoryStore(new File(args[0]));
+            System.out.print(store.query(query));
+        } catch (IOException | RuntimeException exception) {
+            System.err.println("Error: " + exception.getMessage());
+            System.exit(1);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,126 @@
+package blackjack;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Class: HistoryQuery.java
+ * Description: Filter of the hands to match in a hand history store,
+ *  such as every hand played while the dealer showed a 6. Filters 
+ *  not set match every hand.
+ * Author: Paulo Jorge.
+ */
+public class HistoryQuery {
+    // Run ID to match, or 0 for any run
+    private int run = 0;
+    // Table index to match, or -1 for any table
+    private int table = -1;
+    // Range of rounds to match, inclusive
+    private int fromRound = Integer.MIN_VALUE;
+    private int toRound = Integer.MAX_VALUE;
+    // Value of dealers first card to match, or 0 for any card
+    private int dealerValue = 0;
+    // Seat to match, or 0 for any seat
+    private int seat = 0;
+    
+    /**
+     * Method to only match hands appended by a single run.
+     * @param run Integer run ID starting at 1.
+     */
+    public void setRun(int run) {
+        if (run < 1)
+            throw new IllegalArgumentException("Run ID must be at "
+                    + "least 1.");
+        this.run = run;
+    }
+    
+    /**
+     * Method to only match hands played at a single table. Combine it
+     *  with a run, as every run numbers its tables from 0.
+     * @param table Integer index of table in its simulation.
+     */
+    public void setTable(int table) {
+        this.table = table;
+    }
+    
+    /**
+     * Method to only match hands played within a range of rounds.
+     * @param fromRound Integer first round to match.
+     * @param toRound Integer last round to match.
+     */
+    public void setRounds(int fromRound, int toRound) {
+        this.fromRound = fromRound;
+        this.toRound = toRound;
+    }
+    
+    /**
+     * Method to only match hands where the dealers first card has a 
+     *  value, such as 6 or 11 for an ace.
+     * @param value Integer value of dealers first card from 2 to 11.
+     */
+    public void setDealerShows(int value) {
+        if ((value < 2) || (value > 11))
+            throw new IllegalArgumentException("Dealer card value must "
+                    + "be between 2 and 11.");
+        this.dealerValue = value;
+    }
+    
+    /**
+     * Method to only match hands played from a single seat.
+     * @param seat Integer seat position starting at 1.
+     */
+    public void setSeat(int seat) {
+        this.seat = seat;
+    }
+    
+    /**
+     * Method to check if any hand in a block of the store index could
+     *  match this query.
+     * @param minRun Integer lowest run ID in block.
+     * @param maxRun Integer highest run ID in block.
+     * @param minTable Integer lowest table index in block.
+     * @param maxTable Integer highest table index in block.
+     * @param minRound Integer lowest round in block.
+     * @param maxRound Integer highest round in block.
+     * @param dealerValues Integer bit mask of dealer card values in 
+     *  block, bit 1 shifted by each value.
+     * @return Boolean true if block may contain a match, false if it 
+     *  can be skipped.
+     */
+    boolean mayMatch(int minRun, int maxRun, int minTable, 
+            int maxTable, int minRound, int maxRound, 
+            int dealerValues) {
+        if ((this.run > 0) 
+                && ((this.run < minRun) || (this.run > maxRun)))
+            return false;
+        if ((this.table >= 0) 
+                && ((this.table < minTable) || (this.table > maxTable)))
+            return false;
+        if ((this.toRound < minRound) || (this.fromRound > maxRound))
+            return false;
+        return ((this.dealerValue == 0) 
+                || ((dealerValues & (1 << this.dealerValue)) != 0));
+    }
+    
+    /**
+     * Method to check if a single record matches this query.
+     * @param buffer ByteBuffer object containing record.
+     * @param offset Integer position of record in buffer.
+     * @return Boolean true if record matches, false otherwise.
+     */
+    boolean matches(ByteBuffer buffer, int offset) {
+        if ((this.run > 0) 
+                && (HandHistoryStore.run(buffer, offset) != this.run))
+            return false;
+        if ((this.table >= 0) 
+                && (HandHistoryStore.table(buffer, offset) != this.table))
+            return false;
+        int round = HandHistoryStore.round(buffer, offset);
+        if ((round < this.fromRound) || (round > this.toRound))
+            return false;
+        if ((this.seat > 0) 
+                && (HandHistoryStore.seat(buffer, offset) != this.seat))
+            return false;
+        return ((this.dealerValue == 0) || (HandHistoryStore
+                .dealerValue(buffer, offset) == this.dealerValue));
+    }
+}
\ No newline at end of file
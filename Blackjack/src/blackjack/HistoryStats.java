@@ -0,0 +1,161 @@
+package blackjack;
+
+/**
+ * Class: HistoryStats.java
+ * Description: Totals of the hands matched by a hand history query.
+ * Author: Paulo Jorge.
+ */
+public class HistoryStats {
+    // Hands matched and their outcomes
+    private long hands;
+    private long wins;
+    private long pushes;
+    private long losses;
+    private long blackjacks;
+    private long busts;
+    // Total value bet and won or lost
+    private long wagered;
+    private long net;
+    
+    /**
+     * Method to add a single hand to the totals.
+     * @param bet Integer value of the bet placed.
+     * @param settled Integer value settled.
+     * @param blackjack Boolean true if the hand was a blackjack.
+     * @param bust Boolean true if the hand was bust.
+     */
+    void add(int bet, int settled, boolean blackjack, boolean bust) {
+        this.hands++;
+        this.wagered += bet;
+        this.net += settled;
+        
+        // Round outcome
+        if (settled < 0)
+            this.losses++;
+        else if (settled == bet)
+            this.pushes++;
+        else
+            this.wins++;
+        
+        if (blackjack)
+            this.blackjacks++;
+        if (bust)
+            this.busts++;
+    }
+    
+    /**
+     * Method to add the totals of another query to this.
+     * @param other HistoryStats object to add.
+     * @return This object with other totals added.
+     */
+    HistoryStats merge(HistoryStats other) {
+        this.hands += other.hands;
+        this.wins += other.wins;
+        this.pushes += other.pushes;
+        this.losses += other.losses;
+        this.blackjacks += other.blackjacks;
+        this.busts += other.busts;
+        this.wagered += other.wagered;
+        this.net += other.net;
+        return this;
+    }
+    
+    /**
+     * Method to get and return the number of hands matched.
+     * @return Long number of hands matched.
+     */
+    public long getHands() {
+        return this.hands;
+    }
+    
+    /**
+     * Method to get and return the number of hands won.
+     * @return Long number of hands won.
+     */
+    public long getWins() {
+        return this.wins;
+    }
+    
+    /**
+     * Method to get and return the number of hands where the bet was
+     *  retained.
+     * @return Long number of hands where the bet was retained.
+     */
+    public long getPushes() {
+        return this.pushes;
+    }
+    
+    /**
+     * Method to get and return the number of hands lost.
+     * @return Long number of hands lost.
+     */
+    public long getLosses() {
+        return this.losses;
+    }
+    
+    /**
+     * Method to get and return the number of blackjacks.
+     * @return Long number of blackjacks.
+     */
+    public long getBlackjacks() {
+        return this.blackjacks;
+    }
+    
+    /**
+     * Method to get and return the number of hands bust.
+     * @return Long number of hands bust.
+     */
+    public long getBusts() {
+        return this.busts;
+    }
+    
+    /**
+     * Method to get and return the total value bet.
+     * @return Long total value bet.
+     */
+    public long getWagered() {
+        return this.wagered;
+    }
+    
+    /**
+     * Method to get and return the total value won, negative if lost.
+     * @return Long total value won, negative if lost.
+     */
+    public long getNet() {
+        return this.net;
+    }
+    
+    /**
+     * Method to get and return the fraction of hands won.
+     * @return Double win rate, or 0 if no hands matched.
+     */
+    public double getWinRate() {
+        return (this.hands > 0 ? (double) this.wins / this.hands : 0);
+    }
+    
+    /**
+     * Method to get and return formatted string containing totals.
+     * @return String with totals.
+     */
+    @Override
+    public String toString() {
+        StringBuilder str = new StringBuilder();
+        
+        str.append(String.format("%14s", "Hands: ")).append(this.hands);
+        str.append(String.format("\n%14s", "Wins: ")).append(this.wins);
+        str.append(String.format("\n%14s", "Pushes: "))
+                .append(this.pushes);
+        str.append(String.format("\n%14s", "Losses: "))
+                .append(this.losses);
+        str.append(String.format("\n%14s", "Blackjacks: "))
+                .append(this.blackjacks);
+        str.append(String.format("\n%14s", "Busts: ")).append(this.busts);
+        str.append(String.format("\n%14s", "Wagered: £"))
+                .append(this.wagered);
+        str.append(String.format("\n%14s", "Net: £")).append(this.net);
+        str.append(String.format("\n%14s%.4f\n", "Win Rate: ", 
+                getWinRate()));
+        
+        return str.toString();
+    }
+}
\ No newline at end of file
@@ -5,7 +5,9 @@ import java.util.Scanner;
 /**
  * Class: HumanPlayer.java
  * Description: Human player class used to allow a user to play a
- *  game of Blackjack.
+ *  game of Blackjack. Decisions are prompted for and read on the 
+ *  dealers thread, as the console is shared with the game menus, so
+ *  a human player is not an AsyncPlayer and has no deadline.
  * Author: Paulo Jorge.
  */
 public class HumanPlayer extends BasicPlayer {
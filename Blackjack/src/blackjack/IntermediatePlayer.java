@@ -1,6 +1,6 @@
 package blackjack;
 
-import java.util.Iterator;
+import java.nio.ByteBuffer;
 
 /**
  * Class: IntermediatePlayer.java
@@ -32,16 +32,8 @@ public class IntermediatePlayer extends BasicPlayer {
      */    
     @Override
     public boolean hit() {
-        boolean hasAce = false;
-        // Check if hand contains an ace
-        for (Iterator<Card> i = this.hand.iterator(); i.hasNext();) {
-            Card card = i.next();
-            if (card.getRank().equals(Card.Rank.ACE))
-                hasAce = true;
-        }
-        
         // If hand has an ace, stick on soft total of 9 or higher
-        if (hasAce)
+        if (this.hand.countRank(Card.Rank.ACE) > 0)
             return !this.hand.isOver(8);
         // If dealers card is 7 or over hit until 17 or higher
         else if (this.dealerCard.getRank().getValue() >= 7)
@@ -58,4 +50,27 @@ public class IntermediatePlayer extends BasicPlayer {
     public void viewDealerCard(Card card) {
         this.dealerCard = card;
     }
+    
+    /**
+     * Method to write the state of this player to a buffer.
+     * @param buffer ByteBuffer object to write to.
+     */
+    @Override
+    void encode(ByteBuffer buffer) {
+        super.encode(buffer);
+        buffer.put((byte) (this.dealerCard == null ? -1 
+                : this.dealerCard.getCode()));
+    }
+    
+    /**
+     * Method to replace the state of this player with state written 
+     *  to a buffer by encode().
+     * @param buffer ByteBuffer object to read from.
+     */
+    @Override
+    void decode(ByteBuffer buffer) {
+        super.decode(buffer);
+        byte code = buffer.get();
+        this.dealerCard = (code < 0 ? null : Card.fromCode(code));
+    }
 }
\ No newline at end of file
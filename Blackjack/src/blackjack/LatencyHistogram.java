@@ -0,0 +1,141 @@
+package blackjack;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Class: LatencyHistogram.java
+ * Description: Histogram of latencies in nanoseconds that many threads
+ *  can record to without contending. Latencies are counted in buckets
+ *  of 8 per power of 2, so percentiles are accurate to within 12.5%.
+ *  Each bucket is a LongAdder, which spreads updates from different
+ *  threads over separate cells.
+ * Author: Paulo Jorge.
+ */
+public final class LatencyHistogram {
+    // Latencies below this are counted exactly
+    private static final int LINEAR_BUCKETS = 16;
+    // Buckets per power of 2 above the linear buckets, as a shift
+    private static final int SUB_BUCKET_BITS = 3;
+    // Largest power of 2 counted, larger latencies are counted as this
+    private static final int MAX_EXPONENT = 40;
+    // Largest latency counted, the top of the largest power of 2
+    private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+    // Number of buckets, linear buckets then each power of 2 from 16
+    private static final int BUCKETS = LINEAR_BUCKETS
+            + ((MAX_EXPONENT - 3) << SUB_BUCKET_BITS);
+
+    // Latencies counted in each bucket
+    private final LongAdder[] counts = new LongAdder[BUCKETS];
+    // Sum of every latency, used for the mean
+    private final LongAdder total = new LongAdder();
+    // Highest latency recorded
+    private final LongAccumulator max = new LongAccumulator(
+            new LongBinaryOperator() {
+        @Override
+        public long applyAsLong(long left, long right) {
+            return Math.max(left, right);
+        }
+    }, 0);
+
+    /**
+     * Constructor method used to initialise a new empty histogram.
+     */
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++)
+            this.counts[i] = new LongAdder();
+    }
+
+    /**
+     * Method to record a latency.
+     * @param nanos Long latency in nanoseconds.
+     */
+    public void record(long nanos) {
+        long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+        this.counts[bucket(value)].increment();
+        this.total.add(value);
+        this.max.accumulate(value);
+    }
+
+    /**
+     * Method to get and return the bucket a latency is counted in.
+     * @param value Long latency, between 0 and MAX_VALUE.
+     * @return Integer index of bucket.
+     */
+    private static int bucket(long value) {
+        if (value < LINEAR_BUCKETS)
+            return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS))
+                & ((1 << SUB_BUCKET_BITS) - 1);
+        return LINEAR_BUCKETS + ((exponent - 4) << SUB_BUCKET_BITS)
+                + subBucket;
+    }
+
+    /**
+     * Method to get and return the highest latency counted in a
+     *  bucket.
+     * @param bucket Integer index of bucket.
+     * @return Long latency in nanoseconds.
+     */
+    private static long upperBound(int bucket) {
+        if (bucket < LINEAR_BUCKETS)
+            return bucket;
+        int exponent = ((bucket - LINEAR_BUCKETS) >> SUB_BUCKET_BITS) + 4;
+        long subBucket = (bucket - LINEAR_BUCKETS)
+                & ((1 << SUB_BUCKET_BITS) - 1);
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return ((((1 << SUB_BUCKET_BITS) + subBucket) * width) + width
+                - 1);
+    }
+
+    /**
+     * Method to get and return the number of latencies recorded.
+     * @return Long count.
+     */
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : this.counts)
+            count += bucket.sum();
+        return count;
+    }
+
+    /**
+     * Method to get and return a percentile of the latencies recorded.
+     *  The counts are read while other threads may be recording, so
+     *  the result is approximate.
+     * @param percentile Double percentile, between 0 and 100.
+     * @return Long latency in nanoseconds, or 0 if none recorded.
+     */
+    public long getPercentile(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++)
+            count += (snapshot[i] = this.counts[i].sum());
+        if (count == 0)
+            return 0;
+
+        // Find bucket holding the latency of the rank wanted
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100
+                * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank)
+                return Math.min(upperBound(i), this.max.get());
+        }
+        return this.max.get();
+    }
+
+    /**
+     * Method to summarise the latencies recorded.
+     * @return LatencySummary object of latencies.
+     */
+    public LatencySummary summarise() {
+        long count = getCount();
+        return LatencySummary.ofNanos(count,
+                (count > 0 ? (double) this.total.sum() / count : 0),
+                getPercentile(50), getPercentile(99), this.max.get());
+    }
+}
\ No newline at end of file
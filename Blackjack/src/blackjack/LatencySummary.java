@@ -0,0 +1,106 @@
+package blackjack;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Class: LatencySummary.java
+ * Description: Summary of the latencies recorded by a histogram, in
+ *  microseconds. Read over JMX as composite data.
+ * Author: Paulo Jorge.
+ */
+public final class LatencySummary {
+    // Number of latencies recorded
+    private final long count;
+    // Mean, median, 99th percentile and highest latency in microseconds
+    private final double meanMicros;
+    private final double p50Micros;
+    private final double p99Micros;
+    private final double maxMicros;
+
+    /**
+     * Constructor method used to initialise a new summary.
+     * @param count Long number of latencies recorded.
+     * @param meanMicros Double mean latency.
+     * @param p50Micros Double median latency.
+     * @param p99Micros Double 99th percentile latency.
+     * @param maxMicros Double highest latency.
+     */
+    @ConstructorProperties({"count", "meanMicros", "p50Micros",
+            "p99Micros", "maxMicros"})
+    public LatencySummary(long count, double meanMicros,
+            double p50Micros, double p99Micros, double maxMicros) {
+        this.count = count;
+        this.meanMicros = meanMicros;
+        this.p50Micros = p50Micros;
+        this.p99Micros = p99Micros;
+        this.maxMicros = maxMicros;
+    }
+
+    /**
+     * Method to create and return a summary of latencies in 
+     *  nanoseconds.
+     * @param count Long number of latencies recorded.
+     * @param meanNanos Double mean latency.
+     * @param p50Nanos Long median latency.
+     * @param p99Nanos Long 99th percentile latency.
+     * @param maxNanos Long highest latency.
+     * @return LatencySummary object in microseconds.
+     */
+    static LatencySummary ofNanos(long count, double meanNanos, 
+            long p50Nanos, long p99Nanos, long maxNanos) {
+        return new LatencySummary(count, meanNanos / 1e3, p50Nanos / 1e3,
+                p99Nanos / 1e3, maxNanos / 1e3);
+    }
+
+    /**
+     * Method to get and return the number of latencies recorded.
+     * @return Long number of latencies recorded.
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+    /**
+     * Method to get and return the mean latency in microseconds.
+     * @return Double mean latency in microseconds.
+     */
+    public double getMeanMicros() {
+        return this.meanMicros;
+    }
+
+    /**
+     * Method to get and return the median latency in microseconds.
+     * @return Double median latency in microseconds.
+     */
+    public double getP50Micros() {
+        return this.p50Micros;
+    }
+
+    /**
+     * Method to get and return the 99th percentile latency in
+     *  microseconds.
+     * @return Double 99th percentile latency in microseconds.
+     */
+    public double getP99Micros() {
+        return this.p99Micros;
+    }
+
+    /**
+     * Method to get and return the highest latency in microseconds.
+     * @return Double highest latency in microseconds.
+     */
+    public double getMaxMicros() {
+        return this.maxMicros;
+    }
+
+    /**
+     * Method to format this summary as a JSON object.
+     * @return String containing JSON object.
+     */
+    public String toJson() {
+        return String.format("{\"count\": %d, \"meanMicros\": %.3f, "
+                + "\"p50Micros\": %.3f, \"p99Micros\": %.3f, "
+                + "\"maxMicros\": %.3f}", this.count, this.meanMicros,
+                this.p50Micros, this.p99Micros, this.maxMicros);
+    }
+}
\ No newline at end of file
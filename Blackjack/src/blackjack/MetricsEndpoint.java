@@ -0,0 +1,76 @@
+package blackjack;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Class: MetricsEndpoint.java
+ * Description: Local HTTP endpoint serving the table metrics of this
+ *  process as JSON from /metrics. Only listens on loopback.
+ * Author: Paulo Jorge.
+ */
+public final class MetricsEndpoint implements HttpHandler {
+    // Path metrics are served from
+    public static final String PATH = "/metrics";
+
+    private final TableMetrics metrics;
+
+    /**
+     * Constructor method used to initialise a new endpoint.
+     * @param metrics TableMetrics object served.
+     */
+    private MetricsEndpoint(TableMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Method to start serving the metrics of this process, enabling
+     *  them and registering them with JMX.
+     * @param port Integer loopback port to listen on, or 0 for any free
+     *  port.
+     * @return HttpServer object started, stop it to stop serving.
+     * @throws IOException If endpoint could not be started.
+     */
+    public static HttpServer start(int port) throws IOException {
+        TableMetrics.enableWithJmx();
+
+        HttpServer server = HttpServer.create(new InetSocketAddress(
+                InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext(PATH, new MetricsEndpoint(
+                TableMetrics.getDefault()));
+        server.start();
+        return server;
+    }
+
+    /**
+     * Method to respond to a request with the current metrics.
+     * @param exchange HttpExchange object of request.
+     * @throws IOException If response could not be written.
+     */
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            byte[] body = this.metrics.toJson().getBytes(
+                    StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type",
+                    "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,441 @@
+package blackjack;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Class: OutcomeCube.java
+ * Description: Outcome of every hit or stand decision made while
+ *  simulating, counted in a dense cube of cells keyed by the players
+ *  total, if it is soft, the dealers first card, the true count of the
+ *  shoe when the round was dealt and the action taken. Each decision
+ *  is credited with the outcome of the hand it was made in, so a cell
+ *  answers questions such as what standing on soft 18 against a 9
+ *  returns at a true count of 2, without a run for each question.
+ *  Every thread records to its own stripe of the cube, and each cell
+ *  is padded to a cache line, so tables played in parallel do not
+ *  contend. Queries add up the cell in every stripe.
+ * Author: Paulo Jorge.
+ */
+public final class OutcomeCube implements RoundListener {
+    // Range of player totals a decision can be made on
+    public static final int MIN_TOTAL = 4;
+    public static final int MAX_TOTAL = 21;
+    // Range of true counts, lower and higher counts are added to the
+    // lowest and highest
+    public static final int MIN_TRUE_COUNT = -5;
+    public static final int MAX_TRUE_COUNT = 5;
+    // A hand is only played while its hard total, at least 1 for each
+    // card, is 20 or lower, so a hand has at most 19 decisions
+    static final int MAX_DECISIONS = 19;
+
+    // Size of each dimension of cube
+    private static final int TOTALS = MAX_TOTAL - MIN_TOTAL + 1;
+    private static final int DEALER_CARDS = 10;
+    private static final int TRUE_COUNTS
+            = MAX_TRUE_COUNT - MIN_TRUE_COUNT + 1;
+    private static final int ACTIONS = 2;
+    private static final int CELLS
+            = TOTALS * 2 * DEALER_CARDS * TRUE_COUNTS * ACTIONS;
+    // Fields of each cell, padded to 8 longs, a cache line
+    private static final int HANDS = 0;
+    private static final int WINS = 1;
+    private static final int PUSHES = 2;
+    private static final int LOSSES = 3;
+    private static final int WAGERED = 4;
+    private static final int NET = 5;
+    private static final int CELL_SIZE = 8;
+    // Padding before and after cells, so stripes never share a line
+    private static final int PADDING = 16;
+
+    /**
+     * Action taken by a player.
+     */
+    public enum Action { STAND, HIT }
+
+    // Cells of each stripe
+    private final AtomicLongArray[] stripes;
+    // Used to give each thread the next stripe
+    private final AtomicInteger nextStripe = new AtomicInteger();
+    // Stripe recorded to by each thread
+    private final ThreadLocal<AtomicLongArray> stripe
+            = new ThreadLocal<AtomicLongArray>() {
+        @Override
+        protected AtomicLongArray initialValue() {
+            return OutcomeCube.this.stripes[Math.floorMod(
+                    OutcomeCube.this.nextStripe.getAndIncrement(),
+                    OutcomeCube.this.stripes.length)];
+        }
+    };
+
+    /**
+     * Constructor method used to initialise a new empty cube.
+     * @param stripes Integer number of stripes, ideally the number of
+     *  threads recording to it.
+     */
+    public OutcomeCube(int stripes) {
+        if (stripes < 1)
+            throw new IllegalArgumentException("Stripes must be at "
+                    + "least 1.");
+        this.stripes = new AtomicLongArray[stripes];
+        for (int i = 0; i < stripes; i++)
+            this.stripes[i] = new AtomicLongArray(
+                    PADDING + (CELLS * CELL_SIZE) + PADDING);
+    }
+
+    /**
+     * Method to get and return the cell a decision is counted in.
+     * @param total Integer players total from 4 to 21.
+     * @param soft Boolean true if the total counts an ace as 11.
+     * @param dealerValue Integer value of dealers first card from 2 to
+     *  11.
+     * @param trueCount Integer true count when the round was dealt.
+     * @param hit Boolean true if the player hit, false if they stood.
+     * @return Integer cell index.
+     */
+    static int cell(int total, boolean soft, int dealerValue,
+            int trueCount, boolean hit) {
+        int count = Math.max(MIN_TRUE_COUNT,
+                Math.min(MAX_TRUE_COUNT, trueCount));
+        int cell = total - MIN_TOTAL;
+        cell = (cell * 2) + (soft ? 1 : 0);
+        cell = (cell * DEALER_CARDS) + (dealerValue - 2);
+        cell = (cell * TRUE_COUNTS) + (count - MIN_TRUE_COUNT);
+        return (cell * ACTIONS) + (hit ? 1 : 0);
+    }
+
+    /**
+     * Method to record the outcome of a number of decisions made in a
+     *  single hand.
+     * @param cells Integer array containing the cell of each decision.
+     * @param offset Integer position of first cell in array.
+     * @param count Integer number of decisions.
+     * @param bet Integer value of the bet placed.
+     * @param settled Integer value settled, negative if lost.
+     */
+    void record(int[] cells, int offset, int count, int bet,
+            int settled) {
+        AtomicLongArray stripe = this.stripe.get();
+        for (int i = offset; i < (offset + count); i++)
+            add(stripe, cells[i], bet, settled);
+    }
+
+    /**
+     * Method to add the outcome of a decision to a cell of a stripe.
+     * @param stripe AtomicLongArray object of stripe.
+     * @param cell Integer cell index.
+     * @param bet Integer value of the bet placed.
+     * @param settled Integer value settled, negative if lost.
+     */
+    private static void add(AtomicLongArray stripe, int cell, int bet,
+            int settled) {
+        int base = PADDING + (cell * CELL_SIZE);
+        stripe.getAndIncrement(base + HANDS);
+        if (settled < 0)
+            stripe.getAndIncrement(base + LOSSES);
+        else if (settled == bet)
+            stripe.getAndIncrement(base + PUSHES);
+        else
+            stripe.getAndIncrement(base + WINS);
+        stripe.getAndAdd(base + WAGERED, bet);
+        stripe.getAndAdd(base + NET, settled);
+    }
+
+    /**
+     * Method to record every decision made in a hand, worked out from
+     *  the cards of the hand. The player was asked after each card from
+     *  the second while their hard total was 20 or lower, and hit every
+     *  time but the last.
+     * @param dealer Dealer object settling the bet.
+     * @param seat Integer seat position of player starting at 1.
+     * @param player Player object whose bet was settled.
+     * @param hand Hand object the player finished the round with.
+     * @param bet Integer value of the bet placed.
+     * @param settled Integer value settled.
+     */
+    @Override
+    public void seatSettled(BlackjackDealer dealer, int seat,
+            Player player, Hand hand, int bet, int settled) {
+        AtomicLongArray stripe = this.stripe.get();
+        int dealerValue = dealer.getDealerCard().getRank().getValue();
+        int trueCount = dealer.getTrueCount();
+
+        int hard = 0;
+        int aces = 0;
+        for (int i = 0; i < hand.size(); i++) {
+            int value = hand.get(i).getRank().getValue();
+            if (value == 11) {
+                aces++;
+                hard++;
+            } else
+                hard += value;
+
+            // Decision made on this total
+            if ((i > 0) && (hard <= 20)) {
+                boolean soft = ((aces > 0) && ((hard + 10) <= 21));
+                add(stripe, cell((soft ? hard + 10 : hard), soft,
+                        dealerValue, trueCount, (i < (hand.size() - 1))),
+                        bet, settled);
+            }
+        }
+    }
+
+    /**
+     * Method called once every bet of the round has been settled,
+     *  nothing is recorded per round.
+     * @param dealer Dealer object that settled the round.
+     * @param hand Hand object the dealer finished the round with.
+     */
+    @Override
+    public void roundSettled(BlackjackDealer dealer, Hand hand) {
+    }
+
+    /**
+     * Method to add up a field of a cell in every stripe.
+     * @param cell Integer cell index.
+     * @param field Integer field of cell.
+     * @return Long total of field.
+     */
+    private long sum(int cell, int field) {
+        long sum = 0;
+        int index = PADDING + (cell * CELL_SIZE) + field;
+        for (AtomicLongArray stripe : this.stripes)
+            sum += stripe.get(index);
+        return sum;
+    }
+
+    /**
+     * Method to write every cell with at least 1 decision to a buffer,
+     *  as its index and the total of each field in every stripe.
+     * @param buffer ByteBuffer object to write to.
+     */
+    void encode(ByteBuffer buffer) {
+        int start = buffer.position();
+        buffer.putInt(0);
+        int cells = 0;
+        for (int cell = 0; cell < CELLS; cell++) {
+            if (sum(cell, HANDS) == 0)
+                continue;
+            buffer.putInt(cell);
+            for (int field = HANDS; field <= NET; field++)
+                buffer.putLong(sum(cell, field));
+            cells++;
+        }
+        buffer.putInt(start, cells);
+    }
+
+    /**
+     * Method to add every cell read from a buffer written by encode()
+     *  to this cube, such as the cube of another process.
+     * @param buffer ByteBuffer object to read from.
+     * @throws IllegalArgumentException If a cell is out of range.
+     */
+    void merge(ByteBuffer buffer) {
+        AtomicLongArray stripe = this.stripe.get();
+        for (int i = buffer.getInt(); i > 0; i--) {
+            int cell = buffer.getInt();
+            if ((cell < 0) || (cell >= CELLS))
+                throw new IllegalArgumentException("Cell " + cell 
+                        + " is out of range.");
+            int index = PADDING + (cell * CELL_SIZE);
+            for (int field = HANDS; field <= NET; field++)
+                stripe.addAndGet(index + field, buffer.getLong());
+        }
+    }
+
+    /**
+     * Method to get and return the cell of a decision, checking each
+     *  key is in range.
+     * @param total Integer players total from 4 to 21.
+     * @param soft Boolean true if the total counts an ace as 11.
+     * @param dealerValue Integer value of dealers first card from 2 to
+     *  11.
+     * @param trueCount Integer true count, counts out of range are
+     *  counted with the lowest or highest.
+     * @param action Action object taken.
+     * @return Integer cell index.
+     */
+    private static int checkedCell(int total, boolean soft,
+            int dealerValue, int trueCount, Action action) {
+        if ((total < MIN_TOTAL) || (total > MAX_TOTAL))
+            throw new IllegalArgumentException("Total must be between "
+                    + MIN_TOTAL + " and " + MAX_TOTAL + ".");
+        if ((dealerValue < 2) || (dealerValue > 11))
+            throw new IllegalArgumentException("Dealer card value must "
+                    + "be between 2 and 11.");
+        return cell(total, soft, dealerValue, trueCount,
+                (action == Action.HIT));
+    }
+
+    /**
+     * Method to get the number of decisions made in a state.
+     * @param total Integer players total from 4 to 21.
+     * @param soft Boolean true if the total counts an ace as 11.
+     * @param dealerValue Integer value of dealers first card from 2 to
+     *  11.
+     * @param trueCount Integer true count when the round was dealt.
+     * @param action Action object taken.
+     * @return Long number of decisions.
+     */
+    public long getHands(int total, boolean soft, int dealerValue,
+            int trueCount, Action action) {
+        return sum(checkedCell(total, soft, dealerValue, trueCount,
+                action), HANDS);
+    }
+
+    /**
+     * Method to get the number of decisions made in a state where the
+     *  hand was won.
+     * @param total Integer players total from 4 to 21.
+     * @param soft Boolean true if the total counts an ace as 11.
+     * @param dealerValue Integer value of dealers first card from 2 to
+     *  11.
+     * @param trueCount Integer true count when the round was dealt.
+     * @param action Action object taken.
+     * @return Long number of decisions.
+     */
+    public long getWins(int total, boolean soft, int dealerValue,
+            int trueCount, Action action) {
+        return sum(checkedCell(total, soft, dealerValue, trueCount,
+                action), WINS);
+    }
+
+    /**
+     * Method to get the number of decisions made in a state where the
+     *  bet was retained.
+     * @param total Integer players total from 4 to 21.
+     * @param soft Boolean true if the total counts an ace as 11.
+     * @param dealerValue Integer value of dealers first card from 2 to
+     *  11.
+     * @param trueCount Integer true count when the round was dealt.
+     * @param action Action object taken.
+     * @return Long number of decisions.
+     */
+    public long getPushes(int total, boolean soft, int dealerValue,
+            int trueCount, Action action) {
+        return sum(checkedCell(total, soft, dealerValue, trueCount,
+                action), PUSHES);
+    }
+
+    /**
+     * Method to get the number of decisions made in a state where the
+     *  hand was lost.
+     * @param total Integer players total from 4 to 21.
+     * @param soft Boolean true if the total counts an ace as 11.
+     * @param dealerValue Integer value of dealers first card from 2 to
+     *  11.
+     * @param trueCount Integer true count when the round was dealt.
+     * @param action Action object taken.
+     * @return Long number of decisions.
+     */
+    public long getLosses(int total, boolean soft, int dealerValue,
+            int trueCount, Action action) {
+        return sum(checkedCell(total, soft, dealerValue, trueCount,
+                action), LOSSES);
+    }
+
+    /**
+     * Method to get the total value bet on hands a decision was made
+     *  in, in a state.
+     * @param total Integer players total from 4 to 21.
+     * @param soft Boolean true if the total counts an ace as 11.
+     * @param dealerValue Integer value of dealers first card from 2 to
+     *  11.
+     * @param trueCount Integer true count when the round was dealt.
+     * @param action Action object taken.
+     * @return Long total value bet.
+     */
+    public long getWagered(int total, boolean soft, int dealerValue,
+            int trueCount, Action action) {
+        return sum(checkedCell(total, soft, dealerValue, trueCount,
+                action), WAGERED);
+    }
+
+    /**
+     * Method to get the total value settled on hands a decision was
+     *  made in, in a state.
+     * @param total Integer players total from 4 to 21.
+     * @param soft Boolean true if the total counts an ace as 11.
+     * @param dealerValue Integer value of dealers first card from 2 to
+     *  11.
+     * @param trueCount Integer true count when the round was dealt.
+     * @param action Action object taken.
+     * @return Long total value settled, negative if lost.
+     */
+    public long getNet(int total, boolean soft, int dealerValue,
+            int trueCount, Action action) {
+        return sum(checkedCell(total, soft, dealerValue, trueCount,
+                action), NET);
+    }
+
+    /**
+     * Method to get the value settled for each unit bet on hands a
+     *  decision was made in, in a state.
+     * @param total Integer players total from 4 to 21.
+     * @param soft Boolean true if the total counts an ace as 11.
+     * @param dealerValue Integer value of dealers first card from 2 to
+     *  11.
+     * @param trueCount Integer true count when the round was dealt.
+     * @param action Action object taken.
+     * @return Double value settled per unit bet, or 0 if no decisions.
+     */
+    public double getReturn(int total, boolean soft, int dealerValue,
+            int trueCount, Action action) {
+        int cell = checkedCell(total, soft, dealerValue, trueCount,
+                action);
+        long wagered = sum(cell, WAGERED);
+        return (wagered > 0 ? (double) sum(cell, NET) / wagered : 0);
+    }
+
+    /**
+     * Method to write every cell with at least 1 decision to a CSV
+     *  file, one line per cell.
+     * @param file File object to write to.
+     * @throws IOException If file could not be written.
+     */
+    public void write(File file) throws IOException {
+        try (PrintWriter out = new PrintWriter(file, "UTF-8")) {
+            out.println("total,soft,dealer,trueCount,action,hands,wins,"
+                    + "pushes,losses,wagered,net,return");
+            for (int total = MIN_TOTAL; total <= MAX_TOTAL; total++)
+                for (int soft = 0; soft < 2; soft++)
+                    for (int dealer = 2; dealer <= 11; dealer++)
+                        for (int count = MIN_TRUE_COUNT;
+                                count <= MAX_TRUE_COUNT; count++)
+                            for (Action action : Action.values())
+                                writeCell(out, total, (soft == 1),
+                                        dealer, count, action);
+        }
+    }
+
+    /**
+     * Method to write a cell as a CSV line, if it has any decisions.
+     * @param out PrintWriter object to write to.
+     * @param total Integer players total.
+     * @param soft Boolean true if the total is soft.
+     * @param dealerValue Integer value of dealers first card.
+     * @param trueCount Integer true count.
+     * @param action Action object taken.
+     */
+    private void writeCell(PrintWriter out, int total, boolean soft,
+            int dealerValue, int trueCount, Action action) {
+        int cell = cell(total, soft, dealerValue, trueCount,
+                (action == Action.HIT));
+        long hands = sum(cell, HANDS);
+        if (hands == 0)
+            return;
+
+        long wagered = sum(cell, WAGERED);
+        long net = sum(cell, NET);
+        out.println(total + "," + soft + "," + dealerValue + ","
+                + trueCount + "," + action.name().toLowerCase() + ","
+                + hands + "," + sum(cell, WINS) + ","
+                + sum(cell, PUSHES) + "," + sum(cell, LOSSES) + ","
+                + wagered + "," + net + "," + String.format("%.6f",
+                (wagered > 0 ? (double) net / wagered : 0)));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,416 @@
+package blackjack;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Class: PairedComparison.java
+ * Description: Comparison of two or more strategies using common
+ *  random numbers. Every strategy plays its own copy of a single seat
+ *  table, and every round starts from the same point of the same
+ *  shoe for each: the shoe is shuffled from a seed for the round and
+ *  a random number of cards, up to the reshuffle size, are dealt face
+ *  up first, so card counts also match. Play is split into blocks
+ *  and the difference in EV per hand of two strategies is measured
+ *  block by block. As the luck of the cards is shared it mostly
+ *  cancels out, so its confidence interval is far narrower than 
+ *  comparing independent runs of the same length, which is also
+ *  reported.
+ * Author: Paulo Jorge.
+ */
+public class PairedComparison {
+    // Normal quantile of a two sided 95% confidence interval
+    private static final double Z_95 = 1.959964;
+
+    // Strategies compared
+    private final List<String> strategies = new ArrayList();
+    // Blocks played, and rounds each strategy plays in each block
+    private int blocks = 1000;
+    private int rounds = 100;
+    // Seed used to shuffle
+    private long seed = 0;
+    // Number of threads used to play blocks
+    private int threads = Runtime.getRuntime().availableProcessors();
+    // House rules of every table
+    private RuleSet rules = RuleSet.standard();
+
+    /**
+     * Method to add a strategy to compare.
+     * @param strategy String strategy, from basic, intermediate,
+     *  advanced, or basic-N for a basic player that sticks on N or
+     *  higher.
+     */
+    public void addStrategy(String strategy) {
+        String checked = strategy.trim().toLowerCase();
+        // Check strategy is known
+        Tournament.newPlayer(checked);
+        this.strategies.add(checked);
+    }
+
+    /**
+     * Method to set the number of blocks played.
+     * @param blocks Integer number of blocks, at least 2.
+     */
+    public void setBlocks(int blocks) {
+        if (blocks < 2)
+            throw new IllegalArgumentException("Blocks must be at "
+                    + "least 2.");
+        this.blocks = blocks;
+    }
+
+    /**
+     * Method to set the rounds each strategy plays in each block.
+     * @param rounds Integer number of rounds.
+     */
+    public void setRounds(int rounds) {
+        if (rounds < 1)
+            throw new IllegalArgumentException("Rounds must be at "
+                    + "least 1.");
+        this.rounds = rounds;
+    }
+
+    /**
+     * Method to set the seed used to shuffle.
+     * @param seed Long seed.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Method to set the number of threads used to play blocks.
+     * @param threads Integer number of threads.
+     */
+    public void setThreads(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("Threads must be at "
+                    + "least 1.");
+        this.threads = threads;
+    }
+
+    /**
+     * Method to set the house rules of every table.
+     * @param rules RuleSet object of house rules.
+     */
+    public void setRules(RuleSet rules) {
+        if (rules == null)
+            throw new IllegalArgumentException("Rules must be set.");
+        this.rules = rules;
+    }
+
+    /**
+     * Method to play every block of every strategy.
+     * @return Double array of EV per hand of each strategy, by
+     *  strategy then block.
+     * @throws InterruptedException If interrupted while waiting.
+     * @throws ExecutionException If a table failed to play.
+     */
+    public double[][] run() throws InterruptedException,
+            ExecutionException {
+        if (this.strategies.size() < 2)
+            throw new IllegalStateException("At least 2 strategies must "
+                    + "be compared.");
+
+        ExecutorService executor
+                = Executors.newFixedThreadPool(this.threads);
+        try {
+            // Submit every strategy of every block
+            List<Future<Double>> results = new ArrayList();
+            for (final String strategy : this.strategies)
+                for (int b = 0; b < this.blocks; b++) {
+                    final long blockSeed = RandomStreams.seed(this.seed,
+                            b);
+                    results.add(executor.submit(new Callable<Double>() {
+                        @Override
+                        public Double call() {
+                            return play(strategy, blockSeed);
+                        }
+                    }));
+                }
+
+            double[][] ev = new double[this.strategies.size()][];
+            for (int s = 0; s < ev.length; s++) {
+                ev[s] = new double[this.blocks];
+                for (int b = 0; b < this.blocks; b++)
+                    ev[s][b] = results.get((s * this.blocks) + b).get();
+            }
+            return ev;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Method to play a block of a strategy at a single seat table. A
+     *  player that runs out of funds is replaced, as Simulation does.
+     * @param strategy String strategy played.
+     * @param blockSeed Long seed of the shoe of every round.
+     * @return Double EV per hand.
+     */
+    private double play(String strategy, long blockSeed) {
+        SimulationStats stats = new SimulationStats();
+        Random seeds = new Random(blockSeed);
+        Random random = new Random();
+        BlackjackTable table = new BlackjackTable(false, false, random,
+                this.rules);
+        table.getDealer().addRoundListener(stats);
+        Player player = Tournament.newPlayer(strategy);
+        table.addPlayer(player);
+        table.assignPlayers();
+
+        int maxBurn = (Card.CODES * this.rules.getDecks())
+                - this.rules.getReshuffleSize();
+        for (int i = 0; i < this.rounds; i++) {
+            // Start round from the same shoe as every other strategy
+            random.setSeed(seeds.nextLong());
+            table.getDealer().newShoe(random.nextInt(maxBurn + 1));
+            table.playRound();
+            if (!table.getPlayers().contains(player)) {
+                player = Tournament.newPlayer(strategy);
+                table.addPlayer(player);
+            }
+        }
+
+        long hands = 0;
+        long net = 0;
+        for (SimulationStats.Totals total : stats.getTotals().values()) {
+            hands += total.getHands();
+            net += total.getNet();
+        }
+        return (hands > 0 ? (double) net / hands : 0);
+    }
+
+    /**
+     * Method to get and return the mean of values.
+     * @param values Double array of values.
+     * @return Double mean.
+     */
+    static double mean(double[] values) {
+        double sum = 0;
+        for (double value : values)
+            sum += value;
+        return sum / values.length;
+    }
+
+    /**
+     * Method to get and return the sample variance of values.
+     * @param values Double array of at least 2 values.
+     * @return Double sample variance.
+     */
+    static double variance(double[] values) {
+        double mean = mean(values);
+        double sum = 0;
+        for (double value : values)
+            sum += (value - mean) * (value - mean);
+        return sum / (values.length - 1);
+    }
+
+    /**
+     * Method to format the EV of every strategy, and the difference of
+     *  each pair of strategies, as JSON. Each confidence interval is
+     *  the half width of a 95% interval of the mean.
+     * @param names String array of name of each strategy.
+     * @param ev Double array of EV per hand by strategy then block.
+     * @param rounds Integer rounds played in each block.
+     * @param elapsedNanos Long time taken to run in nanoseconds.
+     * @return String containing JSON summary.
+     */
+    public static String toJson(String[] names, double[][] ev,
+            int rounds, long elapsedNanos) {
+        int blocks = ev[0].length;
+        StringBuilder str = new StringBuilder();
+
+        str.append("{\n");
+        str.append("  \"blocks\": ").append(blocks);
+        str.append(",\n  \"roundsPerBlock\": ").append(rounds);
+        str.append(",\n  \"elapsedSeconds\": ").append(
+                String.format("%.3f", elapsedNanos / 1e9));
+
+        // EV of each strategy on its own
+        str.append(",\n  \"strategies\": {");
+        for (int s = 0; s < names.length; s++) {
+            str.append(s > 0 ? ",\n" : "\n");
+            str.append("    \"").append(names[s]).append("\": {");
+            str.append("\"evPerHand\": ").append(String.format("%.6f",
+                    mean(ev[s])));
+            str.append(", \"ci95\": ").append(String.format("%.6f",
+                    Z_95 * Math.sqrt(variance(ev[s]) / blocks)));
+            str.append("}");
+        }
+
+        // Paired difference of each pair of strategies
+        str.append("\n  },\n  \"differences\": [");
+        boolean first = true;
+        for (int a = 0; a < names.length; a++)
+            for (int b = a + 1; b < names.length; b++) {
+                double[] difference = new double[blocks];
+                for (int i = 0; i < blocks; i++)
+                    difference[i] = ev[b][i] - ev[a][i];
+                double paired = variance(difference);
+                double independent = variance(ev[a]) + variance(ev[b]);
+
+                str.append(first ? "\n" : ",\n");
+                first = false;
+                str.append("    {\"strategy\": \"").append(names[b]);
+                str.append("\", \"minus\": \"").append(names[a]);
+                str.append("\", \"difference\": ").append(String.format(
+                        "%.6f", mean(difference)));
+                str.append(", \"ci95\": ").append(String.format("%.6f",
+                        Z_95 * Math.sqrt(paired / blocks)));
+                str.append(", \"independentCi95\": ").append(
+                        String.format("%.6f", Z_95 * Math.sqrt(
+                        independent / blocks)));
+                str.append(", \"varianceReduction\": ").append(
+                        String.format("%.1f", (paired > 0
+                        ? independent / paired : 0)));
+                str.append("}");
+            }
+        str.append("\n  ]\n}\n");
+
+        return str.toString();
+    }
+
+    /**
+     * Method to print how to run a comparison.
+     */
+    private static void printUsage() {
+        System.err.println("Usage: java -cp Blackjack.jar "
+                + "blackjack.PairedComparison [--strategies A,B,...]"
+                + " [--blocks N] [--rounds N] [--seed N] [--threads N]"
+                + " [--output FILE] [--decks N] [--soft17 stand|hit]"
+                + " [--penetration P] [--blackjack-pays N/D]");
+        System.err.println(SimulationConfig.PAYOUT_USAGE);
+    }
+
+    /**
+     * Method to run a comparison from command line arguments and print
+     *  a JSON summary. Options are:
+     *   --strategies A,B  Strategies compared, from basic,
+     *                      intermediate, advanced or basic-N (default
+     *                      intermediate,advanced).
+     *   --blocks N        Blocks played (default 1000).
+     *   --rounds N        Rounds each strategy plays in each block
+     *                      (default 100).
+     *   --seed N          Seed used to shuffle (default 0).
+     *   --threads N       Threads used to play blocks (default number
+     *                      of processors).
+     *   --output FILE     File summary is written to.
+     *  House rules are set with the same options as a simulation.
+     *  Exits with status 0 on success, 1 if the comparison failed or 2
+     *  if the arguments were invalid.
+     * @param args String array of command line arguments.
+     */
+    public static void main(String[] args) {
+        PairedComparison comparison = new PairedComparison();
+        String output = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String option = args[i];
+                // Every option is followed by a value
+                if ((i + 1) >= args.length)
+                    throw new IllegalArgumentException("Missing value "
+                            + "for " + option + ".");
+                String value = args[++i];
+
+                switch (option) {
+                    case "--strategies":
+                        for (String strategy : value.split(","))
+                            comparison.addStrategy(strategy);
+                        break;
+                    case "--blocks":
+                        comparison.setBlocks(parseInt(option, value));
+                        break;
+                    case "--rounds":
+                        comparison.setRounds(parseInt(option, value));
+                        break;
+                    case "--seed":
+                        comparison.setSeed(parseLong(option, value));
+                        break;
+                    case "--threads":
+                        comparison.setThreads(parseInt(option, value));
+                        break;
+                    case "--output":
+                        output = value;
+                        break;
+                    default:
+                        RuleSet rules = SimulationConfig.parseRule(
+                                comparison.rules, option, value);
+                        if (rules == null)
+                            throw new IllegalArgumentException("Unknown "
+                                    + "option " + option + ".");
+                        comparison.setRules(rules);
+                }
+            }
+            if (comparison.strategies.isEmpty()) {
+                comparison.addStrategy("intermediate");
+                comparison.addStrategy("advanced");
+            } else if (comparison.strategies.size() < 2)
+                throw new IllegalArgumentException("At least 2 "
+                        + "strategies must be compared.");
+        } catch (IllegalArgumentException exception) {
+            System.err.println("Error: " + exception.getMessage());
+            printUsage();
+            System.exit(2);
+            return;
+        }
+
+        try {
+            // Run and time comparison
+            long start = System.nanoTime();
+            double[][] ev = comparison.run();
+            String[] names = new String[comparison.strategies.size()];
+            for (int i = 0; i < names.length; i++)
+                names[i] = Tournament.newPlayer(
+                        comparison.strategies.get(i)).getPlayerType();
+            String summary = toJson(names, ev, comparison.rounds,
+                    System.nanoTime() - start);
+
+            // Write summary to file if required
+            if (output != null)
+                try (PrintWriter file = new PrintWriter(output, "UTF-8")) {
+                    file.print(summary);
+                }
+            System.out.print(summary);
+        } catch (InterruptedException | ExecutionException
+                | IOException exception) {
+            exception.printStackTrace();
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Method to read an integer option value.
+     * @param option String option name.
+     * @param value String value.
+     * @return Integer value.
+     * @throws IllegalArgumentException If value is not an integer.
+     */
+    private static int parseInt(String option, String value) {
+        return (int) parseLong(option, value);
+    }
+
+    /**
+     * Method to read a long option value.
+     * @param option String option name.
+     * @param value String value.
+     * @return Long value.
+     * @throws IllegalArgumentException If value is not an integer.
+     */
+    private static long parseLong(String option, String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException exception) {
+            throw new IllegalArgumentException("Invalid value '"
+                    + value + "' for " + option + ".");
+        }
+    }
+}
\ No newline at end of file
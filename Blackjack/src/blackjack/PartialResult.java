@@ -0,0 +1,213 @@
+package blackjack;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Class: PartialResult.java
+ * Description: Result of one partition of a simulation, written to a
+ *  compact versioned binary file so it can be merged with the results
+ *  of other partitions, whether they were played by other processes
+ *  or on other machines. Holds exact sums only: the totals and moment
+ *  sums of each player type and the cells of any outcome cube. The
+ *  settings of the partition are written with it, so a result is
+ *  never merged into a simulation it was not played for.
+ * Author: Paulo Jorge.
+ */
+public final class PartialResult {
+    // Magic number at start of every file, "BJPR"
+    private static final int MAGIC = 0x424A5052;
+    // Current format version
+    public static final byte VERSION = 2;
+    // Initial buffer size, enough for a result without a cube
+    private static final int INITIAL_SIZE = 4096;
+
+    // Settings of partition
+    private final String settings;
+    // Statistics of every table in partition
+    private final SimulationStats stats;
+    // Encoded cells of outcome cube, or null for none
+    private final ByteBuffer cube;
+
+    /**
+     * Constructor method used to initialise a new result of a
+     *  simulation.
+     * @param config SimulationConfig object of partition.
+     * @param stats SimulationStats object of every table.
+     * @param cube OutcomeCube object of every decision, or null for
+     *  none.
+     */
+    public PartialResult(SimulationConfig config, SimulationStats stats,
+            OutcomeCube cube) {
+        this.settings = describe(config.getFirstTable(),
+                config.getTables(), config);
+        this.stats = stats;
+        this.cube = (cube != null ? encodeCube(cube) : null);
+    }
+
+    /**
+     * Constructor method used to initialise a result read from file.
+     * @param settings String settings of partition.
+     * @param stats SimulationStats object of every table.
+     * @param cube ByteBuffer object of encoded cube, or null for none.
+     */
+    private PartialResult(String settings, SimulationStats stats,
+            ByteBuffer cube) {
+        this.settings = settings;
+        this.stats = stats;
+        this.cube = cube;
+    }
+
+    /**
+     * Method to describe the settings of a partition, every setting
+     *  that changes its result. Rules are described exactly, so a 
+     *  result is only matched to the rules it was played with.
+     * @param firstTable Integer index of first table of partition.
+     * @param tables Integer number of tables in partition.
+     * @param config SimulationConfig object of simulation.
+     * @return String settings.
+     */
+    static String describe(int firstTable, int tables,
+            SimulationConfig config) {
+        return "seed=" + config.getSeed() + " firstTable=" + firstTable
+                + " tables=" + tables + " rounds="
+                + config.getRounds() + " seats=" + config.getSeats()
+                + " rules=" + config.getRules().describe() 
+                + " estimator="
+                + config.getEstimator() + " cube="
+                + (config.getCube() != null) + " sideBets="
+                + config.getSideBets();
+    }
+
+    /**
+     * Method to encode the cells of a cube into a new buffer ready to
+     *  be read.
+     * @param cube OutcomeCube object to encode.
+     * @return ByteBuffer object containing encoded cells.
+     */
+    private static ByteBuffer encodeCube(OutcomeCube cube) {
+        int size = INITIAL_SIZE;
+        // Grow buffer until cells fit
+        while (true) {
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            try {
+                cube.encode(buffer);
+                buffer.flip();
+                return buffer;
+            } catch (BufferOverflowException exception) {
+                size *= 2;
+            }
+        }
+    }
+
+    /**
+     * Method to check if this result was played for a partition.
+     * @param firstTable Integer index of first table of partition.
+     * @param tables Integer number of tables in partition.
+     * @param config SimulationConfig object of simulation.
+     * @return Boolean true if every setting matches, false otherwise.
+     */
+    public boolean matches(int firstTable, int tables,
+            SimulationConfig config) {
+        return this.settings.equals(describe(firstTable, tables,
+                config));
+    }
+
+    /**
+     * Method to add this result to the statistics and cube of a
+     *  simulation.
+     * @param stats SimulationStats object to add statistics to.
+     * @param cube OutcomeCube object to add cells to, or null for
+     *  none.
+     */
+    public void mergeInto(SimulationStats stats, OutcomeCube cube) {
+        stats.merge(this.stats);
+        if ((cube != null) && (this.cube != null))
+            cube.merge(this.cube.duplicate());
+    }
+
+    /**
+     * Method to get and return the statistics of every table.
+     * @return SimulationStats object.
+     */
+    public SimulationStats getStats() {
+        return this.stats;
+    }
+
+    /**
+     * Method to write a result to a file. The result is written to a
+     *  temporary file first and then moved over the file, so a failed
+     *  process never leaves a partly written result.
+     * @param file File object to write to.
+     * @param result PartialResult object to write.
+     * @throws IOException If file could not be written.
+     */
+    public static void write(File file, PartialResult result)
+            throws IOException {
+        byte[] settings = result.settings.getBytes(
+                StandardCharsets.UTF_8);
+        int size = INITIAL_SIZE + settings.length
+                + (result.cube != null ? result.cube.remaining() : 0);
+        // Grow buffer until result fits
+        while (true) {
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            try {
+                buffer.putInt(MAGIC);
+                buffer.put(VERSION);
+                buffer.putShort((short) settings.length);
+                buffer.put(settings);
+                result.stats.encode(buffer);
+                buffer.put((byte) (result.cube != null ? 1 : 0));
+                if (result.cube != null)
+                    buffer.put(result.cube.duplicate());
+                buffer.flip();
+                BinaryCodec.writeToFile(buffer, file.getPath());
+                return;
+            } catch (BufferOverflowException exception) {
+                size *= 2;
+            }
+        }
+    }
+
+    /**
+     * Method to read and return a result from a file written by
+     *  write().
+     * @param file File object to read.
+     * @return PartialResult object read.
+     * @throws IOException If file could not be read, or does not
+     *  contain a result of a supported version.
+     */
+    public static PartialResult read(File file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(
+                file.toPath()));
+        if ((buffer.remaining() < 5) || (buffer.getInt() != MAGIC))
+            throw new IOException("Not a partial result file.");
+        byte version = buffer.get();
+        if ((version < 1) || (version > VERSION))
+            throw new IOException("Unsupported file version "
+                    + version + ".");
+
+        try {
+            byte[] settings = new byte[buffer.getShort()];
+            buffer.get(settings);
+            SimulationStats stats = SimulationStats.decode(buffer, version);
+            ByteBuffer cube = null;
+            if (buffer.get() != 0) {
+                cube = buffer.slice();
+                // Check every cell is whole before keeping them
+                new OutcomeCube(1).merge(cube.duplicate());
+            }
+            return new PartialResult(new String(settings,
+                    StandardCharsets.UTF_8), stats, cube);
+        } catch (BufferUnderflowException | IllegalArgumentException
+                | NegativeArraySizeException exception) {
+            throw new IOException("Partial result " + file
+                    + " is corrupt.", exception);
+        }
+    }
+}
\ No newline at end of file
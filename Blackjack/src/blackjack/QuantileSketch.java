@@ -0,0 +1,174 @@
+package blackjack;
+
+/**
+ * Class: QuantileSketch.java
+ * Description: Streaming sketch of the distribution of a stream of
+ *  long values, such as the bankroll of many paths at a round, held in
+ *  a fixed number of buckets however many values are recorded. Values
+ *  below 64 either side of 0 are counted exactly, and larger values in
+ *  buckets of 32 per power of 2, so quantiles are accurate to within
+ *  about 3%. The count, sum, min and max are exact. A sketch is
+ *  recorded to by a single thread, and sketches of different threads
+ *  are added together, which gives the same result in any order.
+ * Author: Paulo Jorge.
+ */
+public final class QuantileSketch {
+    // Values below this are counted exactly
+    private static final int LINEAR_BUCKETS = 64;
+    // Buckets per power of 2 above the linear buckets, as a shift
+    private static final int SUB_BUCKET_BITS = 5;
+    // Power of 2 of the first bucket above the linear buckets
+    private static final int MIN_EXPONENT = 6;
+    // Buckets of every value from 0 to Long.MAX_VALUE
+    private static final int BUCKETS = LINEAR_BUCKETS
+            + ((63 - MIN_EXPONENT) << SUB_BUCKET_BITS);
+
+    // Count of each bucket of values of at least 0
+    private final long[] counts = new long[BUCKETS];
+    // Count of each bucket of values below 0 by size, or null for none
+    private long[] negativeCounts;
+    private long count;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    /**
+     * Method to record a value.
+     * @param value Long value.
+     */
+    public void record(long value) {
+        if (value >= 0)
+            this.counts[bucket(value)]++;
+        else {
+            if (this.negativeCounts == null)
+                this.negativeCounts = new long[BUCKETS];
+            // Long.MIN_VALUE has no positive, so is counted as 1 above
+            this.negativeCounts[bucket(value == Long.MIN_VALUE
+                    ? Long.MAX_VALUE : -value)]++;
+        }
+        this.count++;
+        this.sum += value;
+        this.min = Math.min(this.min, value);
+        this.max = Math.max(this.max, value);
+    }
+
+    /**
+     * Method to add the values recorded by another sketch to this.
+     * @param other QuantileSketch object to add.
+     */
+    public void add(QuantileSketch other) {
+        for (int i = 0; i < BUCKETS; i++)
+            this.counts[i] += other.counts[i];
+        if (other.negativeCounts != null) {
+            if (this.negativeCounts == null)
+                this.negativeCounts = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++)
+                this.negativeCounts[i] += other.negativeCounts[i];
+        }
+        this.count += other.count;
+        this.sum += other.sum;
+        this.min = Math.min(this.min, other.min);
+        this.max = Math.max(this.max, other.max);
+    }
+
+    /**
+     * Method to get and return the bucket a value is counted in.
+     * @param value Long value, at least 0.
+     * @return Integer index of bucket.
+     */
+    private static int bucket(long value) {
+        if (value < LINEAR_BUCKETS)
+            return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS))
+                & ((1 << SUB_BUCKET_BITS) - 1);
+        return LINEAR_BUCKETS + ((exponent - MIN_EXPONENT)
+                << SUB_BUCKET_BITS) + subBucket;
+    }
+
+    /**
+     * Method to get and return the middle value counted in a bucket.
+     * @param bucket Integer index of bucket.
+     * @return Long value.
+     */
+    private static long middle(int bucket) {
+        if (bucket < LINEAR_BUCKETS)
+            return bucket;
+        int exponent = ((bucket - LINEAR_BUCKETS) >> SUB_BUCKET_BITS)
+                + MIN_EXPONENT;
+        int subBucket = (bucket - LINEAR_BUCKETS)
+                & ((1 << SUB_BUCKET_BITS) - 1);
+        int shift = exponent - SUB_BUCKET_BITS;
+        long lower = ((long) ((1 << SUB_BUCKET_BITS) + subBucket))
+                << shift;
+        return lower + ((1L << shift) >> 1);
+    }
+
+    /**
+     * Method to get and return the value at a quantile of every value
+     *  recorded.
+     * @param quantile Double quantile from 0 to 1, such as 0.5 for the
+     *  median.
+     * @return Long value, or 0 if no values recorded.
+     */
+    public long getQuantile(double quantile) {
+        if (this.count == 0)
+            return 0;
+        // Rank of value, from 1 to count
+        long rank = Math.max(1, Math.min(this.count,
+                (long) Math.ceil(quantile * this.count)));
+
+        long seen = 0;
+        long value = this.max;
+        boolean found = false;
+        // Values below 0 from the largest size down
+        if (this.negativeCounts != null)
+            for (int i = BUCKETS - 1; (i >= 0) && !found; i--) {
+                seen += this.negativeCounts[i];
+                if (seen >= rank) {
+                    value = -middle(i);
+                    found = true;
+                }
+            }
+        for (int i = 0; (i < BUCKETS) && !found; i++) {
+            seen += this.counts[i];
+            if (seen >= rank) {
+                value = middle(i);
+                found = true;
+            }
+        }
+        return Math.max(this.min, Math.min(this.max, value));
+    }
+
+    /**
+     * Method to get and return the number of values recorded.
+     * @return Long count.
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+    /**
+     * Method to get and return the mean of every value recorded.
+     * @return Double mean, or 0 if no values recorded.
+     */
+    public double getMean() {
+        return (this.count > 0 ? (double) this.sum / this.count : 0);
+    }
+
+    /**
+     * Method to get and return the lowest value recorded.
+     * @return Long min, or 0 if no values recorded.
+     */
+    public long getMin() {
+        return (this.count > 0 ? this.min : 0);
+    }
+
+    /**
+     * Method to get and return the highest value recorded.
+     * @return Long max, or 0 if no values recorded.
+     */
+    public long getMax() {
+        return (this.count > 0 ? this.max : 0);
+    }
+}
\ No newline at end of file
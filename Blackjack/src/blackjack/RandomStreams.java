@@ -0,0 +1,83 @@
+package blackjack;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * Class: RandomStreams.java
+ * Description: Random number streams used to shuffle, derived from a
+ *  master seed. The stream of each table is seeded from the master
+ *  seed and its index alone, never from the thread it is played on or
+ *  the order tables are started in, so a run gives identical results
+ *  with any number of threads, processes or partitions. Seeds are
+ *  mixed by a SplittableRandom, as java.util.Random streams of seeds
+ *  that differ by 1 start out correlated. Streams stay java.util.Random
+ *  objects, which the batch kernel reproduces exactly.
+ * Author: Paulo Jorge.
+ */
+public final class RandomStreams {
+    // System property of master seed of streams not given a seed
+    public static final String SEED_PROPERTY = "blackjack.seed";
+    // Root stream every stream not given a seed is split from
+    private static final SplittableRandom ROOT = newRoot();
+
+    /**
+     * Private constructor as class only contains static methods.
+     */
+    private RandomStreams() {}
+
+    /**
+     * Method to create the root stream, seeded by the seed system
+     *  property if it is set.
+     * @return SplittableRandom object of root stream.
+     */
+    private static SplittableRandom newRoot() {
+        String seed = System.getProperty(SEED_PROPERTY);
+        if (seed == null)
+            return new SplittableRandom();
+        try {
+            return new SplittableRandom(Long.parseLong(seed.trim()));
+        } catch (NumberFormatException exception) {
+            throw new IllegalArgumentException("Invalid value '" + seed
+                    + "' for " + SEED_PROPERTY + ".");
+        }
+    }
+
+    /**
+     * Method to get and return the seed of the stream of an index. The
+     *  master seed is mixed before the index is added, so the streams
+     *  of neighbouring master seeds share no indexes.
+     * @param seed Long master seed.
+     * @param index Long index of table or shoe.
+     * @return Long seed of stream.
+     */
+    public static long seed(long seed, long index) {
+        return new SplittableRandom(new SplittableRandom(seed).nextLong()
+                + index).nextLong();
+    }
+
+    /**
+     * Method to create and return the stream of an index.
+     * @param seed Long master seed.
+     * @param index Long index of table or shoe.
+     * @return Random object of stream.
+     */
+    public static Random newRandom(long seed, long index) {
+        return new Random(seed(seed, index));
+    }
+
+    /**
+     * Method to create and return a stream for a game not given a
+     *  seed, split from the root stream. Games are only reproducible
+     *  if the seed system property is set, such as with
+     *  -Dblackjack.seed=42, and are created in the same order.
+     * @return Random object of stream.
+     */
+    public static Random newRandom() {
+        long seed;
+        synchronized (ROOT) {
+            seed = ROOT.split().nextLong();
+        }
+        return new Random(seed);
+    }
+}
\ No newline at end of file
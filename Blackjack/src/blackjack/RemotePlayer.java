@@ -0,0 +1,194 @@
+package blackjack;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Class: RemotePlayer.java
+ * Description: Human player connected to a TableServer over the
+ *  network instead of reading from the console. Every decision the
+ *  dealer requests is sent to the player as a line, and is completed
+ *  by the reply line the servers selector thread receives. If the
+ *  player disconnects, every decision is left to the dealers default
+ *  until they are removed from the table at the end of the round.
+ * Author: Paulo Jorge.
+ */
+public class RemotePlayer extends BasicPlayer implements AsyncPlayer {
+    // Connection used to send lines to player
+    private final transient TableServer.Connection connection;
+    // Reply waited for, or null if no decision has been requested
+    private transient volatile CompletableFuture<String> pending;
+    // Bet placed if player has disconnected
+    private final int minimumBet;
+
+    /**
+     * Constructor method used to initialise a new remote player.
+     * @param connection Connection object of player.
+     * @param minimumBet Integer minimum bet of table.
+     */
+    RemotePlayer(TableServer.Connection connection, int minimumBet) {
+        // Initialise new hand
+        newHand();
+
+        this.connection = connection;
+        this.minimumBet = minimumBet;
+        // Player type
+        this.playerType = "Remote";
+    }
+
+    /**
+     * Method used to place a bet, waiting for the reply of the player.
+     * @return Integer bet placed, or 0 if reply was not a number.
+     */
+    @Override
+    public int makeBet() {
+        Integer bet = requestBet().join();
+        return (bet == null ? this.minimumBet : bet);
+    }
+
+    /**
+     * Method used to determine whether the player wants to take a card
+     *  or not, waiting for the reply of the player.
+     * @return Boolean true if a card is required, false otherwise.
+     */
+    @Override
+    public boolean hit() {
+        return Boolean.TRUE.equals(requestHit().join());
+    }
+
+    /**
+     * Method used to request a bet. The player is sent their balance
+     *  and replies with the bet to place.
+     * @return CompletableFuture object completed with the bet placed, 
+     *  0 if the reply was not a number or null if the player has 
+     *  disconnected.
+     */
+    @Override
+    public CompletableFuture<Integer> requestBet() {
+        return request("BET " + this.balance).thenApply(
+                new Function<String, Integer>() {
+            @Override
+            public Integer apply(String reply) {
+                if (reply == null)
+                    return null;
+                try {
+                    return (RemotePlayer.this.betPlaced 
+                            = Integer.parseInt(reply));
+                } catch (NumberFormatException exception) {
+                    // Rejected by the dealer as under the minimum
+                    return 0;
+                }
+            }
+        });
+    }
+
+    /**
+     * Method used to tell the player their bet was not a number or was
+     *  outside the bet limits.
+     * @param minimum Integer minimum bet.
+     * @param maximum Integer maximum bet.
+     */
+    @Override
+    public void rejectBet(int minimum, int maximum) {
+        this.connection.send("ERROR Bet must be a number from " + minimum
+                + " to " + maximum + ".");
+    }
+
+    /**
+     * Method used to request whether the player wants to take a card
+     *  or not. The player is sent their hand total and replies HIT to
+     *  take a card, anything else sticks.
+     * @return CompletableFuture object completed with true if a card 
+     *  is required, false otherwise, or null if the player has 
+     *  disconnected.
+     */
+    @Override
+    public CompletableFuture<Boolean> requestHit() {
+        return request("HIT " + getHandTotal()).thenApply(
+                new Function<String, Boolean>() {
+            @Override
+            public Boolean apply(String reply) {
+                return (reply == null ? null 
+                        : reply.equalsIgnoreCase("HIT"));
+            }
+        });
+    }
+
+    /**
+     * Method to add a card to players hand and send it to the player.
+     * @param card Card object to take.
+     */
+    @Override
+    public void takeCard(Card card) {
+        super.takeCard(card);
+        this.connection.send("CARD " + card.getCode());
+    }
+
+    /**
+     * Method to show the player the dealers first card.
+     * @param card Card object dealer has drawn.
+     */
+    @Override
+    public void viewDealerCard(Card card) {
+        this.connection.send("DEALER " + card.getCode());
+    }
+
+    /**
+     * Method to settle the players bet and send the player the amount
+     *  settled and their new balance.
+     * @param bet Integer amount to add to balance, negative if lost.
+     * @return Boolean true if balance is not negative.
+     */
+    @Override
+    public boolean settleBet(int bet) {
+        boolean settled = super.settleBet(bet);
+        this.connection.send("SETTLED " + bet + " " + this.balance);
+        return settled;
+    }
+
+    /**
+     * Method to send a request to the player and wait for the reply.
+     * @param line String request line to send.
+     * @return CompletableFuture object completed with the reply, or 
+     *  null if the player has disconnected.
+     */
+    private CompletableFuture<String> request(String line) {
+        CompletableFuture<String> reply = new CompletableFuture();
+        this.pending = reply;
+        this.connection.send(line);
+        // Check player did not disconnect before request was made
+        if (this.connection.isClosed())
+            reply.complete(null);
+        return reply;
+    }
+
+    /**
+     * Method to complete the decision requested with a reply line
+     *  received from the player. A reply to a decision the dealer 
+     *  stopped waiting for is ignored.
+     * @param line String line received.
+     */
+    void reply(String line) {
+        CompletableFuture<String> reply = this.pending;
+        if ((reply == null) || !reply.complete(line.trim()))
+            this.connection.send("ERROR No decision requested.");
+    }
+
+    /**
+     * Method to complete the decision requested, if any, when the 
+     *  player disconnects.
+     */
+    void disconnected() {
+        CompletableFuture<String> reply = this.pending;
+        if (reply != null)
+            reply.complete(null);
+    }
+
+    /**
+     * Method to get and return the connection of this player.
+     * @return Connection object of player.
+     */
+    TableServer.Connection getConnection() {
+        return this.connection;
+    }
+}
\ No newline at end of file
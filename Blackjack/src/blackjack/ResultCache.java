@@ -0,0 +1,234 @@
+package blackjack;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Class: ResultCache.java
+ * Description: Directory of simulation results, each stored as a
+ *  PartialResult file named by the SHA-256 hash of every setting that
+ *  changes the result and the version of the code that played it. A
+ *  simulation run again with the same settings, or a partition shared
+ *  by two runs, is read back instead of played. Settings that do not
+ *  change the result, such as threads or kernel, are left out of the
+ *  key. Once the files grow larger than the size of the cache, the
+ *  least recently used are deleted. Files are written whole and moved
+ *  into place, so processes may share a cache.
+ * Author: Paulo Jorge.
+ */
+public final class ResultCache {
+    // Extension of each cached result
+    private static final String EXTENSION = ".bin";
+    // Code version if the code could not be read
+    private static final String UNKNOWN = "unknown";
+    // Hash of the code results are played with, worked out once
+    private static String codeVersion;
+
+    // Directory results are stored in
+    private final File directory;
+    // Largest total size of every result in bytes
+    private final long maxBytes;
+
+    /**
+     * Constructor method used to initialise a new cache.
+     * @param directory File object of directory, created if missing.
+     * @param maxBytes Long largest total size of results in bytes.
+     * @throws IllegalArgumentException If size is less than 1.
+     */
+    public ResultCache(File directory, long maxBytes) {
+        if (maxBytes < 1)
+            throw new IllegalArgumentException("Cache size must be at "
+                    + "least 1 byte.");
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Method to get and return the key of the result of a simulation,
+     *  the hash of its settings and the code version.
+     * @param config SimulationConfig object of simulation.
+     * @return String hex SHA-256 key.
+     */
+    public static String key(SimulationConfig config) {
+        String settings = PartialResult.describe(config.getFirstTable(),
+                config.getTables(), config) + " precision="
+                + config.getPrecision() + " format="
+                + PartialResult.VERSION + " code=" + getCodeVersion();
+        return toHex(newDigest().digest(settings.getBytes(
+                StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Method to read and return the cached result of a simulation.
+     *  A result read is marked as used, and a corrupt result is
+     *  deleted.
+     * @param config SimulationConfig object of simulation.
+     * @return PartialResult object, or null if not cached.
+     */
+    public PartialResult get(SimulationConfig config) {
+        File file = new File(this.directory, key(config) + EXTENSION);
+        if (!file.isFile())
+            return null;
+        try {
+            PartialResult result = PartialResult.read(file);
+            if (!result.matches(config.getFirstTable(),
+                    config.getTables(), config))
+                return null;
+            file.setLastModified(System.currentTimeMillis());
+            return result;
+        } catch (IOException exception) {
+            file.delete();
+            return null;
+        }
+    }
+
+    /**
+     * Method to store the result of a simulation, then delete the
+     *  least recently used results until the cache fits its size.
+     * @param config SimulationConfig object of simulation.
+     * @param result PartialResult object to store.
+     * @throws IOException If result could not be written.
+     */
+    public void put(SimulationConfig config, PartialResult result)
+            throws IOException {
+        if (!this.directory.isDirectory() && !this.directory.mkdirs())
+            throw new IOException("Could not create cache directory "
+                    + this.directory + ".");
+        File file = new File(this.directory, key(config) + EXTENSION);
+        PartialResult.write(file, result);
+        evict(file);
+    }
+
+    /**
+     * Method to delete the least recently used results until the total
+     *  size of every result fits the cache. The result just stored is
+     *  kept even if it is larger than the cache on its own.
+     * @param kept File object of result to keep.
+     */
+    private void evict(File kept) {
+        File[] files = this.directory.listFiles();
+        if (files == null)
+            return;
+        List<File> results = new ArrayList();
+        long size = 0;
+        for (File file : files)
+            if (file.getName().endsWith(EXTENSION) && file.isFile()) {
+                results.add(file);
+                size += file.length();
+            }
+        // Oldest used first
+        results.sort(new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                return Long.compare(a.lastModified(), b.lastModified());
+            }
+        });
+        for (int i = 0; (i < results.size()) && (size > this.maxBytes);
+                i++) {
+            File file = results.get(i);
+            if (file.equals(kept))
+                continue;
+            long length = file.length();
+            // Another process may have deleted it already
+            if (file.delete() || !file.exists())
+                size -= length;
+        }
+    }
+
+    /**
+     * Method to check if the version of the code results are played 
+     *  with is known. Results must not be cached if it is not, as they
+     *  would be read back by any later build.
+     * @return Boolean true if known, false otherwise.
+     */
+    public static boolean isCodeVersionKnown() {
+        return !getCodeVersion().equals(UNKNOWN);
+    }
+
+    /**
+     * Method to get and return the version of the code results are
+     *  played with, the hash of every class file it was loaded from, so
+     *  any rebuilt code plays its results again.
+     * @return String hex SHA-256 of code, or "unknown" if the code
+     *  could not be read.
+     */
+    static synchronized String getCodeVersion() {
+        if (codeVersion == null) {
+            codeVersion = UNKNOWN;
+            CodeSource source = ResultCache.class.getProtectionDomain()
+                    .getCodeSource();
+            try {
+                if (source != null) {
+                    MessageDigest digest = newDigest();
+                    hashClasses(new File(source.getLocation().toURI()),
+                            digest);
+                    codeVersion = toHex(digest.digest());
+                }
+            } catch (IOException | URISyntaxException
+                    | IllegalArgumentException exception) {
+                // Left unknown
+            }
+        }
+        return codeVersion;
+    }
+
+    /**
+     * Method to add a jar file, or every class file under a directory
+     *  in name order, to a hash.
+     * @param file File object of jar or directory.
+     * @param digest MessageDigest object to update.
+     * @throws IOException If a file could not be read.
+     */
+    private static void hashClasses(File file, MessageDigest digest)
+            throws IOException {
+        if (file.isDirectory()) {
+            File[] files = file.listFiles();
+            if (files == null)
+                return;
+            Arrays.sort(files);
+            for (File child : files)
+                if (child.isDirectory()
+                        || child.getName().endsWith(".class")) {
+                    digest.update(child.getName().getBytes(
+                            StandardCharsets.UTF_8));
+                    hashClasses(child, digest);
+                }
+        } else
+            digest.update(Files.readAllBytes(file.toPath()));
+    }
+
+    /**
+     * Method to create and return a SHA-256 digest.
+     * @return MessageDigest object.
+     */
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exception) {
+            // Every Java platform supports SHA-256
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    /**
+     * Method to format bytes as lower case hex.
+     * @param bytes Byte array to format.
+     * @return String hex of bytes.
+     */
+    private static String toHex(byte[] bytes) {
+        StringBuilder str = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes)
+            str.append(String.format("%02x", b & 0xFF));
+        return str.toString();
+    }
+}
\ No newline at end of file
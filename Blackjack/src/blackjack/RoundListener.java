@@ -0,0 +1,31 @@
+package blackjack;
+
+/**
+ * Class: RoundListener.java
+ * Description: Interface class for an object told the outcome of 
+ *  every round a dealer settles, such as a simulation recording 
+ *  statistics. Hands passed to a listener are reused by later 
+ *  rounds, so must be copied if kept after the method returns.
+ * Author: Paulo Jorge.
+ */
+public interface RoundListener {
+    /**
+     * Method called once for each player as their bet is settled.
+     * @param dealer Dealer object settling the bet.
+     * @param seat Integer seat position of player starting at 1.
+     * @param player Player object whose bet was settled.
+     * @param hand Hand object the player finished the round with.
+     * @param bet Integer value of the bet placed.
+     * @param settled Integer value settled, positive if the player 
+     *  won or retained their bet and negative if they lost.
+     */
+    void seatSettled(BlackjackDealer dealer, int seat, Player player,
+            Hand hand, int bet, int settled);
+    
+    /**
+     * Method called once every bet of the round has been settled.
+     * @param dealer Dealer object that settled the round.
+     * @param hand Hand object the dealer finished the round with.
+     */
+    void roundSettled(BlackjackDealer dealer, Hand hand);
+}
\ No newline at end of file
@@ -0,0 +1,216 @@
+package blackjack;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiPredicate;
+
+/**
+ * Class: RoundPublisher.java
+ * Description: Publisher of the result of every round settled by the
+ *  tables it listens to. Add it as a RoundListener to the dealer of
+ *  each table, or to a Simulation, and subscribe to it. Each
+ *  subscriber has a bounded buffer and requests results as it is
+ *  ready for them. When the buffer of a slow subscriber is full, the
+ *  dealer waits up to a max wait for space, throttling the table,
+ *  and then drops the result for that subscriber. A max wait of 0
+ *  drops without waiting, so the dealer never blocks. Results are only
+ *  built for rounds that start while there is a subscriber.
+ * Author: Paulo Jorge.
+ */
+public class RoundPublisher implements Flow.Publisher<RoundResult>,
+        RoundListener, AutoCloseable {
+    // Publisher buffering results for each subscriber
+    private final SubmissionPublisher<RoundResult> publisher;
+    // Nanoseconds a dealer waits for space in a full buffer
+    private final long maxWait;
+    // Results dropped for a slow subscriber
+    private final LongAdder dropped = new LongAdder();
+    // Seats settled so far this round, by the thread playing each table
+    private final ThreadLocal<Seats> seats = new ThreadLocal<Seats>() {
+        @Override
+        protected Seats initialValue() {
+            return new Seats();
+        }
+    };
+    // Counts a dropped result, without retrying
+    private final BiPredicate<Flow.Subscriber<? super RoundResult>,
+            RoundResult> onDrop = new BiPredicate<Flow.Subscriber<?
+            super RoundResult>, RoundResult>() {
+        @Override
+        public boolean test(Flow.Subscriber<? super RoundResult>
+                subscriber, RoundResult result) {
+            RoundPublisher.this.dropped.increment();
+            return false;
+        }
+    };
+
+    /**
+     * Constructor method used to initialise a new publisher delivering
+     *  to subscribers on the common pool, which drops results for a
+     *  slow subscriber without waiting.
+     */
+    public RoundPublisher() {
+        this(ForkJoinPool.commonPool(), Flow.defaultBufferSize(), 0,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Constructor method used to initialise a new publisher.
+     * @param executor Executor object results are delivered to
+     *  subscribers on.
+     * @param bufferSize Integer max results buffered for each
+     *  subscriber, rounded up to a power of 2.
+     * @param maxWait Long time a dealer waits for space in a full
+     *  buffer before dropping the result, or 0 to drop without
+     *  waiting.
+     * @param unit TimeUnit object of max wait.
+     */
+    public RoundPublisher(Executor executor, int bufferSize,
+            long maxWait, TimeUnit unit) {
+        if (maxWait < 0)
+            throw new IllegalArgumentException("Max wait must not be "
+                    + "negative.");
+        this.publisher = new SubmissionPublisher(executor, bufferSize);
+        this.maxWait = unit.toNanos(maxWait);
+    }
+
+    /**
+     * Method to add a subscriber, which is sent results settled after
+     *  it has subscribed and requested them.
+     * @param subscriber Subscriber object to add.
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super RoundResult>
+            subscriber) {
+        this.publisher.subscribe(subscriber);
+    }
+
+    /**
+     * Method to record the bet of a seat settled this round.
+     * @param dealer Dealer object settling the bet.
+     * @param seat Integer seat position of player starting at 1.
+     * @param player Player object whose bet was settled.
+     * @param hand Hand object the player finished the round with.
+     * @param bet Integer value of the bet placed.
+     * @param settled Integer value settled.
+     */
+    @Override
+    public void seatSettled(BlackjackDealer dealer, int seat,
+            Player player, Hand hand, int bet, int settled) {
+        if (!this.publisher.hasSubscribers())
+            return;
+        
+        // Only record whole rounds, from the first seat
+        Seats round = this.seats.get();
+        if (round.count == (seat - 1))
+            round.add(player.getPlayerType(), bet, settled,
+                    player.getBalance());
+    }
+
+    /**
+     * Method to publish the result of a round once every seat has
+     *  been settled.
+     * @param dealer Dealer object that settled the round.
+     * @param hand Hand object the dealer finished the round with.
+     */
+    @Override
+    public void roundSettled(BlackjackDealer dealer, Hand hand) {
+        Seats round = this.seats.get();
+        if ((round.count == 0) || this.publisher.isClosed()) {
+            round.clear();
+            return;
+        }
+
+        RoundResult result = round.toResult(dealer.getTableId(),
+                dealer.getRound(), dealer.scoreHand(hand),
+                hand.isBlackjack());
+        round.clear();
+        if (this.maxWait > 0)
+            this.publisher.offer(result, this.maxWait,
+                    TimeUnit.NANOSECONDS, this.onDrop);
+        else
+            this.publisher.offer(result, this.onDrop);
+    }
+
+    /**
+     * Method to get and return the number of results dropped for slow
+     *  subscribers, counting a result once for each subscriber.
+     * @return Long number of results dropped.
+     */
+    public long getDropped() {
+        return this.dropped.sum();
+    }
+
+    /**
+     * Method to stop publishing, completing every subscriber once it
+     *  has received the results buffered.
+     */
+    @Override
+    public void close() {
+        this.publisher.close();
+    }
+
+    /**
+     * Seats settled so far in the round a thread is settling.
+     */
+    private static final class Seats {
+        private String[] playerTypes = new String[8];
+        private int[] bets = new int[8];
+        private int[] settled = new int[8];
+        private int[] balances = new int[8];
+        private int count;
+
+        /**
+         * Method to add a seat settled, growing the arrays if full.
+         * @param playerType String type of player.
+         * @param bet Integer bet placed.
+         * @param settled Integer amount settled.
+         * @param balance Integer new balance.
+         */
+        private void add(String playerType, int bet, int settled,
+                int balance) {
+            if (this.count == this.bets.length) {
+                int size = this.count * 2;
+                this.playerTypes = Arrays.copyOf(this.playerTypes, size);
+                this.bets = Arrays.copyOf(this.bets, size);
+                this.settled = Arrays.copyOf(this.settled, size);
+                this.balances = Arrays.copyOf(this.balances, size);
+            }
+            this.playerTypes[this.count] = playerType;
+            this.bets[this.count] = bet;
+            this.settled[this.count] = settled;
+            this.balances[this.count] = balance;
+            this.count++;
+        }
+
+        /**
+         * Method to create and return the result of the seats settled.
+         * @param tableId Integer ID of table.
+         * @param round Integer round number.
+         * @param dealerTotal Integer dealers final total.
+         * @param dealerBlackjack Boolean true if dealer had blackjack.
+         * @return RoundResult object with a copy of the seats.
+         */
+        private RoundResult toResult(int tableId, int round,
+                int dealerTotal, boolean dealerBlackjack) {
+            return new RoundResult(tableId, round, dealerTotal,
+                    dealerBlackjack,
+                    Arrays.copyOf(this.playerTypes, this.count),
+                    Arrays.copyOf(this.bets, this.count),
+                    Arrays.copyOf(this.settled, this.count),
+                    Arrays.copyOf(this.balances, this.count));
+        }
+
+        /**
+         * Method to clear the seats ready for the next round.
+         */
+        private void clear() {
+            this.count = 0;
+        }
+    }
+}
\ No newline at end of file
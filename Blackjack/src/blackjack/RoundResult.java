@@ -0,0 +1,145 @@
+package blackjack;
+
+import java.util.Arrays;
+
+/**
+ * Class: RoundResult.java
+ * Description: Immutable result of a single round settled by a table,
+ *  holding the bet, amount settled and new balance of every seat and
+ *  the dealers final total. Published by a RoundPublisher.
+ * Author: Paulo Jorge.
+ */
+public final class RoundResult {
+    /**
+     * Outcome of a single seat.
+     */
+    public enum Outcome { WON, PUSHED, LOST }
+
+    // Table and round the result was settled by
+    private final int tableId;
+    private final int round;
+    // Dealers final total, and if it was a blackjack
+    private final int dealerTotal;
+    private final boolean dealerBlackjack;
+    // Seat values, indexed by seat starting at 0
+    private final String[] playerTypes;
+    private final int[] bets;
+    private final int[] settled;
+    private final int[] balances;
+
+    /**
+     * Constructor method used to initialise a new result. Arrays are
+     *  not copied, so must not be changed afterwards.
+     * @param tableId Integer ID of table.
+     * @param round Integer round number.
+     * @param dealerTotal Integer dealers final total.
+     * @param dealerBlackjack Boolean true if the dealer had blackjack.
+     * @param playerTypes String array of the player type of each seat.
+     * @param bets Integer array of the bet of each seat.
+     * @param settled Integer array of the amount settled for each
+     *  seat, negative if lost.
+     * @param balances Integer array of the new balance of each seat.
+     */
+    RoundResult(int tableId, int round, int dealerTotal,
+            boolean dealerBlackjack, String[] playerTypes, int[] bets,
+            int[] settled, int[] balances) {
+        this.tableId = tableId;
+        this.round = round;
+        this.dealerTotal = dealerTotal;
+        this.dealerBlackjack = dealerBlackjack;
+        this.playerTypes = playerTypes;
+        this.bets = bets;
+        this.settled = settled;
+        this.balances = balances;
+    }
+
+    /**
+     * Method to get and return the ID of the table.
+     * @return Integer ID of table.
+     */
+    public int getTableId() {
+        return this.tableId;
+    }
+
+    /**
+     * Method to get and return the round number.
+     * @return Integer round number.
+     */
+    public int getRound() {
+        return this.round;
+    }
+
+    /**
+     * Method to get and return the dealers final total.
+     * @return Integer dealers final total.
+     */
+    public int getDealerTotal() {
+        return this.dealerTotal;
+    }
+
+    /**
+     * Method to check if the dealer had blackjack.
+     * @return Boolean true if the dealer had blackjack.
+     */
+    public boolean isDealerBlackjack() {
+        return this.dealerBlackjack;
+    }
+
+    /**
+     * Method to get and return the number of seats settled.
+     * @return Integer number of seats settled.
+     */
+    public int getSeatCount() {
+        return this.bets.length;
+    }
+
+    /**
+     * @param seat Integer seat starting at 0.
+     * @return String player type of seat.
+     */
+    public String getPlayerType(int seat) { return this.playerTypes[seat]; }
+
+    /**
+     * @param seat Integer seat starting at 0.
+     * @return Integer bet placed by seat.
+     */
+    public int getBet(int seat) { return this.bets[seat]; }
+
+    /**
+     * @param seat Integer seat starting at 0.
+     * @return Integer amount settled for seat, negative if lost.
+     */
+    public int getSettled(int seat) { return this.settled[seat]; }
+
+    /**
+     * @param seat Integer seat starting at 0.
+     * @return Integer balance of seat after settling.
+     */
+    public int getBalance(int seat) { return this.balances[seat]; }
+
+    /**
+     * Method to get and return the outcome of a seat.
+     * @param seat Integer seat starting at 0.
+     * @return Outcome of seat.
+     */
+    public Outcome getOutcome(int seat) {
+        if (this.settled[seat] < 0)
+            return Outcome.LOST;
+        return (this.settled[seat] == this.bets[seat] ? Outcome.PUSHED
+                : Outcome.WON);
+    }
+
+    /**
+     * Method to get and return result string.
+     * @return String containing result information.
+     */
+    @Override
+    public String toString() {
+        return "RoundResult[table=" + this.tableId + ", round="
+                + this.round + ", dealerTotal=" + this.dealerTotal
+                + ", playerTypes=" + Arrays.toString(this.playerTypes)
+                + ", bets=" + Arrays.toString(this.bets) + ", settled="
+                + Arrays.toString(this.settled) + ", balances="
+                + Arrays.toString(this.balances) + "]";
+    }
+}
\ No newline at end of file
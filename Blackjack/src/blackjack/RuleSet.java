@@ -0,0 +1,491 @@
+package blackjack;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+
+/**
+ * Class: RuleSet.java
+ * Description: Immutable house rules of a table. Covers whether the
+ *  dealer hits soft 17, the payouts, the number of decks, how far
+ *  through the shoe to deal before reshuffling, and the bet limits.
+ *  When a rule set is created its rules are compiled into flat
+ *  tables. The dealer's action is looked up by hand total and soft
+ *  flag, and the amount settled by the state of the player and
+ *  dealer hands. The round loop then indexes these tables instead of
+ *  checking each rule.
+ * Author: Paulo Jorge.
+ */
+public final class RuleSet implements Serializable {
+    // Version control
+    private static final long serialVersionUID = 100;
+    
+    // Hand states used to index the settle table. A score from 0 to
+    // 21 is its own state.
+    public static final int BUST = 22;
+    public static final int BLACKJACK = 23;
+    private static final int STATES = 24;
+    // Highest total indexed by the dealer action table, above the
+    // highest total a hand can reach before standing
+    private static final int MAX_TOTAL = 32;
+    // Deck count limits
+    private static final int MAX_DECKS = 8;
+
+    // Dealer hits soft 17 (H17) or stands on all 17s (S17)
+    private final boolean dealerHitsSoft17;
+    // Payouts as a fraction of the bet added to the players balance
+    private final int blackjackNumerator;
+    private final int blackjackDenominator;
+    private final int winNumerator;
+    private final int winDenominator;
+    private final int retainNumerator;
+    private final int retainDenominator;
+    // Number of decks in shoe
+    private final int decks;
+    // Fraction of shoe dealt before reshuffling
+    private final double penetration;
+    // Bet size limits
+    private final int minimumBet;
+    private final int maximumBet;
+
+    // Compiled dealer action, indexed by total * 2 + soft
+    private final boolean[] dealerHits;
+    // Compiled settle numerators, indexed by player state * STATES
+    // + dealer state, and their common denominator
+    private final int[] settle;
+    private final int settleDenominator;
+    // Cards left in the shoe when it is reshuffled
+    private final int reshuffleSize;
+
+    /**
+     * Constructor method used to initialise a new rule set. Payouts
+     *  follow the rules used by BlackjackDealer.settleBets():
+     *   - Player bust, or beaten by dealer - Player loses bet.
+     *   - Player blackjack and dealer has no blackjack - Player wins
+     *      the blackjack payout.
+     *   - Dealer bust - Player wins the win payout.
+     *   - Player score greater than or equal to dealer score - Player
+     *      wins the retain payout.
+     *  Payouts are the multiple of the bet credited to the player, 
+     *  not odds to 1 as side bets pay. A win normally credits 2 and a
+     *  retained bet 1, so a blackjack paying even money is 2 and one 
+     *  paying 3 to 2 is 5/2.
+     * @param dealerHitsSoft17 Boolean true if dealer hits soft 17,
+     *  false if dealer stands on all 17s.
+     * @param blackjackPayout Integer array of blackjack payout
+     *  numerator and denominator.
+     * @param winPayout Integer array of win payout numerator and
+     *  denominator.
+     * @param retainPayout Integer array of retain payout numerator
+     *  and denominator.
+     * @param decks Integer number of decks, from 1 to 8.
+     * @param penetration Double fraction of shoe dealt before
+     *  reshuffling, above 0 and up to 1.
+     * @param minimumBet Integer minimum bet size, at least 1.
+     * @param maximumBet Integer maximum bet size, at least minimum.
+     * @throws IllegalArgumentException If a rule is out of range.
+     */
+    public RuleSet(boolean dealerHitsSoft17, int[] blackjackPayout,
+            int[] winPayout, int[] retainPayout, int decks,
+            double penetration, int minimumBet, int maximumBet) {
+        checkPayout("Blackjack", blackjackPayout);
+        checkPayout("Win", winPayout);
+        checkPayout("Retain", retainPayout);
+        if ((decks < 1) || (decks > MAX_DECKS))
+            throw new IllegalArgumentException("Decks must be between "
+                    + "1 and " + MAX_DECKS + ".");
+        if (!(penetration > 0) || (penetration > 1))
+            throw new IllegalArgumentException("Penetration must be "
+                    + "above 0 and up to 1.");
+        if ((minimumBet < 1) || (maximumBet < minimumBet))
+            throw new IllegalArgumentException("Bet limits must be at "
+                    + "least 1, with maximum at least minimum.");
+
+        this.dealerHitsSoft17 = dealerHitsSoft17;
+        this.blackjackNumerator = blackjackPayout[0];
+        this.blackjackDenominator = blackjackPayout[1];
+        this.winNumerator = winPayout[0];
+        this.winDenominator = winPayout[1];
+        this.retainNumerator = retainPayout[0];
+        this.retainDenominator = retainPayout[1];
+        this.decks = decks;
+        this.penetration = penetration;
+        this.minimumBet = minimumBet;
+        this.maximumBet = maximumBet;
+
+        // Compile rules into tables
+        this.reshuffleSize = (int) Math.round(
+                (Card.CODES * decks) * (1 - penetration));
+        this.dealerHits = compileDealerHits(dealerHitsSoft17);
+        this.settleDenominator = lcm(lcm(this.blackjackDenominator,
+                this.winDenominator), this.retainDenominator);
+        this.settle = compileSettle();
+    }
+
+    /**
+     * Method to get the standard rules of this game. One deck, dealer
+     *  stands on all 17s, blackjack and a dealer bust pay twice the
+     *  bet, a retained bet pays the bet, the deck is reshuffled when
+     *  less than 1/4 is left and bets are from 1 to 500.
+     * @return RuleSet object of standard rules.
+     */
+    public static RuleSet standard() {
+        return new RuleSet(false, new int[] {2, 1}, new int[] {2, 1},
+                new int[] {1, 1}, 1, 0.75, 1, 500);
+    }
+
+    /**
+     * Method to check a payout fraction.
+     * @param name String name of payout.
+     * @param payout Integer array of numerator and denominator.
+     */
+    private static void checkPayout(String name, int[] payout) {
+        if ((payout == null) || (payout.length != 2)
+                || (payout[0] < 0) || (payout[1] < 1))
+            throw new IllegalArgumentException(name + " payout must be"
+                    + " a numerator of at least 0 and denominator of "
+                    + "at least 1.");
+    }
+
+    /**
+     * Method to parse a payout fraction, such as 3/2 or 2.
+     * @param payout String payout to parse.
+     * @return Integer array of numerator and denominator.
+     * @throws IllegalArgumentException If payout is not a fraction.
+     */
+    public static int[] parsePayout(String payout) {
+        String[] parts = payout.trim().split("/");
+        try {
+            int[] parsed = new int[] {Integer.parseInt(parts[0].trim()),
+                    (parts.length > 1 ? Integer.parseInt(parts[1].trim())
+                            : 1)};
+            if (parts.length <= 2) {
+                checkPayout("The", parsed);
+                return parsed;
+            }
+        } catch (NumberFormatException exception) {}
+        throw new IllegalArgumentException("Invalid payout '" + payout
+                + "'.");
+    }
+
+    /**
+     * Method to compile the dealer action table. The dealer hits below
+     *  17, and on soft 17 if they hit soft 17.
+     * @param hitsSoft17 Boolean true if dealer hits soft 17.
+     * @return Boolean array of dealer action indexed by total * 2
+     *  + soft.
+     */
+    private static boolean[] compileDealerHits(boolean hitsSoft17) {
+        boolean[] hits = new boolean[MAX_TOTAL * 2];
+        for (int total = 0; total < MAX_TOTAL; total++) {
+            hits[total * 2] = (total < 17);
+            hits[(total * 2) + 1] = ((total < 17)
+                    || ((total == 17) && hitsSoft17));
+        }
+        return hits;
+    }
+
+    /**
+     * Method to compile the settle table, in the order of the rules
+     *  used by BlackjackDealer.settleBets().
+     * @return Integer array of settle numerators indexed by player
+     *  state * STATES + dealer state.
+     */
+    private int[] compileSettle() {
+        int lose = -this.settleDenominator;
+        int blackjack = this.blackjackNumerator
+                * (this.settleDenominator / this.blackjackDenominator);
+        int win = this.winNumerator
+                * (this.settleDenominator / this.winDenominator);
+        int retain = this.retainNumerator
+                * (this.settleDenominator / this.retainDenominator);
+
+        int[] table = new int[STATES * STATES];
+        for (int player = 0; player < STATES; player++) {
+            for (int dealer = 0; dealer < STATES; dealer++) {
+                int amount;
+                if (player == BUST)
+                    amount = lose;
+                else if ((player == BLACKJACK) && (dealer != BLACKJACK))
+                    amount = blackjack;
+                else if (dealer == BUST)
+                    amount = win;
+                else if ((dealer == BLACKJACK) && (player != BLACKJACK))
+                    amount = lose;
+                else if (score(player) < score(dealer))
+                    amount = lose;
+                else
+                    amount = retain;
+                table[(player * STATES) + dealer] = amount;
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Method to get the score of a non bust hand state.
+     * @param state Integer hand state.
+     * @return Integer score.
+     */
+    private static int score(int state) {
+        return (state == BLACKJACK ? 21 : state);
+    }
+
+    /**
+     * Method to get the lowest common multiple of 2 values.
+     * @param a Integer value at least 1.
+     * @param b Integer value at least 1.
+     * @return Integer lowest common multiple.
+     */
+    private static int lcm(int a, int b) {
+        int x = a;
+        int y = b;
+        while (y != 0) {
+            int temp = x % y;
+            x = y;
+            y = temp;
+        }
+        return (a / x) * b;
+    }
+
+    /**
+     * Method to get the state of a hand used to settle bets.
+     * @param score Integer score of hand.
+     * @param blackjack Boolean true if hand is a blackjack.
+     * @return Integer hand state, the score if not bust or blackjack.
+     */
+    public static int state(int score, boolean blackjack) {
+        return (blackjack ? BLACKJACK : (score > 21 ? BUST : score));
+    }
+
+    /**
+     * Method to determine if the dealer hits a hand.
+     * @param total Integer highest total of hand below or equal to 21,
+     *  or the lowest total if bust.
+     * @param soft Boolean true if an ace is counted as 11 in total.
+     * @return Boolean true if dealer hits, false otherwise.
+     */
+    public boolean dealerHits(int total, boolean soft) {
+        return ((total < MAX_TOTAL)
+                && this.dealerHits[(total * 2) + (soft ? 1 : 0)]);
+    }
+
+    /**
+     * Method to get the amount settled for a bet. A fractional payout
+     *  of an odd bet is rounded down to a whole credit, as the house 
+     *  keeps the change, so 5/2 of a bet of 5 credits 12.
+     * @param bet Integer value of bet placed.
+     * @param player Integer state of players hand.
+     * @param dealer Integer state of dealers hand.
+     * @return Integer amount settled, negative if the bet was lost.
+     */
+    public int settle(int bet, int player, int dealer) {
+        return Math.floorDiv(bet * this.settle[(player * STATES) 
+                + dealer], this.settleDenominator);
+    }
+
+    /**
+     * Method to write this rule set to a buffer.
+     * @param buffer ByteBuffer object to write to.
+     */
+    void encode(ByteBuffer buffer) {
+        buffer.put((byte) (this.dealerHitsSoft17 ? 1 : 0));
+        buffer.putInt(this.blackjackNumerator);
+        buffer.putInt(this.blackjackDenominator);
+        buffer.putInt(this.winNumerator);
+        buffer.putInt(this.winDenominator);
+        buffer.putInt(this.retainNumerator);
+        buffer.putInt(this.retainDenominator);
+        buffer.put((byte) this.decks);
+        buffer.putDouble(this.penetration);
+        buffer.putInt(this.minimumBet);
+        buffer.putInt(this.maximumBet);
+    }
+
+    /**
+     * Method to read and return a rule set written to a buffer by
+     *  encode().
+     * @param buffer ByteBuffer object to read from.
+     * @return RuleSet object read.
+     */
+    static RuleSet decode(ByteBuffer buffer) {
+        boolean dealerHitsSoft17 = (buffer.get() != 0);
+        int[] blackjack = new int[] {buffer.getInt(), buffer.getInt()};
+        int[] win = new int[] {buffer.getInt(), buffer.getInt()};
+        int[] retain = new int[] {buffer.getInt(), buffer.getInt()};
+        int decks = buffer.get();
+        double penetration = buffer.getDouble();
+        int minimumBet = buffer.getInt();
+        int maximumBet = buffer.getInt();
+        return new RuleSet(dealerHitsSoft17, blackjack, win, retain,
+                decks, penetration, minimumBet, maximumBet);
+    }
+
+    /**
+     * Method to get a copy of these rules with a different soft 17
+     *  rule.
+     * @param hitsSoft17 Boolean true if dealer hits soft 17.
+     * @return RuleSet object of new rules.
+     */
+    public RuleSet withDealerHitsSoft17(boolean hitsSoft17) {
+        return new RuleSet(hitsSoft17, getBlackjackPayout(),
+                getWinPayout(), getRetainPayout(), this.decks,
+                this.penetration, this.minimumBet, this.maximumBet);
+    }
+
+    /**
+     * Method to get a copy of these rules with a different blackjack
+     *  payout.
+     * @param payout Integer array of numerator and denominator.
+     * @return RuleSet object of new rules.
+     */
+    public RuleSet withBlackjackPayout(int[] payout) {
+        return new RuleSet(this.dealerHitsSoft17, payout,
+                getWinPayout(), getRetainPayout(), this.decks,
+                this.penetration, this.minimumBet, this.maximumBet);
+    }
+
+    /**
+     * Method to get a copy of these rules with a different number of
+     *  decks.
+     * @param decks Integer number of decks.
+     * @return RuleSet object of new rules.
+     */
+    public RuleSet withDecks(int decks) {
+        return new RuleSet(this.dealerHitsSoft17, getBlackjackPayout(),
+                getWinPayout(), getRetainPayout(), decks,
+                this.penetration, this.minimumBet, this.maximumBet);
+    }
+
+    /**
+     * Method to get a copy of these rules with a different
+     *  penetration.
+     * @param penetration Double fraction of shoe dealt.
+     * @return RuleSet object of new rules.
+     */
+    public RuleSet withPenetration(double penetration) {
+        return new RuleSet(this.dealerHitsSoft17, getBlackjackPayout(),
+                getWinPayout(), getRetainPayout(), this.decks,
+                penetration, this.minimumBet, this.maximumBet);
+    }
+
+    /**
+     * Method to get a copy of these rules with different bet limits.
+     * @param minimumBet Integer minimum bet size.
+     * @param maximumBet Integer maximum bet size.
+     * @return RuleSet object of new rules.
+     */
+    public RuleSet withBetLimits(int minimumBet, int maximumBet) {
+        return new RuleSet(this.dealerHitsSoft17, getBlackjackPayout(),
+                getWinPayout(), getRetainPayout(), this.decks,
+                this.penetration, minimumBet, maximumBet);
+    }
+
+    /**
+     * Method to check if the dealer hits soft 17.
+     * @return Boolean true if dealer hits soft 17, false otherwise.
+     */
+    public boolean dealerHitsSoft17() {
+        return this.dealerHitsSoft17;
+    }
+
+    /**
+     * Method to get the blackjack payout.
+     * @return Integer array of numerator and denominator.
+     */
+    public int[] getBlackjackPayout() {
+        return new int[] {this.blackjackNumerator,
+                this.blackjackDenominator};
+    }
+
+    /**
+     * Method to get the payout when the dealer is bust.
+     * @return Integer array of numerator and denominator.
+     */
+    public int[] getWinPayout() {
+        return new int[] {this.winNumerator, this.winDenominator};
+    }
+
+    /**
+     * Method to get the payout when the player scores at least the
+     *  dealers score.
+     * @return Integer array of numerator and denominator.
+     */
+    public int[] getRetainPayout() {
+        return new int[] {this.retainNumerator, this.retainDenominator};
+    }
+
+    /**
+     * Method to get the number of decks in the shoe.
+     * @return Integer number of decks.
+     */
+    public int getDecks() {
+        return this.decks;
+    }
+
+    /**
+     * Method to get the fraction of the shoe dealt before reshuffling.
+     * @return Double penetration.
+     */
+    public double getPenetration() {
+        return this.penetration;
+    }
+
+    /**
+     * Method to get the number of cards left in the shoe when it is
+     *  reshuffled.
+     * @return Integer number of cards.
+     */
+    public int getReshuffleSize() {
+        return this.reshuffleSize;
+    }
+
+    /**
+     * Method to get the minimum bet size.
+     * @return Integer minimum bet.
+     */
+    public int getMinimumBet() {
+        return this.minimumBet;
+    }
+
+    /**
+     * Method to get the maximum bet size.
+     * @return Integer maximum bet.
+     */
+    public int getMaximumBet() {
+        return this.maximumBet;
+    }
+
+    /**
+     * Method to get and return an exact description of these rules, 
+     *  every field written in full so two rule sets have the same 
+     *  description only if they are equal. Used to identify results, 
+     *  where toString() rounds penetration and leaves out payouts.
+     * @return String containing every rule.
+     */
+    String describe() {
+        return "soft17=" + (this.dealerHitsSoft17 ? "hit" : "stand")
+                + " decks=" + this.decks + " penetration=" 
+                + Double.toString(this.penetration) + " blackjack=" 
+                + this.blackjackNumerator + "/" 
+                + this.blackjackDenominator + " win=" 
+                + this.winNumerator + "/" + this.winDenominator 
+                + " retain=" + this.retainNumerator + "/" 
+                + this.retainDenominator + " bets=" + this.minimumBet 
+                + "-" + this.maximumBet;
+    }
+
+    /**
+     * Method to get and return string describing these rules.
+     * @return String containing rules.
+     */
+    @Override
+    public String toString() {
+        return (this.dealerHitsSoft17 ? "H17" : "S17") + ", "
+                + this.decks + (this.decks == 1 ? " deck" : " decks")
+                + ", blackjack pays " + this.blackjackNumerator + "/"
+                + this.blackjackDenominator + ", "
+                + Math.round(this.penetration * 100) + "% penetration"
+                + ", bets " + this.minimumBet + " to "
+                + this.maximumBet;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,214 @@
+package blackjack;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class: SeatRegistry.java
+ * Description: Players seated at a table. The seats are only changed
+ *  by the thread playing the table, so the dealer iterates them
+ *  without locking. Other threads request players join or leave, and
+ *  requests are queued and applied at the start of the next round. A
+ *  copy of the seats is published at each round boundary for other
+ *  threads to read.
+ * Author: Paulo Jorge.
+ */
+public class SeatRegistry implements Serializable {
+    // Max number of players and balance needed to be seated
+    private final int maxSeats;
+    private final int minimumBet;
+    // Players seated, changed only by the thread playing the table
+    private final List<Player> seats = new ArrayList();
+    // Copy of seats at the last round boundary, read by any thread
+    private volatile List<Player> published = Collections.emptyList();
+    // Set when seats have changed since they were last published
+    private boolean changed;
+    // Joins and leaves requested by other threads
+    private final BlockingQueue<Request> requests
+            = new LinkedBlockingQueue();
+
+    /**
+     * Constructor method used to initialise a new empty registry.
+     * @param maxSeats Integer max number of players.
+     * @param minimumBet Integer minimum bet a player must be able to
+     *  place to be seated.
+     */
+    public SeatRegistry(int maxSeats, int minimumBet) {
+        this.maxSeats = maxSeats;
+        this.minimumBet = minimumBet;
+    }
+
+    /**
+     * Method to seat a player now. Must be called on the thread
+     *  playing the table, between rounds.
+     * @param player Player object to seat.
+     * @return Boolean true if player was seated, false otherwise if
+     *  every seat is taken or the player does not have enough funds
+     *  for at least 1 round.
+     */
+    public boolean join(Player player) {
+        if ((this.seats.size() >= this.maxSeats)
+                || ((player.getBalance() - this.minimumBet) < 0))
+            return false;
+        this.changed = true;
+        return this.seats.add(player);
+    }
+
+    /**
+     * Method to remove a player now. Must be called on the thread
+     *  playing the table, between rounds.
+     * @param player Player object to remove.
+     * @return Boolean true if player was removed, false otherwise.
+     */
+    public boolean leave(Player player) {
+        boolean removed = this.seats.remove(player);
+        this.changed |= removed;
+        return removed;
+    }
+
+    /**
+     * Method to request a player is seated from the next round. May be
+     *  called on any thread.
+     * @param player Player object to seat.
+     * @return CompletableFuture object completed on the thread playing
+     *  the table with the result of join().
+     */
+    public CompletableFuture<Boolean> requestJoin(Player player) {
+        return request(player, true);
+    }
+
+    /**
+     * Method to request a player is removed before the next round. May
+     *  be called on any thread.
+     * @param player Player object to remove.
+     * @return CompletableFuture object completed on the thread playing
+     *  the table with the result of leave().
+     */
+    public CompletableFuture<Boolean> requestLeave(Player player) {
+        return request(player, false);
+    }
+
+    /**
+     * Method to queue a join or leave request.
+     * @param player Player object joining or leaving.
+     * @param join Boolean true to join, false to leave.
+     * @return CompletableFuture object completed when applied.
+     */
+    private CompletableFuture<Boolean> request(Player player,
+            boolean join) {
+        Request request = new Request(player, join);
+        this.requests.add(request);
+        return request.result;
+    }
+
+    /**
+     * Method to apply every join and leave requested, in the order they
+     *  were requested. Must be called on the thread playing the table,
+     *  between rounds.
+     */
+    public void applyRequests() {
+        Request request;
+        while ((request = this.requests.poll()) != null)
+            apply(request);
+    }
+
+    /**
+     * Method to wait for a join or leave to be requested, then apply
+     *  every request. Used to wait while the table is empty. Must be
+     *  called on the thread playing the table, between rounds.
+     * @param timeout Long time to wait.
+     * @param unit TimeUnit object of timeout.
+     * @return Boolean true if any request was applied, false if timed
+     *  out.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public boolean awaitRequests(long timeout, TimeUnit unit)
+            throws InterruptedException {
+        Request request = this.requests.poll(timeout, unit);
+        if (request == null)
+            return false;
+        apply(request);
+        applyRequests();
+        publish();
+        return true;
+    }
+
+    /**
+     * Method to apply a join or leave request.
+     * @param request Request object to apply.
+     */
+    private void apply(Request request) {
+        boolean applied = (request.join ? join(request.player)
+                : leave(request.player));
+        // Requests read from a saved table have no result
+        if (request.result != null)
+            request.result.complete(applied);
+    }
+
+    /**
+     * Method to publish a copy of the seats for other threads, if they
+     *  have changed. Must be called on the thread playing the table,
+     *  between rounds.
+     */
+    public void publish() {
+        // Dealer only removes players, so a change in size means the
+        // seats have changed
+        if (this.changed || (this.seats.size() != this.published.size())) {
+            this.published = Collections.unmodifiableList(
+                    new ArrayList(this.seats));
+            this.changed = false;
+        }
+    }
+
+    /**
+     * Method to get and return the seats. The list is shared with the
+     *  dealer and must only be used on the thread playing the table.
+     * @return List object of type Player seated.
+     */
+    public List<Player> getSeats() {
+        return this.seats;
+    }
+
+    /**
+     * Method to get and return the players seated at the last round
+     *  boundary. May be called on any thread.
+     * @return Unmodifiable list of players seated.
+     */
+    public List<Player> getPublished() {
+        return this.published;
+    }
+
+    /**
+     * Method to get and return the max number of players.
+     * @return Integer max number of players.
+     */
+    public int getMaxSeats() {
+        return this.maxSeats;
+    }
+
+    /**
+     * Join or leave request of a player.
+     */
+    private static final class Request implements Serializable {
+        private final Player player;
+        private final boolean join;
+        private final transient CompletableFuture<Boolean> result
+                = new CompletableFuture();
+
+        /**
+         * Constructor method used to initialise a new request.
+         * @param player Player object joining or leaving.
+         * @param join Boolean true to join, false to leave.
+         */
+        private Request(Player player, boolean join) {
+            this.player = player;
+            this.join = join;
+        }
+    }
+}
\ No newline at end of file
@@ -16,11 +16,23 @@ public class Serialization {
      */
     public static void writeToFile(Serializable object, 
             String fileName) {
+        writeToFile(object, fileName, true);
+    }
+    
+    /**
+     * Method to write and save a serializable object to a file.
+     * @param object Serializable object to write to file.
+     * @param fileName String file name of file to write to.
+     * @param report Boolean true if a success message will be 
+     *  printed to console or false otherwise.
+     */
+    public static void writeToFile(Serializable object, 
+            String fileName, boolean report) {
         try {
             // Create new ouput stream isntances
             FileOutputStream fileOut = new FileOutputStream(fileName);
-            ObjectOutputStream objectOut 
-                    = new ObjectOutputStream(fileOut);
+            ObjectOutputStream objectOut = new ObjectOutputStream(
+                    new BufferedOutputStream(fileOut));
             
             // Write object to file
             objectOut.writeObject(object);
@@ -28,8 +40,9 @@ public class Serialization {
             // Close streams
             objectOut.close();
             fileOut.close();
-            System.out.println("Serialization successful. Data saved "
-                    + "to /" + fileName + ".");
+            if (report)
+                System.out.println("Serialization successful. Data "
+                        + "saved to /" + fileName + ".");
         } catch(IOException exception) {
             exception.printStackTrace();
         }
@@ -42,10 +55,24 @@ public class Serialization {
      *  null if object was unable to load.
      */
     public static Object readFromFile(String fileName) {  
+        return readFromFile(fileName, true);
+    }
+    
+    /**
+     * Method to read and return a object from the argument file.
+     * @param fileName String file name of file to find.
+     * @param report Boolean true if a success message will be 
+     *  printed to console or false otherwise.
+     * @return Object read and found using the file name passed in or
+     *  null if object was unable to load.
+     */
+    public static Object readFromFile(String fileName, 
+            boolean report) {
         try {
             // Create new input stream isntances
             FileInputStream fileIn = new FileInputStream(fileName);
-            ObjectInputStream objectIn = new ObjectInputStream(fileIn);
+            ObjectInputStream objectIn = new ObjectInputStream(
+                    new BufferedInputStream(fileIn));
             
             // Read object from file
             Object temp = objectIn.readObject();
@@ -54,8 +81,9 @@ public class Serialization {
             objectIn.close();
             fileIn.close();           
             
-            System.out.println("Deserialization successful. Data "
-                    + "loaded from /" + fileName + ".");
+            if (report)
+                System.out.println("Deserialization successful. "
+                        + "Data loaded from /" + fileName + ".");
             
             // Return object found
             return temp;
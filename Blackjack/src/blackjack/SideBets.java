@@ -0,0 +1,382 @@
+package blackjack;
+
+/**
+ * Class: SideBets.java
+ * Description: Optional side bets offered at a table, and the stake
+ *  every seat places on each. Perfect Pairs and 21+3 are settled from
+ *  the first cards dealt, and dealer bust from the number of cards the
+ *  dealer went bust with. The payout of every combination of card
+ *  codes is worked out once into flat tables, so a round settles its
+ *  side bets by indexing them with card codes, without allocating.
+ *  The house edge of each side bet can also be worked out exactly for
+ *  the cards left in a shoe.
+ * Author: Paulo Jorge.
+ */
+public final class SideBets {
+    // Side bets, used to index stakes and results
+    public static final int PERFECT_PAIRS = 0;
+    public static final int TWENTY_ONE_PLUS_THREE = 1;
+    public static final int DEALER_BUST = 2;
+    public static final int COUNT = 3;
+    // Name of each side bet
+    private static final String[] NAMES = {"perfect-pairs", "21+3",
+            "dealer-bust"};
+
+    // Perfect Pairs payouts to 1, of a pair of different colours, of
+    // the same colour and of the same suit
+    private static final int MIXED_PAIR = 6;
+    private static final int COLOURED_PAIR = 12;
+    private static final int PERFECT_PAIR = 25;
+    // 21+3 payouts to 1
+    private static final int FLUSH = 5;
+    private static final int STRAIGHT = 10;
+    private static final int THREE_OF_A_KIND = 30;
+    private static final int STRAIGHT_FLUSH = 40;
+    private static final int SUITED_TRIPS = 100;
+    // Dealer bust payout to 1 by number of dealer cards, the last for
+    // that many or more
+    private static final int[] BUST_PAYOUTS = {0, 0, 0, 1, 2, 9, 50,
+            100, 250};
+
+    // Ranks in a suit, and number of card values from 2 to 11
+    private static final int RANKS = 13;
+    private static final int VALUES = ControlVariates.VALUES;
+    // Payout of Perfect Pairs by first card code * CODES + second, and
+    // of 21+3 by dealer card code * CODES * CODES + first * CODES +
+    // second, 0 if lost
+    private static final byte[] PAIRS = new byte[Card.CODES * Card.CODES];
+    private static final byte[] THREE_CARDS
+            = new byte[Card.CODES * Card.CODES * Card.CODES];
+    static {
+        for (int a = 0; a < Card.CODES; a++)
+            for (int b = 0; b < Card.CODES; b++) {
+                PAIRS[(a * Card.CODES) + b] = (byte) pairPayout(a, b);
+                for (int c = 0; c < Card.CODES; c++)
+                    THREE_CARDS[(((a * Card.CODES) + b) * Card.CODES)
+                            + c] = (byte) threeCardPayout(a, b, c);
+            }
+    }
+
+    // Stake of each side bet, 0 if not offered
+    private final int[] stakes = new int[COUNT];
+
+    /**
+     * Constructor method used to initialise new side bets.
+     * @param perfectPairs Integer stake on Perfect Pairs, 0 for none.
+     * @param twentyOnePlusThree Integer stake on 21+3, 0 for none.
+     * @param dealerBust Integer stake on dealer bust, 0 for none.
+     * @throws IllegalArgumentException If a stake is negative.
+     */
+    public SideBets(int perfectPairs, int twentyOnePlusThree,
+            int dealerBust) {
+        if ((perfectPairs < 0) || (twentyOnePlusThree < 0)
+                || (dealerBust < 0))
+            throw new IllegalArgumentException("Side bet stakes must be "
+                    + "at least 0.");
+        this.stakes[PERFECT_PAIRS] = perfectPairs;
+        this.stakes[TWENTY_ONE_PLUS_THREE] = twentyOnePlusThree;
+        this.stakes[DEALER_BUST] = dealerBust;
+    }
+
+    /**
+     * Method to parse side bets, such as perfect-pairs=5,21+3=5. A
+     *  side bet named without a stake has a stake of 1.
+     * @param value String list of side bets and stakes.
+     * @return SideBets object parsed.
+     * @throws IllegalArgumentException If a side bet is unknown or a
+     *  stake is invalid.
+     */
+    public static SideBets parse(String value) {
+        int[] stakes = new int[COUNT];
+        for (String entry : value.split(",")) {
+            String[] parts = entry.trim().split("=");
+            int side = indexOf(parts[0].trim().toLowerCase());
+            if ((side < 0) || (parts.length > 2))
+                throw new IllegalArgumentException("Unknown side bet '"
+                        + entry.trim() + "'.");
+            try {
+                stakes[side] = (parts.length > 1
+                        ? Integer.parseInt(parts[1].trim()) : 1);
+            } catch (NumberFormatException exception) {
+                throw new IllegalArgumentException("Invalid stake '"
+                        + parts[1].trim() + "' for " + parts[0].trim()
+                        + ".");
+            }
+        }
+        return new SideBets(stakes[PERFECT_PAIRS],
+                stakes[TWENTY_ONE_PLUS_THREE], stakes[DEALER_BUST]);
+    }
+
+    /**
+     * Method to get and return the index of a side bet name.
+     * @param name String name of side bet.
+     * @return Integer index, or -1 if unknown.
+     */
+    private static int indexOf(String name) {
+        for (int i = 0; i < COUNT; i++)
+            if (NAMES[i].equals(name))
+                return i;
+        return -1;
+    }
+
+    /**
+     * Method to get and return the name of a side bet.
+     * @param side Integer index of side bet.
+     * @return String name.
+     */
+    public static String getName(int side) {
+        return NAMES[side];
+    }
+
+    /**
+     * Method to get and return the stake of a side bet.
+     * @param side Integer index of side bet.
+     * @return Integer stake, 0 if not offered.
+     */
+    public int getStake(int side) {
+        return this.stakes[side];
+    }
+
+    /**
+     * Method to get the Perfect Pairs payout of a players first cards.
+     * @param first Integer code of first card.
+     * @param second Integer code of second card.
+     * @return Integer payout to 1, 0 if lost.
+     */
+    public static int getPairsPayout(int first, int second) {
+        return PAIRS[(first * Card.CODES) + second];
+    }
+
+    /**
+     * Method to get the 21+3 payout of a players first cards and the
+     *  dealers card.
+     * @param dealer Integer code of dealers card.
+     * @param first Integer code of first card.
+     * @param second Integer code of second card.
+     * @return Integer payout to 1, 0 if lost.
+     */
+    public static int getThreeCardPayout(int dealer, int first,
+            int second) {
+        return THREE_CARDS[(((dealer * Card.CODES) + first) * Card.CODES)
+                + second];
+    }
+
+    /**
+     * Method to get the dealer bust payout of the dealers final hand.
+     * @param cards Integer number of cards in dealers hand.
+     * @param bust Boolean true if dealers hand is bust.
+     * @return Integer payout to 1, 0 if lost.
+     */
+    public static int getBustPayout(int cards, boolean bust) {
+        return (bust ? BUST_PAYOUTS[Math.min(cards,
+                BUST_PAYOUTS.length - 1)] : 0);
+    }
+
+    /**
+     * Method to get the amount settled for a side bet.
+     * @param side Integer index of side bet.
+     * @param payout Integer payout to 1, 0 if lost.
+     * @return Integer amount settled, negative if lost or 0 if not
+     *  offered.
+     */
+    public int settle(int side, int payout) {
+        return (payout > 0 ? this.stakes[side] * payout
+                : -this.stakes[side]);
+    }
+
+    /**
+     * Method to work out the Perfect Pairs payout of 2 card codes.
+     * @param a Integer code of first card.
+     * @param b Integer code of second card.
+     * @return Integer payout to 1, 0 if lost.
+     */
+    private static int pairPayout(int a, int b) {
+        if ((a % RANKS) != (b % RANKS))
+            return 0;
+        int suitA = a / RANKS;
+        int suitB = b / RANKS;
+        if (suitA == suitB)
+            return PERFECT_PAIR;
+        return (isRed(suitA) == isRed(suitB) ? COLOURED_PAIR
+                : MIXED_PAIR);
+    }
+
+    /**
+     * Method to check if a suit is red.
+     * @param suit Integer ordinal of suit.
+     * @return Boolean true if diamonds or hearts, false otherwise.
+     */
+    private static boolean isRed(int suit) {
+        return ((suit == Card.Suit.diamonds.ordinal())
+                || (suit == Card.Suit.hearts.ordinal()));
+    }
+
+    /**
+     * Method to work out the 21+3 payout of 3 card codes.
+     * @param a Integer code of first card.
+     * @param b Integer code of second card.
+     * @param c Integer code of third card.
+     * @return Integer payout to 1, 0 if lost.
+     */
+    private static int threeCardPayout(int a, int b, int c) {
+        int rankA = a % RANKS;
+        int rankB = b % RANKS;
+        int rankC = c % RANKS;
+        boolean flush = ((a / RANKS) == (b / RANKS))
+                && ((b / RANKS) == (c / RANKS));
+        if ((rankA == rankB) && (rankB == rankC))
+            return (flush ? SUITED_TRIPS : THREE_OF_A_KIND);
+
+        // Sort ranks, an ordinal of 12 is an ace
+        int low = Math.min(rankA, Math.min(rankB, rankC));
+        int high = Math.max(rankA, Math.max(rankB, rankC));
+        int middle = rankA + rankB + rankC - low - high;
+        boolean distinct = (low != middle) && (middle != high);
+        // Ace plays high, or low below a two and three
+        boolean straight = distinct && (((high - low) == 2)
+                || ((high == 12) && (low == 0) && (middle == 1)));
+        if (straight)
+            return (flush ? STRAIGHT_FLUSH : STRAIGHT);
+        return (flush ? FLUSH : 0);
+    }
+
+    /**
+     * Method to work out the house edge of a side bet for the cards
+     *  left in a shoe, as the fraction of each stake the house expects
+     *  to keep. Perfect Pairs and 21+3 are exact for the next cards
+     *  dealt. Dealer bust is worked out as if the dealer drew every
+     *  card from the shoe as it is, as the cards players draw first
+     *  depend on how they play.
+     * @param side Integer index of side bet.
+     * @param codes Integer array of cards of each code left in shoe.
+     * @param rules RuleSet object of house rules.
+     * @return Double house edge, negative if the player has the edge.
+     */
+    public static double getHouseEdge(int side, int[] codes,
+            RuleSet rules) {
+        long size = 0;
+        for (int i = 0; i < Card.CODES; i++)
+            size += codes[i];
+
+        // Expected payout to 1 and chance of winning
+        double payout = 0;
+        double win = 0;
+        if (side == PERFECT_PAIRS) {
+            if (size < 2)
+                return 0;
+            for (int a = 0; a < Card.CODES; a++)
+                for (int b = 0; b < Card.CODES; b++) {
+                    int pays = getPairsPayout(a, b);
+                    if (pays == 0)
+                        continue;
+                    double chance = (double) codes[a]
+                            * (codes[b] - (a == b ? 1 : 0))
+                            / (size * (size - 1));
+                    payout += chance * pays;
+                    win += chance;
+                }
+        } else if (side == TWENTY_ONE_PLUS_THREE) {
+            if (size < 3)
+                return 0;
+            // Dealers card, then each of the players cards
+            for (int a = 0; a < Card.CODES; a++) {
+                if (codes[a] == 0)
+                    continue;
+                double first = (double) codes[a] / size;
+                codes[a]--;
+                for (int b = 0; b < Card.CODES; b++) {
+                    if (codes[b] == 0)
+                        continue;
+                    double second = first * codes[b] / (size - 1);
+                    codes[b]--;
+                    for (int c = 0; c < Card.CODES; c++) {
+                        int pays = getThreeCardPayout(a, b, c);
+                        if ((pays == 0) || (codes[c] == 0))
+                            continue;
+                        double chance = second * codes[c] / (size - 2);
+                        payout += chance * pays;
+                        win += chance;
+                    }
+                    codes[b]++;
+                }
+                codes[a]++;
+            }
+        } else {
+            if (size < 1)
+                return 0;
+            // Cards of each value from 2 to 11
+            int[] shoe = new int[VALUES];
+            for (int i = 0; i < Card.CODES; i++)
+                shoe[Card.fromCode(i).getRank().getValue() - 2]
+                        += codes[i];
+            double[] busts = new double[BUST_PAYOUTS.length];
+            bustChances(rules, 0, false, 0, shoe, (int) size, 1, busts);
+            for (int cards = 0; cards < busts.length; cards++) {
+                payout += busts[cards] * BUST_PAYOUTS[cards];
+                win += busts[cards];
+            }
+        }
+        // Player loses the stake unless they win
+        return (1 - win) - payout;
+    }
+
+    /**
+     * Method to add the chance of the dealer going bust with each
+     *  number of cards, from a hand the house rules say to draw to.
+     * @param rules RuleSet object of house rules.
+     * @param hard Integer total of hand counting aces as 1.
+     * @param ace Boolean true if the hand holds an ace.
+     * @param cards Integer number of cards in hand.
+     * @param shoe Integer array of cards of each value left in shoe.
+     * @param size Integer number of cards left in shoe.
+     * @param chance Double chance of reaching this hand.
+     * @param busts Double array of chance of going bust with each
+     *  number of cards, the last for that many or more.
+     */
+    private static void bustChances(RuleSet rules, int hard,
+            boolean ace, int cards, int[] shoe, int size, double chance,
+            double[] busts) {
+        // Dealer draws from a new shoe once every card is dealt
+        if (size == 0) {
+            int[] full = new int[VALUES];
+            for (int i = 0; i < VALUES; i++)
+                full[i] = rules.getDecks() * (i == (VALUES - 2) ? 16 : 4);
+            bustChances(rules, hard, ace, cards, full,
+                    Card.CODES * rules.getDecks(), chance, busts);
+            return;
+        }
+        for (int i = 0; i < VALUES; i++) {
+            if (shoe[i] == 0)
+                continue;
+            int value = i + 2;
+            int next = hard + (value == 11 ? 1 : value);
+            boolean nextAce = (ace || (value == 11));
+            double drawn = chance * shoe[i] / size;
+            if (next > 21) {
+                busts[Math.min(cards + 1, busts.length - 1)] += drawn;
+                continue;
+            }
+            boolean soft = (nextAce && ((next + 10) <= 21));
+            if (!rules.dealerHits((soft ? next + 10 : next), soft))
+                continue;
+            shoe[i]--;
+            bustChances(rules, next, nextAce, cards + 1, shoe, size - 1,
+                    drawn, busts);
+            shoe[i]++;
+        }
+    }
+
+    /**
+     * Method to get and return a string describing these side bets.
+     * @return String of each side bet offered and its stake.
+     */
+    @Override
+    public String toString() {
+        StringBuilder str = new StringBuilder();
+        for (int i = 0; i < COUNT; i++)
+            if (this.stakes[i] > 0)
+                str.append(str.length() > 0 ? "," : "").append(NAMES[i])
+                        .append('=').append(this.stakes[i]);
+        return str.toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,522 @@
+package blackjack;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Class: Simulation.java
+ * Description: Headless batch simulation of many tables of computer
+ *  players, run from the command line without any console prompts.
+ *  Tables are played in parallel and a machine readable JSON summary
+ *  is printed and optionally written to file.
+ * Author: Paulo Jorge.
+ */
+public class Simulation {
+    // Settings of simulation
+    private final SimulationConfig config;
+    // Store every hand is recorded to, or null for none
+    private HandHistoryStore history;
+    // Publisher of every round result, or null for none
+    private RoundPublisher publisher;
+    // Cube the outcome of every decision is recorded to, or null for 
+    // none
+    private OutcomeCube cube;
+    // True if the last run was read back from the result cache
+    private boolean cached;
+    // Rounds each table plays between checks of precision
+    private static final long CHECK_ROUNDS = 1000;
+    
+    /**
+     * Constructor method used to initialise a new simulation.
+     * @param config SimulationConfig object containing settings.
+     */
+    public Simulation(SimulationConfig config) {
+        this.config = config;
+    }
+    
+    /**
+     * Method to publish the result of every round played to the 
+     *  subscribers of a publisher. Not supported by the batch kernel.
+     * @param publisher RoundPublisher object, or null for none.
+     */
+    public void setPublisher(RoundPublisher publisher) {
+        if ((publisher != null) && this.config.isBatchKernel())
+            throw new IllegalArgumentException("Round results can not "
+                    + "be published by the batch kernel.");
+        this.publisher = publisher;
+    }
+    
+    /**
+     * Method to record the outcome of every decision made at every 
+     *  table to a cube. A cube is created when the simulation is run 
+     *  if the configuration names a file to write it to.
+     * @param cube OutcomeCube object, or null for none.
+     */
+    public void setCube(OutcomeCube cube) {
+        this.cube = cube;
+    }
+    
+    /**
+     * Method to get and return the cube the outcome of every decision
+     *  is recorded to.
+     * @return OutcomeCube object, or null for none.
+     */
+    public OutcomeCube getCube() {
+        return this.cube;
+    }
+    
+    /**
+     * Method to run the simulation. Each table is played on its own
+     *  task, or with the batch kernel each thread plays a range of 
+     *  tables, and the statistics of every table are combined in table 
+     *  order. With a precision set, tables play in steps of rounds 
+     *  until every player type is precise, and stop at the same round 
+     *  for any number of threads. With a cache, a result cached for 
+     *  the same settings is read back instead, and a result played is
+     *  cached.
+     * @return SimulationStats object of every table combined.
+     * @throws InterruptedException If interrupted while waiting.
+     * @throws ExecutionException If a table failed to play.
+     * @throws IOException If the hand history could not be opened, 
+     *  or the outcome cube could not be written.
+     */
+    public SimulationStats run() throws InterruptedException, 
+            ExecutionException, IOException {
+        if ((this.cube == null) && (this.config.getCube() != null))
+            this.cube = new OutcomeCube(this.config.getThreads());
+        ResultCache cache = newCache();
+        PartialResult cached = (cache != null ? cache.get(this.config)
+                : null);
+        this.cached = (cached != null);
+        if (cached != null) {
+            SimulationStats stats = new SimulationStats(
+                    this.config.isControlEstimator());
+            cached.mergeInto(stats, this.cube);
+            writeCube();
+            return stats;
+        }
+        
+        ExecutorService executor 
+                = Executors.newFixedThreadPool(this.config.getThreads());
+        if (this.config.getHistory() != null) {
+            this.history = new HandHistoryStore(
+                    new File(this.config.getHistory()));
+            System.err.println("Recording hand history as run " 
+                    + this.history.getRun() + ".");
+        }
+        try {
+            List<Worker> workers = new ArrayList();
+            if (this.config.isBatchKernel())
+                addBatches(workers);
+            else {
+                for (int i = 0; i < this.config.getTables(); i++)
+                    workers.add(new TableWorker(i));
+            }
+            
+            // Play every table a step at a time
+            double precision = this.config.getPrecision();
+            long step = (precision > 0 ? CHECK_ROUNDS 
+                    : this.config.getRounds());
+            SimulationStats stats = new SimulationStats();
+            for (long played = 0; played < this.config.getRounds(); ) {
+                long rounds = Math.min(step, 
+                        this.config.getRounds() - played);
+                for (Worker worker : workers)
+                    worker.rounds = rounds;
+                List<Future<SimulationStats>> results 
+                        = executor.invokeAll(workers);
+                played += rounds;
+                
+                // Combine results in table order
+                stats = new SimulationStats(
+                        this.config.isControlEstimator());
+                for (Future<SimulationStats> result : results)
+                    stats.merge(result.get());
+                if ((precision > 0) && stats.isPrecise(precision))
+                    break;
+            }
+            
+            if (cache != null)
+                cache.put(this.config, new PartialResult(this.config, 
+                        stats, this.cube));
+            writeCube();
+            return stats;
+        } finally {
+            executor.shutdownNow();
+            if (this.history != null)
+                this.history.close();
+        }
+    }
+    
+    /**
+     * Method to check if the last run was read back from the result 
+     *  cache instead of played.
+     * @return Boolean true if cached, false otherwise.
+     */
+    public boolean isCached() {
+        return this.cached;
+    }
+    
+    /**
+     * Method to create and return the cache of the configuration. 
+     *  Results are not cached when every hand is recorded or 
+     *  published, or recorded to a cube the configuration does not 
+     *  name, as a cached result holds none of them. Nor are they 
+     *  cached if the version of the code is unknown, as a result 
+     *  could then outlive a rebuild.
+     * @return ResultCache object, or null for none.
+     */
+    private ResultCache newCache() {
+        if ((this.config.getCache() == null) 
+                || (this.config.getHistory() != null) 
+                || (this.publisher != null) 
+                || ((this.cube != null) 
+                        && (this.config.getCube() == null)))
+            return null;
+        if (!ResultCache.isCodeVersionKnown()) {
+            System.err.println("Results not cached, as the code "
+                    + "version is unknown.");
+            return null;
+        }
+        return new ResultCache(new File(this.config.getCache()), 
+                this.config.getCacheSize());
+    }
+    
+    /**
+     * Method to write the cube to the file the configuration names, 
+     *  unless it is written to a partial result instead.
+     * @throws IOException If the cube could not be written.
+     */
+    private void writeCube() throws IOException {
+        if ((this.config.getCube() != null) 
+                && (this.config.getPartial() == null))
+            this.cube.write(new File(this.config.getCube()));
+    }
+    
+    /**
+     * Method to split the tables into a range for each thread and 
+     *  add a batch kernel to play each range.
+     * @param workers List object to add the worker of each range to.
+     */
+    private void addBatches(List<Worker> workers) {
+        int tables = this.config.getTables();
+        int threads = Math.min(this.config.getThreads(), tables);
+        
+        for (int i = 0; i < threads; i++) {
+            // Spread any remaining tables over the first ranges
+            int first = (int) ((long) tables * i / threads);
+            int count = (int) ((long) tables * (i + 1) / threads)
+                    - first;
+            workers.add(new BatchWorker(first, count));
+        }
+    }
+    
+    /**
+     * Task that plays a number of rounds and returns the statistics of
+     *  every round it has played so far.
+     */
+    private abstract static class Worker 
+            implements Callable<SimulationStats> {
+        // Rounds played by the next call
+        long rounds;
+    }
+    
+    /**
+     * Worker that plays every round at a range of tables with a batch 
+     *  kernel. Results are the same as playing each table on its own.
+     */
+    private final class BatchWorker extends Worker {
+        private final BatchKernel kernel;
+        
+        /**
+         * Constructor method used to initialise a new worker.
+         * @param first Integer index of first table.
+         * @param count Integer number of tables.
+         */
+        private BatchWorker(int first, int count) {
+            this.kernel = new BatchKernel(config.getSeats(), 
+                    config.getFirstTable() + first, count, 
+                    config.getSeed(), config.getRules());
+            this.kernel.setCube(cube);
+            this.kernel.setSideBets(config.getSideBets());
+        }
+        
+        @Override
+        public SimulationStats call() {
+            return this.kernel.play(this.rounds);
+        }
+    }
+    
+    /**
+     * Worker that plays every round at a single table. A player that 
+     *  runs out of funds is replaced by a new player of the same type,
+     *  so every round is played with the same seats.
+     */
+    private final class TableWorker extends Worker {
+        private final SimulationStats stats 
+                = new SimulationStats(config.isControlEstimator());
+        private final BlackjackTable table;
+        private final Player[] seated;
+        
+        /**
+         * Constructor method used to initialise a new worker and seat
+         *  its players.
+         * @param index Integer index of table.
+         */
+        private TableWorker(int index) {
+            this.table = new BlackjackTable(false, false, 
+                    RandomStreams.newRandom(config.getSeed(), 
+                            config.getFirstTable() + index), 
+                    config.getRules());
+            this.table.getDealer().addRoundListener(this.stats);
+            if (history != null)
+                this.table.getDealer().addRoundListener(history
+                        .newWriter(config.getFirstTable() + index));
+            if (publisher != null)
+                this.table.getDealer().addRoundListener(publisher);
+            if (cube != null)
+                this.table.getDealer().addRoundListener(cube);
+            this.table.getDealer().setSideBets(config.getSideBets());
+            
+            // Seat players
+            List<String> types = config.getSeats();
+            this.seated = new Player[types.size()];
+            for (int i = 0; i < this.seated.length; i++) {
+                this.seated[i] = SimulationConfig.newPlayer(types.get(i));
+                this.table.addPlayer(this.seated[i]);
+            }
+            this.table.assignPlayers();
+        }
+        
+        @Override
+        public SimulationStats call() {
+            List<String> types = config.getSeats();
+            for (long round = 0; round < this.rounds; round++) {
+                this.table.playRound();
+                
+                // Replace players out of funds
+                for (int i = 0; i < this.seated.length; i++) {
+                    if (!this.table.getPlayers().contains(
+                            this.seated[i])) {
+                        this.stats.playerRuined(
+                                this.seated[i].getPlayerType());
+                        this.seated[i] = SimulationConfig.newPlayer(
+                                types.get(i));
+                        this.table.addPlayer(this.seated[i]);
+                    }
+                }
+            }
+            return this.stats;
+        }
+    }
+    
+    /**
+     * Method to format the summary of a simulation as JSON.
+     * @param config SimulationConfig object of simulation.
+     * @param stats SimulationStats object of simulation.
+     * @param elapsedNanos Long time taken to run in nanoseconds.
+     * @return String containing JSON summary.
+     */
+    public static String toJson(SimulationConfig config, 
+            SimulationStats stats, long elapsedNanos) {
+        return toJson(config, stats, elapsedNanos, false);
+    }
+    
+    /**
+     * Method to format the summary of a simulation as JSON. The time
+     *  taken is left out of a result read back from the cache, as its
+     *  rounds were not played.
+     * @param config SimulationConfig object of simulation.
+     * @param stats SimulationStats object of simulation.
+     * @param elapsedNanos Long time taken to run in nanoseconds.
+     * @param cached Boolean true if read back from the result cache.
+     * @return String containing JSON summary.
+     */
+    public static String toJson(SimulationConfig config, 
+            SimulationStats stats, long elapsedNanos, boolean cached) {
+        double seconds = elapsedNanos / 1e9;
+        StringBuilder str = new StringBuilder();
+        
+        str.append("{\n");
+        str.append("  \"tables\": ").append(config.getTables());
+        str.append(",\n  \"seats\": [");
+        for (int i = 0; i < config.getSeats().size(); i++)
+            str.append(i > 0 ? ", " : "").append('"')
+                    .append(config.getSeats().get(i)).append('"');
+        str.append("],\n  \"roundsPerTable\": ")
+                .append(stats.getRounds() / config.getTables());
+        if (config.getPrecision() > 0)
+            str.append(",\n  \"precision\": ")
+                    .append(config.getPrecision());
+        str.append(",\n  \"seed\": ").append(config.getSeed());
+        if (config.getFirstTable() > 0)
+            str.append(",\n  \"firstTable\": ")
+                    .append(config.getFirstTable());
+        str.append(",\n  \"threads\": ").append(config.getThreads());
+        str.append(",\n  \"kernel\": \"").append(config.getKernel())
+                .append('"');
+        str.append(",\n  \"rules\": \"").append(config.getRules())
+                .append('"');
+        str.append(",\n  \"rounds\": ").append(stats.getRounds());
+        str.append(",\n  \"hands\": ").append(stats.getHands());
+        if (cached)
+            str.append(",\n  \"cached\": true");
+        else {
+            str.append(",\n  \"elapsedSeconds\": ")
+                    .append(String.format("%.3f", seconds));
+            str.append(",\n  \"roundsPerSecond\": ").append(
+                    String.format("%.1f", (seconds > 0 
+                            ? stats.getRounds() / seconds : 0)));
+        }
+        str.append(",\n  \"players\": {");
+        
+        // Append totals of each player type
+        boolean first = true;
+        for (Map.Entry<String, SimulationStats.Totals> entry 
+                : stats.getTotals().entrySet()) {
+            SimulationStats.Totals total = entry.getValue();
+            str.append(first ? "\n" : ",\n");
+            first = false;
+            
+            str.append("    \"").append(entry.getKey()).append("\": {");
+            str.append("\"hands\": ").append(total.getHands());
+            str.append(", \"wins\": ").append(total.getWins());
+            str.append(", \"pushes\": ").append(total.getPushes());
+            str.append(", \"losses\": ").append(total.getLosses());
+            str.append(", \"blackjacks\": ")
+                    .append(total.getBlackjacks());
+            str.append(", \"busts\": ").append(total.getBusts());
+            str.append(", \"wagered\": ").append(total.getWagered());
+            str.append(", \"net\": ").append(total.getNet());
+            str.append(", \"ruined\": ").append(total.getRuined());
+            str.append(", \"evPerHand\": ").append(String.format("%.6f",
+                    (total.getHands() > 0 ? (double) total.getNet() 
+                            / total.getHands() : 0)));
+            str.append(", \"stdError\": ").append(String.format(
+                    "%.6f", (total.getHands() > 1 
+                            ? total.getStandardError() : 0)));
+            
+            // Control variate estimate beside raw estimate
+            ControlVariates controls = total.getControls();
+            if (controls != null) {
+                str.append(", \"cvEvPerHand\": ").append(String.format(
+                        "%.6f", controls.getEstimate()));
+                str.append(", \"cvStdError\": ").append(String.format(
+                        "%.6f", (total.getHands() > 3 
+                                ? controls.getStandardError() : 0)));
+                str.append(", \"varianceReduction\": ").append(
+                        String.format("%.3f", 
+                                controls.getVarianceReduction()));
+            }
+            str.append("}");
+        }
+        str.append("\n  }");
+        
+        // Append totals of each side bet offered, beside its house edge
+        // off the top of a full shoe
+        SideBets sideBets = config.getSideBets();
+        if (sideBets != null) {
+            int[] codes = new int[Card.CODES];
+            Arrays.fill(codes, config.getRules().getDecks());
+            str.append(",\n  \"sideBets\": {");
+            first = true;
+            for (int side = 0; side < SideBets.COUNT; side++) {
+                if (sideBets.getStake(side) <= 0)
+                    continue;
+                str.append(first ? "\n" : ",\n");
+                first = false;
+                
+                long wagered = stats.getSideWagered(side);
+                str.append("    \"").append(SideBets.getName(side))
+                        .append("\": {");
+                str.append("\"stake\": ").append(sideBets.getStake(side));
+                str.append(", \"bets\": ").append(stats.getSideBets(side));
+                str.append(", \"wins\": ").append(stats.getSideWins(side));
+                str.append(", \"wagered\": ").append(wagered);
+                str.append(", \"net\": ").append(stats.getSideNet(side));
+                str.append(", \"houseEdge\": ").append(String.format(
+                        "%.6f", (wagered > 0 ? (double) -stats
+                                .getSideNet(side) / wagered : 0)));
+                str.append(", \"analyticEdge\": ").append(String.format(
+                        "%.6f", SideBets.getHouseEdge(side, codes, 
+                                config.getRules())));
+                str.append("}");
+            }
+            str.append("\n  }");
+        }
+        str.append("\n}\n");
+        
+        return str.toString();
+    }
+    
+    /**
+     * Method to print how to run a batch simulation.
+     */
+    private static void printUsage() {
+        System.err.println("Usage: java -jar Blackjack.jar [--tables N]"
+                + " [--seats basic,intermediate,advanced] [--rounds N]"
+                + " [--precision E] [--seed N] [--threads N]"
+                + " [--output FILE]"
+                + " [--history DIR] [--cube FILE] [--partial FILE]"
+                + " [--kernel object|batch] [--estimator raw|control]"
+                + " [--side-bets perfect-pairs=N,21+3=N,dealer-bust=N]"
+                + " [--cache DIR] [--cache-size MB]"
+                + " [--decks N] [--soft17 stand|hit] [--penetration P]"
+                + " [--blackjack-pays N/D]");
+        System.err.println(SimulationConfig.PAYOUT_USAGE);
+    }
+    
+    /**
+     * Method to run a batch simulation from command line arguments.
+     *  Exits with status 0 on success, 1 if the simulation failed or 
+     *  2 if the arguments were invalid.
+     * @param args String array of command line arguments.
+     */
+    public static void main(String[] args) {
+        SimulationConfig config;
+        try {
+            config = SimulationConfig.parse(args);
+        } catch (IllegalArgumentException exception) {
+            System.err.println("Error: " + exception.getMessage());
+            printUsage();
+            System.exit(2);
+            return;
+        }
+        
+        try {
+            // Run and time simulation
+            long start = System.nanoTime();
+            Simulation simulation = new Simulation(config);
+            SimulationStats stats = simulation.run();
+            if (config.getPartial() != null)
+                PartialResult.write(new File(config.getPartial()), 
+                        new PartialResult(config, stats, 
+                                simulation.getCube()));
+            String summary = toJson(config, stats, 
+                    System.nanoTime() - start, simulation.isCached());
+            
+            // Write summary to file if required
+            if (config.getOutput() != null)
+                try (PrintWriter file 
+                        = new PrintWriter(config.getOutput(), "UTF-8")) {
+                    file.print(summary);
+                }
+            System.out.print(summary);
+        } catch (InterruptedException | ExecutionException 
+                | IOException exception) {
+            exception.printStackTrace();
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,654 @@
+package blackjack;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Class: SimulationConfig.java
+ * Description: Settings of a headless batch simulation, read from 
+ *  command line arguments.
+ * Author: Paulo Jorge.
+ */
+public class SimulationConfig {
+    // Note printed with the usage of every tool taking house rules
+    static final String PAYOUT_USAGE = "Blackjack pays N/D times the "
+            + "bet credited, where a win credits 2, so 3 to 2 is 5/2. "
+            + "Odd amounts round down.";
+    
+    // Number of tables simulated
+    private int tables = 1;
+    // Player type of every seat at each table
+    private final List<String> seats = new ArrayList();
+    // Rounds played at each table, or the most played with a precision
+    private long rounds = 10000;
+    // Standard error of EV per hand relative to the average bet every
+    // player type is played to, or 0 to play every round
+    private double precision = 0;
+    // Seed used to shuffle
+    private long seed = 0;
+    // Index of first table, as tables of a partition are numbered
+    private int firstTable = 0;
+    // Number of threads used to play tables
+    private int threads = Runtime.getRuntime().availableProcessors();
+    // File summary is written to, or null for console only
+    private String output;
+    // Directory hand history is recorded to, or null for none
+    private String history;
+    // File outcome cube is written to, or null for none
+    private String cube;
+    // File partial result is written to, or null for none
+    private String partial;
+    // Kernel used to play tables, either object or batch
+    private String kernel = "object";
+    // Estimator of EV per hand, either raw or control
+    private String estimator = "raw";
+    // Side bets placed by every seat, or null for none
+    private SideBets sideBets;
+    // Directory results are cached in, or null for none, and its size
+    private String cache;
+    private long cacheSize = 1024L * 1024 * 1024;
+    // House rules of every table
+    private RuleSet rules = RuleSet.standard();
+    
+    /**
+     * Constructor method used to initialise a new configuration with
+     *  a single table of 1 basic player.
+     */
+    public SimulationConfig() {
+        this.seats.add("basic");
+    }
+    
+    /**
+     * Method to read a configuration from command line arguments. 
+     *  Options are:
+     *   --tables N        Number of tables simulated (default 1).
+     *   --seats A,B,...   Player type of every seat at each table, 
+     *                      from basic, intermediate or advanced 
+     *                      (default basic).
+     *   --rounds N        Rounds played at each table, or the most 
+     *                      played with --precision (default 10000, or
+     *                      unlimited with --precision).
+     *   --precision E     Stop once the standard error of EV per hand
+     *                      of every player type is at most E times 
+     *                      its average bet, such as 0.0001 for 0.01%.
+     *   --seed N          Seed used to shuffle (default 0).
+     *   --first-table N   Index of first table, so a partition of the
+     *                      tables of a simulation shuffles as they do
+     *                      in it (default 0).
+     *   --threads N       Threads used to play tables (default 
+     *                      number of processors).
+     *   --output FILE     File summary is written to.
+     *   --history DIR     Directory every hand is recorded to.
+     *   --cube FILE       File the outcome of every decision is 
+     *                      written to as CSV.
+     *   --partial FILE    File a mergeable binary PartialResult is 
+     *                      written to, holding any cube in place of 
+     *                      its CSV file.
+     *   --kernel K        Kernel used to play tables, either object 
+     *                      or batch (default object).
+     *   --estimator E     Estimator of EV per hand, either raw or 
+     *                      control to also report a control variate
+     *                      estimate (default raw).
+     *   --side-bets LIST  Side bets placed by every seat each round,
+     *                      such as perfect-pairs=5,21+3=5,dealer-bust
+     *                      with a stake of 1 if none given.
+     *   --cache DIR       Directory results are cached in, read back 
+     *                      instead of played again with the same 
+     *                      settings and code.
+     *   --cache-size MB   Largest size of cache, the least recently
+     *                      used results deleted first (default 1024).
+     *   --decks N         Decks in each shoe (default 1).
+     *   --soft17 R        Dealer either stands or hits on soft 17
+     *                      (default stand).
+     *   --penetration P   Fraction of shoe dealt before reshuffling 
+     *                      (default 0.75).
+     *   --blackjack-pays F Blackjack payout as the multiple of the 
+     *                      bet credited, in the units of a win which
+     *                      credits 2, such as 5/2 for 3 to 2 
+     *                      (default 2).
+     * @param args String array of command line arguments.
+     * @return SimulationConfig object read from arguments.
+     * @throws IllegalArgumentException If an option is unknown, is 
+     *  missing a value or has an invalid value.
+     */
+    public static SimulationConfig parse(String[] args) {
+        SimulationConfig config = new SimulationConfig();
+        boolean rounds = false;
+        
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            // Every option is followed by a value
+            if ((i + 1) >= args.length)
+                throw new IllegalArgumentException("Missing value for "
+                        + option + ".");
+            String value = args[++i];
+            
+            switch (option) {
+                case "--tables":
+                    config.setTables(parseInt(option, value));
+                    break;
+                case "--seats":
+                    config.setSeats(value.split(","));
+                    break;
+                case "--rounds":
+                    config.setRounds(parseLong(option, value));
+                    rounds = true;
+                    break;
+                case "--precision":
+                    config.setPrecision(parseDouble(option, value));
+                    break;
+                case "--seed":
+                    config.setSeed(parseLong(option, value));
+                    break;
+                case "--first-table":
+                    config.setFirstTable(parseInt(option, value));
+                    break;
+                case "--threads":
+                    config.setThreads(parseInt(option, value));
+                    break;
+                case "--output":
+                    config.setOutput(value);
+                    break;
+                case "--history":
+                    config.setHistory(value);
+                    break;
+                case "--cube":
+                    config.setCube(value);
+                    break;
+                case "--partial":
+                    config.setPartial(value);
+                    break;
+                case "--kernel":
+                    config.setKernel(value);
+                    break;
+                case "--estimator":
+                    config.setEstimator(value);
+                    break;
+                case "--side-bets":
+                    config.setSideBets(SideBets.parse(value));
+                    break;
+                case "--cache":
+                    config.setCache(value);
+                    break;
+                case "--cache-size":
+                    config.setCacheSize(parseLong(option, value) 
+                            * 1024 * 1024);
+                    break;
+                default:
+                    RuleSet rules = parseRule(config.getRules(), option,
+                            value);
+                    if (rules == null)
+                        throw new IllegalArgumentException("Unknown "
+                                + "option " + option + ".");
+                    config.setRules(rules);
+            }
+        }
+        
+        // Play until precise unless rounds are limited
+        if ((config.getPrecision() > 0) && !rounds)
+            config.setRounds(Long.MAX_VALUE);
+        
+        // Batch kernel does not play Hand objects to record
+        if (config.isBatchKernel() && (config.getHistory() != null))
+            throw new IllegalArgumentException("Hand history can not "
+                    + "be recorded by the batch kernel.");
+        // Controls are worked out from the shoe of a dealer
+        if (config.isBatchKernel() && config.isControlEstimator())
+            throw new IllegalArgumentException("Control variates can "
+                    + "not be recorded by the batch kernel.");
+        return config;
+    }
+    
+    /**
+     * Method to parse a integer option value.
+     * @param option String name of option.
+     * @param value String value to parse.
+     * @return Integer value parsed.
+     */
+    private static int parseInt(String option, String value) {
+        return (int) parseLong(option, value);
+    }
+    
+    /**
+     * Method to parse a long option value.
+     * @param option String name of option.
+     * @param value String value to parse.
+     * @return Long value parsed.
+     */
+    private static long parseLong(String option, String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException exception) {
+            throw new IllegalArgumentException("Invalid value '" 
+                    + value + "' for " + option + ".");
+        }
+    }
+    
+    /**
+     * Method to parse a double option value.
+     * @param option String name of option.
+     * @param value String value to parse.
+     * @return Double value parsed.
+     */
+    private static double parseDouble(String option, String value) {
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException exception) {
+            throw new IllegalArgumentException("Invalid value '" 
+                    + value + "' for " + option + ".");
+        }
+    }
+    
+    /**
+     * Method to parse the dealers soft 17 rule.
+     * @param value String value, either stand or hit.
+     * @return Boolean true if dealer hits soft 17, false otherwise.
+     */
+    private static boolean parseSoft17(String value) {
+        switch (value.trim().toLowerCase()) {
+            case "stand":
+                return false;
+            case "hit":
+                return true;
+            default:
+                throw new IllegalArgumentException("Invalid value '" 
+                        + value + "' for --soft17.");
+        }
+    }
+    
+    /**
+     * Method to read a house rule option, one of --decks, --soft17, 
+     *  --penetration or --blackjack-pays, so other command line tools
+     *  take the same rule options as a simulation.
+     * @param rules RuleSet object to vary.
+     * @param option String option name.
+     * @param value String option value.
+     * @return RuleSet object with option applied, or null if option is
+     *  not a house rule.
+     * @throws IllegalArgumentException If value is invalid.
+     */
+    static RuleSet parseRule(RuleSet rules, String option, 
+            String value) {
+        switch (option) {
+            case "--decks":
+                return rules.withDecks(parseInt(option, value));
+            case "--soft17":
+                return rules.withDealerHitsSoft17(parseSoft17(value));
+            case "--penetration":
+                return rules.withPenetration(parseDouble(option, value));
+            case "--blackjack-pays":
+                return rules.withBlackjackPayout(
+                        RuleSet.parsePayout(value));
+            default:
+                return null;
+        }
+    }
+    
+    /**
+     * Method to create a new player of a seat type.
+     * @param type String player type, either basic, intermediate or
+     *  advanced.
+     * @return Player object of type.
+     * @throws IllegalArgumentException If type is unknown.
+     */
+    public static Player newPlayer(String type) {
+        switch (type) {
+            case "basic":
+                return new BasicPlayer();
+            case "intermediate":
+                return new IntermediatePlayer();
+            case "advanced":
+                return new AdvancedPlayer();
+            default:
+                throw new IllegalArgumentException("Unknown player "
+                        + "type " + type + ".");
+        }
+    }
+    
+    /**
+     * Method to set the number of tables simulated.
+     * @param tables Integer number of tables, at least 1.
+     */
+    public void setTables(int tables) {
+        if (tables < 1)
+            throw new IllegalArgumentException("Tables must be at "
+                    + "least 1.");
+        this.tables = tables;
+    }
+    
+    /**
+     * Method to set the player type of every seat at each table.
+     * @param types String array of player types, between 1 and 8.
+     */
+    public void setSeats(String... types) {
+        if ((types.length < 1) || (types.length > 8))
+            throw new IllegalArgumentException("Seats must be between "
+                    + "1 and 8.");
+        
+        List<String> checked = new ArrayList();
+        for (String type : types) {
+            String seat = type.trim().toLowerCase();
+            // Check type is known
+            newPlayer(seat);
+            checked.add(seat);
+        }
+        this.seats.clear();
+        this.seats.addAll(checked);
+    }
+    
+    /**
+     * Method to set the rounds played at each table.
+     * @param rounds Long number of rounds, at least 1.
+     */
+    public void setRounds(long rounds) {
+        if (rounds < 1)
+            throw new IllegalArgumentException("Rounds must be at "
+                    + "least 1.");
+        this.rounds = rounds;
+    }
+    
+    /**
+     * Method to set the precision every player type is played to. 
+     *  Tables play in steps until the standard error of EV per hand of
+     *  every player type is at most this fraction of its average bet,
+     *  or the rounds set are played.
+     * @param precision Double relative standard error, or 0 to play 
+     *  every round.
+     */
+    public void setPrecision(double precision) {
+        if (!(precision >= 0) || Double.isInfinite(precision))
+            throw new IllegalArgumentException("Precision must be at "
+                    + "least 0.");
+        this.precision = precision;
+    }
+    
+    /**
+     * Method to set the seed used to shuffle.
+     * @param seed Long seed value.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+    
+    /**
+     * Method to set the index of the first table, as table i shuffles
+     *  with stream firstTable + i of the seed.
+     * @param firstTable Integer index, at least 0.
+     */
+    public void setFirstTable(int firstTable) {
+        if (firstTable < 0)
+            throw new IllegalArgumentException("First table must be at "
+                    + "least 0.");
+        this.firstTable = firstTable;
+    }
+    
+    /**
+     * Method to set the number of threads used to play tables.
+     * @param threads Integer number of threads, at least 1.
+     */
+    public void setThreads(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("Threads must be at "
+                    + "least 1.");
+        this.threads = threads;
+    }
+    
+    /**
+     * Method to set the file the summary is written to.
+     * @param output String file name, or null for console only.
+     */
+    public void setOutput(String output) {
+        this.output = output;
+    }
+    
+    /**
+     * Method to set the file the outcome of every decision is written
+     *  to, as an OutcomeCube in CSV.
+     * @param cube String file name, or null for none.
+     */
+    public void setCube(String cube) {
+        this.cube = cube;
+    }
+    
+    /**
+     * Method to set the file a partial result is written to, so the
+     *  simulation can be merged with others, such as the partitions of
+     *  a SimulationCoordinator. Any outcome cube is written to the 
+     *  partial result instead of its CSV file.
+     * @param partial String file name, or null for none.
+     */
+    public void setPartial(String partial) {
+        this.partial = partial;
+    }
+    
+    /**
+     * Method to set the directory every hand is recorded to.
+     * @param history String directory name, or null for none.
+     */
+    public void setHistory(String history) {
+        this.history = history;
+    }
+    
+    /**
+     * Method to set the kernel used to play tables. The object kernel
+     *  plays a BlackjackTable for each table, the batch kernel plays 
+     *  every table together with a BatchKernel.
+     * @param kernel String kernel, either object or batch.
+     */
+    public void setKernel(String kernel) {
+        String checked = kernel.trim().toLowerCase();
+        if (!checked.equals("object") && !checked.equals("batch"))
+            throw new IllegalArgumentException("Unknown kernel " 
+                    + kernel + ".");
+        this.kernel = checked;
+    }
+    
+    /**
+     * Method to set the estimator of EV per hand. The raw estimator 
+     *  is the mean value settled per hand. The control estimator also
+     *  reports a ControlVariates estimate, corrected by the chances of
+     *  a blackjack and of the dealer going bust, and plays to a 
+     *  precision with its standard error.
+     * @param estimator String estimator, either raw or control.
+     */
+    public void setEstimator(String estimator) {
+        String checked = estimator.trim().toLowerCase();
+        if (!checked.equals("raw") && !checked.equals("control"))
+            throw new IllegalArgumentException("Unknown estimator " 
+                    + estimator + ".");
+        this.estimator = checked;
+    }
+    
+    /**
+     * Method to set the side bets placed by every seat each round.
+     * @param sideBets SideBets object, or null for none.
+     */
+    public void setSideBets(SideBets sideBets) {
+        this.sideBets = sideBets;
+    }
+    
+    /**
+     * Method to set the directory results are cached in.
+     * @param cache String directory name, or null for none.
+     */
+    public void setCache(String cache) {
+        this.cache = cache;
+    }
+    
+    /**
+     * Method to set the largest size of the result cache.
+     * @param cacheSize Long size in bytes, at least 1.
+     */
+    public void setCacheSize(long cacheSize) {
+        if (cacheSize < 1)
+            throw new IllegalArgumentException("Cache size must be at "
+                    + "least 1.");
+        this.cacheSize = cacheSize;
+    }
+    
+    /**
+     * Method to set the house rules of every table.
+     * @param rules RuleSet object of house rules.
+     */
+    public void setRules(RuleSet rules) {
+        if (rules == null)
+            throw new IllegalArgumentException("Rules must be set.");
+        this.rules = rules;
+    }
+    
+    /**
+     * Method to get the number of tables simulated.
+     * @return Integer number of tables.
+     */
+    public int getTables() {
+        return this.tables;
+    }
+    
+    /**
+     * Method to get the player type of every seat at each table.
+     * @return Unmodifiable list of player types.
+     */
+    public List<String> getSeats() {
+        return Collections.unmodifiableList(this.seats);
+    }
+    
+    /**
+     * Method to get the rounds played at each table.
+     * @return Long number of rounds.
+     */
+    public long getRounds() {
+        return this.rounds;
+    }
+    
+    /**
+     * Method to get the precision every player type is played to.
+     * @return Double relative standard error, or 0 to play every 
+     *  round.
+     */
+    public double getPrecision() {
+        return this.precision;
+    }
+    
+    /**
+     * Method to get the seed used to shuffle.
+     * @return Long seed value.
+     */
+    public long getSeed() {
+        return this.seed;
+    }
+    
+    /**
+     * Method to get the index of the first table.
+     * @return Integer index of first table.
+     */
+    public int getFirstTable() {
+        return this.firstTable;
+    }
+    
+    /**
+     * Method to get the number of threads used to play tables.
+     * @return Integer number of threads.
+     */
+    public int getThreads() {
+        return this.threads;
+    }
+    
+    /**
+     * Method to get the file the summary is written to.
+     * @return String file name, or null for console only.
+     */
+    public String getOutput() {
+        return this.output;
+    }
+    
+    /**
+     * Method to get the file the outcome of every decision is written
+     *  to.
+     * @return String file name, or null for none.
+     */
+    public String getCube() {
+        return this.cube;
+    }
+    
+    /**
+     * Method to get the file a partial result is written to.
+     * @return String file name, or null for none.
+     */
+    public String getPartial() {
+        return this.partial;
+    }
+    
+    /**
+     * Method to get the directory every hand is recorded to.
+     * @return String directory name, or null for none.
+     */
+    public String getHistory() {
+        return this.history;
+    }
+    
+    /**
+     * Method to get the kernel used to play tables.
+     * @return String kernel, either object or batch.
+     */
+    public String getKernel() {
+        return this.kernel;
+    }
+    
+    /**
+     * Method to check if tables are played by the batch kernel.
+     * @return Boolean true if batch kernel is used, false otherwise.
+     */
+    public boolean isBatchKernel() {
+        return this.kernel.equals("batch");
+    }
+    
+    /**
+     * Method to get the estimator of EV per hand.
+     * @return String estimator, either raw or control.
+     */
+    public String getEstimator() {
+        return this.estimator;
+    }
+    
+    /**
+     * Method to check if a control variate estimate is reported.
+     * @return Boolean true if control estimator is used, false 
+     *  otherwise.
+     */
+    public boolean isControlEstimator() {
+        return this.estimator.equals("control");
+    }
+    
+    /**
+     * Method to get the side bets placed by every seat each round.
+     * @return SideBets object, or null for none.
+     */
+    public SideBets getSideBets() {
+        return this.sideBets;
+    }
+    
+    /**
+     * Method to get the directory results are cached in.
+     * @return String directory name, or null for none.
+     */
+    public String getCache() {
+        return this.cache;
+    }
+    
+    /**
+     * Method to get the largest size of the result cache.
+     * @return Long size in bytes.
+     */
+    public long getCacheSize() {
+        return this.cacheSize;
+    }
+    
+    /**
+     * Method to get the house rules of every table.
+     * @return RuleSet object of house rules.
+     */
+    public RuleSet getRules() {
+        return this.rules;
+    }
+}
\ No newline at end of file
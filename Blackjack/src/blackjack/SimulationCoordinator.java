@@ -0,0 +1,432 @@
+package blackjack;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Class: SimulationCoordinator.java
+ * Description: Headless batch simulation split into partitions of
+ *  tables, each played by its own Simulation process and written to a
+ *  PartialResult file. Table i shuffles with stream i of the seed
+ *  however the tables are split, as each partition is given the
+ *  index of its first table, so the merged result is identical to a
+ *  single simulation of every table. A partition that fails is played
+ *  again, and partitions already in the directory are merged without
+ *  being played, so a coordinator that is stopped resumes where it
+ *  left off and partitions played on other machines can be copied
+ *  in.
+ * Author: Paulo Jorge.
+ */
+public class SimulationCoordinator {
+    // Settings of whole simulation
+    private final SimulationConfig config;
+    // Arguments every partition is played with, less its tables and
+    // first table
+    private final List<String> args;
+    // Number of partitions, or 0 for 1 per process
+    private int partitions = 0;
+    // Number of processes played at once
+    private int processes = Runtime.getRuntime().availableProcessors();
+    // Directory partial results and logs are written to
+    private File dir = new File("partitions");
+    // Times a failed partition is played again
+    private int retries = 2;
+    // Max heap of each process, such as 512m, or null for default
+    private String heap;
+    // Cube of every partition merged, or null for none
+    private OutcomeCube cube;
+
+    /**
+     * Constructor method used to initialise a new coordinator.
+     * @param config SimulationConfig object of whole simulation.
+     * @param args String list of arguments every partition is played
+     *  with, without --tables, --first-table, --output or --partial.
+     */
+    public SimulationCoordinator(SimulationConfig config,
+            List<String> args) {
+        if (config.getPrecision() > 0)
+            throw new IllegalArgumentException("Partitions can not "
+                    + "stop at a precision.");
+        if (config.getHistory() != null)
+            throw new IllegalArgumentException("Hand history can not "
+                    + "be recorded by partitions.");
+        this.config = config;
+        this.args = args;
+    }
+
+    /**
+     * Method to set the number of partitions tables are split into.
+     * @param partitions Integer number of partitions, from 1 to the
+     *  number of tables.
+     */
+    public void setPartitions(int partitions) {
+        if (partitions < 1)
+            throw new IllegalArgumentException("Partitions must be at "
+                    + "least 1.");
+        if (partitions > this.config.getTables())
+            throw new IllegalArgumentException("Partitions must be at "
+                    + "most the number of tables.");
+        this.partitions = partitions;
+    }
+
+    /**
+     * Method to set the number of processes played at once.
+     * @param processes Integer number of processes, at least 1.
+     */
+    public void setProcesses(int processes) {
+        if (processes < 1)
+            throw new IllegalArgumentException("Processes must be at "
+                    + "least 1.");
+        this.processes = processes;
+    }
+
+    /**
+     * Method to set the directory partial results are written to.
+     * @param dir File object of directory.
+     */
+    public void setDir(File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Method to set the times a failed partition is played again.
+     * @param retries Integer number of retries, at least 0.
+     */
+    public void setRetries(int retries) {
+        if (retries < 0)
+            throw new IllegalArgumentException("Retries must be at "
+                    + "least 0.");
+        this.retries = retries;
+    }
+
+    /**
+     * Method to set the max heap of each process.
+     * @param heap String heap size as given to -Xmx, such as 512m.
+     */
+    public void setHeap(String heap) {
+        if (!heap.matches("[0-9]+[kKmMgG]?"))
+            throw new IllegalArgumentException("Invalid heap size '"
+                    + heap + "'.");
+        this.heap = heap;
+    }
+
+    /**
+     * Method to get and return the cube of every partition merged.
+     * @return OutcomeCube object, or null for none.
+     */
+    public OutcomeCube getCube() {
+        return this.cube;
+    }
+
+    /**
+     * Method to run the simulation. Each partition is played by a
+     *  process, up to the number of processes at once, unless its
+     *  partial result is already in the directory. Partial results are
+     *  merged in partition order.
+     * @return SimulationStats object of every table combined.
+     * @throws InterruptedException If interrupted while waiting.
+     * @throws IOException If the directory could not be created, a
+     *  partition failed on every attempt, or the outcome cube could
+     *  not be written.
+     */
+    public SimulationStats run() throws InterruptedException,
+            IOException {
+        if (!this.dir.isDirectory() && !this.dir.mkdirs())
+            throw new IOException("Could not create " + this.dir + ".");
+        int tables = this.config.getTables();
+        int count = (this.partitions > 0 ? this.partitions
+                : Math.min(this.processes, tables));
+
+        ExecutorService executor
+                = Executors.newFixedThreadPool(this.processes);
+        try {
+            List<Future<PartialResult>> results = new ArrayList();
+            for (int p = 0; p < count; p++) {
+                // Split tables as evenly as possible
+                int first = (int) ((long) tables * p / count);
+                int last = (int) ((long) tables * (p + 1) / count);
+                results.add(executor.submit(new Partition(p, first,
+                        last - first)));
+            }
+
+            // Combine results in partition order
+            SimulationStats stats = new SimulationStats(
+                    this.config.isControlEstimator());
+            if (this.config.getCube() != null)
+                this.cube = new OutcomeCube(1);
+            List<Integer> failed = new ArrayList();
+            for (int p = 0; p < count; p++) {
+                try {
+                    results.get(p).get().mergeInto(stats, this.cube);
+                } catch (ExecutionException exception) {
+                    System.err.println("Partition " + p + " failed: "
+                            + exception.getCause().getMessage());
+                    failed.add(p);
+                }
+            }
+            if (!failed.isEmpty())
+                throw new IOException("Partitions " + failed
+                        + " failed, see their logs in " + this.dir
+                        + ".");
+
+            if (this.cube != null)
+                this.cube.write(new File(this.config.getCube()));
+            return stats;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Partition of consecutive tables, played by a process until its
+     *  partial result is written or every attempt has failed.
+     */
+    private class Partition implements Callable<PartialResult> {
+        // Index of partition
+        private final int index;
+        // Index of first table, and number of tables
+        private final int first;
+        private final int tables;
+
+        /**
+         * Constructor method used to initialise a new partition.
+         * @param index Integer index of partition.
+         * @param first Integer index of first table.
+         * @param tables Integer number of tables.
+         */
+        Partition(int index, int first, int tables) {
+            this.index = index;
+            this.first = first;
+            this.tables = tables;
+        }
+
+        /**
+         * Method to get the partial result of this partition, reading
+         *  it from the directory if it was already played.
+         * @return PartialResult object of partition.
+         * @throws InterruptedException If interrupted while playing.
+         * @throws IOException If every attempt failed.
+         */
+        @Override
+        public PartialResult call() throws InterruptedException,
+                IOException {
+            int firstTable = config.getFirstTable() + this.first;
+            File file = new File(dir, "part-" + this.index + ".bin");
+            File log = new File(dir, "part-" + this.index + ".log");
+            if (file.isFile()) {
+                try {
+                    PartialResult result = PartialResult.read(file);
+                    if (result.matches(firstTable, this.tables, config))
+                        return result;
+                } catch (IOException exception) {
+                    // Played again below
+                }
+            }
+
+            String error = null;
+            for (int attempt = 0; attempt <= retries; attempt++) {
+                error = play(firstTable, file, log);
+                if (error == null) {
+                    PartialResult result = PartialResult.read(file);
+                    if (result.matches(firstTable, this.tables, config))
+                        return result;
+                    error = "Partial result does not match partition.";
+                }
+                System.err.println("Partition " + this.index
+                        + " attempt " + (attempt + 1) + " failed: "
+                        + error);
+            }
+            throw new IOException(error);
+        }
+
+        /**
+         * Method to play this partition in a new process, writing its
+         *  output to a log.
+         * @param firstTable Integer index of first table.
+         * @param file File object partial result is written to.
+         * @param log File object output is appended to.
+         * @return String error, or null if the process succeeded.
+         * @throws InterruptedException If interrupted while playing,
+         *  after the process is destroyed.
+         * @throws IOException If the process could not be started.
+         */
+        private String play(int firstTable, File file, File log)
+                throws InterruptedException, IOException {
+            List<String> command = new ArrayList();
+            command.add(new File(System.getProperty("java.home"),
+                    "bin" + File.separator + "java").getPath());
+            if (heap != null)
+                command.add("-Xmx" + heap);
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(Simulation.class.getName());
+            command.addAll(args);
+            command.add("--tables");
+            command.add(Integer.toString(this.tables));
+            command.add("--first-table");
+            command.add(Integer.toString(firstTable));
+            command.add("--partial");
+            command.add(file.getPath());
+
+            Process process = new ProcessBuilder(command)
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.appendTo(log))
+                    .start();
+            try {
+                int status = process.waitFor();
+                return (status == 0 ? null
+                        : "Process exited with status " + status + ".");
+            } catch (InterruptedException exception) {
+                process.destroyForcibly();
+                throw exception;
+            }
+        }
+    }
+
+    /**
+     * Method to print the command line usage to the error stream.
+     */
+    private static void printUsage() {
+        System.err.println("Usage: java -cp Blackjack.jar "
+                + "blackjack.SimulationCoordinator [--partitions N]"
+                + " [--processes N] [--dir DIR] [--retries N]"
+                + " [--heap SIZE] [simulation options]");
+    }
+
+    /**
+     * Method to run a partitioned simulation from the command line.
+     *  Options are:
+     *   --partitions N    Partitions tables are split into (default
+     *                      1 per process).
+     *   --processes N     Processes played at once (default number of
+     *                      processors).
+     *   --dir DIR         Directory partial results and logs are
+     *                      written to (default partitions).
+     *   --retries N       Times a failed partition is played again
+     *                      (default 2).
+     *   --heap SIZE       Max heap of each process, such as 512m.
+     *  Every other option is a simulation option. Each process plays
+     *  with 1 thread unless --threads is given.
+     * @param args String array of command line arguments.
+     */
+    public static void main(String[] args) {
+        SimulationConfig config;
+        SimulationCoordinator coordinator;
+        try {
+            List<String> options = new ArrayList();
+            List<String> shared = new ArrayList();
+            List<String[]> settings = new ArrayList();
+            boolean threads = false;
+            for (int i = 0; i < args.length; i++) {
+                String option = args[i];
+                // Every option is followed by a value
+                if ((i + 1) >= args.length)
+                    throw new IllegalArgumentException("Missing value "
+                            + "for " + option + ".");
+                String value = args[++i];
+
+                switch (option) {
+                    case "--partitions":
+                    case "--processes":
+                    case "--dir":
+                    case "--retries":
+                    case "--heap":
+                        settings.add(new String[] {option, value});
+                        break;
+                    case "--partial":
+                        throw new IllegalArgumentException("Partial "
+                                + "results are written to --dir.");
+                    default:
+                        options.add(option);
+                        options.add(value);
+                        // Tables are set for each partition
+                        if (option.equals("--tables")
+                                || option.equals("--first-table")
+                                || option.equals("--output"))
+                            break;
+                        threads |= option.equals("--threads");
+                        shared.add(option);
+                        shared.add(value);
+                }
+            }
+            if (!threads) {
+                shared.add("--threads");
+                shared.add("1");
+            }
+
+            config = SimulationConfig.parse(options.toArray(
+                    new String[0]));
+            coordinator = new SimulationCoordinator(config, shared);
+            for (String[] setting : settings) {
+                switch (setting[0]) {
+                    case "--partitions":
+                        coordinator.setPartitions(
+                                parseInt(setting[0], setting[1]));
+                        break;
+                    case "--processes":
+                        coordinator.setProcesses(
+                                parseInt(setting[0], setting[1]));
+                        break;
+                    case "--dir":
+                        coordinator.setDir(new File(setting[1]));
+                        break;
+                    case "--retries":
+                        coordinator.setRetries(
+                                parseInt(setting[0], setting[1]));
+                        break;
+                    default:
+                        coordinator.setHeap(setting[1]);
+                }
+            }
+        } catch (IllegalArgumentException exception) {
+            System.err.println("Error: " + exception.getMessage());
+            printUsage();
+            System.exit(2);
+            return;
+        }
+
+        try {
+            // Run and time simulation
+            long start = System.nanoTime();
+            SimulationStats stats = coordinator.run();
+            String summary = Simulation.toJson(config, stats,
+                    System.nanoTime() - start);
+
+            // Write summary to file if required
+            if (config.getOutput() != null)
+                try (PrintWriter file
+                        = new PrintWriter(config.getOutput(), "UTF-8")) {
+                    file.print(summary);
+                }
+            System.out.print(summary);
+        } catch (InterruptedException | IOException exception) {
+            System.err.println("Error: " + exception.getMessage());
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Method to read an integer option value.
+     * @param option String option name.
+     * @param value String value.
+     * @return Integer value.
+     * @throws IllegalArgumentException If value is not an integer.
+     */
+    private static int parseInt(String option, String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException exception) {
+            throw new IllegalArgumentException("Invalid value '"
+                    + value + "' for " + option + ".");
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,500 @@
+package blackjack;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Class: SimulationStats.java
+ * Description: Round listener used to total the outcome of every 
+ *  hand played during a simulation, for each type of player.
+ * Author: Paulo Jorge.
+ */
+public class SimulationStats implements RoundListener {
+    // Totals for each player type, in order first seen
+    private final Map<String, Totals> totals = new LinkedHashMap();
+    // Rounds settled
+    private long rounds = 0;
+    // True if a control variate estimate is recorded for each type
+    private final boolean controls;
+    // Side bets placed, won, total staked and won or lost, by side bet
+    private final long[] sideBets = new long[SideBets.COUNT];
+    private final long[] sideWins = new long[SideBets.COUNT];
+    private final long[] sideWagered = new long[SideBets.COUNT];
+    private final long[] sideNet = new long[SideBets.COUNT];
+    
+    /**
+     * Constructor method used to initialise new statistics without
+     *  control variates.
+     */
+    public SimulationStats() {
+        this(false);
+    }
+    
+    /**
+     * Constructor method used to initialise new statistics.
+     * @param controls Boolean true to record a control variate 
+     *  estimate of the EV per hand of each player type, which needs
+     *  every hand to be settled by a dealer.
+     */
+    public SimulationStats(boolean controls) {
+        this.controls = controls;
+    }
+    
+    /**
+     * Totals of the hands played by a single player type.
+     */
+    public static class Totals {
+        // Hands played and their outcomes
+        private long hands;
+        private long wins;
+        private long pushes;
+        private long losses;
+        private long blackjacks;
+        private long busts;
+        // Total value bet and won or lost
+        private long wagered;
+        private long net;
+        // Sum of the squares of value won or lost by each hand
+        private long netSquares;
+        // Number of times a player ran out of funds
+        private long ruined;
+        // Control variate estimate of EV per hand, or null for none
+        private ControlVariates controls;
+        
+        /**
+         * Method to add another totals object to this.
+         * @param other Totals object to add.
+         */
+        private void add(Totals other) {
+            this.hands += other.hands;
+            this.wins += other.wins;
+            this.pushes += other.pushes;
+            this.losses += other.losses;
+            this.blackjacks += other.blackjacks;
+            this.busts += other.busts;
+            this.wagered += other.wagered;
+            this.net += other.net;
+            this.netSquares += other.netSquares;
+            this.ruined += other.ruined;
+            if (other.controls != null) {
+                if (this.controls == null)
+                    this.controls = new ControlVariates();
+                this.controls.add(other.controls);
+            }
+        }
+        
+        /**
+         * Method to record the outcome of a single hand.
+         * @param bet Integer value of the bet placed.
+         * @param settled Integer value settled.
+         * @param blackjack Boolean true if hand was a blackjack.
+         * @param bust Boolean true if hand was bust.
+         */
+        void record(int bet, int settled, boolean blackjack, 
+                boolean bust) {
+            this.hands++;
+            this.wagered += bet;
+            this.net += settled;
+            this.netSquares += (long) settled * settled;
+            
+            // Round outcome
+            if (settled < 0)
+                this.losses++;
+            else if (settled == bet)
+                this.pushes++;
+            else
+                this.wins++;
+            
+            if (blackjack)
+                this.blackjacks++;
+            if (bust)
+                this.busts++;
+        }
+        
+        /**
+         * Method to get and return the number of hands played.
+         * @return Long number of hands played.
+         */
+        public long getHands() {
+            return this.hands;
+        }
+        
+        /**
+         * Method to get and return the number of hands won.
+         * @return Long number of hands won.
+         */
+        public long getWins() {
+            return this.wins;
+        }
+        
+        /**
+         * Method to get and return the number of hands where the bet was
+         *  retained.
+         * @return Long number of hands where the bet was retained.
+         */
+        public long getPushes() {
+            return this.pushes;
+        }
+        
+        /**
+         * Method to get and return the number of hands lost.
+         * @return Long number of hands lost.
+         */
+        public long getLosses() {
+            return this.losses;
+        }
+        
+        /**
+         * Method to get and return the number of blackjacks dealt.
+         * @return Long number of blackjacks dealt.
+         */
+        public long getBlackjacks() {
+            return this.blackjacks;
+        }
+        
+        /**
+         * Method to get and return the number of hands bust.
+         * @return Long number of hands bust.
+         */
+        public long getBusts() {
+            return this.busts;
+        }
+        
+        /**
+         * Method to get and return the total value bet.
+         * @return Long total value bet.
+         */
+        public long getWagered() {
+            return this.wagered;
+        }
+        
+        /**
+         * Method to get and return the total value won, negative if lost.
+         * @return Long total value won, negative if lost.
+         */
+        public long getNet() {
+            return this.net;
+        }
+        
+        /**
+         * Method to get and return the number of times a player ran out of
+         *  funds.
+         * @return Long number of times a player ran out of funds.
+         */
+        public long getRuined() {
+            return this.ruined;
+        }
+        
+        /**
+         * Method to get and return the control variate estimate of EV,
+         *  or null for none.
+         * @return ControlVariates estimate of EV, or null for none.
+         */
+        public ControlVariates getControls() {
+            return this.controls;
+        }
+        
+        /**
+         * Method to get and return the standard error of the value won
+         *  or lost per hand. Moments are kept as exact integer sums, so
+         *  totals merged in any order give the same error.
+         * @return Double standard error, or infinity if fewer than 2 
+         *  hands were played.
+         */
+        public double getStandardError() {
+            if (this.hands < 2)
+                return Double.POSITIVE_INFINITY;
+            double mean = (double) this.net / this.hands;
+            double variance = ((double) this.netSquares 
+                    - (mean * this.net)) / (this.hands - 1);
+            return Math.sqrt(Math.max(variance, 0) / this.hands);
+        }
+        
+        /**
+         * Method to get and return the standard error of the value won
+         *  or lost per hand, as a fraction of the average bet. The 
+         *  error of the control variate estimate is used if recorded.
+         * @return Double relative standard error, or infinity if 
+         *  nothing was bet.
+         */
+        public double getRelativeError() {
+            double error = (this.controls != null 
+                    ? this.controls.getStandardError() 
+                    : getStandardError());
+            return (this.wagered > 0 ? error * this.hands 
+                    / this.wagered : Double.POSITIVE_INFINITY);
+        }
+    }
+    
+    /**
+     * Method to record the outcome of a players hand.
+     * @param dealer Dealer object settling the bet.
+     * @param seat Integer seat position of player starting at 1.
+     * @param player Player object whose bet was settled.
+     * @param hand Hand object the player finished the round with.
+     * @param bet Integer value of the bet placed.
+     * @param settled Integer value settled.
+     */
+    @Override
+    public void seatSettled(BlackjackDealer dealer, int seat, 
+            Player player, Hand hand, int bet, int settled) {
+        Totals total = getTotals(player.getPlayerType());
+        total.record(bet, settled, hand.isBlackjack(), hand.isOver(21));
+        
+        // Each control is its outcome less its chance, times the bet.
+        // A player may hit a blackjack, so the first 2 cards are used
+        if (total.controls != null)
+            total.controls.record(settled, bet 
+                    * ((Card.isBlackjack(hand.get(0), hand.get(1)) ? 1 
+                    : 0) - dealer.getBlackjackChance()), bet 
+                    * ((dealer.getDealerScore() > 21 ? 1 : 0) 
+                    - dealer.getBustChance()));
+        
+        SideBets sideBets = dealer.getSideBets();
+        if (sideBets != null)
+            for (int side = 0; side < SideBets.COUNT; side++)
+                recordSide(side, sideBets.getStake(side), 
+                        dealer.getSideSettled(seat, side));
+    }
+    
+    /**
+     * Method to record the outcome of a side bet.
+     * @param side Integer index of side bet.
+     * @param stake Integer stake of side bet, or 0 if not offered.
+     * @param settled Integer value settled, negative if lost.
+     */
+    void recordSide(int side, int stake, int settled) {
+        if (stake <= 0)
+            return;
+        this.sideBets[side]++;
+        if (settled > 0)
+            this.sideWins[side]++;
+        this.sideWagered[side] += stake;
+        this.sideNet[side] += settled;
+    }
+    
+    /**
+     * Method to count each round settled.
+     * @param dealer Dealer object that settled the round.
+     * @param hand Hand object the dealer finished the round with.
+     */
+    @Override
+    public void roundSettled(BlackjackDealer dealer, Hand hand) {
+        this.rounds++;
+    }
+    
+    /**
+     * Method to count rounds settled without a dealer, such as by a
+     *  batch kernel.
+     * @param rounds Long number of rounds settled.
+     */
+    void addRounds(long rounds) {
+        this.rounds += rounds;
+    }
+    
+    /**
+     * Method to record that a player ran out of funds.
+     * @param playerType String type of player.
+     */
+    public void playerRuined(String playerType) {
+        getTotals(playerType).ruined++;
+    }
+    
+    /**
+     * Method to add the statistics of another simulation to this.
+     * @param other SimulationStats object to add.
+     */
+    public void merge(SimulationStats other) {
+        this.rounds += other.rounds;
+        for (Map.Entry<String, Totals> entry : other.totals.entrySet())
+            getTotals(entry.getKey()).add(entry.getValue());
+        for (int side = 0; side < SideBets.COUNT; side++) {
+            this.sideBets[side] += other.sideBets[side];
+            this.sideWins[side] += other.sideWins[side];
+            this.sideWagered[side] += other.sideWagered[side];
+            this.sideNet[side] += other.sideNet[side];
+        }
+    }
+    
+    /**
+     * Method to write these statistics to a buffer, as exact sums that
+     *  can be merged with statistics read back.
+     * @param buffer ByteBuffer object to write to.
+     */
+    void encode(ByteBuffer buffer) {
+        buffer.putLong(this.rounds);
+        buffer.put((byte) (this.controls ? 1 : 0));
+        buffer.putInt(this.totals.size());
+        for (Map.Entry<String, Totals> entry : this.totals.entrySet()) {
+            byte[] type = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            buffer.putShort((short) type.length);
+            buffer.put(type);
+            
+            Totals total = entry.getValue();
+            buffer.putLong(total.hands);
+            buffer.putLong(total.wins);
+            buffer.putLong(total.pushes);
+            buffer.putLong(total.losses);
+            buffer.putLong(total.blackjacks);
+            buffer.putLong(total.busts);
+            buffer.putLong(total.wagered);
+            buffer.putLong(total.net);
+            buffer.putLong(total.netSquares);
+            buffer.putLong(total.ruined);
+            buffer.put((byte) (total.controls != null ? 1 : 0));
+            if (total.controls != null)
+                total.controls.encode(buffer);
+        }
+        buffer.put((byte) SideBets.COUNT);
+        for (int side = 0; side < SideBets.COUNT; side++) {
+            buffer.putLong(this.sideBets[side]);
+            buffer.putLong(this.sideWins[side]);
+            buffer.putLong(this.sideWagered[side]);
+            buffer.putLong(this.sideNet[side]);
+        }
+    }
+    
+    /**
+     * Method to read statistics from a buffer written by encode().
+     * @param buffer ByteBuffer object to read from.
+     * @param version Integer format version of PartialResult written,
+     *  as side bets were only written from version 2.
+     * @return SimulationStats object read.
+     */
+    static SimulationStats decode(ByteBuffer buffer, int version) {
+        long rounds = buffer.getLong();
+        SimulationStats stats = new SimulationStats(buffer.get() != 0);
+        stats.rounds = rounds;
+        for (int i = buffer.getInt(); i > 0; i--) {
+            byte[] type = new byte[buffer.getShort()];
+            buffer.get(type);
+            
+            Totals total = new Totals();
+            total.hands = buffer.getLong();
+            total.wins = buffer.getLong();
+            total.pushes = buffer.getLong();
+            total.losses = buffer.getLong();
+            total.blackjacks = buffer.getLong();
+            total.busts = buffer.getLong();
+            total.wagered = buffer.getLong();
+            total.net = buffer.getLong();
+            total.netSquares = buffer.getLong();
+            total.ruined = buffer.getLong();
+            if (buffer.get() != 0)
+                total.controls = ControlVariates.decode(buffer);
+            stats.totals.put(new String(type, StandardCharsets.UTF_8), 
+                    total);
+        }
+        int sides = (version >= 2 ? buffer.get() : 0);
+        if ((sides < 0) || (sides > SideBets.COUNT))
+            throw new IllegalArgumentException("Invalid side bets.");
+        for (int side = 0; side < sides; side++) {
+            stats.sideBets[side] = buffer.getLong();
+            stats.sideWins[side] = buffer.getLong();
+            stats.sideWagered[side] = buffer.getLong();
+            stats.sideNet[side] = buffer.getLong();
+        }
+        return stats;
+    }
+    
+    /**
+     * Method to get and return the totals of a player type, creating
+     *  new totals if the type has not been seen.
+     * @param playerType String type of player.
+     * @return Totals object of player type.
+     */
+    public Totals getTotals(String playerType) {
+        Totals total = this.totals.get(playerType);
+        if (total == null) {
+            total = new Totals();
+            if (this.controls)
+                total.controls = new ControlVariates();
+            this.totals.put(playerType, total);
+        }
+        return total;
+    }
+    
+    /**
+     * Method to get and return the totals of every player type seen.
+     * @return Map of player type to totals, in order first seen.
+     */
+    public Map<String, Totals> getTotals() {
+        return this.totals;
+    }
+    
+    /**
+     * Method to check if the EV per hand of every player type is known
+     *  to a precision.
+     * @param precision Double largest relative standard error.
+     * @return Boolean true if every player type has played and is at 
+     *  least as precise, false otherwise.
+     */
+    public boolean isPrecise(double precision) {
+        if (this.totals.isEmpty())
+            return false;
+        for (Totals total : this.totals.values())
+            if (!(total.getRelativeError() <= precision))
+                return false;
+        return true;
+    }
+    
+    /**
+     * Method to get and return the number of side bets of a type 
+     *  placed.
+     * @param side Integer index of side bet.
+     * @return Long number of side bets.
+     */
+    public long getSideBets(int side) {
+        return this.sideBets[side];
+    }
+    
+    /**
+     * Method to get and return the number of side bets of a type won.
+     * @param side Integer index of side bet.
+     * @return Long number of side bets won.
+     */
+    public long getSideWins(int side) {
+        return this.sideWins[side];
+    }
+    
+    /**
+     * Method to get and return the total staked on side bets of a type.
+     * @param side Integer index of side bet.
+     * @return Long total staked.
+     */
+    public long getSideWagered(int side) {
+        return this.sideWagered[side];
+    }
+    
+    /**
+     * Method to get and return the total won or lost on side bets of a
+     *  type.
+     * @param side Integer index of side bet.
+     * @return Long total won, negative if lost.
+     */
+    public long getSideNet(int side) {
+        return this.sideNet[side];
+    }
+    
+    /**
+     * Method to get and return the number of rounds settled.
+     * @return Long number of rounds.
+     */
+    public long getRounds() {
+        return this.rounds;
+    }
+    
+    /**
+     * Method to get and return the number of hands played by every 
+     *  player type.
+     * @return Long number of hands.
+     */
+    public long getHands() {
+        long hands = 0;
+        for (Totals total : this.totals.values())
+            hands += total.hands;
+        return hands;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,108 @@
+package blackjack;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Class: SnapshotWriter.java
+ * Description: Background writer used to save table snapshots to file
+ *  without stalling the thread playing the table. Snapshots are 
+ *  written in order on a single daemon thread. If several snapshots
+ *  of the same file are waiting, only the latest is written. A 
+ *  snapshot that can not be written is reported on the error stream,
+ *  and a game flushes the writer before it ends, as a daemon thread 
+ *  does not hold up exit.
+ * Author: Paulo Jorge.
+ */
+public class SnapshotWriter {
+    // Writer shared by every table
+    private static final SnapshotWriter DEFAULT = new SnapshotWriter();
+    
+    // Single thread used to write snapshots
+    private final ExecutorService executor 
+            = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    // Latest snapshot waiting to be written to each file
+    private final ConcurrentMap<String, TableSnapshot> pending 
+            = new ConcurrentHashMap();
+    
+    /**
+     * Method to get and return the writer shared by every table.
+     * @return SnapshotWriter object.
+     */
+    public static SnapshotWriter getDefault() {
+        return DEFAULT;
+    }
+    
+    /**
+     * Method to queue a snapshot to be written to file. Returns 
+     *  straight away, replacing any older snapshot of the same file 
+     *  that has not been written yet.
+     * @param snapshot TableSnapshot object to write.
+     * @param fileName String file name of file to write to.
+     */
+    public void write(TableSnapshot snapshot, final String fileName) {
+        // A write is already queued if an older snapshot is waiting
+        if (this.pending.put(fileName, snapshot) != null)
+            return;
+        
+        this.executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                writeLatest(fileName);
+            }
+        });
+    }
+    
+    /**
+     * Method to write the latest snapshot waiting for a file.
+     * @param fileName String file name of file to write to.
+     */
+    private void writeLatest(String fileName) {
+        TableSnapshot snapshot = this.pending.remove(fileName);
+        if (snapshot == null)
+            return;
+        
+        TableEvents.Save event = new TableEvents.Save();
+        event.begin();
+        long started = TableMetrics.start();
+        event.fileName = fileName;
+        try {
+            BinaryCodec.writeToFile(snapshot.getData(), fileName);
+        } catch (IOException exception) {
+            System.err.println("Error: Unable to save game to /" 
+                    + fileName + ". " + exception.getMessage());
+        }
+        event.commit(snapshot.getTableId(), snapshot.getRound(), 
+                snapshot.getSeatCount());
+        TableMetrics.record(TableMetrics.Phase.SAVE, started);
+    }
+    
+    /**
+     * Method to wait until every snapshot queued before this call has
+     *  been written.
+     */
+    public void flush() {
+        try {
+            this.executor.submit(new Runnable() {
+                @Override
+                public void run() {}
+            }).get();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException exception) {
+            exception.printStackTrace();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,136 @@
+package blackjack;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class: TableClient.java
+ * Description: Test client of a TableServer, connecting a number of
+ *  players that each bet the minimum and hit below 17 for a number of
+ *  rounds before quitting, moving table every MOVE_ROUNDS rounds. Run
+ *  with no arguments, a server is started on loopback and played
+ *  against.
+ * Author: Paulo Jorge.
+ */
+public class TableClient implements Runnable {
+    // Rounds played at a table before moving to another
+    private static final int MOVE_ROUNDS = 100;
+    
+    // Address of server
+    private final String host;
+    private final int port;
+    // Rounds to play before quitting
+    private final int rounds;
+    // Rounds settled by every client
+    private final AtomicLong settled;
+
+    /**
+     * Constructor method used to initialise a new client.
+     * @param host String host name of server.
+     * @param port Integer port of server.
+     * @param rounds Integer rounds to play before quitting.
+     * @param settled AtomicLong object counting rounds settled.
+     */
+    public TableClient(String host, int port, int rounds,
+            AtomicLong settled) {
+        this.host = host;
+        this.port = port;
+        this.rounds = rounds;
+        this.settled = settled;
+    }
+
+    /**
+     * Method to play against the server until the rounds have been
+     *  played or the server says goodbye.
+     */
+    @Override
+    public void run() {
+        try (Socket socket = new Socket(this.host, this.port)) {
+            socket.setTcpNoDelay(true);
+            BufferedReader in = new BufferedReader(new InputStreamReader(
+                    socket.getInputStream(), StandardCharsets.UTF_8));
+            PrintWriter out = new PrintWriter(socket.getOutputStream(),
+                    true);
+            int played = 0;
+
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] words = line.split(" ");
+                switch (words[0]) {
+                    case "BET":
+                        out.println(RuleSet.standard().getMinimumBet());
+                        break;
+                    case "HIT":
+                        out.println(Integer.parseInt(words[1]) < 17
+                                ? "HIT" : "STAND");
+                        break;
+                    case "SETTLED":
+                        this.settled.incrementAndGet();
+                        // Leave at the end of the next round
+                        if (++played == this.rounds)
+                            out.println("QUIT");
+                        // Move table every so often
+                        else if ((played % MOVE_ROUNDS) == 0)
+                            out.println("MOVE");
+                        break;
+                    case "BYE":
+                        return;
+                    default:
+                        break;
+                }
+            }
+        } catch (IOException exception) {
+            System.out.println("Client failed: " + exception);
+        }
+    }
+
+    /**
+     * Method to run a number of clients against a server.
+     * @param args Host, port, number of clients and rounds each plays.
+     *  With no arguments, a server of 4 tables is started on loopback
+     *  and played by 16 clients for 1000 rounds each.
+     * @throws IOException If server could not be started.
+     * @throws InterruptedException If interrupted while waiting for
+     *  clients.
+     */
+    public static void main(String[] args) throws IOException,
+            InterruptedException {
+        TableServer server = null;
+        String host = "127.0.0.1";
+        int port;
+        if (args.length >= 2) {
+            host = args[0];
+            port = Integer.parseInt(args[1]);
+        } else {
+            server = new TableServer(0, 4, 2, RuleSet.standard());
+            port = server.getPort();
+        }
+        int clients = (args.length > 2 ? Integer.parseInt(args[2]) : 16);
+        int rounds = (args.length > 3 ? Integer.parseInt(args[3])
+                : 1000);
+
+        // Start clients
+        AtomicLong settled = new AtomicLong();
+        long start = System.nanoTime();
+        Thread[] threads = new Thread[clients];
+        for (int i = 0; i < clients; i++) {
+            threads[i] = new Thread(new TableClient(host, port, rounds,
+                    settled), "client-" + i);
+            threads[i].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%d clients settled %d hands in %.2fs "
+                + "(%.0f hands/s).%n", clients, settled.get(), seconds,
+                settled.get() / seconds);
+        if (server != null)
+            server.close();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,221 @@
+package blackjack;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Class: TableEvents.java
+ * Description: Java Flight Recorder events recorded for each phase of
+ *  a round, deck reshuffles and table saves and loads. Every event 
+ *  carries the table ID, round number and seat count so a recording
+ *  shows which phase of which table spent the time. Round phase 
+ *  events are started through the begin methods, which return null 
+ *  instead of creating an event when it is not enabled in a 
+ *  recording, so an unrecorded round only costs a flag check.
+ * Author: Paulo Jorge.
+ */
+public final class TableEvents {
+    // Event types checked before creating a round phase event
+    private static final EventType TAKE_BETS 
+            = EventType.getEventType(TakeBets.class);
+    private static final EventType DEAL_FIRST_CARDS 
+            = EventType.getEventType(DealFirstCards.class);
+    private static final EventType PLAY 
+            = EventType.getEventType(Play.class);
+    private static final EventType PLAY_DEALER 
+            = EventType.getEventType(PlayDealer.class);
+    private static final EventType SETTLE_BETS 
+            = EventType.getEventType(SettleBets.class);
+    private static final EventType RESHUFFLE 
+            = EventType.getEventType(Reshuffle.class);
+    
+    /**
+     * Private constructor as class only holds event types.
+     */
+    private TableEvents() {}
+    
+    /**
+     * Method to begin timing the dealer taking bets.
+     * @return TakeBets event started, or null if not enabled.
+     */
+    static TakeBets beginTakeBets() {
+        if (!TAKE_BETS.isEnabled())
+            return null;
+        TakeBets event = new TakeBets();
+        event.begin();
+        return event;
+    }
+    
+    /**
+     * Method to begin timing the dealer dealing the first cards.
+     * @return DealFirstCards event started, or null if not enabled.
+     */
+    static DealFirstCards beginDealFirstCards() {
+        if (!DEAL_FIRST_CARDS.isEnabled())
+            return null;
+        DealFirstCards event = new DealFirstCards();
+        event.begin();
+        return event;
+    }
+    
+    /**
+     * Method to begin timing a single seat playing their hand.
+     * @param seat Integer seat number, starting from 1.
+     * @return Play event started, or null if not enabled.
+     */
+    static Play beginPlay(int seat) {
+        if (!PLAY.isEnabled())
+            return null;
+        Play event = new Play();
+        event.seat = seat;
+        event.begin();
+        return event;
+    }
+    
+    /**
+     * Method to begin timing the dealer playing their hand.
+     * @return PlayDealer event started, or null if not enabled.
+     */
+    static PlayDealer beginPlayDealer() {
+        if (!PLAY_DEALER.isEnabled())
+            return null;
+        PlayDealer event = new PlayDealer();
+        event.begin();
+        return event;
+    }
+    
+    /**
+     * Method to begin timing the dealer settling bets.
+     * @return SettleBets event started, or null if not enabled.
+     */
+    static SettleBets beginSettleBets() {
+        if (!SETTLE_BETS.isEnabled())
+            return null;
+        SettleBets event = new SettleBets();
+        event.begin();
+        return event;
+    }
+    
+    /**
+     * Method to begin timing the dealer shuffling a new deck.
+     * @param cardsRemaining Integer cards left in the old deck.
+     * @return Reshuffle event started, or null if not enabled.
+     */
+    static Reshuffle beginReshuffle(int cardsRemaining) {
+        if (!RESHUFFLE.isEnabled())
+            return null;
+        Reshuffle event = new Reshuffle();
+        event.cardsRemaining = cardsRemaining;
+        event.begin();
+        return event;
+    }
+    
+    /**
+     * Base event containing the table information shared by every 
+     *  blackjack event.
+     */
+    @Category({"Blackjack", "Table"})
+    @StackTrace(false)
+    abstract static class TableEvent extends Event {
+        @Label("Table ID")
+        int tableId;
+        
+        @Label("Round")
+        int round;
+        
+        @Label("Seat Count")
+        int seatCount;
+        
+        /**
+         * Method to set the table information and commit this event if 
+         *  it is enabled and lasted longer than the recording 
+         *  threshold.
+         * @param tableId Integer ID of table.
+         * @param round Integer round number.
+         * @param seatCount Integer number of players seated.
+         */
+        final void commit(int tableId, int round, int seatCount) {
+            if (shouldCommit()) {
+                this.tableId = tableId;
+                this.round = round;
+                this.seatCount = seatCount;
+                commit();
+            }
+        }
+    }
+    
+    /**
+     * Event recorded while the dealer takes bets.
+     */
+    @Name("blackjack.TakeBets")
+    @Label("Take Bets")
+    public static final class TakeBets extends TableEvent {}
+    
+    /**
+     * Event recorded while the dealer deals the first cards.
+     */
+    @Name("blackjack.DealFirstCards")
+    @Label("Deal First Cards")
+    public static final class DealFirstCards extends TableEvent {}
+    
+    /**
+     * Event recorded while a single seat plays their hand.
+     */
+    @Name("blackjack.Play")
+    @Label("Play")
+    @Description("A single seat playing their hand.")
+    public static final class Play extends TableEvent {
+        @Label("Seat")
+        int seat;
+    }
+    
+    /**
+     * Event recorded while the dealer plays their hand.
+     */
+    @Name("blackjack.PlayDealer")
+    @Label("Play Dealer")
+    public static final class PlayDealer extends TableEvent {}
+    
+    /**
+     * Event recorded while the dealer settles bets.
+     */
+    @Name("blackjack.SettleBets")
+    @Label("Settle Bets")
+    public static final class SettleBets extends TableEvent {}
+    
+    /**
+     * Event recorded when the dealer shuffles a new deck.
+     */
+    @Name("blackjack.Reshuffle")
+    @Label("Reshuffle")
+    public static final class Reshuffle extends TableEvent {
+        @Label("Cards Remaining")
+        @Description("Cards left in the old deck before reshuffling.")
+        int cardsRemaining;
+    }
+    
+    /**
+     * Event recorded when a table is saved to file.
+     */
+    @Name("blackjack.Save")
+    @Label("Save Table")
+    public static final class Save extends TableEvent {
+        @Label("File Name")
+        String fileName;
+    }
+    
+    /**
+     * Event recorded when a table is loaded from file.
+     */
+    @Name("blackjack.Load")
+    @Label("Load Table")
+    public static final class Load extends TableEvent {
+        @Label("File Name")
+        String fileName;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,400 @@
+package blackjack;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Class: TableMetrics.java
+ * Description: Live metrics of every table played in this process,
+ *  read over JMX or from a MetricsEndpoint. Counters and histograms
+ *  are built on LongAdder, so many table threads record to them
+ *  without contending. Metrics are only recorded once enabled, so
+ *  a table that is not monitored only pays for a flag check.
+ * Author: Paulo Jorge.
+ */
+public final class TableMetrics implements TableMetricsMXBean {
+    // Name metrics are registered under with JMX
+    public static final String OBJECT_NAME = "blackjack:type=TableMetrics";
+    // Metrics of this process
+    private static final TableMetrics DEFAULT = new TableMetrics();
+    // Used to determine if metrics are recorded
+    private static volatile boolean enabled;
+
+    /**
+     * Phases timed, each dealer round method plus saving and loading.
+     */
+    public enum Phase {
+        TAKE_BETS("takeBets"), DEAL_FIRST_CARDS("dealFirstCards"),
+        PLAY("play"), PLAY_DEALER("playDealer"),
+        SETTLE_BETS("settleBets"), ROUND("round"), SAVE("save"),
+        LOAD("load");
+
+        // Label of phase in JSON and JMX
+        private final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+
+        /**
+         * Method to get and return the label of this phase.
+         * @return String label of phase.
+         */
+        public String getLabel() {
+            return this.label;
+        }
+    }
+
+    // Rounds and hands played, and decks reshuffled
+    private final LongAdder rounds = new LongAdder();
+    private final LongAdder hands = new LongAdder();
+    private final LongAdder reshuffles = new LongAdder();
+    // Latency of each phase, indexed by phase ordinal
+    private final LatencyHistogram[] latencies
+            = new LatencyHistogram[Phase.values().length];
+    // Outcomes of each player type
+    private final Map<String, Outcomes> outcomes
+            = new ConcurrentHashMap();
+    // Rounds and hands played per second
+    private final Rate roundRate = new Rate(this.rounds);
+    private final Rate handRate = new Rate(this.hands);
+
+    /**
+     * Private constructor as metrics are shared by the process.
+     */
+    private TableMetrics() {
+        for (int i = 0; i < this.latencies.length; i++)
+            this.latencies[i] = new LatencyHistogram();
+    }
+
+    /**
+     * Method to get and return the metrics of this process.
+     * @return TableMetrics object.
+     */
+    public static TableMetrics getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Method to start recording metrics and register them with the
+     *  platform MBean server, if not already registered.
+     */
+    public static void enableWithJmx() {
+        enabled = true;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name))
+                server.registerMBean(DEFAULT, name);
+        } catch (JMException exception) {
+            exception.printStackTrace();
+        }
+    }
+
+    /**
+     * Method to get the start time of a phase being timed.
+     * @return Long System.nanoTime() now, or 0 if metrics are not
+     *  being recorded.
+     */
+    static long start() {
+        return (enabled ? System.nanoTime() : 0);
+    }
+
+    /**
+     * Method to record the latency of a phase.
+     * @param phase Phase object timed.
+     * @param started Long time returned by start(), nothing is
+     *  recorded if 0.
+     */
+    static void record(Phase phase, long started) {
+        if (started != 0)
+            DEFAULT.latencies[phase.ordinal()].record(System.nanoTime()
+                    - started);
+    }
+
+    /**
+     * Method to record a round played.
+     * @param hands Integer number of hands played in round.
+     * @param started Long time returned by start() when round started,
+     *  nothing is recorded if 0.
+     */
+    static void roundPlayed(int hands, long started) {
+        if (started == 0)
+            return;
+        record(Phase.ROUND, started);
+        DEFAULT.rounds.increment();
+        DEFAULT.hands.add(hands);
+    }
+
+    /**
+     * Method to record a deck reshuffled.
+     */
+    static void reshuffled() {
+        if (enabled)
+            DEFAULT.reshuffles.increment();
+    }
+
+    /**
+     * Method to record the outcome of a hand.
+     * @param playerType String type of player.
+     * @param bet Integer bet placed.
+     * @param settled Integer amount settled, negative if lost.
+     */
+    static void settled(String playerType, int bet, int settled) {
+        if (!enabled)
+            return;
+        Outcomes outcome = DEFAULT.outcomes.get(playerType);
+        if (outcome == null) {
+            DEFAULT.outcomes.putIfAbsent(playerType, new Outcomes());
+            outcome = DEFAULT.outcomes.get(playerType);
+        }
+
+        if (settled < 0)
+            outcome.losses.increment();
+        else if (settled == bet)
+            outcome.pushes.increment();
+        else
+            outcome.wins.increment();
+    }
+
+    /**
+     * Method to get the number of rounds played by every table.
+     * @return Long number of rounds.
+     */
+    @Override
+    public long getRounds() {
+        return this.rounds.sum();
+    }
+
+    /**
+     * Method to get the number of hands played by every table.
+     * @return Long number of hands.
+     */
+    @Override
+    public long getHands() {
+        return this.hands.sum();
+    }
+
+    /**
+     * Method to get the rounds played per second, over at least the
+     *  last second.
+     * @return Double rounds per second.
+     */
+    @Override
+    public double getRoundsPerSecond() {
+        return this.roundRate.get();
+    }
+
+    /**
+     * Method to get the hands played per second, over at least the
+     *  last second.
+     * @return Double hands per second.
+     */
+    @Override
+    public double getHandsPerSecond() {
+        return this.handRate.get();
+    }
+
+    /**
+     * Method to get the number of decks reshuffled by every table.
+     * @return Long number of reshuffles.
+     */
+    @Override
+    public long getReshuffles() {
+        return this.reshuffles.sum();
+    }
+
+    /**
+     * Method to get the 99th percentile latency of a whole round.
+     * @return Double latency in microseconds.
+     */
+    @Override
+    public double getRoundLatencyP99Micros() {
+        return this.latencies[Phase.ROUND.ordinal()].getPercentile(99)
+                / 1e3;
+    }
+
+    /**
+     * Method to get a summary of the latency of each phase of a round,
+     *  and of saving and loading tables.
+     * @return Map object of phase name to LatencySummary.
+     */
+    @Override
+    public Map<String, LatencySummary> getLatencies() {
+        Map<String, LatencySummary> summaries = new TreeMap();
+        for (Phase phase : Phase.values())
+            summaries.put(phase.getLabel(),
+                    this.latencies[phase.ordinal()].summarise());
+        return Collections.unmodifiableMap(summaries);
+    }
+
+    /**
+     * Method to get and return the latency histogram of a phase.
+     * @param phase Phase object timed.
+     * @return LatencyHistogram object of phase.
+     */
+    public LatencyHistogram getLatency(Phase phase) {
+        return this.latencies[phase.ordinal()];
+    }
+
+    /**
+     * Method to get the hands won by each player type.
+     * @return Map object of player type to number of hands.
+     */
+    @Override
+    public Map<String, Long> getWins() {
+        Map<String, Long> counts = new TreeMap();
+        for (Map.Entry<String, Outcomes> entry : this.outcomes.entrySet())
+            counts.put(entry.getKey(), entry.getValue().wins.sum());
+        return counts;
+    }
+
+    /**
+     * Method to get the hands pushed by each player type.
+     * @return Map object of player type to number of hands.
+     */
+    @Override
+    public Map<String, Long> getPushes() {
+        Map<String, Long> counts = new TreeMap();
+        for (Map.Entry<String, Outcomes> entry : this.outcomes.entrySet())
+            counts.put(entry.getKey(), entry.getValue().pushes.sum());
+        return counts;
+    }
+
+    /**
+     * Method to get the hands lost by each player type.
+     * @return Map object of player type to number of hands.
+     */
+    @Override
+    public Map<String, Long> getLosses() {
+        Map<String, Long> counts = new TreeMap();
+        for (Map.Entry<String, Outcomes> entry : this.outcomes.entrySet())
+            counts.put(entry.getKey(), entry.getValue().losses.sum());
+        return counts;
+    }
+
+    /**
+     * Method to check if metrics are being recorded.
+     * @return Boolean true if recording, false otherwise.
+     */
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Method to start or stop recording metrics.
+     * @param enabled Boolean true to record, false to stop.
+     */
+    @Override
+    public void setEnabled(boolean enabled) {
+        TableMetrics.enabled = enabled;
+    }
+
+    /**
+     * Method to format every metric as JSON.
+     * @return String containing JSON object.
+     */
+    public String toJson() {
+        StringBuilder str = new StringBuilder();
+
+        str.append("{\n");
+        str.append("  \"enabled\": ").append(enabled);
+        str.append(",\n  \"rounds\": ").append(getRounds());
+        str.append(",\n  \"hands\": ").append(getHands());
+        str.append(",\n  \"roundsPerSecond\": ").append(
+                String.format("%.1f", getRoundsPerSecond()));
+        str.append(",\n  \"handsPerSecond\": ").append(
+                String.format("%.1f", getHandsPerSecond()));
+        str.append(",\n  \"reshuffles\": ").append(getReshuffles());
+
+        // Latency of each phase
+        str.append(",\n  \"latencies\": {");
+        boolean first = true;
+        for (Map.Entry<String, LatencySummary> entry
+                : getLatencies().entrySet()) {
+            str.append(first ? "\n" : ",\n");
+            first = false;
+            str.append("    \"").append(entry.getKey()).append("\": ")
+                    .append(entry.getValue().toJson());
+        }
+
+        // Outcomes of each player type
+        str.append("\n  },\n  \"players\": {");
+        first = true;
+        for (Map.Entry<String, Outcomes> entry
+                : new TreeMap<String, Outcomes>(this.outcomes).entrySet()) {
+            Outcomes outcome = entry.getValue();
+            str.append(first ? "\n" : ",\n");
+            first = false;
+            str.append("    \"").append(entry.getKey()).append("\": {");
+            str.append("\"wins\": ").append(outcome.wins.sum());
+            str.append(", \"pushes\": ").append(outcome.pushes.sum());
+            str.append(", \"losses\": ").append(outcome.losses.sum());
+            str.append("}");
+        }
+        str.append("\n  }\n}\n");
+
+        return str.toString();
+    }
+
+    /**
+     * Hands won, pushed and lost by a player type.
+     */
+    private static final class Outcomes {
+        // Hands won, pushed and lost
+        private final LongAdder wins = new LongAdder();
+        private final LongAdder pushes = new LongAdder();
+        private final LongAdder losses = new LongAdder();
+    }
+
+    /**
+     * Rate of a counter, measured between reads at least a second
+     *  apart so frequent reads do not make it noisy.
+     */
+    private static final class Rate {
+        // Shortest time between measures in nanoseconds
+        private static final long MIN_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+        // Counter measured
+        private final LongAdder counter;
+        // Time and count of the last measure
+        private long lastTime = System.nanoTime();
+        private long lastCount;
+        // Count per second at the last measure
+        private double rate;
+
+        /**
+         * Constructor method used to initialise a new rate.
+         * @param counter LongAdder object counted.
+         */
+        private Rate(LongAdder counter) {
+            this.counter = counter;
+        }
+
+        /**
+         * Method to get and return the rate, measuring it again if the
+         *  last measure is at least a second old.
+         * @return Double count per second.
+         */
+        private synchronized double get() {
+            long now = System.nanoTime();
+            if ((now - this.lastTime) >= MIN_INTERVAL) {
+                long count = this.counter.sum();
+                this.rate = (count - this.lastCount) * 1e9
+                        / (now - this.lastTime);
+                this.lastTime = now;
+                this.lastCount = count;
+            }
+            return this.rate;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,86 @@
+package blackjack;
+
+import java.util.Map;
+
+/**
+ * Class: TableMetricsMXBean.java
+ * Description: Interface class of the table metrics read over JMX.
+ * Author: Paulo Jorge.
+ */
+public interface TableMetricsMXBean {
+
+    /**
+     * Method to get the number of rounds played by every table.
+     * @return Long number of rounds.
+     */
+    long getRounds();
+
+    /**
+     * Method to get the number of hands played by every table.
+     * @return Long number of hands.
+     */
+    long getHands();
+
+    /**
+     * Method to get the rounds played per second, over at least the
+     *  last second.
+     * @return Double rounds per second.
+     */
+    double getRoundsPerSecond();
+
+    /**
+     * Method to get the hands played per second, over at least the
+     *  last second.
+     * @return Double hands per second.
+     */
+    double getHandsPerSecond();
+
+    /**
+     * Method to get the number of decks reshuffled by every table.
+     * @return Long number of reshuffles.
+     */
+    long getReshuffles();
+
+    /**
+     * Method to get the 99th percentile latency of a whole round.
+     * @return Double latency in microseconds.
+     */
+    double getRoundLatencyP99Micros();
+
+    /**
+     * Method to get a summary of the latency of each phase of a round,
+     *  and of saving and loading tables.
+     * @return Map object of phase name to LatencySummary.
+     */
+    Map<String, LatencySummary> getLatencies();
+
+    /**
+     * Method to get the hands won by each player type.
+     * @return Map object of player type to number of hands.
+     */
+    Map<String, Long> getWins();
+
+    /**
+     * Method to get the hands pushed by each player type.
+     * @return Map object of player type to number of hands.
+     */
+    Map<String, Long> getPushes();
+
+    /**
+     * Method to get the hands lost by each player type.
+     * @return Map object of player type to number of hands.
+     */
+    Map<String, Long> getLosses();
+
+    /**
+     * Method to check if metrics are being recorded.
+     * @return Boolean true if recording, false otherwise.
+     */
+    boolean isEnabled();
+
+    /**
+     * Method to start or stop recording metrics.
+     * @param enabled Boolean true to record, false to stop.
+     */
+    void setEnabled(boolean enabled);
+}
\ No newline at end of file
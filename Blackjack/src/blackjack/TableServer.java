@@ -0,0 +1,710 @@
+package blackjack;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Class: TableServer.java
+ * Description: Network front end serving many blackjack tables to
+ *  remote human players. Connections are handled by a few selector
+ *  threads rather than a thread per connection, and each table plays
+ *  its rounds on its own thread. A player is seated at the first
+ *  table with a free seat when they connect, and may move between
+ *  tables without pausing the other players. Play uses a simple
+ *  line protocol. Cards are sent as card codes, see Card.fromCode().
+ *  Server to player:
+ *   JOINED table      Seated at table, from the next round.
+ *   BET balance       Reply with the bet to place.
+ *   DEALER card       Dealers first card.
+ *   CARD card         Card dealt to player.
+ *   HIT total         Reply HIT to take a card or STAND to stick.
+ *   SETTLED bet balance
+ *                     Amount settled and new balance.
+ *   ERROR message     Last reply was invalid or too late.
+ *   BYE reason        Player has left the table.
+ *  Player to server, other than replies:
+ *   QUIT              Leave the table at the end of the round.
+ *   MOVE              Move to another table with a free seat at the
+ *                      end of the round.
+ *  A player that does not reply within DECISION_TIMEOUT seconds bets
+ *  the minimum or sticks, without holding up the rest of the table.
+ * Author: Paulo Jorge.
+ */
+public class TableServer implements Closeable {
+    // Longest line accepted from a player
+    private static final int MAX_LINE = 64;
+    // Seats at each table
+    private static final int SEATS = 8;
+    // Seconds a player has to make each decision
+    private static final int DECISION_TIMEOUT = 30;
+
+    // Channel accepting new connections
+    private final ServerSocketChannel server;
+    // Selector threads, the first also accepts new connections
+    private final SelectorLoop[] loops;
+    // Tables served, and their house rules
+    private final TableRunner[] tables;
+    private final RuleSet rules;
+    // Used to hand accepted connections to each selector in turn
+    private final AtomicInteger nextLoop = new AtomicInteger();
+    private volatile boolean running = true;
+
+    /**
+     * Constructor method used to initialise and start a new server.
+     * @param port Integer port to listen on, or 0 for any free port.
+     * @param tables Integer number of tables served.
+     * @param selectors Integer number of selector threads.
+     * @param rules RuleSet object of house rules of every table.
+     * @throws IOException If server could not be started.
+     */
+    public TableServer(int port, int tables, int selectors,
+            RuleSet rules) throws IOException {
+        if ((tables < 1) || (selectors < 1))
+            throw new IllegalArgumentException("Tables and selectors "
+                    + "must be at least 1.");
+
+        this.rules = rules;
+        this.server = ServerSocketChannel.open();
+        this.server.bind(new InetSocketAddress(port));
+        this.server.configureBlocking(false);
+
+        // Start tables
+        this.tables = new TableRunner[tables];
+        for (int i = 0; i < tables; i++) {
+            this.tables[i] = new TableRunner(i, rules);
+            startThread(this.tables[i], "table-" + i);
+        }
+
+        // Start selectors
+        this.loops = new SelectorLoop[selectors];
+        for (int i = 0; i < selectors; i++)
+            this.loops[i] = new SelectorLoop();
+        this.server.register(this.loops[0].selector,
+                SelectionKey.OP_ACCEPT);
+        for (int i = 0; i < selectors; i++)
+            startThread(this.loops[i], "selector-" + i);
+    }
+
+    /**
+     * Method to start a daemon thread.
+     * @param task Runnable object run by thread.
+     * @param name String name of thread.
+     */
+    private static void startThread(Runnable task, String name) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Method to get and return the port the server is listening on.
+     * @return Integer port.
+     * @throws IOException If port could not be read.
+     */
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) this.server.getLocalAddress())
+                .getPort();
+    }
+
+    /**
+     * Method to get and return the number of rounds played at every
+     *  table.
+     * @return Long number of rounds.
+     */
+    public long getRounds() {
+        long rounds = 0;
+        for (TableRunner table : this.tables)
+            rounds += table.rounds;
+        return rounds;
+    }
+
+    /**
+     * Method to stop the server, closing every connection.
+     * @throws IOException If server channel could not be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        this.running = false;
+        this.server.close();
+        for (SelectorLoop loop : this.loops)
+            loop.selector.wakeup();
+    }
+
+    /**
+     * Method to seat a new connection at the first table with a free
+     *  seat.
+     * @param connection Connection object to seat.
+     */
+    private void seat(Connection connection) {
+        connection.player = new RemotePlayer(connection, 
+                this.rules.getMinimumBet());
+        TableRunner table = reserveSeat(null);
+        if (table == null) {
+            connection.send("BYE Every table is full.");
+            connection.closeAfterWrite();
+            return;
+        }
+        synchronized (connection) {
+            table.join(connection);
+        }
+    }
+    
+    /**
+     * Method to move a player to another table with a free seat. The
+     *  player leaves their table at the end of the round, then joins 
+     *  the other table.
+     * @param connection Connection object of player.
+     */
+    private void move(Connection connection) {
+        TableRunner current;
+        TableRunner next;
+        synchronized (connection) {
+            if (connection.leaving || connection.moving)
+                return;
+            current = connection.table;
+            next = reserveSeat(current);
+            if (next == null) {
+                connection.send("ERROR No other table has a free "
+                        + "seat.");
+                return;
+            }
+            connection.moving = true;
+        }
+        current.leave(connection, next);
+    }
+    
+    /**
+     * Method to reserve a seat at the first table with a free seat.
+     * @param current TableRunner object to skip, or null for none.
+     * @return TableRunner object of table reserved, or null if every
+     *  table is full.
+     */
+    private TableRunner reserveSeat(TableRunner current) {
+        for (TableRunner table : this.tables)
+            if ((table != current) && table.reserveSeat())
+                return table;
+        return null;
+    }
+    
+    /**
+     * Method to handle a line received from a player.
+     * @param connection Connection object line was received from.
+     * @param line String line received.
+     */
+    private void received(Connection connection, String line) {
+        if (line.equalsIgnoreCase("QUIT"))
+            connection.leave();
+        else if (line.equalsIgnoreCase("MOVE"))
+            move(connection);
+        else
+            connection.player.reply(line);
+    }
+
+    /**
+     * Connection of a single player, shared by the selector thread
+     *  reading and writing it and the table thread playing it.
+     */
+    static final class Connection {
+        // Channel and selector of connection
+        private final SocketChannel channel;
+        private final SelectorLoop loop;
+        // Partly read line
+        private final StringBuilder line = new StringBuilder();
+        // Lines waiting to be written
+        private final Queue<ByteBuffer> writes
+                = new ConcurrentLinkedQueue();
+        // Player of connection, and table they are seated at
+        private volatile RemotePlayer player;
+        private TableRunner table;
+        // Set when player asks to leave or move, guarded by the lock 
+        // of the connection
+        private boolean leaving;
+        private boolean moving;
+        private volatile boolean closed;
+        private volatile boolean closeAfterWrite;
+
+        /**
+         * Constructor method used to initialise a new connection.
+         * @param channel SocketChannel object of connection.
+         * @param loop SelectorLoop object handling connection.
+         */
+        private Connection(SocketChannel channel, SelectorLoop loop) {
+            this.channel = channel;
+            this.loop = loop;
+        }
+
+        /**
+         * Method to send a line to the player. Lines are written by
+         *  the selector thread, so this never blocks.
+         * @param line String line to send.
+         */
+        void send(String line) {
+            if (this.closed)
+                return;
+            this.writes.add(ByteBuffer.wrap((line + "\n")
+                    .getBytes(StandardCharsets.UTF_8)));
+            this.loop.requestWrite(this);
+        }
+
+        /**
+         * Method to close the connection once every line waiting has
+         *  been written.
+         */
+        void closeAfterWrite() {
+            this.closeAfterWrite = true;
+            this.loop.requestWrite(this);
+        }
+
+        /**
+         * Method to check if the connection is closed.
+         * @return Boolean true if closed, false otherwise.
+         */
+        boolean isClosed() {
+            return this.closed;
+        }
+
+        /**
+         * Method to request the player leaves their table, unless they
+         *  have already. A player moving table leaves once they reach 
+         *  the other table.
+         */
+        private void leave() {
+            TableRunner current;
+            synchronized (this) {
+                if (this.leaving)
+                    return;
+                this.leaving = true;
+                if (this.moving)
+                    return;
+                current = this.table;
+            }
+            // Not seated if every table was full
+            if (current != null)
+                current.leave(this, null);
+        }
+
+        /**
+         * Method to close the connection, telling a seated player to
+         *  stop waiting for replies and leave their table.
+         */
+        private void close() {
+            this.closed = true;
+            try {
+                this.channel.close();
+            } catch (IOException exception) {}
+            if (this.player != null) {
+                this.player.disconnected();
+                leave();
+            }
+        }
+    }
+
+    /**
+     * Selector thread reading and writing a share of the connections.
+     */
+    private final class SelectorLoop implements Runnable {
+        private final Selector selector;
+        // Connections accepted but not yet registered
+        private final Queue<Connection> registrations
+                = new ConcurrentLinkedQueue();
+        // Connections with lines waiting to be written
+        private final Queue<Connection> writeRequests
+                = new ConcurrentLinkedQueue();
+        // Buffer used to read from every connection
+        private final ByteBuffer readBuffer = ByteBuffer.allocate(4096);
+
+        /**
+         * Constructor method used to initialise a new selector loop.
+         * @throws IOException If selector could not be opened.
+         */
+        private SelectorLoop() throws IOException {
+            this.selector = Selector.open();
+        }
+
+        /**
+         * Method to ask this selector to write a connection.
+         * @param connection Connection object to write.
+         */
+        private void requestWrite(Connection connection) {
+            this.writeRequests.add(connection);
+            this.selector.wakeup();
+        }
+
+        /**
+         * Method to handle connections until the server is closed.
+         */
+        @Override
+        public void run() {
+            try {
+                while (TableServer.this.running) {
+                    this.selector.select();
+                    register();
+                    enableWrites();
+
+                    Iterator<SelectionKey> keys
+                            = this.selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        if (!key.isValid())
+                            continue;
+                        if (key.isAcceptable())
+                            accept();
+                        else {
+                            Connection connection
+                                    = (Connection) key.attachment();
+                            if (key.isReadable())
+                                read(connection);
+                            if (key.isValid() && key.isWritable())
+                                write(key, connection);
+                        }
+                    }
+                }
+            } catch (IOException | ClosedSelectorException exception) {
+                if (TableServer.this.running)
+                    exception.printStackTrace();
+            } finally {
+                // Close every connection
+                for (SelectionKey key : this.selector.keys())
+                    if (key.attachment() != null)
+                        ((Connection) key.attachment()).close();
+                try {
+                    this.selector.close();
+                } catch (IOException exception) {}
+            }
+        }
+
+        /**
+         * Method to accept every waiting connection and hand each to
+         *  a selector in turn.
+         * @throws IOException If server channel failed.
+         */
+        private void accept() throws IOException {
+            SocketChannel channel;
+            while ((channel = TableServer.this.server.accept()) != null) {
+                channel.configureBlocking(false);
+                // Lines are short, so send each without waiting
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                SelectorLoop loop = TableServer.this.loops[
+                        Math.floorMod(TableServer.this.nextLoop
+                        .getAndIncrement(), TableServer.this.loops
+                        .length)];
+                Connection connection = new Connection(channel, loop);
+                loop.registrations.add(connection);
+                loop.selector.wakeup();
+            }
+        }
+
+        /**
+         * Method to register connections handed to this selector and
+         *  seat each player.
+         * @throws IOException If a channel could not be registered.
+         */
+        private void register() throws IOException {
+            Connection connection;
+            while ((connection = this.registrations.poll()) != null) {
+                connection.channel.register(this.selector,
+                        SelectionKey.OP_READ, connection);
+                seat(connection);
+            }
+        }
+
+        /**
+         * Method to start writing every connection with lines waiting.
+         */
+        private void enableWrites() {
+            Connection connection;
+            while ((connection = this.writeRequests.poll()) != null) {
+                SelectionKey key = connection.channel.keyFor(
+                        this.selector);
+                if ((key != null) && key.isValid())
+                    key.interestOps(key.interestOps()
+                            | SelectionKey.OP_WRITE);
+            }
+        }
+
+        /**
+         * Method to read from a connection and handle each complete
+         *  line.
+         * @param connection Connection object to read.
+         */
+        private void read(Connection connection) {
+            int read;
+            try {
+                this.readBuffer.clear();
+                read = connection.channel.read(this.readBuffer);
+            } catch (IOException exception) {
+                read = -1;
+            }
+            if (read < 0) {
+                connection.close();
+                return;
+            }
+
+            this.readBuffer.flip();
+            while (this.readBuffer.hasRemaining()) {
+                char c = (char) (this.readBuffer.get() & 0xFF);
+                if (c == '\n') {
+                    received(connection, connection.line.toString()
+                            .trim());
+                    connection.line.setLength(0);
+                } else if (connection.line.length() < MAX_LINE)
+                    connection.line.append(c);
+                else {
+                    // Line too long
+                    connection.close();
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Method to write lines waiting to a connection, stopping when
+         *  the channel can take no more.
+         * @param key SelectionKey object of connection.
+         * @param connection Connection object to write.
+         */
+        private void write(SelectionKey key, Connection connection) {
+            try {
+                ByteBuffer buffer;
+                while ((buffer = connection.writes.peek()) != null) {
+                    connection.channel.write(buffer);
+                    if (buffer.hasRemaining())
+                        return;
+                    connection.writes.poll();
+                }
+            } catch (IOException exception) {
+                connection.close();
+                return;
+            }
+
+            // Every line written
+            key.interestOps(SelectionKey.OP_READ);
+            if (connection.closeAfterWrite)
+                connection.close();
+            // Check a line was not added after writing
+            else if (!connection.writes.isEmpty())
+                requestWrite(connection);
+        }
+    }
+
+    /**
+     * Table thread playing rounds while any player is seated. Players
+     *  join and leave from other threads while rounds are played, and
+     *  are seated or removed between rounds.
+     */
+    private final class TableRunner implements Runnable {
+        // Table index and table played
+        private final int index;
+        private final BlackjackTable table;
+        // Seats free, reserved before a player joins
+        private final AtomicInteger freeSeats = new AtomicInteger(SEATS);
+        // Players seated, added and removed by seat registry callbacks
+        private final Set<RemotePlayer> seated 
+                = Collections.newSetFromMap(new ConcurrentHashMap());
+        // Rounds played
+        private volatile long rounds;
+
+        /**
+         * Constructor method used to initialise a new table thread.
+         * @param index Integer index of table.
+         * @param rules RuleSet object of house rules.
+         */
+        private TableRunner(int index, RuleSet rules) {
+            this.index = index;
+            this.table = new BlackjackTable(false, false,
+                    RandomStreams.newRandom(), rules);
+            this.table.assignPlayers();
+            // Slow players must not hold up the rest of the table
+            this.table.getDealer().setDecisionTimeout(DECISION_TIMEOUT, 
+                    TimeUnit.SECONDS);
+        }
+
+        /**
+         * Method to reserve a seat at this table.
+         * @return Boolean true if a seat was reserved, false if full.
+         */
+        private boolean reserveSeat() {
+            int free;
+            do {
+                free = this.freeSeats.get();
+                if (free == 0)
+                    return false;
+            } while (!this.freeSeats.compareAndSet(free, free - 1));
+            return true;
+        }
+
+        /**
+         * Method to play rounds until the server is closed.
+         */
+        @Override
+        public void run() {
+            try {
+                while (TableServer.this.running) {
+                    // Wait for a player if table is empty
+                    if (this.table.getPlayers().isEmpty()) {
+                        this.table.getSeats().awaitRequests(1, 
+                                TimeUnit.SECONDS);
+                        continue;
+                    }
+
+                    this.table.playRound();
+                    this.rounds++;
+                    removeOutOfFunds();
+                }
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Method to request a player with a reserved seat joins this 
+         *  table. Must be called holding the lock of the connection.
+         * @param connection Connection object of player.
+         */
+        private void join(final Connection connection) {
+            connection.table = this;
+            this.table.getSeats().requestJoin(connection.player)
+                    .thenAccept(new Consumer<Boolean>() {
+                @Override
+                public void accept(Boolean joined) {
+                    if (joined) {
+                        TableRunner.this.seated.add(connection.player);
+                        connection.send("JOINED " 
+                                + TableRunner.this.index);
+                    } else
+                        bye(connection, "BYE Out of funds.");
+                }
+            });
+        }
+
+        /**
+         * Method to request a player leaves this table, either leaving
+         *  the server or moving to another table.
+         * @param connection Connection object of player.
+         * @param next TableRunner object player is moving to, with a 
+         *  seat reserved, or null if leaving the server.
+         */
+        private void leave(final Connection connection, 
+                final TableRunner next) {
+            this.table.getSeats().requestLeave(connection.player)
+                    .thenAccept(new Consumer<Boolean>() {
+                @Override
+                public void accept(Boolean left) {
+                    // Player may have been removed for being out of funds
+                    if (!left || !TableRunner.this.seated.remove(
+                            connection.player)) {
+                        if (next != null)
+                            next.freeSeats.incrementAndGet();
+                        return;
+                    }
+                    
+                    TableRunner.this.freeSeats.incrementAndGet();
+                    if (next == null) {
+                        connection.send("BYE Goodbye.");
+                        connection.closeAfterWrite();
+                    } else
+                        next.arrive(connection);
+                }
+            });
+        }
+
+        /**
+         * Method to join a player moving from another table, unless
+         *  they asked to leave while moving.
+         * @param connection Connection object of player.
+         */
+        private void arrive(Connection connection) {
+            synchronized (connection) {
+                connection.moving = false;
+                if (!connection.leaving) {
+                    join(connection);
+                    return;
+                }
+            }
+            this.freeSeats.incrementAndGet();
+            connection.send("BYE Goodbye.");
+            connection.closeAfterWrite();
+        }
+
+        /**
+         * Method to remove every player the dealer removed for running 
+         *  out of funds, freeing their seat.
+         */
+        private void removeOutOfFunds() {
+            List<Player> players = this.table.getPlayers();
+            for (Iterator<RemotePlayer> i = this.seated.iterator();
+                    i.hasNext();) {
+                RemotePlayer player = i.next();
+                if (!players.contains(player) 
+                        && this.seated.remove(player))
+                    bye(player.getConnection(), "BYE Out of funds.");
+            }
+        }
+
+        /**
+         * Method to free the seat of a player that could not join or 
+         *  has been removed, and close their connection.
+         * @param connection Connection object of player.
+         * @param line String line to send before closing.
+         */
+        private void bye(Connection connection, String line) {
+            this.freeSeats.incrementAndGet();
+            synchronized (connection) {
+                connection.leaving = true;
+            }
+            connection.send(line);
+            connection.closeAfterWrite();
+        }
+    }
+
+    /**
+     * Method to run a server from the command line.
+     * @param args Port, number of tables, number of selector threads
+     *  and metrics port, or 0 for no metrics. Defaults to port 4000,
+     *  100 tables, 2 selectors and metrics port 4001.
+     * @throws IOException If server could not be started.
+     * @throws InterruptedException If interrupted while running.
+     */
+    public static void main(String[] args) throws IOException,
+            InterruptedException {
+        int port = (args.length > 0 ? Integer.parseInt(args[0]) : 4000);
+        int tables = (args.length > 1 ? Integer.parseInt(args[1]) : 100);
+        int selectors = (args.length > 2 ? Integer.parseInt(args[2])
+                : 2);
+        int metricsPort = (args.length > 3 ? Integer.parseInt(args[3])
+                : 4001);
+
+        TableServer server = new TableServer(port, tables, selectors,
+                RuleSet.standard());
+        System.out.println("Serving " + tables + " tables on port "
+                + server.getPort() + ".");
+        // Serve metrics over HTTP and JMX
+        if (metricsPort > 0) {
+            MetricsEndpoint.start(metricsPort);
+            System.out.println("Serving metrics on http://localhost:" 
+                    + metricsPort + MetricsEndpoint.PATH + ".");
+        }
+        // Serve until process is stopped
+        Thread.currentThread().join();
+    }
+}
\ No newline at end of file
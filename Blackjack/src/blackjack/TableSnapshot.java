@@ -0,0 +1,94 @@
+package blackjack;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Scanner;
+
+/**
+ * Class: TableSnapshot.java
+ * Description: Immutable snapshot of a table, its dealer, deck and 
+ *  every player, taken between rounds. The snapshot holds the table 
+ *  encoded by the binary codec, so taking one only copies primitive
+ *  state and the snapshot can be written to file on another thread 
+ *  while the live table keeps playing.
+ * Author: Paulo Jorge.
+ */
+public final class TableSnapshot {
+    // Table information recorded with the snapshot
+    private final int tableId;
+    private final int round;
+    private final int seatCount;
+    // Encoded table, read only
+    private final ByteBuffer data;
+    
+    /**
+     * Constructor method used to initialise a new snapshot.
+     * @param tableId Integer ID of table.
+     * @param round Integer round number.
+     * @param seatCount Integer number of players seated.
+     * @param data ByteBuffer object containing encoded table.
+     */
+    private TableSnapshot(int tableId, int round, int seatCount, 
+            ByteBuffer data) {
+        this.tableId = tableId;
+        this.round = round;
+        this.seatCount = seatCount;
+        this.data = data.asReadOnlyBuffer();
+    }
+    
+    /**
+     * Method to take and return a snapshot of a table. Must be called 
+     *  on the thread playing the table, between rounds.
+     * @param table BlackjackTable object to snapshot.
+     * @return TableSnapshot object of table.
+     */
+    public static TableSnapshot of(BlackjackTable table) {
+        return new TableSnapshot(table.getDealer().getTableId(), 
+                table.getDealer().getRound(), table.getPlayers().size(),
+                BinaryCodec.encode(table));
+    }
+    
+    /**
+     * Method to get and return the ID of the table.
+     * @return Integer table ID.
+     */
+    public int getTableId() {
+        return this.tableId;
+    }
+    
+    /**
+     * Method to get and return the round the snapshot was taken at.
+     * @return Integer round number.
+     */
+    public int getRound() {
+        return this.round;
+    }
+    
+    /**
+     * Method to get and return the number of players seated.
+     * @return Integer seat count.
+     */
+    public int getSeatCount() {
+        return this.seatCount;
+    }
+    
+    /**
+     * Method to get and return the encoded table. Each call returns 
+     *  a new read only view, so callers can read it independently.
+     * @return ByteBuffer object containing encoded table.
+     */
+    public ByteBuffer getData() {
+        return this.data.duplicate();
+    }
+    
+    /**
+     * Method to restore a new table from this snapshot.
+     * @param scanner Scanner object given to any human players, or 
+     *  null if the table has no human players.
+     * @return BlackjackTable object restored.
+     * @throws IOException If snapshot could not be decoded.
+     */
+    public BlackjackTable restore(Scanner scanner) throws IOException {
+        return BinaryCodec.decode(getData(), scanner);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,624 @@
+package blackjack;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Class: Tournament.java
+ * Description: Elimination tournament between many computer players of
+ *  different strategies. Each stage seats every entrant still in at
+ *  tables of up to 8, plays every table in parallel for a number of
+ *  rounds, then eliminates entrants out of funds and cuts the rest to
+ *  the best by balance. Survivors are reseated at fewer, full tables
+ *  for the next stage, until the final table is played. Entrants keep
+ *  their balance from stage to stage, which is recorded after each
+ *  stage as their bankroll curve.
+ * Author: Paulo Jorge.
+ */
+public class Tournament {
+    // Most players seated at a table
+    private static final int MAX_SEATS = 8;
+
+    // Strategy and number of entrants of each, in order added
+    private final Map<String, Integer> entries = new LinkedHashMap();
+    // Rounds played at each table in each stage
+    private int rounds = 100;
+    // Fraction of survivors that go through to the next stage
+    private double advance = 0.5;
+    // Seed used to seat entrants and shuffle
+    private long seed = 0;
+    // Number of threads used to play tables
+    private int threads = Runtime.getRuntime().availableProcessors();
+    // House rules of every table
+    private RuleSet rules = RuleSet.standard();
+
+    /**
+     * Entrant of a tournament and how far they got.
+     */
+    public static final class Entrant {
+        // ID of entrant starting at 1
+        private final int id;
+        // Strategy played, and the player playing it
+        private final String strategy;
+        private final Player player;
+        // Balance after each stage played
+        private int[] curve = new int[8];
+        // Number of stages played
+        private int stages;
+        // Final position, 1 for the winner
+        private int rank;
+
+        /**
+         * Constructor method used to initialise a new entrant.
+         * @param id Integer ID of entrant starting at 1.
+         * @param strategy String strategy played.
+         * @param player Player object playing for entrant.
+         */
+        private Entrant(int id, String strategy, Player player) {
+            this.id = id;
+            this.strategy = strategy;
+            this.player = player;
+        }
+
+        /**
+         * Method to record the balance of this entrant after a stage.
+         */
+        private void stagePlayed() {
+            if (this.stages == this.curve.length)
+                this.curve = Arrays.copyOf(this.curve, this.stages * 2);
+            this.curve[this.stages++] = this.player.getBalance();
+        }
+
+        /**
+         * Method to get and return the ID of entrant.
+         * @return Integer ID of entrant.
+         */
+        public int getId() {
+            return this.id;
+        }
+
+        /**
+         * Method to get and return the strategy played.
+         * @return String strategy played.
+         */
+        public String getStrategy() {
+            return this.strategy;
+        }
+
+        /**
+         * Method to get and return the final balance.
+         * @return Integer final balance.
+         */
+        public int getBalance() {
+            return this.player.getBalance();
+        }
+
+        /**
+         * Method to get and return the number of stages played.
+         * @return Integer number of stages played.
+         */
+        public int getStages() {
+            return this.stages;
+        }
+
+        /**
+         * Method to get and return the final position, 1 for the winner.
+         * @return Integer final position, 1 for the winner.
+         */
+        public int getRank() {
+            return this.rank;
+        }
+
+        /**
+         * Method to get and return the balance of this entrant after 
+         *  each stage played.
+         * @return Integer array of the balance after each stage.
+         */
+        public int[] getCurve() {
+            return Arrays.copyOf(this.curve, this.stages);
+        }
+    }
+
+    /**
+     * Method to add a number of entrants playing a strategy.
+     * @param strategy String strategy, from basic, intermediate,
+     *  advanced, or basic-N for a basic player that sticks on N or
+     *  higher.
+     * @param count Integer number of entrants.
+     */
+    public void addEntrants(String strategy, int count) {
+        String checked = strategy.trim().toLowerCase();
+        if (count < 1)
+            throw new IllegalArgumentException("Entrants must be at "
+                    + "least 1.");
+        // Check strategy is known
+        newPlayer(checked);
+        Integer entered = this.entries.get(checked);
+        this.entries.put(checked, (entered == null ? count
+                : entered + count));
+    }
+
+    /**
+     * Method to set the rounds played at each table in each stage.
+     * @param rounds Integer number of rounds.
+     */
+    public void setRounds(int rounds) {
+        if (rounds < 1)
+            throw new IllegalArgumentException("Rounds must be at "
+                    + "least 1.");
+        this.rounds = rounds;
+    }
+
+    /**
+     * Method to set the fraction of survivors of a stage that go
+     *  through to the next.
+     * @param advance Double fraction above 0 and below 1.
+     */
+    public void setAdvance(double advance) {
+        if ((advance <= 0) || (advance >= 1))
+            throw new IllegalArgumentException("Advance must be above 0 "
+                    + "and below 1.");
+        this.advance = advance;
+    }
+
+    /**
+     * Method to set the seed used to seat entrants and shuffle.
+     * @param seed Long seed.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Method to set the number of threads used to play tables.
+     * @param threads Integer number of threads.
+     */
+    public void setThreads(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("Threads must be at "
+                    + "least 1.");
+        this.threads = threads;
+    }
+
+    /**
+     * Method to set the house rules of every table.
+     * @param rules RuleSet object of house rules.
+     */
+    public void setRules(RuleSet rules) {
+        if (rules == null)
+            throw new IllegalArgumentException("Rules must be set.");
+        this.rules = rules;
+    }
+
+    /**
+     * Method to create and return a new player of a strategy.
+     * @param strategy String strategy, from basic, intermediate,
+     *  advanced, or basic-N for a basic player that sticks on N or
+     *  higher.
+     * @return Player object.
+     * @throws IllegalArgumentException If strategy is unknown.
+     */
+    static Player newPlayer(String strategy) {
+        if (!strategy.startsWith("basic-"))
+            return SimulationConfig.newPlayer(strategy);
+
+        int stickOn;
+        try {
+            stickOn = Integer.parseInt(strategy.substring(6));
+        } catch (NumberFormatException exception) {
+            throw new IllegalArgumentException("Unknown strategy "
+                    + strategy + ".");
+        }
+        if ((stickOn < 12) || (stickOn > 21))
+            throw new IllegalArgumentException("Basic players must "
+                    + "stick on 12 to 21.");
+        return new StickOnPlayer(stickOn);
+    }
+
+    /**
+     * Method to run the tournament until the final table has been
+     *  played, or every entrant is out of funds.
+     * @return List of every entrant in finishing order.
+     * @throws InterruptedException If interrupted while waiting.
+     * @throws ExecutionException If a table failed to play.
+     */
+    public List<Entrant> run() throws InterruptedException,
+            ExecutionException {
+        if (this.entries.isEmpty())
+            throw new IllegalStateException("Tournament has no "
+                    + "entrants.");
+
+        // Enter every entrant
+        List<Entrant> entrants = new ArrayList();
+        for (Map.Entry<String, Integer> entry : this.entries.entrySet())
+            for (int i = 0; i < entry.getValue(); i++) {
+                Player player = newPlayer(entry.getKey());
+                entrants.add(new Entrant(entrants.size() + 1,
+                        player.getPlayerType(), player));
+            }
+
+        ExecutorService executor
+                = Executors.newFixedThreadPool(this.threads);
+        try {
+            List<Entrant> alive = new ArrayList(entrants);
+            for (int stage = 1; !alive.isEmpty(); stage++) {
+                boolean finalTable = (alive.size() <= MAX_SEATS);
+                playStage(executor, stage, alive);
+
+                // Eliminate entrants out of funds, best first. An
+                // entrant that can still place the minimum bet would
+                // be seated by a table, so survives
+                List<Entrant> survivors = new ArrayList();
+                for (Entrant entrant : alive) {
+                    entrant.stagePlayed();
+                    if ((entrant.getBalance()
+                            - this.rules.getMinimumBet()) >= 0)
+                        survivors.add(entrant);
+                }
+                Collections.sort(survivors, BY_BALANCE);
+                if (finalTable)
+                    break;
+
+                // Cut survivors, always eliminating at least 1
+                int cut = (int) Math.ceil(survivors.size() * this.advance);
+                alive = survivors.subList(0, Math.min(cut,
+                        Math.max(survivors.size() - 1, 1)));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Rank by stages played then final balance
+        Collections.sort(entrants, BY_FINISH);
+        for (int i = 0; i < entrants.size(); i++)
+            entrants.get(i).rank = i + 1;
+        return entrants;
+    }
+
+    /**
+     * Method to seat entrants at as few tables as possible, spread
+     *  evenly in a random order, and play every table in parallel.
+     * @param executor ExecutorService object to play tables on.
+     * @param stage Integer stage number starting at 1.
+     * @param alive List of entrants still in the tournament.
+     * @throws InterruptedException If interrupted while waiting.
+     * @throws ExecutionException If a table failed to play.
+     */
+    private void playStage(ExecutorService executor, int stage,
+            List<Entrant> alive) throws InterruptedException,
+            ExecutionException {
+        List<Entrant> order = new ArrayList(alive);
+        Collections.shuffle(order, new Random(this.seed + stage));
+
+        // Seat entrants at each table in turn
+        int count = (order.size() + MAX_SEATS - 1) / MAX_SEATS;
+        BlackjackTable[] tables = new BlackjackTable[count];
+        for (int t = 0; t < count; t++)
+            tables[t] = new BlackjackTable(false, false,
+                    RandomStreams.newRandom(this.seed,
+                            ((long) stage << 32) + t), this.rules);
+        for (int i = 0; i < order.size(); i++) {
+            Player player = order.get(i).player;
+            // New table, so any card count is of a different shoe
+            player.newDeck();
+            tables[i % count].addPlayer(player);
+        }
+
+        // Play every table
+        List<Future<?>> results = new ArrayList();
+        for (final BlackjackTable table : tables) {
+            table.assignPlayers();
+            results.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    for (int i = 0; (i < Tournament.this.rounds)
+                            && !table.getPlayers().isEmpty(); i++)
+                        table.playRound();
+                    return null;
+                }
+            }));
+        }
+        for (Future<?> result : results)
+            result.get();
+    }
+
+    /**
+     * Orders entrants by highest balance, then by ID.
+     */
+    private static final Comparator<Entrant> BY_BALANCE
+            = new Comparator<Entrant>() {
+        @Override
+        public int compare(Entrant a, Entrant b) {
+            if (a.getBalance() != b.getBalance())
+                return Integer.compare(b.getBalance(), a.getBalance());
+            return Integer.compare(a.id, b.id);
+        }
+    };
+
+    /**
+     * Orders entrants by most stages played, then by highest balance,
+     *  then by ID.
+     */
+    private static final Comparator<Entrant> BY_FINISH
+            = new Comparator<Entrant>() {
+        @Override
+        public int compare(Entrant a, Entrant b) {
+            if (a.stages != b.stages)
+                return Integer.compare(b.stages, a.stages);
+            return BY_BALANCE.compare(a, b);
+        }
+    };
+
+    /**
+     * Method to format the standings and bankroll curves of a
+     *  tournament as JSON. The curve of each strategy is the mean
+     *  balance after each stage of its entrants that played the stage.
+     * @param entrants List of every entrant in finishing order.
+     * @param standings Integer number of top entrants to list.
+     * @param elapsedNanos Long time taken to run in nanoseconds.
+     * @return String containing JSON summary.
+     */
+    public static String toJson(List<Entrant> entrants, int standings,
+            long elapsedNanos) {
+        int stages = (entrants.isEmpty() ? 0 : entrants.get(0).stages);
+        StringBuilder str = new StringBuilder();
+
+        str.append("{\n");
+        str.append("  \"entrants\": ").append(entrants.size());
+        str.append(",\n  \"stages\": ").append(stages);
+        str.append(",\n  \"elapsedSeconds\": ").append(
+                String.format("%.3f", elapsedNanos / 1e9));
+
+        // Top entrants
+        str.append(",\n  \"standings\": [");
+        for (int i = 0; i < Math.min(standings, entrants.size()); i++) {
+            Entrant entrant = entrants.get(i);
+            str.append(i > 0 ? ",\n" : "\n");
+            str.append("    {\"rank\": ").append(entrant.rank);
+            str.append(", \"entrant\": ").append(entrant.id);
+            str.append(", \"strategy\": \"").append(entrant.strategy)
+                    .append('"');
+            str.append(", \"stages\": ").append(entrant.stages);
+            str.append(", \"balance\": ").append(entrant.getBalance());
+            str.append("}");
+        }
+        str.append("\n  ],\n  \"strategies\": {");
+
+        // Group entrants by strategy, in order first entered
+        Map<String, List<Entrant>> groups = new LinkedHashMap();
+        List<Entrant> byId = new ArrayList(entrants);
+        Collections.sort(byId, new Comparator<Entrant>() {
+            @Override
+            public int compare(Entrant a, Entrant b) {
+                return Integer.compare(a.id, b.id);
+            }
+        });
+        for (Entrant entrant : byId) {
+            if (!groups.containsKey(entrant.strategy))
+                groups.put(entrant.strategy, new ArrayList());
+            groups.get(entrant.strategy).add(entrant);
+        }
+
+        boolean first = true;
+        for (Map.Entry<String, List<Entrant>> group : groups.entrySet()) {
+            List<Entrant> members = group.getValue();
+            long[] balances = new long[stages];
+            int[] played = new int[stages];
+            long ranks = 0;
+            int best = Integer.MAX_VALUE;
+            for (Entrant entrant : members) {
+                ranks += entrant.rank;
+                best = Math.min(best, entrant.rank);
+                for (int s = 0; s < entrant.stages; s++) {
+                    balances[s] += entrant.curve[s];
+                    played[s]++;
+                }
+            }
+
+            str.append(first ? "\n" : ",\n");
+            first = false;
+            str.append("    \"").append(group.getKey()).append("\": {");
+            str.append("\"entrants\": ").append(members.size());
+            str.append(", \"bestRank\": ").append(best);
+            str.append(", \"meanRank\": ").append(String.format("%.1f",
+                    (double) ranks / members.size()));
+            str.append(", \"alive\": [");
+            for (int s = 0; s < stages; s++)
+                str.append(s > 0 ? ", " : "").append(played[s]);
+            str.append("], \"curve\": [");
+            for (int s = 0; (s < stages) && (played[s] > 0); s++)
+                str.append(s > 0 ? ", " : "").append(String.format(
+                        "%.1f", (double) balances[s] / played[s]));
+            str.append("]}");
+        }
+        str.append("\n  }\n}\n");
+
+        return str.toString();
+    }
+
+    /**
+     * Method to print how to run a tournament.
+     */
+    private static void printUsage() {
+        System.err.println("Usage: java -cp Blackjack.jar "
+                + "blackjack.Tournament [--entrants basic=N,"
+                + "intermediate=N,advanced=N,basic-17=N] [--rounds N]"
+                + " [--advance F] [--seed N] [--threads N]"
+                + " [--standings N] [--output FILE]");
+    }
+
+    /**
+     * Method to run a tournament from command line arguments and print
+     *  a JSON summary. Options are:
+     *   --entrants S=N,... Number of entrants of each strategy, from
+     *                      basic, intermediate, advanced or basic-N
+     *                      (default 250 of each of the first three).
+     *   --rounds N        Rounds played at each table in each stage
+     *                      (default 100).
+     *   --advance F       Fraction of survivors that go through to
+     *                      the next stage (default 0.5).
+     *   --seed N          Seed used to seat entrants and shuffle
+     *                      (default 0).
+     *   --threads N       Threads used to play tables (default number
+     *                      of processors).
+     *   --standings N     Number of top entrants listed (default 10).
+     *   --output FILE     File summary is written to.
+     *  Exits with status 0 on success, 1 if the tournament failed or 2
+     *  if the arguments were invalid.
+     * @param args String array of command line arguments.
+     */
+    public static void main(String[] args) {
+        Tournament tournament = new Tournament();
+        int standings = 10;
+        String output = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String option = args[i];
+                // Every option is followed by a value
+                if ((i + 1) >= args.length)
+                    throw new IllegalArgumentException("Missing value "
+                            + "for " + option + ".");
+                String value = args[++i];
+
+                switch (option) {
+                    case "--entrants":
+                        for (String entry : value.split(",")) {
+                            String[] parts = entry.split("=");
+                            if (parts.length != 2)
+                                throw new IllegalArgumentException(
+                                        "Invalid entrants '" + entry
+                                        + "'.");
+                            tournament.addEntrants(parts[0],
+                                    parseInt(option, parts[1]));
+                        }
+                        break;
+                    case "--rounds":
+                        tournament.setRounds(parseInt(option, value));
+                        break;
+                    case "--advance":
+                        try {
+                            tournament.setAdvance(
+                                    Double.parseDouble(value.trim()));
+                        } catch (NumberFormatException exception) {
+                            throw new IllegalArgumentException("Invalid "
+                                    + "value '" + value + "' for "
+                                    + option + ".");
+                        }
+                        break;
+                    case "--seed":
+                        tournament.setSeed(parseLong(option, value));
+                        break;
+                    case "--threads":
+                        tournament.setThreads(parseInt(option, value));
+                        break;
+                    case "--standings":
+                        standings = parseInt(option, value);
+                        break;
+                    case "--output":
+                        output = value;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown "
+                                + "option " + option + ".");
+                }
+            }
+            if (tournament.entries.isEmpty())
+                for (String strategy : new String[] {"basic",
+                        "intermediate", "advanced"})
+                    tournament.addEntrants(strategy, 250);
+        } catch (IllegalArgumentException exception) {
+            System.err.println("Error: " + exception.getMessage());
+            printUsage();
+            System.exit(2);
+            return;
+        }
+
+        try {
+            // Run and time tournament
+            long start = System.nanoTime();
+            List<Entrant> entrants = tournament.run();
+            String summary = toJson(entrants, standings,
+                    System.nanoTime() - start);
+
+            // Write summary to file if required
+            if (output != null)
+                try (PrintWriter file = new PrintWriter(output, "UTF-8")) {
+                    file.print(summary);
+                }
+            System.out.print(summary);
+        } catch (InterruptedException | ExecutionException
+                | IOException exception) {
+            exception.printStackTrace();
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Method to read an integer option value.
+     * @param option String option name.
+     * @param value String value.
+     * @return Integer value.
+     * @throws IllegalArgumentException If value is not an integer.
+     */
+    private static int parseInt(String option, String value) {
+        return (int) parseLong(option, value);
+    }
+
+    /**
+     * Method to read a long option value.
+     * @param option String option name.
+     * @param value String value.
+     * @return Long value.
+     * @throws IllegalArgumentException If value is not an integer.
+     */
+    private static long parseLong(String option, String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException exception) {
+            throw new IllegalArgumentException("Invalid value '"
+                    + value + "' for " + option + ".");
+        }
+    }
+
+    /**
+     * Basic player that sticks on a configured total instead of 17.
+     */
+    private static final class StickOnPlayer extends BasicPlayer {
+        // Total stuck on or higher
+        private final int stickOn;
+
+        /**
+         * Constructor method used to initialise a new player.
+         * @param stickOn Integer total to stick on or higher.
+         */
+        private StickOnPlayer(int stickOn) {
+            this.stickOn = stickOn;
+            this.playerType = "Basic-" + stickOn;
+        }
+
+        /**
+         * Method used to determine whether the player wants to take a 
+         *  card or not, taking cards until the total to stick on is 
+         *  reached.
+         * @return Boolean true if a card is required, false otherwise.
+         */
+        @Override
+        public boolean hit() {
+            return !this.hand.isOver(this.stickOn - 1);
+        }
+    }
+}
\ No newline at end of file